@@ -42,21 +42,47 @@ public class Conventions {
 		 * header name with which token is sent
 		 */
 		public static final String HEADER_AUTH = "AUTHORIZATION";
+		/**
+		 * header with which the client sends the entity-tag of the response
+		 * it has cached
+		 */
+		public static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+		/**
+		 * header with which we send the entity-tag of the response
+		 */
+		public static final String HEADER_ETAG = "ETag";
+		/**
+		 * name with which the entity-tag received from the client, if any, is
+		 * saved in the service context
+		 */
+		public static final String CTX_REQUEST_ETAG = "_requestEtag";
+		/**
+		 * name with which a service saves the entity-tag of its response in
+		 * the service context. Agent responds with "not modified" if this
+		 * matches the one sent by the client
+		 */
+		public static final String CTX_RESPONSE_ETAG = "_responseEtag";
 		/**
 		 * various headers that we respond back with
 		 */
 		public static final String[] HDR_NAMES = { "Access-Control-Allow-Methods", "Access-Control-Allow-Headers",
-				"Access-Control-Max-Age", "Connection", "Cache-Control", "Expires", "Accept" };
+				"Access-Control-Expose-Headers", "Access-Control-Max-Age", "Connection", "Cache-Control", "Expires",
+				"Accept" };
 		/**
 		 * values for the headers
 		 */
 		public static final String[] HDR_TEXTS = { "POST, GET, OPTIONS",
-				"content-type, " + HEADER_SERVICE + ", " + HEADER_AUTH, "1728", "Keep-Alive",
+				"content-type, " + HEADER_SERVICE + ", " + HEADER_AUTH + ", " + HEADER_IF_NONE_MATCH,
+				HEADER_ETAG, "1728", "Keep-Alive",
 				"no-cache, no-store, must-revalidate", "11111110", "application/json" };
 		/**
 		 * http status
 		 */
 		public static final int STATUS_ALL_OK = 200;
+		/**
+		 * http status
+		 */
+		public static final int STATUS_NOT_MODIFIED = 304;
 		/**
 		 * http status
 		 */
@@ -77,6 +103,20 @@ public class Conventions {
 		 * http status
 		 */
 		public static final int STATUS_INTERNAL_ERROR = 500;
+		/**
+		 * http status when the service is saturated, and the request is
+		 * rejected
+		 */
+		public static final int STATUS_SERVICE_BUSY = 503;
+		/**
+		 * header that suggests the client to retry after these many seconds
+		 */
+		public static final String HEADER_RETRY_AFTER = "Retry-After";
+		/**
+		 * seconds after which a client may retry a request that is rejected
+		 * because the service was saturated
+		 */
+		public static final String RETRY_AFTER_SECONDS = "1";
 
 		/**
 		 * tag/name of form data in the request/response pay load
@@ -100,6 +140,15 @@ public class Conventions {
 		 * sent/returned
 		 */
 		public static final String TAG_LIST = "list";
+		/**
+		 * tag/attribute name in the payload for an array of lists being
+		 * requested/returned in one go
+		 */
+		public static final String TAG_LISTS = "lists";
+		/**
+		 * tag/attribute name in the payload for the key of a keyed list
+		 */
+		public static final String TAG_KEY = "key";
 		/**
 		 * number of rows of data (expected or delivered)
 		 */
@@ -113,6 +162,39 @@ public class Conventions {
 		 * filter sort order. "sort" : {"field1":"asc/desc", "field2"...}
 		 */
 		public static final String TAG_SORT = "sort";
+		/**
+		 * fields to be returned by a filter, as comma separated names. All
+		 * fields are returned if this is not specified.
+		 * "fields":"field1,field2"
+		 */
+		public static final String TAG_FIELDS = "fields";
+		/**
+		 * fields to group by in an aggregate service, as comma separated
+		 * names
+		 */
+		public static final String TAG_GROUP_BY = "groupBy";
+		/**
+		 * aggregates to be returned by an aggregate service.
+		 * "aggregates":{"total":{"fn":"sum", "field":"amount"}}
+		 */
+		public static final String TAG_AGGREGATES = "aggregates";
+		/**
+		 * aggregate function, like sum or count
+		 */
+		public static final String TAG_AGGREGATE_FN = "fn";
+		/**
+		 * field on which the aggregate function is applied
+		 */
+		public static final String TAG_AGGREGATE_FIELD = "field";
+		/**
+		 * number of rows returned by an aggregate service when no group-by or
+		 * aggregates are requested
+		 */
+		public static final String TAG_COUNT = "count";
+		/**
+		 * values to be set by a bulk update. "values":{"status":"closed"}
+		 */
+		public static final String TAG_VALUES = "values";
 		/**
 		 * field/tag name for filter condition
 		 */
@@ -195,6 +277,11 @@ public class Conventions {
 		 * This is generated by the generator and placed in the gen root package
 		 */
 		public static final String GENERATED_MESSAGES_CLASS_NAME = "DefinedMessages";
+		/**
+		 * generated forms, records and lists are registered in this generated
+		 * class, which is placed in the gen root package
+		 */
+		public static final String GENERATED_COMPONENTS_CLASS_NAME = "DefinedComponents";
 
 		/**
 		 * folder name under which services are defined
@@ -244,11 +331,20 @@ public class Conventions {
 		 * predefined name for list service
 		 */
 		public static final String SERVICE_LIST = "list";
+		/**
+		 * predefined name for the service that dumps metrics, if it is enabled
+		 */
+		public static final String SERVICE_METRICS = "_metrics";
 
 		/**
 		 * name with which the user data is saved in the context
 		 */
 		public static final String USER_IN_CTX = "_user";
+		/**
+		 * name with which the trace (root span) of the request is saved in the
+		 * context
+		 */
+		public static final String TRACE_IN_CTX = "_trace";
 		/**
 		 * name of record to be used to get user details for creating context
 		 */
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core;
+
+import org.simplity.fm.core.data.Form;
+import org.simplity.fm.core.data.Record;
+import org.simplity.fm.core.validn.IValueList;
+
+/**
+ * components that are generated for the app. The generated implementation
+ * creates instances without using reflection.
+ *
+ * @author simplity.org
+ *
+ */
+public interface IComponents {
+	/**
+	 *
+	 * @param formName
+	 * @return a new instance of this form, or null if no such form is
+	 *         generated
+	 */
+	public abstract Form<?> newForm(String formName);
+
+	/**
+	 *
+	 * @param recordName
+	 * @return a new instance of this record, or null if no such record is
+	 *         generated
+	 */
+	public abstract Record newRecord(String recordName);
+
+	/**
+	 *
+	 * @param listName
+	 * @return a new instance of this value list, or null if no such list is
+	 *         generated
+	 */
+	public abstract IValueList newValueList(String listName);
+}
@@ -52,6 +52,12 @@ public class Message {
 	 */
 	public static final String MSG_INTERNAL_ERROR = "internalError";
 
+	/**
+	 * error to be used when a request is rejected because the service is
+	 * saturated
+	 */
+	public static final String MSG_SERVICE_BUSY = "serviceBusy";
+
 	/**
 	 * error to be used in case of any internal error
 	 */
@@ -23,6 +23,7 @@
 package org.simplity.fm.core.app;
 
 import java.util.Iterator;
+import java.util.Map;
 import java.util.ServiceLoader;
 
 import org.simplity.fm.core.conf.CompProvider;
@@ -44,7 +45,16 @@ import org.simplity.fm.core.conf.defalt.DefaultExceptionListener;
 import org.simplity.fm.core.conf.defalt.DefaultRequestLogger;
 import org.simplity.fm.core.conf.defalt.DefaultSessionCacher;
 import org.simplity.fm.core.conf.defalt.DefaultTexter;
+import org.simplity.fm.core.limit.ConcurrencyLimits;
+import org.simplity.fm.core.metrics.MetricsRegistry;
+import org.simplity.fm.core.outbox.DbOutboxStore;
+import org.simplity.fm.core.outbox.IOutboxStore;
+import org.simplity.fm.core.outbox.OutboxDispatcher;
+import org.simplity.fm.core.rdb.IKeyAllocator;
 import org.simplity.fm.core.rdb.RdbDriver;
+import org.simplity.fm.core.rdb.RetryPolicy;
+import org.simplity.fm.core.trace.ITraceSink;
+import org.simplity.fm.core.trace.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,6 +68,12 @@ public class App implements IApp {
 
 	protected static final Logger logger = LoggerFactory.getLogger(App.class);
 	private static final String UNKNOWN = "_unknown_";
+	private static final long DB_RETRY_BASE_MILLIS = 20;
+	private static final long DB_RETRY_MAX_MILLIS = 500;
+	private static final int OUTBOX_BATCH_SIZE = 50;
+	private static final int OUTBOX_MAX_ATTEMPTS = 6;
+	private static final int OUTBOX_RETRY_SECONDS = 30;
+	private static final int OUTBOX_POLL_MILLIS = 1000;
 	private static App app = new App();
 
 	/*
@@ -73,6 +89,10 @@ public class App implements IApp {
 	private ITexter texter = new DefaultTexter();
 	private IEmailer emalier = new DefaultEmailer();
 	private IServiceContextFactory contextFactory = new DefaultContextFactory();
+	private IOutboxStore outbox;
+	private boolean requestScopedConnection;
+	private IKeyAllocator keyAllocator;
+	private OutboxDispatcher dispatcher;
 
 	/**
 	 * @return the app. A dummy app if no App is configured, or if a
@@ -107,8 +127,15 @@ public class App implements IApp {
 	 * configure the app
 	 *
 	 * @param config
+	 * @throws ApplicationError
+	 *             if the configuration is inconsistent, like an outbox
+	 *             without a db
 	 */
 	public static void configureApp(final Config config) {
+		if (config.outboxTableName != null && config.dbConnectionFactory == null) {
+			throw new ApplicationError("Outbox table " + config.outboxTableName
+					+ " is configured, but dbConnectionFactory is not. Outbox requires a db.");
+		}
 		String text = config.appName;
 
 		if (text == null || text.isEmpty()) {
@@ -118,6 +145,13 @@ public class App implements IApp {
 			app.appName = text;
 		}
 
+		/*
+		 * must be set before creating the comp provider
+		 */
+		MetricsRegistry.getRegistry().setServiceEnabled(config.enableMetricsService);
+		ConcurrencyLimits.getInstance().configure(config.concurrencyLimits, config.defaultConcurrencyLimit,
+				config.concurrencyQueueSize, config.concurrencyQueueMillis, config.adaptiveConcurrency);
+
 		text = config.appRootPackage;
 
 		if (text == null || text.isEmpty()) {
@@ -143,9 +177,22 @@ public class App implements IApp {
 			logger.warn("No DB connection configured. No db access");
 			app.rdbDriver = new RdbDriver(new DefaultDbConFactory());
 		} else {
-			app.rdbDriver = new RdbDriver(config.dbConnectionFactory);
+			if (config.replicaConnectionFactories != null && config.replicaConnectionFactories.length > 0) {
+				logger.info("{} read-replicas configured. Read-only operations will be routed to them",
+						config.replicaConnectionFactories.length);
+			}
+			RetryPolicy retryPolicy = RetryPolicy.NO_RETRY;
+			if (config.maxDbAttempts > 1) {
+				logger.info("Db writes that hit a deadlock are attempted up to {} times", config.maxDbAttempts);
+				retryPolicy = new RetryPolicy(config.maxDbAttempts, DB_RETRY_BASE_MILLIS, DB_RETRY_MAX_MILLIS);
+			}
+			app.rdbDriver = new RdbDriver(config.dbConnectionFactory, config.replicaConnectionFactories,
+					config.routeToLeastBusyReplica, config.readYourWritesSeconds, retryPolicy);
 		}
 
+		app.requestScopedConnection = config.useRequestScopedConnection;
+		app.keyAllocator = config.keyAllocator;
+
 		if (config.exceptionListener == null) {
 			logger.warn(
 					"No exception listener configured. All exceptions will just be logged before responding to the client");
@@ -176,6 +223,29 @@ public class App implements IApp {
 			app.texter = config.texter;
 		}
 
+		if (config.emailer == null) {
+			logger.warn("Emails can not be sent as the facility is not configured. Emails will instead be just logged");
+			app.emalier = new DefaultEmailer();
+		} else {
+			app.emalier = config.emailer;
+		}
+
+		if (app.dispatcher != null) {
+			app.dispatcher.close();
+			app.dispatcher = null;
+		}
+		if (config.outboxTableName == null) {
+			app.outbox = null;
+		} else {
+			app.outbox = new DbOutboxStore(app.rdbDriver, config.outboxTableName);
+			app.dispatcher = new OutboxDispatcher(app.outbox, app.emalier, app.texter, OUTBOX_BATCH_SIZE,
+					config.outboxMaxPerSecond, OUTBOX_MAX_ATTEMPTS, OUTBOX_RETRY_SECONDS, OUTBOX_POLL_MILLIS);
+			app.dispatcher.start();
+			logger.info("Outbox dispatcher started on table {}", config.outboxTableName);
+		}
+
+		Tracer.setSink(config.traceSink);
+
 		if (config.contextFactory == null) {
 			logger.warn("No custom factory is defined to create service context. A default one is used");
 			app.contextFactory = new DefaultContextFactory();
@@ -194,6 +264,11 @@ public class App implements IApp {
 		return false;
 	}
 
+	@Override
+	public boolean useRequestScopedConnection() {
+		return this.requestScopedConnection;
+	}
+
 	@Override
 	public String getName() {
 		return this.appName;
@@ -244,6 +319,16 @@ public class App implements IApp {
 		return this.contextFactory;
 	}
 
+	@Override
+	public IOutboxStore getOutbox() {
+		return this.outbox;
+	}
+
+	@Override
+	public IKeyAllocator getKeyAllocator() {
+		return this.keyAllocator;
+	}
+
 	/**
 	 * This is a data structure to be used to pass parameter values for App
 	 * configuration. We prefer to keep this as a simple data-structure than
@@ -285,6 +370,53 @@ public class App implements IApp {
 
 		public IDbConnectionFactory dbConnectionFactory;
 
+		/**
+		 * optional. factories for read-replicas of the db. If specified,
+		 * read-only operations are routed to these replicas, while read-write
+		 * operations continue to use dbConnectionFactory
+		 */
+		public IDbConnectionFactory[] replicaConnectionFactories;
+
+		/**
+		 * optional. relevant if replicas are configured. true to route a read
+		 * to the replica with the least connections in use. false (default) to
+		 * use replicas in a round-robin manner.
+		 */
+		public boolean routeToLeastBusyReplica;
+
+		/**
+		 * optional. relevant if replicas are configured. Reads of a session are
+		 * routed to the primary for these many seconds after that session
+		 * writes to the db. 0 (default) to always read from replicas
+		 */
+		public int readYourWritesSeconds;
+
+		/**
+		 * optional. max number of attempts for a read-write/transact operation
+		 * that fails due to a deadlock or a serialization failure. 0 (default)
+		 * or 1 means no retry. Set it to more than 1 to enable retries, but
+		 * only if the callbacks of all such operations can safely be run
+		 * again: a callback that sends a mail or changes in-memory state would
+		 * do so once for every attempt.
+		 */
+		public int maxDbAttempts;
+
+		/**
+		 * optional. true to share one connection to the primary db across all
+		 * the db operations of a service invocation. Cuts down the number of
+		 * check-outs from the pool when a service accesses the db more than
+		 * once.
+		 */
+		public boolean useRequestScopedConnection;
+
+		/**
+		 * optional. allocates generated primary keys before rows are
+		 * inserted, so that they can be inserted in batches. for example
+		 * HiLoKeyAllocator. If not specified, keys are generated by the db
+		 * during insert.
+		 */
+		public IKeyAllocator keyAllocator;
+
 		/**
 		 * optional.
 		 */
@@ -311,10 +443,70 @@ public class App implements IApp {
 		 */
 		public IEmailer emailer;
 
+		/**
+		 * optional. name of the db table to be used as outbox for emails and
+		 * text messages. If specified, a background dispatcher delivers
+		 * messages enqueued into this outbox using the emailer and texter.
+		 * Requires dbConnectionFactory.
+		 */
+		public String outboxTableName;
+
+		/**
+		 * optional. max number of concurrent executions, by service id or by
+		 * the concurrency group of services. Requests beyond the limit are
+		 * queued, and are rejected with http status 503 if the queue is full
+		 */
+		public Map<String, Integer> concurrencyLimits;
+
+		/**
+		 * optional. concurrency limit for services that are not found in
+		 * concurrencyLimits. 0 (default) for no limit.
+		 */
+		public int defaultConcurrencyLimit;
+
+		/**
+		 * optional. max number of requests that may wait for a saturated
+		 * service. 0 (default) to reject them right away
+		 */
+		public int concurrencyQueueSize;
+
+		/**
+		 * optional. max milli-seconds a request may wait for a saturated
+		 * service
+		 */
+		public int concurrencyQueueMillis;
+
+		/**
+		 * optional. true to adjust concurrency limits based on the db latency.
+		 * The configured limits are the upper bounds
+		 */
+		public boolean adaptiveConcurrency;
+
+		/**
+		 * optional. relevant if outbox is used. max number of messages to be
+		 * delivered per second. 0 (default) for no limit
+		 */
+		public int outboxMaxPerSecond;
+
 		/**
 		 * optional. if not specified, Default context is created
 		 */
 		public IServiceContextFactory contextFactory;
+
+		/**
+		 * optional. if set to true, a built-in service named "_metrics" dumps
+		 * metrics of all services served so far. Access to this service is
+		 * subject to the access controller, like any other service.
+		 */
+		public boolean enableMetricsService;
+
+		/**
+		 * optional. sink to which finished traces of requests are sent. if not
+		 * specified, requests are not traced. RingBufferTraceSink keeps the
+		 * last few traces in memory, and JfrTraceSink records them as JFR
+		 * events
+		 */
+		public ITraceSink traceSink;
 	}
 
 }
\ No newline at end of file
@@ -30,6 +30,8 @@ import org.simplity.fm.core.conf.IServiceContextFactory;
 import org.simplity.fm.core.conf.ISessionCache;
 import org.simplity.fm.core.conf.ITexter;
 import org.simplity.fm.core.conf.IEmailer;
+import org.simplity.fm.core.outbox.IOutboxStore;
+import org.simplity.fm.core.rdb.IKeyAllocator;
 import org.simplity.fm.core.rdb.RdbDriver;
 
 /**
@@ -52,6 +54,13 @@ public interface IApp {
 	 */
 	boolean treatNullAsEmptyString();
 
+	/**
+	 * @return true if all the db operations of a service invocation are to
+	 *         share one connection to the primary db, instead of checking out
+	 *         a connection for each operation.
+	 */
+	boolean useRequestScopedConnection();
+
 	/**
 	 *
 	 * @return non-null unique name assigned to this app.
@@ -115,4 +124,21 @@ public interface IApp {
 	 *         called based on the inputs available
 	 */
 	IServiceContextFactory getContextFactory();
+
+	/**
+	 * services enqueue emails and text messages into the outbox within their
+	 * transaction, instead of sending them inline
+	 *
+	 * @return the outbox. null if it is not configured
+	 */
+	IOutboxStore getOutbox();
+
+	/**
+	 * generated primary keys are allocated by the app, instead of being
+	 * generated by the db, if an allocator is configured. This allows rows
+	 * with generated keys to be inserted in batches.
+	 *
+	 * @return key allocator. null if keys are generated by the db.
+	 */
+	IKeyAllocator getKeyAllocator();
 }
@@ -0,0 +1,445 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.conf;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.simplity.fm.core.datatypes.ValueType;
+import org.simplity.fm.core.rdb.RdbDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Request logger that does not add to the latency of a request. Request
+ * threads just drop the raw input into a bounded lock-free ring buffer. A
+ * background thread drains it, renders the input to text and hands it over in
+ * batches to a writer, like a file or a db table.
+ * <br />
+ * When the buffer is full, entries are dropped as per the overflow policy
+ * rather than making the request wait. Counters are maintained for accepted,
+ * dropped, written and failed entries.
+ *
+ * @author simplity.org
+ *
+ */
+public class AsyncRequestLogger implements IRequestLogger, AutoCloseable {
+	protected static final Logger logger = LoggerFactory.getLogger(AsyncRequestLogger.class);
+	private static final int MAX_DROP_ATTEMPTS = 8;
+
+	private final int capacity;
+	private final int mask;
+	private final AtomicReferenceArray<Entry> slots;
+	/*
+	 * sequence number of each slot, that tells whether the slot is ready to be
+	 * written into or read from. (bounded MPMC queue of Dmitry Vyukov)
+	 */
+	private final AtomicLongArray sequences;
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	private final IBatchWriter writer;
+	private final OverflowPolicy policy;
+	private final int batchSize;
+	private final long flushNanos;
+	private final Thread consumer;
+	private volatile boolean running = true;
+
+	private final AtomicLong nbrAccepted = new AtomicLong();
+	private final AtomicLong nbrDropped = new AtomicLong();
+	private final AtomicLong nbrWritten = new AtomicLong();
+	private final AtomicLong nbrFailed = new AtomicLong();
+
+	/**
+	 * create a logger and start its background writer
+	 *
+	 * @param writer
+	 *            writes a batch of entries. called from the background
+	 *            thread only.
+	 * @param capacity
+	 *            max number of entries that may be waiting to be written.
+	 *            rounded up to a power of 2
+	 * @param batchSize
+	 *            max number of entries handed over to the writer in one call
+	 * @param flushMillis
+	 *            max time an entry waits in the buffer before it is written
+	 * @param policy
+	 *            what to do when the buffer is full
+	 */
+	public AsyncRequestLogger(final IBatchWriter writer, final int capacity, final int batchSize,
+			final int flushMillis, final OverflowPolicy policy) {
+		int n = 2;
+		while (n < capacity) {
+			n <<= 1;
+		}
+		this.capacity = n;
+		this.mask = n - 1;
+		this.slots = new AtomicReferenceArray<>(n);
+		this.sequences = new AtomicLongArray(n);
+		for (int i = 0; i < n; i++) {
+			this.sequences.set(i, i);
+		}
+		this.writer = writer;
+		this.batchSize = batchSize < 1 ? 1 : batchSize;
+		this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis < 1 ? 1 : flushMillis);
+		this.policy = policy == null ? OverflowPolicy.dropNewest : policy;
+
+		this.consumer = new Thread(this::drain, "request-logger");
+		this.consumer.setDaemon(true);
+		this.consumer.start();
+	}
+
+	@Override
+	public void log(final String loginId, final String serviceName, final String input) {
+		this.logInput(loginId, serviceName, input);
+	}
+
+	@Override
+	public void logInput(final String loginId, final String serviceName, final Object input) {
+		if (this.running == false) {
+			// consumer may have exited already. entry would never be written
+			this.nbrDropped.incrementAndGet();
+			return;
+		}
+		final Entry entry = new Entry(loginId, serviceName, input);
+		if (this.offer(entry)) {
+			this.nbrAccepted.incrementAndGet();
+			return;
+		}
+
+		if (this.policy == OverflowPolicy.dropOldest) {
+			/*
+			 * make room by discarding the oldest entry. The consumer may be
+			 * racing with us, hence a few attempts before giving up
+			 */
+			for (int i = 0; i < MAX_DROP_ATTEMPTS; i++) {
+				if (this.poll() != null) {
+					this.nbrDropped.incrementAndGet();
+				}
+				if (this.offer(entry)) {
+					this.nbrAccepted.incrementAndGet();
+					return;
+				}
+			}
+		}
+		this.nbrDropped.incrementAndGet();
+	}
+
+	/**
+	 * stop accepting entries, and write whatever is pending.
+	 */
+	@Override
+	public void close() {
+		this.running = false;
+		LockSupport.unpark(this.consumer);
+		try {
+			this.consumer.join(TimeUnit.NANOSECONDS.toMillis(this.flushNanos) + 5000);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 *
+	 * @return number of entries accepted into the buffer so far
+	 */
+	public long getNbrAccepted() {
+		return this.nbrAccepted.get();
+	}
+
+	/**
+	 *
+	 * @return number of entries dropped because the buffer was full, or
+	 *         because the logger was closed
+	 */
+	public long getNbrDropped() {
+		return this.nbrDropped.get();
+	}
+
+	/**
+	 *
+	 * @return number of entries written successfully
+	 */
+	public long getNbrWritten() {
+		return this.nbrWritten.get();
+	}
+
+	/**
+	 *
+	 * @return number of entries lost because the writer failed
+	 */
+	public long getNbrFailed() {
+		return this.nbrFailed.get();
+	}
+
+	/**
+	 *
+	 * @return number of entries waiting in the buffer
+	 */
+	public int getBacklog() {
+		final long n = this.tail.get() - this.head.get();
+		return n < 0 ? 0 : (int) n;
+	}
+
+	/**
+	 *
+	 * @return max number of entries the buffer can hold
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	private boolean offer(final Entry entry) {
+		long pos = this.tail.get();
+		while (true) {
+			final int idx = (int) pos & this.mask;
+			final long diff = this.sequences.get(idx) - pos;
+			if (diff == 0) {
+				if (this.tail.compareAndSet(pos, pos + 1)) {
+					this.slots.set(idx, entry);
+					this.sequences.set(idx, pos + 1);
+					return true;
+				}
+				pos = this.tail.get();
+			} else if (diff < 0) {
+				// full
+				return false;
+			} else {
+				pos = this.tail.get();
+			}
+		}
+	}
+
+	private Entry poll() {
+		long pos = this.head.get();
+		while (true) {
+			final int idx = (int) pos & this.mask;
+			final long diff = this.sequences.get(idx) - (pos + 1);
+			if (diff == 0) {
+				if (this.head.compareAndSet(pos, pos + 1)) {
+					final Entry entry = this.slots.get(idx);
+					this.slots.set(idx, null);
+					this.sequences.set(idx, pos + this.capacity);
+					return entry;
+				}
+				pos = this.head.get();
+			} else if (diff < 0) {
+				// empty
+				return null;
+			} else {
+				pos = this.head.get();
+			}
+		}
+	}
+
+	private void drain() {
+		final List<Entry> batch = new ArrayList<>(this.batchSize);
+		while (true) {
+			Entry entry = this.poll();
+			while (entry != null) {
+				batch.add(entry);
+				if (batch.size() == this.batchSize) {
+					this.write(batch);
+				}
+				entry = this.poll();
+			}
+			if (batch.size() > 0) {
+				this.write(batch);
+			}
+			if (!this.running) {
+				if (this.getBacklog() == 0) {
+					return;
+				}
+				continue;
+			}
+			LockSupport.parkNanos(this.flushNanos);
+		}
+	}
+
+	private void write(final List<Entry> batch) {
+		final int n = batch.size();
+		try {
+			this.writer.write(batch);
+			this.nbrWritten.addAndGet(n);
+		} catch (final Exception e) {
+			this.nbrFailed.addAndGet(n);
+			logger.error("Request logger failed to write {} entries. Error: {}", n, e.getMessage());
+		}
+		batch.clear();
+	}
+
+	/**
+	 * what to do with a new entry when the buffer is full
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * the new entry is dropped
+		 */
+		dropNewest,
+		/**
+		 * the oldest entry in the buffer is dropped to make room for the new
+		 * one
+		 */
+		dropOldest
+	}
+
+	/**
+	 * writes a batch of entries to the audit store
+	 */
+	@FunctionalInterface
+	public interface IBatchWriter {
+		/**
+		 *
+		 * @param entries
+		 *            non-empty list of entries, oldest first. The list is
+		 *            re-used by the caller, and hence must not be held on to.
+		 * @throws Exception
+		 *             the entries are counted as failed, and are not retried
+		 */
+		void write(List<Entry> entries) throws Exception;
+	}
+
+	/**
+	 * one request that is logged
+	 */
+	public static class Entry {
+		private final Instant loggedAt = Instant.now();
+		private final String loginId;
+		private final String serviceName;
+		private final Object input;
+
+		Entry(final String loginId, final String serviceName, final Object input) {
+			this.loginId = loginId;
+			this.serviceName = serviceName;
+			this.input = input;
+		}
+
+		/**
+		 * @return instant at which the request was logged
+		 */
+		public Instant getLoggedAt() {
+			return this.loggedAt;
+		}
+
+		/**
+		 * @return login id of the user. null if this was a guest
+		 */
+		public String getLoginId() {
+			return this.loginId;
+		}
+
+		/**
+		 * @return name of the service requested
+		 */
+		public String getServiceName() {
+			return this.serviceName;
+		}
+
+		/**
+		 * @return input rendered as text. Note that this rendering is
+		 *         carried out every time this method is called.
+		 */
+		public String getInput() {
+			return this.input == null ? null : this.input.toString();
+		}
+	}
+
+	/**
+	 * writer that logs the entries using the general logging
+	 *
+	 * @return batch writer
+	 */
+	public static IBatchWriter loggingWriter() {
+		return entries -> {
+			for (final Entry e : entries) {
+				logger.info("{} requested for {} with data\n{}", e.loginId, e.serviceName, e.getInput());
+			}
+		};
+	}
+
+	/**
+	 * writer that appends entries to a file, one line per entry with
+	 * tab-separated fields: logged-at, login id, service name and input
+	 *
+	 * @param file
+	 * @return batch writer
+	 */
+	public static IBatchWriter fileWriter(final Path file) {
+		return entries -> {
+			try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+					StandardOpenOption.APPEND)) {
+				for (final Entry e : entries) {
+					w.write(e.loggedAt.toString());
+					w.write('\t');
+					w.write(e.loginId == null ? "" : e.loginId);
+					w.write('\t');
+					w.write(e.serviceName);
+					w.write('\t');
+					final String input = e.getInput();
+					if (input != null) {
+						w.write(input.replace('\n', ' ').replace('\r', ' '));
+					}
+					w.newLine();
+				}
+			}
+		};
+	}
+
+	/**
+	 * writer that inserts the entries into a db table with one batched
+	 * statement
+	 *
+	 * @param driver
+	 * @param insertSql
+	 *            insert statement with four parameters: logged-at
+	 *            (timestamp), login id, service name and input (text)
+	 * @return batch writer
+	 */
+	public static IBatchWriter dbWriter(final RdbDriver driver, final String insertSql) {
+		final ValueType[] types = { ValueType.Timestamp, ValueType.Text, ValueType.Text, ValueType.Text };
+		return entries -> {
+			final Object[][] rows = new Object[entries.size()][];
+			int i = 0;
+			for (final Entry e : entries) {
+				rows[i] = new Object[] { e.loggedAt, e.loginId, e.serviceName, e.getInput() };
+				i++;
+			}
+			driver.readWrite(handle -> {
+				handle.writeMany(insertSql, types, rows);
+				return true;
+			});
+		};
+	}
+}
@@ -24,8 +24,11 @@ package org.simplity.fm.core.conf;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.simplity.fm.core.Conventions;
+import org.simplity.fm.core.IComponents;
 import org.simplity.fm.core.IDataTypes;
 import org.simplity.fm.core.IMessages;
 import org.simplity.fm.core.Message;
@@ -40,6 +43,8 @@ import org.simplity.fm.core.fn.IFunction;
 import org.simplity.fm.core.fn.Max;
 import org.simplity.fm.core.fn.Min;
 import org.simplity.fm.core.fn.Sum;
+import org.simplity.fm.core.metrics.MetricsRegistry;
+import org.simplity.fm.core.metrics.MetricsService;
 import org.simplity.fm.core.service.IService;
 import org.simplity.fm.core.service.IServiceContext;
 import org.simplity.fm.core.service.ListService;
@@ -63,6 +68,10 @@ public class CompProvider implements ICompProvider {
 	private static final String FORM = Conventions.App.FORM_CLASS_SUFIX;
 
 	private final IDataTypes dataTypes;
+	/*
+	 * null if the generated code predates the components class
+	 */
+	private final IComponents components;
 	private final String formRoot;
 	private final String recordRoot;
 	private final String listRoot;
@@ -75,6 +84,12 @@ public class CompProvider implements ICompProvider {
 	private final Map<String, IValueList> lists = new HashMap<>();
 	private final Map<String, IService> services = new HashMap<>();
 	private final Map<String, IFunction> functions = new HashMap<>();
+	/*
+	 * service names that are known to be served by forms, and not by classes.
+	 * only names for which a form was found are added, so that this set can
+	 * not be grown by requests for arbitrary names
+	 */
+	private final Set<String> nonClassServices = ConcurrentHashMap.newKeySet();
 
 	/**
 	 * @param rootPackageName
@@ -102,12 +117,23 @@ public class CompProvider implements ICompProvider {
 					cls);
 		}
 
-		return new CompProvider(types, messages, rootPackageName);
+		IComponents components = null;
+		try {
+			cls = genRoot + Conventions.App.GENERATED_COMPONENTS_CLASS_NAME;
+			components = (IComponents) Class.forName(cls).newInstance();
+		} catch (final Exception e) {
+			logger.warn("Unable to locate class {}  as IComponents. Forms, records and lists are located by class name",
+					cls);
+		}
+
+		return new CompProvider(types, messages, components, rootPackageName);
 	}
 
-	private CompProvider(final IDataTypes dataTypes, final IMessages messages, final String rootPackage) {
+	private CompProvider(final IDataTypes dataTypes, final IMessages messages, final IComponents components,
+			final String rootPackage) {
 		this.dataTypes = dataTypes;
 		this.messages = messages;
+		this.components = components;
 		final String genRoot = rootPackage + DOT + Conventions.App.FOLDER_NAME_GEN + DOT;
 		this.formRoot = genRoot + Conventions.App.FOLDER_NAME_FORM + DOT;
 		this.recordRoot = genRoot + Conventions.App.FOLDER_NAME_RECORD + DOT;
@@ -119,6 +145,9 @@ public class CompProvider implements ICompProvider {
 		 * add hard-wired services to the list
 		 */
 		this.services.put(Conventions.App.SERVICE_LIST, ListService.getInstance());
+		if (MetricsRegistry.getRegistry().isServiceEnabled()) {
+			this.services.put(Conventions.App.SERVICE_METRICS, MetricsService.getInstance());
+		}
 		/*
 		 * add standard functions
 		 */
@@ -156,27 +185,35 @@ public class CompProvider implements ICompProvider {
 		if (list != null) {
 			return list;
 		}
-		final String clsName = toClassName(listId);
-		final String cls = this.listRoot + clsName;
-		try {
-			list = (IValueList) Class.forName(cls).newInstance();
-		} catch (final Exception e) {
-			final String cls1 = this.customListRoot + clsName;
-			try {
-				list = (IValueList) Class.forName(cls1).newInstance();
-			} catch (final ClassNotFoundException e1) {
-				logger.error("No list named {} because we could not locate class {} or {}", listId, cls, cls1);
-				return null;
-			} catch (final Exception e1) {
-				logger.error("Internal Error: List named" + listId
-						+ " exists but an excption occured while while creating an instance. Error :", e);
-				return null;
-			}
+		if (this.components != null) {
+			list = this.components.newValueList(listId);
+		} else {
+			list = newInstance(this.listRoot + toClassName(listId), listId);
+		}
+		if (list == null) {
+			list = newInstance(this.customListRoot + toClassName(listId), listId);
+		}
+		if (list == null) {
+			logger.error("No list named {} is generated or defined as a custom list", listId);
+			return null;
 		}
 		this.lists.put(listId, list);
 		return list;
 	}
 
+	private static IValueList newInstance(final String cls, final String listId) {
+		try {
+			return (IValueList) Class.forName(cls).newInstance();
+		} catch (final ClassNotFoundException e) {
+			logger.info("Class {} not found for list {}", cls, listId);
+			return null;
+		} catch (final Exception e) {
+			logger.error("Internal Error: List named" + listId
+					+ " exists but an excption occured while while creating an instance. Error :", e);
+			return null;
+		}
+	}
+
 	@Override
 	public Message getMessage(final String messageId) {
 		return this.messages.getMessage(messageId);
@@ -190,8 +227,17 @@ public class CompProvider implements ICompProvider {
 		}
 		/*
 		 * we first check for a class. this approach allows us to over-ride
-		 * standard formIO services
+		 * standard formIO services. A name that was served by a form is not
+		 * looked for as a class again
 		 */
+		if (this.nonClassServices.contains(serviceId)) {
+			service = this.tryFormIo(serviceId, ctx);
+			if (service == null) {
+				logger.error("Service {} is not served by this application", serviceId);
+			}
+			return service;
+		}
+
 		final String cls = this.serviceRoot + toClassName(serviceId);
 		try {
 			service = (IService) Class.forName(cls).newInstance();
@@ -209,6 +255,7 @@ public class CompProvider implements ICompProvider {
 				logger.error("Service {} is not served by this application", serviceId);
 				return null;
 			}
+			this.nonClassServices.add(serviceId);
 		}
 		return service;
 	}
@@ -222,9 +269,13 @@ public class CompProvider implements ICompProvider {
 
 		final String OperationName = toClassName(serviceName.substring(0, idx));
 		IoType opern = null;
-		try {
-			opern = IoType.valueOf(OperationName);
-		} catch (final Exception e) {
+		for (final IoType iot : IoType.values()) {
+			if (iot.name().equals(OperationName)) {
+				opern = iot;
+				break;
+			}
+		}
+		if (opern == null) {
 			logger.warn(
 					"Service name {} is of the form operation_name, but {} is not a valid operation. No service is generated",
 					serviceName, OperationName);
@@ -321,6 +372,13 @@ public class CompProvider implements ICompProvider {
 	}
 
 	private Record loadRecord(final String recordName) {
+		if (this.components != null) {
+			final Record rec = this.components.newRecord(recordName);
+			if (rec == null) {
+				logger.error("No record named {} is generated for this app", recordName);
+			}
+			return rec;
+		}
 		final String cls = this.recordRoot + toClassName(recordName) + RECORD;
 		try {
 			return (Record) Class.forName(cls).newInstance();
@@ -372,6 +430,13 @@ public class CompProvider implements ICompProvider {
 	}
 
 	private Form<?> loadForm(final String formId) {
+		if (this.components != null) {
+			final Form<?> form = this.components.newForm(formId);
+			if (form == null) {
+				logger.error("No form named {} is generated for this app", formId);
+			}
+			return form;
+		}
 		final String cls = this.formRoot + toClassName(formId) + FORM;
 		try {
 			return (Form<?>) Class.forName(cls).newInstance();
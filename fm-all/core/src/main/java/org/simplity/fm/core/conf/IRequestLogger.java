@@ -40,4 +40,37 @@ public interface IRequestLogger {
 	 *            response
 	 */
 	void log(String loginId, String serviceName, String input);
+
+	/**
+	 * log a request with its input as received, without rendering it first.
+	 * Implementations that log asynchronously should over-ride this to defer
+	 * the (costly) rendering of the input to their own thread. Default is to
+	 * render it right away and log it.
+	 *
+	 * @param loginId
+	 * @param serviceName
+	 * @param input
+	 *            payload as received. its toString() is its text-form. Must
+	 *            not be modified after this call.
+	 */
+	default void logInput(final String loginId, final String serviceName, final Object input) {
+		this.log(loginId, serviceName, input.toString());
+	}
+
+	/**
+	 * log a request that was not served, like the ones shed under load. Default
+	 * is to log it like any other request, with the outcome appended to the
+	 * service name as serviceName[outcome]
+	 *
+	 * @param loginId
+	 * @param serviceName
+	 * @param input
+	 *            payload as received. Must not be modified after this call.
+	 * @param outcome
+	 *            why the request was not served, like "rejected"
+	 */
+	default void logInput(final String loginId, final String serviceName, final Object input,
+			final String outcome) {
+		this.logInput(loginId, serviceName + '[' + outcome + ']', input);
+	}
 }
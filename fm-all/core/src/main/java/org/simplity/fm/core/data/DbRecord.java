@@ -23,8 +23,10 @@
 package org.simplity.fm.core.data;
 
 import java.sql.SQLException;
+import java.util.BitSet;
 import java.util.List;
 
+import org.simplity.fm.core.Conventions;
 import org.simplity.fm.core.Message;
 import org.simplity.fm.core.app.App;
 import org.simplity.fm.core.app.ApplicationError;
@@ -32,6 +34,7 @@ import org.simplity.fm.core.rdb.ReadWriteHandle;
 import org.simplity.fm.core.rdb.ReadonlyHandle;
 import org.simplity.fm.core.rdb.RecordProcessor;
 import org.simplity.fm.core.serialize.IInputObject;
+import org.simplity.fm.core.serialize.ISerializer;
 import org.simplity.fm.core.service.IService;
 import org.simplity.fm.core.service.IServiceContext;
 import org.slf4j.Logger;
@@ -95,7 +98,11 @@ public abstract class DbRecord extends Record {
 	 * @throws SQLException
 	 */
 	public boolean read(final ReadonlyHandle handle) throws SQLException {
-		return this.dba.read(handle, this.fieldValues);
+		if (this.dba.read(handle, this.fieldValues)) {
+			this.clearChanges();
+			return true;
+		}
+		return false;
 	}
 
 	/**
@@ -110,6 +117,7 @@ public abstract class DbRecord extends Record {
 		if (!this.dba.read(handle, this.fieldValues)) {
 			throw new SQLException("Read failed for " + this.fetchName() + this.dba.emitKeys(this.fieldValues));
 		}
+		this.clearChanges();
 	}
 
 	/**
@@ -224,11 +232,23 @@ public abstract class DbRecord extends Record {
 	 * @param handle
 	 *
 	 * @return true if it is indeed updated. false in case there was no row to
-	 *         update
+	 *         update. If changes are being tracked, only the changed columns
+	 *         are updated, and true is returned with no db access if nothing
+	 *         has changed.
 	 * @throws SQLException
 	 */
 	public boolean update(final ReadWriteHandle handle) throws SQLException {
-		return this.dba.update(handle, this.fieldValues);
+		final BitSet changes = this.fetchChanges();
+		final boolean ok;
+		if (changes == null) {
+			ok = this.dba.update(handle, this.fieldValues);
+		} else {
+			ok = this.dba.updateChanges(handle, this.fieldValues, changes);
+		}
+		if (ok) {
+			this.clearChanges();
+		}
+		return ok;
 	}
 
 	/**
@@ -240,7 +260,7 @@ public abstract class DbRecord extends Record {
 	 * @throws SQLException
 	 */
 	public void updateOrFail(final ReadWriteHandle handle) throws SQLException {
-		if (!this.dba.update(handle, this.fieldValues)) {
+		if (!this.update(handle)) {
 			throw new SQLException(
 					"Update failed silently for " + this.fetchName() + this.dba.emitKeys(this.fieldValues));
 		}
@@ -297,6 +317,44 @@ public abstract class DbRecord extends Record {
 		}
 	}
 
+	/**
+	 * update fields of all the rows that satisfy the conditions in the
+	 * payload, with one sql. For a tenant-specific table, only the rows of the
+	 * current tenant are updated.
+	 *
+	 * @param payload
+	 *            "conditions" as in a filter service, and "values" with the
+	 *            field values to be set. At least one condition is required.
+	 * @param ctx
+	 * @param handle
+	 * @return number of rows updated. -1 if the payload has errors, in which
+	 *         case messages are added to the context
+	 * @throws SQLException
+	 */
+	public int updateWhere(final IInputObject payload, final IServiceContext ctx, final ReadWriteHandle handle)
+			throws SQLException {
+		return this.dba.updateWhere(handle, payload, ctx);
+	}
+
+	/**
+	 * delete all the rows that satisfy the conditions in the payload, with
+	 * one sql. For a tenant-specific table, only the rows of the current
+	 * tenant are deleted.
+	 *
+	 * @param payload
+	 *            "conditions" as in a filter service. At least one condition
+	 *            is required.
+	 * @param ctx
+	 * @param handle
+	 * @return number of rows deleted. -1 if the payload has errors, in which
+	 *         case messages are added to the context
+	 * @throws SQLException
+	 */
+	public int deleteWhere(final IInputObject payload, final IServiceContext ctx, final ReadWriteHandle handle)
+			throws SQLException {
+		return this.dba.deleteWhere(handle, payload, ctx);
+	}
+
 	@Override
 	public DbRecord makeACopy() {
 		return this.newInstance(this.fieldValues);
@@ -342,6 +400,8 @@ public abstract class DbRecord extends Record {
 			return new Deleter(sn);
 		case Filter:
 			return new Filter(sn);
+		case Aggregate:
+			return new Aggregator(sn);
 		default:
 			throw new ApplicationError("DbRecord needs to be designed for operation " + operation.name());
 		}
@@ -505,21 +565,79 @@ public abstract class DbRecord extends Record {
 				logger.error("Error while parsing filter conditions from th einput payload");
 				return;
 			}
+			final Dba.Projection projection = rec.dba.getProjection(filter.getFieldIndexes());
 			final Object[][][] result = new Object[1][][];
 			App.getApp().getDbDriver().read(handle -> {
 				final List<Object[]> list = rec.dba.filter(filter.getWhereClause(), filter.getWhereParamValues(),
-						handle);
+						projection, handle);
 				if (list.size() == 0) {
 					logger.warn("No rows filtered. Responding with empty list");
 				}
 				result[0] = list.toArray(new Object[0][]);
 			});
 
-			ctx.setAsResponse(rec.fetchFields(), result[0]);
+			final Field[] fields = projection == null ? rec.fetchFields() : projection.getFields();
+			ctx.setAsResponse(fields, result[0]);
 		}
 
 	}
 
+	protected class Aggregator extends Service {
+
+		protected Aggregator(final String name) {
+			super(name);
+		}
+
+		@Override
+		public boolean serveGuests() {
+			return true;
+		}
+
+		@Override
+		public void serve(final IServiceContext ctx, final IInputObject payload) throws Exception {
+			final DbRecord rec = DbRecord.this.newInstance();
+			final ParsedAggregate agg = rec.dba.parseAggregate(payload, ctx);
+			if (agg == null) {
+				logger.error("Error while parsing aggregate request from the input payload");
+				return;
+			}
+			final Object[][][] result = new Object[1][][];
+			App.getApp().getDbDriver().read(handle -> {
+				result[0] = rec.dba.aggregate(handle, agg);
+			});
+
+			final Object[][] rows = result[0];
+			final ISerializer writer = ctx.getSerializer();
+			writer.beginObject();
+			if (agg.isCountOnly()) {
+				long n = 0;
+				if (rows != null && rows[0][0] != null) {
+					n = ((Number) rows[0][0]).longValue();
+				}
+				writer.name(Conventions.Http.TAG_COUNT);
+				writer.value(n);
+				writer.endObject();
+				return;
+			}
+
+			final String[] names = agg.getOutputNames();
+			writer.name(Conventions.Http.TAG_LIST);
+			writer.beginArray();
+			if (rows != null) {
+				for (final Object[] row : rows) {
+					writer.beginObject();
+					for (int i = 0; i < names.length; i++) {
+						writer.name(names[i]);
+						writer.primitiveObject(row[i]);
+					}
+					writer.endObject();
+				}
+			}
+			writer.endArray();
+			writer.endObject();
+		}
+	}
+
 	/**
 	 * fetch is used instead of get to avoid clash with getters in generated
 	 * classes
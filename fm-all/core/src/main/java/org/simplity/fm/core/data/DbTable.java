@@ -89,14 +89,23 @@ public class DbTable<T extends DbRecord> implements Iterable<T> {
 	 */
 	public void serializeRows(final ISerializer writer) throws IOException {
 		writer.beginArray();
-		for (final T rec : this) {
-			writer.beginObject();
-			writer.fields(rec);
-			writer.endObject();
-		}
+		this.serializeElements(writer);
 		writer.endArray();
 	}
 
+	/**
+	 * serialize rows as elements of an array. Caller should have started the
+	 * array, and will end it after this call
+	 *
+	 * @param writer
+	 */
+	public void serializeElements(final ISerializer writer) {
+		if (this.rows.size() == 0) {
+			return;
+		}
+		writer.arrayElements(this.record.fetchFields(), this.rows.toArray(new Object[0][]));
+	}
+
 	/**
 	 * To be used by utility programs. End-programmers should not use as this is
 	 * not type-safe. ENd-programmers should use FilterSqls instead
@@ -27,17 +27,27 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.simplity.fm.core.Conventions;
 import org.simplity.fm.core.Message;
+import org.simplity.fm.core.app.App;
 import org.simplity.fm.core.datatypes.ValueType;
 import org.simplity.fm.core.rdb.IDbReader;
 import org.simplity.fm.core.rdb.IDbWriter;
+import org.simplity.fm.core.rdb.IKeyAllocator;
 import org.simplity.fm.core.rdb.ReadWriteHandle;
 import org.simplity.fm.core.rdb.ReadonlyHandle;
 import org.simplity.fm.core.rdb.RowProcessor;
 import org.simplity.fm.core.serialize.IInputObject;
 import org.simplity.fm.core.service.IServiceContext;
+import org.simplity.fm.core.trace.Span;
+import org.simplity.fm.core.trace.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,6 +60,14 @@ import org.slf4j.LoggerFactory;
 public class Dba {
 
 	protected static final Logger logger = LoggerFactory.getLogger(Dba.class);
+	/*
+	 * partial updates beyond these many shapes are not cached
+	 */
+	private static final int MAX_PARTIAL_UPDATES = 64;
+	/*
+	 * projections beyond these many shapes are not cached
+	 */
+	private static final int MAX_PROJECTIONS = 64;
 	/**
 	 * table/view name in the database
 	 */
@@ -127,6 +145,44 @@ public class Dba {
 	 */
 	private int generatedKeyIdx = -1;
 
+	/**
+	 * FINAL. insert sql that includes the generated key column. used when keys
+	 * are allocated by the app rather than generated by the db. null if this
+	 * record has no generated key
+	 */
+	private String keyedInsertClause;
+
+	/**
+	 * FINAL. db parameters for keyedInsertClause
+	 */
+	private FieldMetaData[] keyedInsertParams;
+
+	/**
+	 * FINAL. fields that are set by the update sql, other than the audit
+	 * fields. A partial update is possible for a subset of these
+	 */
+	private final BitSet updatableFields = new BitSet();
+
+	/**
+	 * cache of partial-update sqls by the set of fields being updated
+	 */
+	private final Map<BitSet, PartialUpdate> partialUpdates = new ConcurrentHashMap<>();
+
+	/**
+	 * cache of select sqls by the set of fields being selected
+	 */
+	private final Map<BitSet, Projection> projections = new ConcurrentHashMap<>();
+
+	/**
+	 * db fields by name, for parsing filter conditions
+	 */
+	private final Map<String, DbField> fieldMap = new HashMap<>();
+
+	/**
+	 * cache of filter sqls by their shape
+	 */
+	private final Map<String, String> filterSqls = new ConcurrentHashMap<>();
+
 	/**
 	 * FINAL. if this APP is designed for multi-tenant deployment, and this
 	 * table has
@@ -141,6 +197,18 @@ public class Dba {
 	@SuppressWarnings("unused")
 	private final DbField timestampField = null;
 
+	/**
+	 * read-through cache of rows by primary key. null if this record is not
+	 * cached.
+	 */
+	private final RecordCache cache;
+
+	/**
+	 * FINAL. indexes of fields that identify a row in the cache: primary key
+	 * fields, and the tenant field if any
+	 */
+	private int[] cacheKeyIndexes;
+
 	/**
 	 *
 	 * @param allFields
@@ -159,10 +227,47 @@ public class Dba {
 	public Dba(final Field[] allFields, final String nameInDb, final boolean[] opers, final String selectClause, final int[] selectIndexes,
 			final String insertClause, final int[] insertIndexes, final String updateClause, final int[] updateIndexes,
 			final String deleteClause, final String whereClause, final int[] whereIndexes) {
+		this(allFields, nameInDb, opers, selectClause, selectIndexes, insertClause, insertIndexes, updateClause,
+				updateIndexes, deleteClause, whereClause, whereIndexes, null);
+	}
+
+	/**
+	 *
+	 * @param allFields
+	 * @param nameInDb
+	 * @param opers
+	 * @param selectClause
+	 * @param selectIndexes
+	 * @param insertClause
+	 * @param insertIndexes
+	 * @param updateClause
+	 * @param updateIndexes
+	 * @param deleteClause
+	 * @param whereClause
+	 * @param whereIndexes
+	 * @param cache
+	 *            null if rows of this record are not to be cached. Ignored if
+	 *            the record has no primary key
+	 */
+	public Dba(final Field[] allFields, final String nameInDb, final boolean[] opers, final String selectClause, final int[] selectIndexes,
+			final String insertClause, final int[] insertIndexes, final String updateClause, final int[] updateIndexes,
+			final String deleteClause, final String whereClause, final int[] whereIndexes, final RecordCache cache) {
 
 		this.dbFields = new DbField[allFields.length];
 		this.prepareFields(allFields);
 
+		if (cache == null || this.keyIndexes == null) {
+			this.cache = null;
+		} else {
+			this.cache = cache;
+			if (this.tenantField == null) {
+				this.cacheKeyIndexes = this.keyIndexes;
+			} else {
+				this.cacheKeyIndexes = Arrays.copyOf(this.keyIndexes, this.keyIndexes.length + 1);
+				this.cacheKeyIndexes[this.keyIndexes.length] = this.tenantField.getIndex();
+			}
+		}
+
 		this.allowedOperations = opers;
 		this.nameInDb = nameInDb;
 		this.selectClause = selectClause;
@@ -170,6 +275,9 @@ public class Dba {
 
 		this.insertClause = insertClause;
 		this.insertParams = this.prepareParams(insertIndexes);
+		if (this.generatedKeyIdx != -1 && insertClause != null) {
+			this.prepareKeyedInsert();
+		}
 
 		this.updateClause = updateClause;
 		this.updateParams = this.prepareParams(updateIndexes);
@@ -188,6 +296,7 @@ public class Dba {
 		for (int i = 0; i < allFields.length; i++) {
 			final DbField fld = (DbField) allFields[i];
 			this.dbFields[i] = fld;
+			this.fieldMap.put(fld.getName(), fld);
 			final FieldType ct = fld.getFieldType();
 			if (ct == null) {
 				/*
@@ -212,7 +321,14 @@ public class Dba {
 				nbrKeys++;
 				continue;
 
+			case ModifiedAt:
+			case ModifiedBy:
+				continue;
+
 			default:
+				if (ct.isUpdated()) {
+					this.updatableFields.set(fld.getIndex());
+				}
 				continue;
 			}
 		}
@@ -222,6 +338,63 @@ public class Dba {
 
 	}
 
+	/**
+	 * insert clause is of the form "INSERT INTO t(c1, c2) values (?, ?)". We
+	 * add the key column as the first column
+	 */
+	private void prepareKeyedInsert() {
+		final int colIdx = this.insertClause.indexOf('(');
+		final String valuesText = " values (";
+		int valIdx = this.insertClause.indexOf(valuesText);
+		if (colIdx == -1 || valIdx == -1) {
+			logger.error("Insert sql for {} is not in the expected format. Keys can not be allocated by the app",
+					this.nameInDb);
+			return;
+		}
+		valIdx += valuesText.length();
+		final StringBuilder sbf = new StringBuilder();
+		sbf.append(this.insertClause, 0, colIdx + 1).append(this.generatedColumnName);
+		if (this.insertClause.charAt(colIdx + 1) != ')') {
+			sbf.append(", ");
+		}
+		sbf.append(this.insertClause, colIdx + 1, valIdx).append('?');
+		if (this.insertClause.charAt(valIdx) != ')') {
+			sbf.append(", ");
+		}
+		sbf.append(this.insertClause, valIdx, this.insertClause.length());
+		this.keyedInsertClause = sbf.toString();
+
+		final int n = this.insertParams == null ? 0 : this.insertParams.length;
+		this.keyedInsertParams = new FieldMetaData[n + 1];
+		this.keyedInsertParams[0] = new FieldMetaData(this.dbFields[this.generatedKeyIdx]);
+		if (n > 0) {
+			System.arraycopy(this.insertParams, 0, this.keyedInsertParams, 1, n);
+		}
+	}
+
+	/**
+	 *
+	 * @return allocator to be used for assigning generated keys before
+	 *         inserting rows. null if keys are to be generated by the db
+	 */
+	private IKeyAllocator getKeyAllocator() {
+		if (this.keyedInsertClause == null) {
+			return null;
+		}
+		return App.getApp().getKeyAllocator();
+	}
+
+	/**
+	 * assign a key to every row, over-writing any value that the client may
+	 * have sent. A key chosen by the client may collide with a key that is
+	 * allocated later
+	 */
+	private void assignKeys(final IKeyAllocator allocator, final Object[][] rows) throws SQLException {
+		for (final Object[] row : rows) {
+			row[this.generatedKeyIdx] = allocator.nextKey(this.nameInDb);
+		}
+	}
+
 	private FieldMetaData[] prepareParams(final int[] indexes) {
 		if (indexes == null) {
 			return null;
@@ -261,6 +434,32 @@ public class Dba {
 		return this.selectClause;
 	}
 
+	/**
+	 *
+	 * @return cache of rows for this record. null if this record is not
+	 *         cached
+	 */
+	public RecordCache getCache() {
+		return this.cache;
+	}
+
+	/**
+	 * remove this row from the cache, if rows are cached
+	 */
+	private void uncache(final ReadWriteHandle handle, final Object[] values) {
+		if (this.cache != null) {
+			this.cache.remove(handle, this.cacheKeyIndexes, values);
+		}
+	}
+
+	private void uncache(final ReadWriteHandle handle, final Object[][] rows) {
+		if (this.cache != null) {
+			for (final Object[] row : rows) {
+				this.cache.remove(handle, this.cacheKeyIndexes, row);
+			}
+		}
+	}
+
 	/**
 	 * insert/create this form data into the db.
 	 *
@@ -282,6 +481,14 @@ public class Dba {
 			return n > 0;
 		}
 
+		final IKeyAllocator allocator = this.getKeyAllocator();
+		if (allocator != null) {
+			this.assignKeys(allocator, new Object[][] { values });
+			n = writeWorker(handle, this.keyedInsertClause, this.keyedInsertParams, values);
+			return n > 0;
+		}
+
+		final Span span = Tracer.startSpan("sql", this.insertClause);
 		try {
 			final long[] generatedKeys = new long[1];
 			n = handle.insertAndGenerateKey(getWriter(this.insertClause, this.insertParams, values),
@@ -298,6 +505,8 @@ public class Dba {
 			final String msg = toMessage(e, this.insertClause, this.insertParams, values);
 			logger.error(msg);
 			throw new SQLException(msg, e);
+		} finally {
+			span.close();
 		}
 	}
 
@@ -316,10 +525,292 @@ public class Dba {
 			return notAllowed(IoType.Update);
 		}
 
+		this.uncache(handle, values);
 		final int nbr = writeWorker(handle, this.updateClause, this.updateParams, values);
 		return nbr > 0;
 	}
 
+	/**
+	 * update only the columns that have changed. Audit columns (modified-by
+	 * and modified-at) are updated if any other column has changed.
+	 *
+	 * @param handle
+	 * @param values
+	 * @param changes
+	 *            indexes of fields that have changed
+	 * @return true if it is indeed updated, or if nothing has changed. false
+	 *         in case there was no row to update
+	 * @throws SQLException
+	 */
+	boolean updateChanges(final ReadWriteHandle handle, final Object[] values, final BitSet changes)
+			throws SQLException {
+		if (this.keyIndexes == null) {
+			return notAllowed(IoType.Update);
+		}
+
+		final BitSet columns = (BitSet) changes.clone();
+		columns.and(this.updatableFields);
+		if (columns.isEmpty()) {
+			logger.info("No changes to be updated for {}", this.nameInDb);
+			return true;
+		}
+		if (columns.equals(this.updatableFields)) {
+			return this.update(handle, values);
+		}
+
+		PartialUpdate pu = this.partialUpdates.get(columns);
+		if (pu == null) {
+			pu = this.buildPartialUpdate(columns);
+			if (pu == null) {
+				return this.update(handle, values);
+			}
+			if (this.partialUpdates.size() < MAX_PARTIAL_UPDATES) {
+				this.partialUpdates.put(columns, pu);
+			}
+		}
+		this.uncache(handle, values);
+		final int nbr = writeWorker(handle, pu.sql, pu.params, values);
+		return nbr > 0;
+	}
+
+	/**
+	 * @return null if the update sql is not in a shape that we can handle, in
+	 *         which case the full update is to be used
+	 */
+	private PartialUpdate buildPartialUpdate(final BitSet columns) {
+		final StringBuilder sbf = new StringBuilder();
+		sbf.append("UPDATE ").append(this.nameInDb).append(" SET ");
+		final List<FieldMetaData> params = new ArrayList<>();
+		boolean firstOne = true;
+		for (final DbField field : this.dbFields) {
+			if (field == null) {
+				continue;
+			}
+			final FieldType ft = field.getFieldType();
+			if (ft == null || ft.isUpdated() == false) {
+				continue;
+			}
+			final boolean isAudit = ft == FieldType.ModifiedAt || ft == FieldType.ModifiedBy;
+			if (!isAudit && !columns.get(field.getIndex())) {
+				continue;
+			}
+			if (firstOne) {
+				firstOne = false;
+			} else {
+				sbf.append(", ");
+			}
+			sbf.append(field.getColumnName()).append('=');
+			if (ft == FieldType.ModifiedAt) {
+				sbf.append(" CURRENT_TIMESTAMP ");
+			} else {
+				sbf.append(" ? ");
+				params.add(new FieldMetaData(field));
+			}
+		}
+		/*
+		 * the update sql may have more than the where clause, like a time-stamp
+		 * check. we use its tail as it is, along with the params for that
+		 */
+		final int idx = this.updateClause.lastIndexOf(this.whereClause);
+		if (idx == -1) {
+			/*
+			 * we can not drop the where clause, as that would update all rows
+			 */
+			logger.warn("Where clause not found in the update sql of {}. Full update is used instead of a partial one",
+					this.nameInDb);
+			return null;
+		}
+		final String tail = this.updateClause.substring(idx);
+		sbf.append(tail);
+		int nbrTail = 0;
+		for (int i = tail.indexOf('?'); i != -1; i = tail.indexOf('?', i + 1)) {
+			nbrTail++;
+		}
+		for (int i = this.updateParams.length - nbrTail; i < this.updateParams.length; i++) {
+			params.add(this.updateParams[i]);
+		}
+		return new PartialUpdate(sbf.toString(), params.toArray(new FieldMetaData[0]));
+	}
+
+	/**
+	 * update fields of all the rows that satisfy the conditions, with one sql.
+	 * The tenant condition is always added for a tenant-specific table.
+	 *
+	 * @param handle
+	 * @param payload
+	 *            "conditions" as in a filter service, and "values" with the
+	 *            field values to be set. At least one condition is required.
+	 * @param ctx
+	 * @return number of rows updated. -1 if the payload has errors, in which
+	 *         case messages are added to the context
+	 * @throws SQLException
+	 */
+	int updateWhere(final ReadWriteHandle handle, final IInputObject payload, final IServiceContext ctx)
+			throws SQLException {
+		if (this.updateClause == null) {
+			notAllowed(IoType.Update);
+			ctx.addMessage(Message.newError(Message.MSG_INTERNAL_ERROR));
+			return -1;
+		}
+		final IInputObject setValues = payload.getObject(Conventions.Http.TAG_VALUES);
+		if (setValues == null || setValues.isEmpty()) {
+			logger.error("No values specified for a bulk update of {}", this.nameInDb);
+			ctx.addMessage(Message.newError(Message.MSG_INVALID_DATA));
+			return -1;
+		}
+
+		final StringBuilder sbf = new StringBuilder();
+		sbf.append("UPDATE ").append(this.nameInDb).append(" SET ");
+		final List<Object> values = new ArrayList<>();
+		final List<ValueType> types = new ArrayList<>();
+		final Object[] row = new Object[this.dbFields.length];
+		boolean ok = true;
+		for (final String name : setValues.names()) {
+			final DbField field = this.fieldMap.get(name);
+			if (field == null || !this.updatableFields.get(field.getIndex())) {
+				logger.error("{} is not an updatable field of {}", name, this.nameInDb);
+				ctx.addMessage(Message.newError(Message.MSG_INVALID_DATA));
+				ok = false;
+				continue;
+			}
+			if (!field.parseIntoRow(setValues.getString(name), row, ctx, null, 0)) {
+				ok = false;
+				continue;
+			}
+			if (values.size() > 0) {
+				sbf.append(", ");
+			}
+			sbf.append(field.getColumnName()).append("=?");
+			values.add(row[field.getIndex()]);
+			types.add(field.getValueType());
+		}
+		if (!ok) {
+			return -1;
+		}
+
+		for (final DbField field : this.dbFields) {
+			final FieldType ft = field.getFieldType();
+			if (ft == FieldType.ModifiedBy) {
+				sbf.append(", ").append(field.getColumnName()).append("=?");
+				values.add(ctx.getUserId());
+				types.add(field.getValueType());
+			} else if (ft == FieldType.ModifiedAt) {
+				sbf.append(", ").append(field.getColumnName()).append("=CURRENT_TIMESTAMP");
+			}
+		}
+
+		final String where = this.parseBulkWhere(payload, ctx, values);
+		if (where == null) {
+			return -1;
+		}
+		for (int i = types.size(); i < values.size(); i++) {
+			types.add(null);
+		}
+		sbf.append(where);
+		return this.bulkWrite(handle, sbf.toString(), values, types);
+	}
+
+	/**
+	 * delete all the rows that satisfy the conditions, with one sql. The
+	 * tenant condition is always added for a tenant-specific table.
+	 *
+	 * @param handle
+	 * @param payload
+	 *            "conditions" as in a filter service. At least one condition
+	 *            is required.
+	 * @param ctx
+	 * @return number of rows deleted. -1 if the payload has errors, in which
+	 *         case messages are added to the context
+	 * @throws SQLException
+	 */
+	int deleteWhere(final ReadWriteHandle handle, final IInputObject payload, final IServiceContext ctx)
+			throws SQLException {
+		if (this.deleteClause == null) {
+			notAllowed(IoType.Delete);
+			ctx.addMessage(Message.newError(Message.MSG_INTERNAL_ERROR));
+			return -1;
+		}
+		final List<Object> values = new ArrayList<>();
+		final String where = this.parseBulkWhere(payload, ctx, values);
+		if (where == null) {
+			return -1;
+		}
+		final List<ValueType> types = new ArrayList<>();
+		for (int i = 0; i < values.size(); i++) {
+			types.add(null);
+		}
+		return this.bulkWrite(handle, this.deleteClause + where, values, types);
+	}
+
+	/**
+	 * a bulk operation is not allowed on all the rows. Conditions are a must
+	 */
+	private String parseBulkWhere(final IInputObject payload, final IServiceContext ctx, final List<Object> values) {
+		final IInputObject conditions = payload.getObject(Conventions.Http.TAG_CONDITIONS);
+		if (conditions == null || conditions.isEmpty()) {
+			logger.error("Bulk operation on {} requires at least one condition", this.nameInDb);
+			ctx.addMessage(Message.newError(Message.MSG_INVALID_DATA));
+			return null;
+		}
+		/*
+		 * unknown fields are errors here. Also, the tenant condition alone
+		 * does not count: it would still affect all rows of the tenant
+		 */
+		final int[] nbrConditions = { 0 };
+		final String where = ParsedFilter.parseWhere(payload, this.fieldMap, this.tenantField, this.filterSqls, ctx,
+				values, true, nbrConditions);
+		if (where == null) {
+			return null;
+		}
+		if (nbrConditions[0] == 0 || where.isEmpty()) {
+			logger.error("Bulk operation on {} has no valid conditions", this.nameInDb);
+			ctx.addMessage(Message.newError(Message.MSG_INVALID_DATA));
+			return null;
+		}
+		return where;
+	}
+
+	/**
+	 * @param types
+	 *            value type for each value. null if the value is non-null
+	 */
+	private int bulkWrite(final ReadWriteHandle handle, final String sql, final List<Object> values,
+			final List<ValueType> types) throws SQLException {
+		/*
+		 * we can not know which of the cached rows are affected
+		 */
+		if (this.cache != null) {
+			this.cache.clear(handle);
+		}
+		final Span span = Tracer.startSpan("sql", sql);
+		try {
+			final int n = handle.write(new IDbWriter() {
+
+				@Override
+				public String getPreparedStatement() {
+					return sql;
+				}
+
+				@Override
+				public boolean setParams(final PreparedStatement ps) throws SQLException {
+					for (int i = 0; i < values.size(); i++) {
+						final ValueType vt = types.get(i);
+						if (vt == null) {
+							ValueType.setObjectAsPsParam(values.get(i), ps, i + 1);
+						} else {
+							vt.setPsParam(ps, i + 1, values.get(i));
+						}
+					}
+					return true;
+				}
+			});
+			logger.info("{} rows affected by a bulk operation on {}", n, this.nameInDb);
+			return n;
+		} finally {
+			span.close();
+		}
+	}
+
 	/**
 	 * remove this form data from the db
 	 *
@@ -334,6 +825,7 @@ public class Dba {
 			return notAllowed(IoType.Delete);
 		}
 
+		this.uncache(handle, values);
 		final String sql = this.deleteClause + this.whereClause;
 		final int nbr = writeWorker(handle, sql, this.whereParams, values);
 		return nbr > 0;
@@ -341,12 +833,15 @@ public class Dba {
 
 	private static int writeWorker(final ReadWriteHandle handle, final String sql, final FieldMetaData[] params,
 			final Object[] values) throws SQLException {
+		final Span span = Tracer.startSpan("sql", sql);
 		try {
 			return handle.write(getWriter(sql, params, values));
 		} catch (final SQLException e) {
 			final String msg = toMessage(e, sql, params, values);
 			logger.error(msg);
 			throw new SQLException(msg, e);
+		} finally {
+			span.close();
 		}
 	}
 
@@ -427,7 +922,8 @@ public class Dba {
 
 		inserts = Arrays.copyOf(inserts, nbrInserts);
 		updates = Arrays.copyOf(updates, nbrUpdates);
-		final boolean insertOk = writeMany(handle, this.insertClause, this.insertParams, inserts);
+		this.uncache(handle, updates);
+		final boolean insertOk = this.insertAll(handle, inserts);
 		final boolean updateOk = writeMany(handle, this.updateClause, this.updateParams, updates);
 
 		return insertOk && updateOk;
@@ -479,6 +975,109 @@ public class Dba {
 		return true;
 	}
 
+	/**
+	 * bring the db in line with the rows, given the rows that exist in the db
+	 * now. Typically used for saving child rows of a parent, where the
+	 * existing rows are all the rows for the parent. Rows are matched on their
+	 * primary key. Each of the resulting inserts, updates and deletes is
+	 * issued as one batch, and rows that have not changed are not touched.
+	 * NOTE: caller must consider rolling-back if false is returned
+	 *
+	 * @param handle
+	 * @param existingRows
+	 *            rows as in the db now
+	 * @param rows
+	 *            rows as they should be after this operation
+	 * @return true if all ok. false if any one row failed to be written.
+	 * @throws SQLException
+	 */
+	boolean mergeAll(final ReadWriteHandle handle, final List<Object[]> existingRows, final Object[][] rows)
+			throws SQLException {
+		if (this.keyIndexes == null) {
+			return notAllowed(IoType.Update);
+		}
+
+		final Map<List<Object>, Object[]> existing = new HashMap<>();
+		for (final Object[] row : existingRows) {
+			existing.put(this.keyOf(row), row);
+		}
+
+		final List<Object[]> inserts = new ArrayList<>();
+		final List<Object[]> updates = new ArrayList<>();
+		int nbrUnchanged = 0;
+		for (final Object[] row : rows) {
+			final List<Object> key = this.keyOf(row);
+			final Object[] oldRow = key == null ? null : existing.remove(key);
+			if (oldRow == null) {
+				if (key == null || this.generatedKeyIdx == -1) {
+					inserts.add(row);
+				} else {
+					/*
+					 * key generated earlier, but the row is not there. update
+					 * will fail, as it would have with a row-by-row save
+					 */
+					updates.add(row);
+				}
+				continue;
+			}
+			if (this.isUnchanged(oldRow, row)) {
+				nbrUnchanged++;
+			} else {
+				updates.add(row);
+			}
+		}
+
+		logger.info("{}: {} rows to be inserted, {} updated, {} deleted and {} are unchanged", this.nameInDb,
+				inserts.size(), updates.size(), existing.size(), nbrUnchanged);
+
+		boolean allOk = true;
+		if (existing.size() > 0) {
+			final Object[][] deletes = existing.values().toArray(new Object[0][]);
+			this.uncache(handle, deletes);
+			allOk = writeMany(handle, this.deleteClause + this.whereClause, this.whereParams, deletes);
+		}
+		if (updates.size() > 0) {
+			final Object[][] arr = updates.toArray(new Object[0][]);
+			this.uncache(handle, arr);
+			allOk = writeMany(handle, this.updateClause, this.updateParams, arr) && allOk;
+		}
+		if (inserts.size() > 0) {
+			allOk = this.insertAll(handle, inserts.toArray(new Object[0][])) && allOk;
+		}
+		return allOk;
+	}
+
+	/**
+	 * @return primary key values of this row, or null if the key is not
+	 *         assigned
+	 */
+	private List<Object> keyOf(final Object[] row) {
+		if (this.generatedKeyIdx != -1) {
+			final Object key = row[this.generatedKeyIdx];
+			if (key == null || ((Long) key) == 0L) {
+				return null;
+			}
+		}
+		final Object[] key = new Object[this.keyIndexes.length];
+		for (int i = 0; i < key.length; i++) {
+			final Object val = row[this.keyIndexes[i]];
+			if (val == null) {
+				return null;
+			}
+			key[i] = val;
+		}
+		return Arrays.asList(key);
+	}
+
+	private boolean isUnchanged(final Object[] oldRow, final Object[] row) {
+		for (int i = this.updatableFields.nextSetBit(0); i >= 0; i = this.updatableFields.nextSetBit(i + 1)) {
+			if (!Objects.equals(oldRow[i], row[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * insert all rows. NOTE: caller must consider rolling-back if false is
 	 * returned
@@ -488,7 +1087,8 @@ public class Dba {
 	 * @param rows
 	 *            data to be saved
 	 * @return true if every one row was inserted. false if any one row failed
-	 *         to insert.
+	 *         to insert. If keys are allocated by the app, generated keys are
+	 *         assigned to the rows.
 	 * @throws SQLException
 	 */
 	boolean insertAll(final ReadWriteHandle handle, final Object[][] rows) throws SQLException {
@@ -496,6 +1096,11 @@ public class Dba {
 			return notAllowed(IoType.Create);
 		}
 
+		final IKeyAllocator allocator = this.getKeyAllocator();
+		if (allocator != null) {
+			this.assignKeys(allocator, rows);
+			return writeMany(handle, this.keyedInsertClause, this.keyedInsertParams, rows);
+		}
 		return writeMany(handle, this.insertClause, this.insertParams, rows);
 	}
 
@@ -516,6 +1121,7 @@ public class Dba {
 			return notAllowed(IoType.Update);
 		}
 
+		this.uncache(handle, rows);
 		return writeMany(handle, this.updateClause, this.updateParams, rows);
 	}
 
@@ -554,7 +1160,13 @@ public class Dba {
 			}
 		}
 
-		final int[] nbrs = handle.writeMany(sql, types, rows);
+		final int[] nbrs;
+		final Span span = Tracer.startSpan("sqlBatch", sql);
+		try {
+			nbrs = handle.writeMany(sql, types, rows);
+		} finally {
+			span.close();
+		}
 
 		/*
 		 * we expect each element in nbrs to be 1.some times, rdbms returns -1
@@ -609,51 +1221,129 @@ public class Dba {
 			return notAllowed(IoType.Get);
 		}
 
+		/*
+		 * a read-write handle may see rows that are not yet committed. Such
+		 * rows are not to be cached
+		 */
+		final boolean toCache = this.cache != null && handle instanceof ReadWriteHandle == false;
+		long cacheVersion = 0;
+		if (this.cache != null) {
+			if (this.cache.get(this.cacheKeyIndexes, values, this.selectParams)) {
+				return true;
+			}
+			cacheVersion = this.cache.getVersion();
+		}
+
 		final boolean[] result = new boolean[1];
 		final String sql = this.selectClause + ' ' + this.whereClause;
 		final FieldMetaData[] params = this.whereParams;
-		handle.read(new IDbReader() {
+		final Span span = Tracer.startSpan("sql", sql);
+		try {
+			handle.read(new IDbReader() {
 
-			@Override
-			public String getPreparedStatement() {
-				return sql;
-			}
+				@Override
+				public String getPreparedStatement() {
+					return sql;
+				}
 
-			@Override
-			public void setParams(final PreparedStatement ps) throws SQLException {
-				int posn = 0;
-				for (final FieldMetaData p : params) {
-					posn++;
-					final Object value = p.setPsParam(ps, values, posn);
-					if (value == null) {
-						logger.error("fetch() invoked with key at index {} as null ", p.getIndex());
-						throw new SQLException(
-								"Primary key fields must be assigned values before a fetch() operations");
+				@Override
+				public void setParams(final PreparedStatement ps) throws SQLException {
+					int posn = 0;
+					for (final FieldMetaData p : params) {
+						posn++;
+						final Object value = p.setPsParam(ps, values, posn);
+						if (value == null) {
+							logger.error("fetch() invoked with key at index {} as null ", p.getIndex());
+							throw new SQLException(
+									"Primary key fields must be assigned values before a fetch() operations");
+						}
 					}
 				}
-			}
 
-			@Override
-			public boolean readARow(final ResultSet rs) throws SQLException {
-				Dba.this.readWorker(rs, values);
-				result[0] = true;
-				/*
-				 * return false to ask the driver to stop reading.
-				 */
-				return false;
-			}
-		});
+				@Override
+				public boolean readARow(final ResultSet rs) throws SQLException {
+					Dba.this.readWorker(rs, values);
+					result[0] = true;
+					/*
+					 * return false to ask the driver to stop reading.
+					 */
+					return false;
+				}
+			});
+		} finally {
+			span.close();
+		}
+		if (result[0] && toCache) {
+			this.cache.put(this.cacheKeyIndexes, values, cacheVersion);
+		}
 		return result[0];
 	}
 
 	protected void readWorker(final ResultSet rs, final Object[] values) throws SQLException {
+		readWorker(rs, values, this.selectParams);
+	}
+
+	private static void readWorker(final ResultSet rs, final Object[] values, final FieldMetaData[] params)
+			throws SQLException {
 		int posn = 0;
-		for (final FieldMetaData p : this.selectParams) {
+		for (final FieldMetaData p : params) {
 			posn++;
 			p.getFromRs(rs, posn, values);
 		}
 	}
 
+	/**
+	 * get the select statement for a subset of fields. Fields that are not
+	 * selected from the db are ignored.
+	 *
+	 * @param fieldIndexes
+	 *            indexes of the fields to be selected
+	 * @return projection to be used for filtering, or null if all the fields
+	 *         are to be selected
+	 */
+	Projection getProjection(final BitSet fieldIndexes) {
+		if (fieldIndexes == null || fieldIndexes.isEmpty()) {
+			return null;
+		}
+		Projection p = this.projections.get(fieldIndexes);
+		if (p != null) {
+			return p;
+		}
+
+		final String from = this.getFromClause();
+		if (from == null) {
+			return null;
+		}
+		final List<Field> fields = new ArrayList<>();
+		final StringBuilder sbf = new StringBuilder("SELECT ");
+		for (final FieldMetaData param : this.selectParams) {
+			final int idx = param.getIndex();
+			if (!fieldIndexes.get(idx)) {
+				continue;
+			}
+			if (fields.size() > 0) {
+				sbf.append(", ");
+			}
+			sbf.append(this.dbFields[idx].getColumnName());
+			fields.add(this.dbFields[idx]);
+		}
+
+		if (fields.size() == 0 || fields.size() == this.selectParams.length) {
+			return null;
+		}
+
+		sbf.append(from);
+		final FieldMetaData[] params = new FieldMetaData[fields.size()];
+		for (int i = 0; i < params.length; i++) {
+			params[i] = new FieldMetaData(i, fields.get(i).getValueType());
+		}
+		p = new Projection(sbf.toString(), params, fields.toArray(new Field[0]));
+		if (this.projections.size() < MAX_PROJECTIONS) {
+			this.projections.put((BitSet) fieldIndexes.clone(), p);
+		}
+		return p;
+	}
+
 	/**
 	 * select multiple rows from the db based on the filtering criterion
 	 *
@@ -682,6 +1372,29 @@ public class Dba {
 		return result;
 	}
 
+	/**
+	 * select multiple rows, but only the fields in the projection
+	 *
+	 * @param whereClauseStartingWithWhere
+	 * @param values
+	 * @param projection
+	 *            null to select all fields
+	 * @param handle
+	 * @return non-null, possibly empty list of rows. Each row has the values
+	 *         for the fields of the projection, in that order.
+	 * @throws SQLException
+	 */
+	List<Object[]> filter(final String whereClauseStartingWithWhere, final Object[] values,
+			final Projection projection, final ReadonlyHandle handle) throws SQLException {
+		if (projection == null) {
+			return this.filter(whereClauseStartingWithWhere, values, handle);
+		}
+		final List<Object[]> result = new ArrayList<>();
+		this.filterWorker(handle, projection.selectClause, projection.params, projection.fields.length,
+				whereClauseStartingWithWhere, values, null, result);
+		return result;
+	}
+
 	boolean filterFirst(final String whereClauseStartingWithWhere, final Object[] inputValues,
 			final Object[] outputValues, final ReadonlyHandle handle) throws SQLException {
 		return this.filterWorker(handle, whereClauseStartingWithWhere, inputValues, outputValues, null);
@@ -689,47 +1402,58 @@ public class Dba {
 
 	boolean filterWorker(final ReadonlyHandle handle, final String where, final Object[] inputValues,
 			final Object[] outputValues, final List<Object[]> outputRows) throws SQLException {
+		return this.filterWorker(handle, this.selectClause, this.selectParams, this.dbFields.length, where,
+				inputValues, outputValues, outputRows);
+	}
 
-		final boolean result[] = new boolean[1];
-		final String sql = where == null ? this.selectClause : (this.selectClause + ' ' + where);
-		final int nbrFields = this.dbFields.length;
-		handle.read(new IDbReader() {
+	private boolean filterWorker(final ReadonlyHandle handle, final String select, final FieldMetaData[] params,
+			final int nbrFields, final String where, final Object[] inputValues, final Object[] outputValues,
+			final List<Object[]> outputRows) throws SQLException {
 
-			@Override
-			public String getPreparedStatement() {
-				return sql;
-			}
+		final boolean result[] = new boolean[1];
+		final String sql = where == null ? select : (select + ' ' + where);
+		final Span span = Tracer.startSpan("sql", sql);
+		try {
+			handle.read(new IDbReader() {
 
-			@Override
-			public void setParams(final PreparedStatement ps) throws SQLException {
-				if (inputValues == null || inputValues.length == 0) {
-					return;
+				@Override
+				public String getPreparedStatement() {
+					return sql;
 				}
-				int posn = 0;
-				for (final Object value : inputValues) {
-					posn++;
-					ValueType.setObjectAsPsParam(value, ps, posn);
+
+				@Override
+				public void setParams(final PreparedStatement ps) throws SQLException {
+					if (inputValues == null || inputValues.length == 0) {
+						return;
+					}
+					int posn = 0;
+					for (final Object value : inputValues) {
+						posn++;
+						ValueType.setObjectAsPsParam(value, ps, posn);
+					}
 				}
-			}
 
-			@Override
-			public boolean readARow(final ResultSet rs) throws SQLException {
-				/*
-				 * receive data into a new row if this is for multiple rows
-				 */
-				Object[] vals = outputValues;
-				if (vals == null) {
-					vals = new Object[nbrFields];
-					outputRows.add(vals);
+				@Override
+				public boolean readARow(final ResultSet rs) throws SQLException {
+					/*
+					 * receive data into a new row if this is for multiple rows
+					 */
+					Object[] vals = outputValues;
+					if (vals == null) {
+						vals = new Object[nbrFields];
+						outputRows.add(vals);
+					}
+					readWorker(rs, vals, params);
+					result[0] = true;
+					/*
+					 * return false if we are to read just one row
+					 */
+					return outputValues == null;
 				}
-				Dba.this.readWorker(rs, vals);
-				result[0] = true;
-				/*
-				 * return false if we are to read just one row
-				 */
-				return outputValues == null;
-			}
-		});
+			});
+		} finally {
+			span.close();
+		}
 		return result[0];
 	}
 
@@ -738,35 +1462,40 @@ public class Dba {
 
 		final String sql = where == null ? this.selectClause : (this.selectClause + ' ' + where);
 		final int nbrFields = this.dbFields.length;
-		handle.read(new IDbReader() {
-
-			@Override
-			public String getPreparedStatement() {
-				return sql;
-			}
+		final Span span = Tracer.startSpan("sql", sql);
+		try {
+			handle.read(new IDbReader() {
 
-			@Override
-			public void setParams(final PreparedStatement ps) throws SQLException {
-				if (inputValues == null || inputValues.length == 0) {
-					return;
+				@Override
+				public String getPreparedStatement() {
+					return sql;
 				}
-				int posn = 0;
-				for (final Object value : inputValues) {
-					posn++;
-					ValueType.setObjectAsPsParam(value, ps, posn);
+
+				@Override
+				public void setParams(final PreparedStatement ps) throws SQLException {
+					if (inputValues == null || inputValues.length == 0) {
+						return;
+					}
+					int posn = 0;
+					for (final Object value : inputValues) {
+						posn++;
+						ValueType.setObjectAsPsParam(value, ps, posn);
+					}
 				}
-			}
 
-			@Override
-			public boolean readARow(final ResultSet rs) throws SQLException {
-				final Object[] row = new Object[nbrFields];
-				Dba.this.readWorker(rs, row);
-				/*
-				 * return false if we are to read just one row
-				 */
-				return rowProcessor.process(row);
-			}
-		});
+				@Override
+				public boolean readARow(final ResultSet rs) throws SQLException {
+					final Object[] row = new Object[nbrFields];
+					Dba.this.readWorker(rs, row);
+					/*
+					 * return false if we are to read just one row
+					 */
+					return rowProcessor.process(row);
+				}
+			});
+		} finally {
+			span.close();
+		}
 	}
 
 	/**
@@ -856,12 +1585,7 @@ public class Dba {
 	 * @return field, or null if there is no such field
 	 */
 	public DbField getField(final String fieldName) {
-		for (final DbField f : this.dbFields) {
-			if (f.getName().equals(fieldName)) {
-				return f;
-			}
-		}
-		return null;
+		return this.fieldMap.get(fieldName);
 	}
 
 	/**
@@ -871,7 +1595,7 @@ public class Dba {
 	 * @return parsedFilter, or null in case of any error
 	 */
 	public ParsedFilter parseFilter(final IInputObject json, final IServiceContext ctx) {
-		return ParsedFilter.parse(json, this.dbFields, this.tenantField, ctx);
+		return ParsedFilter.parse(json, this.fieldMap, this.tenantField, this.filterSqls, ctx);
 	}
 
 	/**
@@ -882,6 +1606,89 @@ public class Dba {
 		if(operation == null) {
 			return false;
 		}
-		return this.allowedOperations[operation.ordinal()];
+		return operation.isAllowed(this.allowedOperations);
+	}
+
+	/**
+	 * @return the from-clause of the select sql, starting with " FROM ". null
+	 *         if the select sql is not in the expected format.
+	 */
+	String getFromClause() {
+		final int idx = this.selectClause.toUpperCase().indexOf(" FROM ");
+		if (idx == -1) {
+			logger.error("Select sql for {} is not in the expected format. Sql can not be built for it.",
+					this.nameInDb);
+			return null;
+		}
+		return this.selectClause.substring(idx);
+	}
+
+	/**
+	 * parse input for an aggregate service
+	 *
+	 * @param json
+	 * @param ctx
+	 * @return parsed aggregate, or null in case of any error
+	 */
+	ParsedAggregate parseAggregate(final IInputObject json, final IServiceContext ctx) {
+		final String from = this.getFromClause();
+		if (from == null) {
+			ctx.addMessage(Message.newError(Message.MSG_INTERNAL_ERROR));
+			return null;
+		}
+		return ParsedAggregate.parse(json, this.fieldMap, this.tenantField, from, this.filterSqls, ctx);
+	}
+
+	/**
+	 * read the rows for an aggregate
+	 *
+	 * @param handle
+	 * @param aggregate
+	 * @return rows with the group-by values followed by the aggregates. null
+	 *         if no rows are read
+	 * @throws SQLException
+	 */
+	Object[][] aggregate(final ReadonlyHandle handle, final ParsedAggregate aggregate) throws SQLException {
+		final String sql = aggregate.getSql();
+		final Span span = Tracer.startSpan("sql", sql);
+		try {
+			return handle.filter(sql, aggregate.getParamValues(), aggregate.getOutputTypes());
+		} finally {
+			span.close();
+		}
+	}
+
+	/**
+	 * select statement for a subset of fields. Rows read with this have just
+	 * these fields, in that order
+	 */
+	static class Projection {
+		final String selectClause;
+		final FieldMetaData[] params;
+		final Field[] fields;
+
+		Projection(final String selectClause, final FieldMetaData[] params, final Field[] fields) {
+			this.selectClause = selectClause;
+			this.params = params;
+			this.fields = fields;
+		}
+
+		/**
+		 * @return fields in this projection. The same array is returned on
+		 *         every call
+		 */
+		Field[] getFields() {
+			return this.fields;
+		}
+	}
+
+	private static class PartialUpdate {
+		final String sql;
+		final FieldMetaData[] params;
+
+		PartialUpdate(final String sql, final FieldMetaData[] params) {
+			this.sql = sql;
+			this.params = params;
+		}
 	}
 }
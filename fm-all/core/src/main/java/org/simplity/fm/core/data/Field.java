@@ -190,6 +190,34 @@ public class Field {
 	 */
 	public boolean parseIntoRow(final String value, final Object[] row, final IServiceContext ctx,
 			final String tableName, final int rowNbr) {
+		if (value == null || value.isEmpty()) {
+			return this.parseIntoRow(value, null, row, ctx, tableName, rowNbr);
+		}
+		return this.parseIntoRow(value, this.dataType.parse(value), row, ctx, tableName, rowNbr);
+	}
+
+	/**
+	 * used by generated code that parses the value with the data type of this
+	 * field before calling this method
+	 *
+	 * @param value
+	 *            string value that is parsed. can be null or empty
+	 * @param parsedValue
+	 *            value as parsed by the data type of this field. null if the
+	 *            value is empty or invalid
+	 * @param row
+	 *            into which parsed values is to be set to. MUST be array with
+	 *            the right number of elements
+	 * @param ctx
+	 *            into which any error message is added
+	 * @param tableName
+	 *            if this row is inside a table. used for reporting error
+	 * @param rowNbr
+	 *            used for reporting error is this is part of table
+	 * @return true if all ok. false if an error message is added to the context
+	 */
+	public boolean parseIntoRow(final String value, final Object parsedValue, final Object[] row,
+			final IServiceContext ctx, final String tableName, final int rowNbr) {
 
 		if (value == null || value.isEmpty()) {
 			row[this.index] = null;
@@ -201,25 +229,27 @@ public class Field {
 			return true;
 		}
 
-		final Object val = this.parse(value, ctx, tableName, rowNbr);
+		final Object val = this.validate(value, parsedValue, ctx, tableName, rowNbr);
 		row[this.index] = val;
 		return val != null;
 	}
 
 	/**
-	 * parse into the desired type, validate and return the value. Meant to be
-	 * called after validating null input for mandatory condition
+	 * validate the parsed value. Meant to be called after validating null
+	 * input for mandatory condition
 	 *
 	 * @param inputValue
 	 *            non-null. input text.
+	 * @param obj
+	 *            value parsed by the data type. null if it is invalid
 	 * @param ctx
 	 *            can be null. error added if not null;
 	 * @param tableName
 	 * @param idx
 	 * @return object of the right type. or null if the value is invalid
 	 */
-	private Object parse(final String inputValue, final IServiceContext ctx, final String tableName, final int idx) {
-		final Object obj = this.dataType.parse(inputValue);
+	private Object validate(final String inputValue, final Object obj, final IServiceContext ctx,
+			final String tableName, final int idx) {
 		if (obj == null) {
 			logger.error("{} is not valid for field {} as per data type {}", inputValue, this.name,
 					this.dataType.getName());
@@ -147,7 +147,7 @@ public abstract class Form<T extends Record> {
 	 *         is not allowed.
 	 */
 	public IService getService(final IoType operation) {
-		if (!this.operations[operation.ordinal()]) {
+		if (!operation.isAllowed(this.operations)) {
 			logger.info("{} operation is not allowed on record {}", operation, this.name);
 			return null;
 		}
@@ -155,6 +155,13 @@ public abstract class Form<T extends Record> {
 		String serviceName = operation.name();
 		serviceName = serviceName.substring(0, 1).toLowerCase() + serviceName.substring(1) + '_' + this.name;
 
+		/*
+		 * aggregates are on the record, even if the form has links
+		 */
+		if (operation == IoType.Aggregate && this.isDb) {
+			return ((DbRecord) this.record).getService(operation, serviceName);
+		}
+
 		/*
 		 * forms with links require form-based service
 		 */
@@ -384,9 +391,13 @@ public abstract class Form<T extends Record> {
 				return;
 			}
 
+			/*
+			 * if only some fields are requested, linked forms are not read
+			 */
+			final Dba.Projection projection = rec.dba.getProjection(filter.getFieldIndexes());
 			App.getApp().getDbDriver().read(handle -> {
 				final List<Object[]> list = rec.dba.filter(filter.getWhereClause(), filter.getWhereParamValues(),
-						handle);
+						projection, handle);
 				/*
 				 * instead of storing data and then serializing it, we have
 				 * designed this service to serialize data then-and-there
@@ -398,6 +409,13 @@ public abstract class Form<T extends Record> {
 
 				if (list.size() == 0) {
 					logger.warn("No rows filtered. Responding with empty list");
+				} else if (projection != null) {
+					final Field[] fields = projection.getFields();
+					for (final Object[] row : list) {
+						writer.beginObject();
+						writer.fields(fields, row);
+						writer.endObject();
+					}
 				} else {
 					for (final Object[] row : list) {
 						final DbRecord r = rec.newInstance(row);
@@ -48,5 +48,27 @@ public enum IoType {
 	/**
 	 * filter rows based on filter criterion
 	 */
-	Filter
+	Filter,
+	/**
+	 * aggregates, like count or sum, of rows based on filter criterion.
+	 * Allowed whenever filter is allowed
+	 */
+	Aggregate;
+
+	/**
+	 *
+	 * @param allowed
+	 *            allowed operations, indexed by the ordinal. Arrays that were
+	 *            generated before Aggregate was added are shorter.
+	 * @return true if this operation is allowed
+	 */
+	public boolean isAllowed(final boolean[] allowed) {
+		if (this.ordinal() < allowed.length) {
+			return allowed[this.ordinal()];
+		}
+		if (this == Aggregate) {
+			return Filter.isAllowed(allowed);
+		}
+		return false;
+	}
 }
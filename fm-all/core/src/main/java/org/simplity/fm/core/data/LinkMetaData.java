@@ -23,6 +23,8 @@
 package org.simplity.fm.core.data;
 
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
 
 import org.simplity.fm.core.Message;
 import org.simplity.fm.core.app.ApplicationError;
@@ -81,6 +83,13 @@ public class LinkMetaData {
 	 * is the link meant for an array of data or 1-to-1?
 	 */
 	private final boolean isTabular;
+
+	/**
+	 * if true, tabular child rows are saved by comparing them with the rows in
+	 * the db: only the rows that are new, modified or missing are inserted,
+	 * updated or deleted, each kind as one batch.
+	 */
+	private final boolean saveChangesOnly;
 	/*
 	 * fields that are final but created at init()
 	 */
@@ -102,6 +111,10 @@ public class LinkMetaData {
 	 * in case the linked record is to be used for deleting children
 	 */
 	private String deleteSql;
+	/**
+	 * cache of child rows, if the child record is cached.
+	 */
+	private RecordCache childCache;
 
 	/**
 	 * how do we link the parent and the child/linked record?
@@ -133,6 +146,37 @@ public class LinkMetaData {
 		this.childLinkNames = childLinkNames;
 		this.errorMessageId = errorMessageId;
 		this.isTabular = isTabular;
+		this.saveChangesOnly = false;
+	}
+
+	/**
+	 * used by generated code when the child rows are to be saved by comparing
+	 * them with the existing rows in the db
+	 *
+	 * @param linkName
+	 * @param linkFormName
+	 * @param minRows
+	 * @param maxRows
+	 * @param errorMessageId
+	 * @param parentLinkNames
+	 * @param childLinkNames
+	 * @param isTabular
+	 * @param saveChangesOnly
+	 *            if true, only the rows that are new, modified or deleted are
+	 *            written to the db.
+	 */
+	public LinkMetaData(final String linkName, final String linkFormName, final int minRows, final int maxRows,
+			final String errorMessageId, final String[] parentLinkNames, final String[] childLinkNames,
+			final boolean isTabular, final boolean saveChangesOnly) {
+		this.linkName = linkName;
+		this.linkFormName = linkFormName;
+		this.minRows = minRows;
+		this.maxRows = maxRows;
+		this.parentLinkNames = parentLinkNames;
+		this.childLinkNames = childLinkNames;
+		this.errorMessageId = errorMessageId;
+		this.isTabular = isTabular;
+		this.saveChangesOnly = saveChangesOnly;
 	}
 
 	boolean isTabular() {
@@ -189,6 +233,7 @@ public class LinkMetaData {
 
 		this.linkWhereClause = sbf.toString();
 		this.deleteSql = "delete from " + childRecord.dba.getNameInDb() + this.linkWhereClause;
+		this.childCache = childRecord.dba.getCache();
 	}
 
 	/**
@@ -282,6 +327,10 @@ public class LinkMetaData {
 				return false;
 			}
 
+			if (this.saveChangesOnly) {
+				return this.saveChanges(parentRec, thisRecord, arr, handle, ctx);
+			}
+
 			int idx = -1;
 			for (final IInputObject obj : arr) {
 				idx++;
@@ -315,6 +364,28 @@ public class LinkMetaData {
 		return true;
 	}
 
+	private boolean saveChanges(final DbRecord parentRec, final DbRecord thisRecord, final IInputArray arr,
+			final ReadWriteHandle handle, final IServiceContext ctx) throws SQLException {
+		final Object[][] rows = new Object[arr.length()][];
+		int idx = -1;
+		for (final IInputObject obj : arr) {
+			idx++;
+			if (!thisRecord.parse(obj, true, ctx, this.linkFormName, idx)) {
+				return false;
+			}
+			this.copyParentKeys(parentRec, thisRecord);
+			final Object[] row = thisRecord.fetchRawData();
+			rows[idx] = Arrays.copyOf(row, row.length);
+		}
+
+		final List<Object[]> existing = thisRecord.dba.filter(this.linkWhereClause, this.getWhereValues(parentRec),
+				handle);
+		if (!thisRecord.dba.mergeAll(handle, existing, rows)) {
+			throw new SQLException("Save failed for rows of linked form " + this.linkFormName);
+		}
+		return true;
+	}
+
 	/**
 	 * @param parentRec
 	 * @param form
@@ -330,6 +401,13 @@ public class LinkMetaData {
 		}
 
 		handle.write(this.deleteSql, this.getWhereValues(parentRec));
+		/*
+		 * we do not know which child rows were deleted. Rows read by others
+		 * before the commit are cleared again after the commit
+		 */
+		if (this.childCache != null) {
+			this.childCache.clear(handle);
+		}
 		/*
 		 * 0 delete also is okay
 		 */
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.simplity.fm.core.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.simplity.fm.core.Conventions;
+import org.simplity.fm.core.Message;
+import org.simplity.fm.core.datatypes.ValueType;
+import org.simplity.fm.core.rdb.AggregateFunction;
+import org.simplity.fm.core.serialize.IInputObject;
+import org.simplity.fm.core.service.IServiceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Utility class used by dbRecord to parse input for an aggregate service.
+ * Conditions are the same as that for a filter service. Payload may have
+ * group-by fields and aggregates. If neither is specified, just the number of
+ * rows is returned.
+ *
+ * @author simplity.org
+ *
+ */
+class ParsedAggregate {
+	private static final Logger logger = LoggerFactory.getLogger(ParsedAggregate.class);
+	private static final String COUNT_ALL = "COUNT(*)";
+
+	private final String sql;
+	private final Object[] paramValues;
+	private final String[] outputNames;
+	private final ValueType[] outputTypes;
+
+	private ParsedAggregate(final String sql, final Object[] paramValues, final String[] outputNames,
+			final ValueType[] outputTypes) {
+		this.sql = sql;
+		this.paramValues = paramValues;
+		this.outputNames = outputNames;
+		this.outputTypes = outputTypes;
+	}
+
+	String getSql() {
+		return this.sql;
+	}
+
+	Object[] getParamValues() {
+		return this.paramValues;
+	}
+
+	/**
+	 * @return names of the group-by fields, followed by the names of the
+	 *         aggregates. null if this is only a count of rows
+	 */
+	String[] getOutputNames() {
+		return this.outputNames;
+	}
+
+	ValueType[] getOutputTypes() {
+		return this.outputTypes;
+	}
+
+	/**
+	 * @return true if only the number of rows is to be returned
+	 */
+	boolean isCountOnly() {
+		return this.outputNames == null;
+	}
+
+	static ParsedAggregate parse(final IInputObject inputObject, final Map<String, DbField> map,
+			final DbField tenantField, final String fromClause, final Map<String, String> sqls,
+			final IServiceContext ctx) {
+		final List<Object> values = new ArrayList<>();
+		final String where = ParsedFilter.parseWhere(inputObject, map, tenantField, sqls, ctx, values);
+		if (where == null) {
+			return null;
+		}
+		final Object[] params = values.size() == 0 ? null : values.toArray(new Object[0]);
+
+		final String groupText = inputObject.getString(Conventions.Http.TAG_GROUP_BY);
+		final IInputObject aggs = inputObject.getObject(Conventions.Http.TAG_AGGREGATES);
+		final boolean noGroups = groupText == null || groupText.isEmpty();
+		final boolean noAggs = aggs == null || aggs.isEmpty();
+
+		if (noGroups && noAggs) {
+			final String sql = "SELECT " + COUNT_ALL + fromClause + where;
+			logger.info("Aggregate sql is: {}", sql);
+			return new ParsedAggregate(sql, params, null, new ValueType[] { ValueType.Integer });
+		}
+
+		final List<String> names = new ArrayList<>();
+		final List<ValueType> types = new ArrayList<>();
+		final StringBuilder select = new StringBuilder("SELECT ");
+		final StringBuilder groupBy = new StringBuilder();
+
+		if (!noGroups) {
+			for (final String text : groupText.split(",")) {
+				final String name = text.trim();
+				final DbField field = map.get(name);
+				if (field == null) {
+					logger.error("{} is not a field in the form, and can not be used to group by", name);
+					ctx.addMessage(Message.newError(Message.MSG_INVALID_DATA));
+					return null;
+				}
+				if (names.size() > 0) {
+					select.append(", ");
+					groupBy.append(", ");
+				}
+				select.append(field.getColumnName());
+				groupBy.append(field.getColumnName());
+				names.add(name);
+				types.add(field.getValueType());
+			}
+		}
+
+		if (!noAggs) {
+			for (final String name : aggs.names()) {
+				final IInputObject agg = aggs.getObject(name);
+				if (agg == null) {
+					logger.error("Aggregate {} should be an object with fn and field", name);
+					ctx.addMessage(Message.newError(Message.MSG_INVALID_DATA));
+					return null;
+				}
+				final String fnText = agg.getString(Conventions.Http.TAG_AGGREGATE_FN);
+				final AggregateFunction fn = AggregateFunction.parse(fnText);
+				if (fn == null) {
+					logger.error("{} is not a valid aggregate function", fnText);
+					ctx.addMessage(Message.newError(Message.MSG_INVALID_DATA));
+					return null;
+				}
+
+				final String fieldName = agg.getString(Conventions.Http.TAG_AGGREGATE_FIELD);
+				DbField field = null;
+				if (fieldName != null && fieldName.isEmpty() == false) {
+					field = map.get(fieldName);
+					if (field == null) {
+						logger.error("{} is not a field in the form, and can not be aggregated", fieldName);
+						ctx.addMessage(Message.newError(Message.MSG_INVALID_DATA));
+						return null;
+					}
+				} else if (fn != AggregateFunction.Count) {
+					logger.error("Aggregate {} requires a field for function {}", name, fn);
+					ctx.addMessage(Message.newError(Message.MSG_INVALID_DATA));
+					return null;
+				}
+
+				final ValueType vt = getResultType(fn, field);
+				if (vt == null) {
+					logger.error("Function {} can not be used on field {} of value type {}", fn, fieldName,
+							field.getValueType());
+					ctx.addMessage(Message.newError(Message.MSG_INVALID_DATA));
+					return null;
+				}
+
+				if (names.size() > 0) {
+					select.append(", ");
+				}
+				if (field == null) {
+					select.append(COUNT_ALL);
+				} else {
+					select.append(fn.getSqlName()).append('(').append(field.getColumnName()).append(')');
+				}
+				names.add(name);
+				types.add(vt);
+			}
+		}
+
+		select.append(fromClause).append(where);
+		if (groupBy.length() > 0) {
+			select.append(" GROUP BY ").append(groupBy);
+		}
+		final String sql = select.toString();
+		logger.info("Aggregate sql is: {}", sql);
+		return new ParsedAggregate(sql, params, names.toArray(new String[0]), types.toArray(new ValueType[0]));
+	}
+
+	/**
+	 * @return value type of the result, or null if the function can not be
+	 *         used on this field
+	 */
+	private static ValueType getResultType(final AggregateFunction fn, final DbField field) {
+		if (fn == AggregateFunction.Count) {
+			return ValueType.Integer;
+		}
+		final ValueType vt = field.getValueType();
+		switch (fn) {
+		case Sum:
+			if (vt == ValueType.Integer || vt == ValueType.Decimal) {
+				return vt;
+			}
+			return null;
+		case Average:
+			if (vt == ValueType.Integer || vt == ValueType.Decimal) {
+				return ValueType.Decimal;
+			}
+			return null;
+		default:
+			if (vt == ValueType.Boolean) {
+				return null;
+			}
+			return vt;
+		}
+	}
+}
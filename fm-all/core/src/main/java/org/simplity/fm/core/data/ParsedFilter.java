@@ -19,11 +19,10 @@
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  * SOFTWARE.
  */
-
 package org.simplity.fm.core.data;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 
@@ -37,7 +36,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Utility class used by dbRecord to parse input for a filter service
+ * Utility class used by dbRecord to parse input for a filter service.
+ *
+ * The sql is determined by the "shape" of the filter: fields, their conditions,
+ * number of values in IN lists, and sort order. Sqls are cached by this shape.
+ * IN lists are padded to a few bucket sizes so that the number of distinct
+ * statements stays small for the statement caches of the db and the driver.
  *
  * @author simplity.org
  *
@@ -48,16 +52,30 @@ class ParsedFilter {
 	private static final String LIKE = " LIKE ? escape '\\'";
 	private static final String BETWEEN = " BETWEEN ? and ?";
 	private static final String WILD_CARD = "%";
-	private static final String ESCAPED_WILD_CARD = "\\%";
-	private static final String WILD_CHAR = "_";
-	private static final String ESCAPED_WILD_CHAR = "\\_";
+	private static final char ESCAPE = '\\';
+	/*
+	 * shapes beyond these many are not cached
+	 */
+	private static final int MAX_SHAPES = 256;
+	/*
+	 * IN lists longer than this are not padded. The next bucket, 1024, would
+	 * exceed the limit of 1000 expressions in a list on Oracle
+	 */
+	private static final int MAX_IN_BUCKET = 512;
+	/*
+	 * prefix for the shape of a where clause without sort order
+	 */
+	private static final char WHERE_ONLY = 'w';
 
 	final private String whereClause;
 	final private Object[] whereParamValues;
+	final private BitSet fieldIndexes;
 
-	ParsedFilter(final String whereClauseStartingWithWhere, final Object[] whereParamValues) {
+	ParsedFilter(final String whereClauseStartingWithWhere, final Object[] whereParamValues,
+			final BitSet fieldIndexes) {
 		this.whereClause = whereClauseStartingWithWhere;
 		this.whereParamValues = whereParamValues;
+		this.fieldIndexes = fieldIndexes;
 	}
 
 	String getWhereClause() {
@@ -68,97 +86,263 @@ class ParsedFilter {
 		return this.whereParamValues;
 	}
 
-	static ParsedFilter parse(final IInputObject inputObject, final DbField[] fields, final DbField tenantField,
-			final IServiceContext ctx) {
-		IInputObject conditions = inputObject.getObject(Conventions.Http.TAG_CONDITIONS);
-		if (conditions == null || conditions.isEmpty()) {
-			logger.warn("payload for filter has no conditions. All rows will be filtered");
-			conditions = null;
-		}
-
-		/*
-		 * sort order
-		 */
-		final IInputObject sorts = inputObject.getObject(Conventions.Http.TAG_SORT);
+	/**
+	 * @return indexes of the fields to be returned. null if all fields are to
+	 *         be returned
+	 */
+	BitSet getFieldIndexes() {
+		return this.fieldIndexes;
+	}
 
+	/**
+	 *
+	 * @param inputObject
+	 *            payload for the filter service
+	 * @param fields
+	 *            db fields by name
+	 * @param tenantField
+	 *            null if the table is not tenant-specific
+	 * @param sqls
+	 *            cache of sqls by their shape. this is specific to a table
+	 * @param ctx
+	 * @return parsed filter, or null in case of any error
+	 */
+	static ParsedFilter parse(final IInputObject inputObject, final Map<String, DbField> fields,
+			final DbField tenantField, final Map<String, String> sqls, final IServiceContext ctx) {
 		final int maxRows = (int) inputObject.getLong(Conventions.Http.TAG_MAX_ROWS);
 		if (maxRows != 0) {
 			logger.info("Number of max rows is set to {}. It is ignored as of now.", maxRows);
 		}
-		final StringBuilder sql = new StringBuilder();
+
 		final List<Object> values = new ArrayList<>();
+		final List<Term> terms = new ArrayList<>();
+		if (!parseConditions(inputObject, fields, ctx, values, terms, false)) {
+			return null;
+		}
+		parseSorts(inputObject.getObject(Conventions.Http.TAG_SORT), fields, terms);
+
+		final BitSet fieldIndexes = parseFields(fields, inputObject.getString(Conventions.Http.TAG_FIELDS));
 
 		/*
-		 * force a condition on tenant id if required
+		 * did we get anything at all?
 		 */
+		if (tenantField == null && terms.isEmpty()) {
+			logger.info("Filter has no conditions or sort orders");
+			return new ParsedFilter(null, null, fieldIndexes);
+		}
+
+		final String sql = getSql(terms, tenantField, sqls, false);
+		logger.info("filter clause is: {}", sql);
+		if (tenantField != null) {
+			values.add(0, ctx.getTenantId());
+		}
+		final int n = values.size();
+		if (n == 0) {
+			logger.info("Filter clause has no parametrs.");
+			return new ParsedFilter(sql, null, fieldIndexes);
+		}
+
+		logValues(values);
+		return new ParsedFilter(sql, values.toArray(new Object[0]), fieldIndexes);
+	}
+
+	/**
+	 * parse the conditions in the payload into a where clause
+	 *
+	 * @param inputObject
+	 *            payload that may have conditions
+	 * @param fields
+	 *            db fields by name
+	 * @param tenantField
+	 *            null if the table is not tenant-specific
+	 * @param sqls
+	 *            cache of sqls by their shape. this is specific to a table
+	 * @param ctx
+	 * @param values
+	 *            to which the values for the parameters in the where clause
+	 *            are added
+	 * @return where clause starting with " WHERE ", empty string if there are
+	 *         no conditions, or null in case of any error in the conditions
+	 */
+	static String parseWhere(final IInputObject inputObject, final Map<String, DbField> fields,
+			final DbField tenantField, final Map<String, String> sqls, final IServiceContext ctx,
+			final List<Object> values) {
+		return parseWhere(inputObject, fields, tenantField, sqls, ctx, values, false, null);
+	}
+
+	/**
+	 * parse the conditions in the payload into a where clause
+	 *
+	 * @param inputObject
+	 *            payload that may have conditions
+	 * @param fields
+	 *            db fields by name
+	 * @param tenantField
+	 *            null if the table is not tenant-specific
+	 * @param sqls
+	 *            cache of sqls by their shape. this is specific to a table
+	 * @param ctx
+	 * @param values
+	 *            to which the values for the parameters in the where clause
+	 *            are added
+	 * @param strict
+	 *            if true, a condition on a field that is not part of this
+	 *            table is an error. Else it is ignored with a warning
+	 * @param nbrConditions
+	 *            if non-null, nbrConditions[0] is set to the number of
+	 *            conditions that made it to the where clause. Note that the
+	 *            tenant condition is not counted
+	 * @return where clause starting with " WHERE ", empty string if there are
+	 *         no conditions, or null in case of any error in the conditions
+	 */
+	static String parseWhere(final IInputObject inputObject, final Map<String, DbField> fields,
+			final DbField tenantField, final Map<String, String> sqls, final IServiceContext ctx,
+			final List<Object> values, final boolean strict, final int[] nbrConditions) {
+		final List<Term> terms = new ArrayList<>();
+		final List<Object> conditionValues = new ArrayList<>();
+		if (!parseConditions(inputObject, fields, ctx, conditionValues, terms, strict)) {
+			return null;
+		}
+		if (nbrConditions != null) {
+			nbrConditions[0] = terms.size();
+		}
 		if (tenantField != null) {
-			sql.append(tenantField.getColumnName()).append("=?");
 			values.add(ctx.getTenantId());
 		}
+		values.addAll(conditionValues);
+		logValues(values);
+		if (tenantField == null && terms.isEmpty()) {
+			return "";
+		}
+		return getSql(terms, tenantField, sqls, true);
+	}
 
-		final Map<String, DbField> map = new HashMap<>();
-		for (final DbField field : fields) {
-			map.put(field.getName(), field);
+	private static void logValues(final List<Object> values) {
+		if (!logger.isDebugEnabled() || values.isEmpty()) {
+			return;
+		}
+		final StringBuilder sbf = new StringBuilder();
+		for (int i = 0; i < values.size(); i++) {
+			sbf.append('\n').append(i).append("= ").append(values.get(i));
 		}
+		logger.debug("Filter parameters : {}", sbf.toString());
+	}
 
-		if (conditions != null) {
-			final boolean ok = parseConditions(map, conditions, ctx, values, sql);
-			if (!ok) {
-				return null;
+	/**
+	 * get the sql for this shape from the cache, or build it
+	 */
+	private static String getSql(final List<Term> terms, final DbField tenantField, final Map<String, String> sqls,
+			final boolean whereOnly) {
+		final StringBuilder key = new StringBuilder();
+		if (whereOnly) {
+			key.append(WHERE_ONLY);
+		}
+		for (final Term term : terms) {
+			if (whereOnly && term.isSort()) {
+				continue;
 			}
+			term.appendShape(key);
+		}
+		final String shape = key.toString();
+		String sql = sqls.get(shape);
+		if (sql != null) {
+			return sql;
 		}
 
-		if (sql.length() > 0) {
-			sql.insert(0, " WHERE ");
+		sql = buildSql(terms, tenantField, whereOnly);
+		if (sqls.size() < MAX_SHAPES) {
+			sqls.put(shape, sql);
+		}
+		return sql;
+	}
+
+	private static String buildSql(final List<Term> terms, final DbField tenantField, final boolean whereOnly) {
+		final StringBuilder sql = new StringBuilder();
+		/*
+		 * force a condition on tenant id if required
+		 */
+		if (tenantField != null) {
+			sql.append(tenantField.getColumnName()).append("=?");
 		}
 
-		if (sorts != null) {
-			boolean isFirst = true;
-			for (final String f : sorts.names()) {
-				final DbField field = map.get(f);
-				if (field == null) {
-					logger.error("{} is not a field in the form. Sort order ignored");
+		boolean isFirstSort = true;
+		for (final Term term : terms) {
+			if (term.isSort()) {
+				if (whereOnly) {
 					continue;
 				}
-				if (isFirst) {
+				if (isFirstSort) {
+					if (sql.length() > 0) {
+						sql.insert(0, " WHERE ");
+					}
 					sql.append(" ORDER BY ");
-					isFirst = false;
+					isFirstSort = false;
 				} else {
 					sql.append(", ");
 				}
-				sql.append(field.getColumnName());
-				final String order = sorts.getString(f);
-				if (order != null && order.toLowerCase().startsWith("d")) {
+				sql.append(term.field.getColumnName());
+				if (term.descending) {
 					sql.append(" DESC ");
 				}
+				continue;
 			}
+
+			if (sql.length() > 0) {
+				sql.append(" and ");
+			}
+			term.appendCondition(sql);
 		}
-		/*
-		 * did we get anything at all?
-		 */
-		if (sql.length() == 0) {
-			logger.info("Filter has no conditions or sort orders");
-			return new ParsedFilter(null, null);
+
+		if (isFirstSort && sql.length() > 0) {
+			sql.insert(0, " WHERE ");
 		}
+		return sql.toString();
+	}
 
-		final String sqlText = sql.toString();
-		logger.info("filter clause is: {}", sqlText);
-		final int n = values.size();
-		if (n == 0) {
-			logger.info("Filter clause has no parametrs.");
-			return new ParsedFilter(sqlText, null);
+	private static void parseSorts(final IInputObject sorts, final Map<String, DbField> fields,
+			final List<Term> terms) {
+		if (sorts == null) {
+			return;
 		}
+		for (final String f : sorts.names()) {
+			final DbField field = fields.get(f);
+			if (field == null) {
+				logger.error("{} is not a field in the form. Sort order ignored", f);
+				continue;
+			}
+			final String order = sorts.getString(f);
+			final boolean desc = order != null && order.toLowerCase().startsWith("d");
+			terms.add(new Term(field, desc));
+		}
+	}
 
-		final StringBuilder sbf = new StringBuilder();
-		for (int i = 0; i < n; i++) {
-			sbf.append('\n').append(i).append("= ").append(values.get(i));
+	private static BitSet parseFields(final Map<String, DbField> fields, final String names) {
+		if (names == null || names.isEmpty()) {
+			return null;
+		}
+		final BitSet indexes = new BitSet();
+		for (final String name : names.split(",")) {
+			final DbField field = fields.get(name.trim());
+			if (field == null) {
+				logger.warn("{} is not a field in the form. It is not returned by the filter", name);
+				continue;
+			}
+			indexes.set(field.getIndex());
 		}
-		logger.info("Filter parameters : {}", sbf.toString());
-		return new ParsedFilter(sqlText, values.toArray(new Object[0]));
+		if (indexes.isEmpty()) {
+			logger.warn("No valid fields in the list of fields to be returned. All fields are returned");
+			return null;
+		}
+		return indexes;
 	}
 
-	private static boolean parseConditions(final Map<String, DbField> fields, final IInputObject object,
-			final IServiceContext ctx, final List<Object> values, final StringBuilder sql) {
+	private static boolean parseConditions(final IInputObject inputObject, final Map<String, DbField> fields,
+			final IServiceContext ctx, final List<Object> values, final List<Term> terms, final boolean strict) {
+		final IInputObject object = inputObject.getObject(Conventions.Http.TAG_CONDITIONS);
+		if (object == null || object.isEmpty()) {
+			logger.warn("payload for filter has no conditions. All rows will be filtered");
+			return true;
+		}
 
 		/*
 		 * fairly long inside the loop for each field. But it is just
@@ -167,6 +351,11 @@ class ParsedFilter {
 		for (final String fieldName : object.names()) {
 			final DbField field = fields.get(fieldName);
 			if (field == null) {
+				if (strict) {
+					logger.error("Condition on field {} that is not part of this form", fieldName);
+					ctx.addMessage(Message.newError(Message.MSG_INVALID_DATA));
+					return false;
+				}
 				logger.warn("Input has value for a field named {} that is not part of this form", fieldName);
 				continue;
 			}
@@ -206,18 +395,11 @@ class ParsedFilter {
 				}
 			}
 
-			final int idx = values.size();
-			if (idx > 0) {
-				sql.append(" and ");
-			}
-
-			sql.append(field.getColumnName());
-
 			final ValueType vt = field.getValueType();
 			Object obj = null;
 			/*
-			 * complex ones first.. we have to append ? to sql, and add type and
-			 * value to the lists for each case
+			 * complex ones first.. we have to add the term and the value/s
+			 * for each case
 			 */
 			if ((condn == FilterCondition.Contains || condn == FilterCondition.StartsWith)) {
 				if (vt != ValueType.Text) {
@@ -227,34 +409,34 @@ class ParsedFilter {
 					return false;
 				}
 
-				sql.append(LIKE);
 				value = escapeLike(value) + WILD_CARD;
 				if (condn == FilterCondition.Contains) {
 					value = WILD_CARD + value;
 				}
 				values.add(value);
+				terms.add(new Term(field, condn, condnText, 1));
 				continue;
 			}
 
 			if (condn == FilterCondition.In) {
-				sql.append(IN);
-				boolean firstOne = true;
-				for (final String part : value.split(",")) {
+				final String[] parts = value.split(",");
+				for (final String part : parts) {
 					obj = vt.parse(part.trim());
 					if (obj == null) {
 						logger.error("{} is not a valid value for value type {} for field {}", value, vt, fieldName);
 						ctx.addMessage(Message.newError(Message.MSG_INVALID_DATA));
 						return false;
 					}
-					if (firstOne) {
-						sql.append('?');
-						firstOne = false;
-					} else {
-						sql.append(",?");
-					}
 					values.add(obj);
 				}
-				sql.append(')');
+				/*
+				 * pad with the last value. IN semantics remain the same
+				 */
+				final int arity = toBucket(parts.length);
+				for (int i = parts.length; i < arity; i++) {
+					values.add(obj);
+				}
+				terms.add(new Term(field, condn, condnText, arity));
 				continue;
 			}
 
@@ -275,26 +457,128 @@ class ParsedFilter {
 					ctx.addMessage(Message.newError(Message.MSG_INVALID_DATA));
 					return false;
 				}
-				sql.append(BETWEEN);
 				values.add(obj);
 				values.add(obj2);
+				terms.add(new Term(field, condn, condnText, 2));
 				continue;
 			}
 
-			sql.append(' ').append(condnText).append(" ?");
 			values.add(obj);
+			terms.add(new Term(field, condn, condnText, 1));
 		}
 		return true;
 
 	}
 
+	/**
+	 * @return smallest power of 2 that is not less than n, unless n is too
+	 *         large, in which case n itself
+	 */
+	static int toBucket(final int n) {
+		if (n > MAX_IN_BUCKET) {
+			return n;
+		}
+		int bucket = 1;
+		while (bucket < n) {
+			bucket <<= 1;
+		}
+		return bucket;
+	}
+
 	/**
 	 * NOTE: Does not work for MS-ACCESS. but we are fine with that!!!
 	 *
 	 * @param string
 	 * @return string that is escaped for a LIKE sql operation.
 	 */
-	private static String escapeLike(final String string) {
-		return string.replaceAll(WILD_CARD, ESCAPED_WILD_CARD).replaceAll(WILD_CHAR, ESCAPED_WILD_CHAR);
+	static String escapeLike(final String string) {
+		final int n = string.length();
+		StringBuilder sbf = null;
+		for (int i = 0; i < n; i++) {
+			final char c = string.charAt(i);
+			final boolean special = c == '%' || c == '_' || c == ESCAPE;
+			if (sbf == null) {
+				if (!special) {
+					continue;
+				}
+				sbf = new StringBuilder(n + 8);
+				sbf.append(string, 0, i);
+			}
+			if (special) {
+				sbf.append(ESCAPE);
+			}
+			sbf.append(c);
+		}
+		return sbf == null ? string : sbf.toString();
+	}
+
+	/**
+	 * a condition or a sort order on a field
+	 */
+	private static class Term {
+		final DbField field;
+		/*
+		 * null if this is a sort order
+		 */
+		final FilterCondition condn;
+		final String condnText;
+		/*
+		 * number of parameters
+		 */
+		final int arity;
+		final boolean descending;
+
+		Term(final DbField field, final FilterCondition condn, final String condnText, final int arity) {
+			this.field = field;
+			this.condn = condn;
+			this.condnText = condnText;
+			this.arity = arity;
+			this.descending = false;
+		}
+
+		Term(final DbField field, final boolean descending) {
+			this.field = field;
+			this.condn = null;
+			this.condnText = null;
+			this.arity = 0;
+			this.descending = descending;
+		}
+
+		boolean isSort() {
+			return this.condn == null;
+		}
+
+		void appendShape(final StringBuilder sbf) {
+			sbf.append(this.field.getIndex());
+			if (this.condn == null) {
+				sbf.append(this.descending ? 'd' : 'a');
+			} else {
+				sbf.append(':').append(this.condn.ordinal()).append(':').append(this.arity);
+			}
+			sbf.append(';');
+		}
+
+		void appendCondition(final StringBuilder sql) {
+			sql.append(this.field.getColumnName());
+			switch (this.condn) {
+			case Contains:
+			case StartsWith:
+				sql.append(LIKE);
+				return;
+			case In:
+				sql.append(IN).append('?');
+				for (int i = 1; i < this.arity; i++) {
+					sql.append(",?");
+				}
+				sql.append(')');
+				return;
+			case Between:
+				sql.append(BETWEEN);
+				return;
+			default:
+				sql.append(' ').append(this.condnText).append(" ?");
+				return;
+			}
+		}
 	}
 }
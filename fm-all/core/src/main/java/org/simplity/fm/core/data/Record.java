@@ -30,7 +30,9 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Objects;
 
 import org.simplity.fm.core.datatypes.ValueType;
 import org.simplity.fm.core.serialize.IInputArray;
@@ -84,6 +86,12 @@ public class Record {
 	 */
 	protected final Object[] fieldValues;
 
+	/**
+	 * fields whose values have changed since tracking started. null if
+	 * changes are not being tracked
+	 */
+	private BitSet changes;
+
 	/**
 	 * simplest way to create a record for local use: with no unique name or
 	 * validations
@@ -152,12 +160,86 @@ public class Record {
 	 */
 	public void assignValue(final int idx, final Object value) {
 		try {
-			this.fieldValues[idx] = value;
+			this.setValue(idx, value);
 		} catch (final Exception e) {
 			this.logError(idx);
 		}
 	}
 
+	private void setValue(final int idx, final Object value) {
+		if (this.changes != null && !Objects.equals(this.fieldValues[idx], value)) {
+			this.changes.set(idx);
+		}
+		this.fieldValues[idx] = value;
+	}
+
+	/**
+	 * start tracking changes to field values. Any changes tracked so far are
+	 * discarded. Changes are tracked for values set through assignValue(),
+	 * the typed setters and parse(), but not for changes made directly to the
+	 * array returned by fetchRawData().
+	 * <br />
+	 * A DbRecord that is tracking changes updates only the changed columns,
+	 * and skips the update altogether if nothing has changed. Typical use is
+	 * to read the record, start tracking, and then parse the input into it.
+	 */
+	public void trackChanges() {
+		this.changes = new BitSet(this.fieldValues.length);
+	}
+
+	/**
+	 * stop tracking changes, and discard the changes tracked so far
+	 */
+	public void stopTrackingChanges() {
+		this.changes = null;
+	}
+
+	/**
+	 *
+	 * @return true if changes to field values are being tracked
+	 */
+	public boolean isTrackingChanges() {
+		return this.changes != null;
+	}
+
+	/**
+	 *
+	 * @param idx
+	 * @return true if changes are being tracked, and the value of this field
+	 *         has changed
+	 */
+	public boolean isChanged(final int idx) {
+		return this.changes != null && this.changes.get(idx);
+	}
+
+	/**
+	 *
+	 * @return true if changes are being tracked, and at least one field has
+	 *         changed.
+	 */
+	public boolean hasChanges() {
+		return this.changes != null && !this.changes.isEmpty();
+	}
+
+	/**
+	 *
+	 * @return fields that have changed. null if changes are not being tracked.
+	 *         This is not a copy.
+	 */
+	BitSet fetchChanges() {
+		return this.changes;
+	}
+
+	/**
+	 * values are now in synch with the db. forget the changes tracked so far,
+	 * but continue tracking
+	 */
+	void clearChanges() {
+		if (this.changes != null) {
+			this.changes.clear();
+		}
+	}
+
 	/**
 	 * get value of a field at the specified 0-based field index. Null is
 	 * returned if the index is out of range
@@ -226,18 +308,18 @@ public class Record {
 		final ValueType vt = field.getValueType();
 
 		if (vt == ValueType.Integer) {
-			this.fieldValues[idx] = value;
+			this.setValue(idx, value);
 			return true;
 		}
 
 		if (vt == ValueType.Decimal) {
 			final double d = value;
-			this.fieldValues[idx] = d;
+			this.setValue(idx, d);
 			return true;
 		}
 
 		if (vt == ValueType.Text) {
-			this.fieldValues[idx] = "" + value;
+			this.setValue(idx, "" + value);
 			return true;
 		}
 		return false;
@@ -275,14 +357,14 @@ public class Record {
 		final ValueType vt = field.getValueType();
 
 		if (vt == ValueType.Text) {
-			this.fieldValues[idx] = value;
+			this.setValue(idx, value);
 			return true;
 		}
 
 		final Object obj = vt.parse(value);
 
 		if (obj != null) {
-			this.fieldValues[idx] = obj;
+			this.setValue(idx, obj);
 			return true;
 		}
 
@@ -330,12 +412,12 @@ public class Record {
 		final ValueType vt = field.getValueType();
 
 		if (vt == ValueType.Date) {
-			this.fieldValues[idx] = value;
+			this.setValue(idx, value);
 			return true;
 		}
 
 		if (vt == ValueType.Text) {
-			this.fieldValues[idx] = value.toString();
+			this.setValue(idx, value.toString());
 			return true;
 		}
 
@@ -382,12 +464,12 @@ public class Record {
 		final ValueType vt = field.getValueType();
 
 		if (vt == ValueType.Boolean) {
-			this.fieldValues[idx] = value;
+			this.setValue(idx, value);
 			return true;
 		}
 
 		if (vt == ValueType.Text) {
-			this.fieldValues[idx] = "" + value;
+			this.setValue(idx, "" + value);
 			return true;
 		}
 
@@ -438,17 +520,17 @@ public class Record {
 		final ValueType vt = field.getValueType();
 
 		if (vt == ValueType.Decimal) {
-			this.fieldValues[idx] = value;
+			this.setValue(idx, value);
 			return true;
 		}
 
 		if (vt == ValueType.Integer) {
-			this.fieldValues[idx] = ((Number) value).longValue();
+			this.setValue(idx, ((Number) value).longValue());
 			return true;
 		}
 
 		if (vt == ValueType.Text) {
-			this.fieldValues[idx] = "" + value;
+			this.setValue(idx, "" + value);
 			return true;
 		}
 
@@ -502,12 +584,12 @@ public class Record {
 		final ValueType vt = field.getValueType();
 
 		if (vt == ValueType.Timestamp) {
-			this.fieldValues[idx] = value;
+			this.setValue(idx, value);
 			return true;
 		}
 
 		if (vt == ValueType.Text) {
-			this.fieldValues[idx] = value.toString();
+			this.setValue(idx, value.toString());
 			return true;
 		}
 
@@ -556,11 +638,14 @@ public class Record {
 	 */
 	public boolean parse(final IInputObject inputObject, final boolean forInsert, final IServiceContext ctx,
 			final String tableName, final int rowNbr) {
-		boolean ok = true;
-		for (final Field field : this.metaData.getFields()) {
-			final String value = inputObject.getString(field.getName());
-			if (!field.parseIntoRow(value, this.fieldValues, ctx, tableName, rowNbr)) {
-				ok = false;
+		final Object[] oldValues = this.changes == null ? null
+				: Arrays.copyOf(this.fieldValues, this.fieldValues.length);
+		boolean ok = this.readJson(inputObject, ctx, tableName, rowNbr);
+		if (oldValues != null) {
+			for (int idx = 0; idx < oldValues.length; idx++) {
+				if (!Objects.equals(oldValues[idx], this.fieldValues[idx])) {
+					this.changes.set(idx);
+				}
 			}
 		}
 
@@ -576,6 +661,50 @@ public class Record {
 		return ok;
 	}
 
+	/**
+	 * parse values of all the fields from the input. Generated records may
+	 * override this with code specific to their fields.
+	 *
+	 * @param inputObject
+	 *            input data
+	 * @param ctx
+	 * @param tableName
+	 *            null if the data is at the root level.
+	 * @param rowNbr
+	 *            relevant if tableName is non-null
+	 * @return true if all ok. false if any error message is added to the
+	 *         context
+	 */
+	protected boolean readJson(final IInputObject inputObject, final IServiceContext ctx, final String tableName,
+			final int rowNbr) {
+		boolean ok = true;
+		for (final Field field : this.metaData.getFields()) {
+			final String value = inputObject.getString(field.getName());
+			if (!field.parseIntoRow(value, this.fieldValues, ctx, tableName, rowNbr)) {
+				ok = false;
+			}
+		}
+		return ok;
+	}
+
+	/**
+	 * write values of all the fields as members of the current object.
+	 * Generated records may override this with code specific to their fields.
+	 *
+	 * @param writer
+	 */
+	public void writeJson(final ISerializer writer) {
+		writer.fields(this.fetchFields(), this.fieldValues);
+	}
+
+	/**
+	 * @return true if the fields of this record are overridden at run time.
+	 *         generated code for readJson() can not be used in that case.
+	 */
+	protected boolean isOverridden() {
+		return this.metaData.isOverridden();
+	}
+
 	/**
 	 * parse this record from a serialized input
 	 *
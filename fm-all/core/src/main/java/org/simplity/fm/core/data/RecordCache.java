@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.data;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.simplity.fm.core.rdb.ReadWriteHandle;
+
+/**
+ * read-through cache of rows of a <code>DbRecord</code>, indexed by its primary
+ * key (and tenant key, if any). This is meant for reference records that are
+ * read far more often than they are modified. <br />
+ * Dba consults this cache before reading a row based on its primary key, and
+ * removes the entry whenever a row is updated or deleted, once when the row
+ * is written and again after the transaction is completed. Only rows read
+ * through a read-only handle are cached, as a read-write handle may see rows
+ * that are not yet committed. A row is also not cached if any row was removed
+ * while it was being read, as it may have been read before the commit that
+ * removed it. <br />
+ * The number of entries is bounded, with the least-recently-used entry making
+ * way for a new one. Entries also expire after the configured time-to-live.
+ * This limits the staleness in case the table is modified outside of this
+ * app.
+ *
+ * @author simplity.org
+ *
+ */
+public class RecordCache {
+	private final int maxEntries;
+	private final long ttlMillis;
+	private final Map<Key, Entry> entries;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	/*
+	 * incremented on every removal. Guarded by entries
+	 */
+	private long version;
+
+	/**
+	 *
+	 * @param maxEntries
+	 *            maximum number of rows to be cached. must be positive
+	 * @param ttlSeconds
+	 *            number of seconds after which a cached row expires. 0 means
+	 *            that the rows do not expire.
+	 */
+	public RecordCache(final int maxEntries, final int ttlSeconds) {
+		this.maxEntries = maxEntries;
+		this.ttlMillis = ttlSeconds * 1000L;
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Key, RecordCache.Entry> eldest) {
+				if (this.size() > RecordCache.this.maxEntries) {
+					RecordCache.this.evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * copy the cached values into the row, if this row is cached.
+	 *
+	 * @param keyIndexes
+	 *            indexes of the fields that make up the key of the row
+	 * @param values
+	 *            row with its key fields set. Other fields are set from the
+	 *            cached row in case of a hit
+	 * @param valueIndexes
+	 *            indexes of the fields that are to be copied from the cache
+	 * @return true if the row was found in the cache, and copied to values.
+	 *         false otherwise
+	 */
+	boolean get(final int[] keyIndexes, final Object[] values, final FieldMetaData[] valueIndexes) {
+		final Key key = new Key(keyIndexes, values);
+		final Entry entry;
+		synchronized (this.entries) {
+			entry = this.entries.get(key);
+			if (entry != null && entry.hasExpired(this.ttlMillis)) {
+				this.entries.remove(key);
+				this.misses.incrementAndGet();
+				return false;
+			}
+		}
+
+		if (entry == null) {
+			this.misses.incrementAndGet();
+			return false;
+		}
+
+		this.hits.incrementAndGet();
+		for (final FieldMetaData p : valueIndexes) {
+			final int idx = p.getIndex();
+			values[idx] = entry.values[idx];
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 * @return version of the cache, to be noted before reading a row from the
+	 *         db, and to be passed on to put()
+	 */
+	long getVersion() {
+		synchronized (this.entries) {
+			return this.version;
+		}
+	}
+
+	/**
+	 * cache a row that is just read from the db
+	 *
+	 * @param keyIndexes
+	 * @param values
+	 * @param versionBeforeRead
+	 *            version of the cache before the row was read. Row is not
+	 *            cached if any row was removed since then
+	 */
+	void put(final int[] keyIndexes, final Object[] values, final long versionBeforeRead) {
+		final Key key = new Key(keyIndexes, values);
+		final Entry entry = new Entry(values.clone());
+		synchronized (this.entries) {
+			if (this.version == versionBeforeRead) {
+				this.entries.put(key, entry);
+			}
+		}
+	}
+
+	/**
+	 * remove the row from the cache, if it is cached
+	 *
+	 * @param keyIndexes
+	 * @param values
+	 */
+	void remove(final int[] keyIndexes, final Object[] values) {
+		this.remove(new Key(keyIndexes, values));
+	}
+
+	/**
+	 * remove the row from the cache now, and again after the transaction is
+	 * completed
+	 *
+	 * @param handle
+	 *            handle of the transaction that is modifying this row
+	 * @param keyIndexes
+	 * @param values
+	 */
+	void remove(final ReadWriteHandle handle, final int[] keyIndexes, final Object[] values) {
+		final Key key = new Key(keyIndexes, values);
+		this.remove(key);
+		handle.onCompletion(() -> this.remove(key));
+	}
+
+	private void remove(final Key key) {
+		synchronized (this.entries) {
+			this.entries.remove(key);
+			this.version++;
+		}
+	}
+
+	/**
+	 * remove all entries from the cache.
+	 */
+	public void clear() {
+		synchronized (this.entries) {
+			this.entries.clear();
+			this.version++;
+		}
+	}
+
+	/**
+	 * remove all entries from the cache now, and again after the transaction
+	 * is completed
+	 *
+	 * @param handle
+	 *            handle of the transaction that is modifying the rows
+	 */
+	void clear(final ReadWriteHandle handle) {
+		this.clear();
+		handle.onCompletion(this::clear);
+	}
+
+	/**
+	 *
+	 * @return number of rows that are cached currently
+	 */
+	public int size() {
+		synchronized (this.entries) {
+			return this.entries.size();
+		}
+	}
+
+	/**
+	 *
+	 * @return number of reads that were served from the cache
+	 */
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	/**
+	 *
+	 * @return number of reads that had to go to the db
+	 */
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+	/**
+	 *
+	 * @return number of rows that were removed to make way for newer rows
+	 */
+	public long getEvictions() {
+		return this.evictions.get();
+	}
+
+	/**
+	 *
+	 * @return fraction of reads served from the cache. 0 if there has been no
+	 *         read so far
+	 */
+	public double getHitRatio() {
+		final long h = this.hits.get();
+		final long total = h + this.misses.get();
+		if (total == 0) {
+			return 0;
+		}
+		return (double) h / total;
+	}
+
+	private static class Entry {
+		final Object[] values;
+		final long cachedAt = System.currentTimeMillis();
+
+		Entry(final Object[] values) {
+			this.values = values;
+		}
+
+		boolean hasExpired(final long ttl) {
+			return ttl > 0 && System.currentTimeMillis() - this.cachedAt > ttl;
+		}
+	}
+
+	/**
+	 * values of the key fields, and the tenant field if any
+	 */
+	private static class Key {
+		private final Object[] values;
+		private final int hash;
+
+		Key(final int[] indexes, final Object[] row) {
+			this.values = new Object[indexes.length];
+			for (int i = 0; i < indexes.length; i++) {
+				this.values[i] = row[indexes[i]];
+			}
+			this.hash = Arrays.hashCode(this.values);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (obj instanceof Key) {
+				return Arrays.equals(this.values, ((Key) obj).values);
+			}
+			return false;
+		}
+	}
+}
@@ -43,6 +43,10 @@ public class RecordMetaData {
 	 * describes all the inter-field validations, and any business validations
 	 */
 	private final IValidation[] validations;
+	/*
+	 * set once any of the fields is overridden
+	 */
+	private boolean overridden;
 
 	/**
 	 *
@@ -62,6 +66,7 @@ public class RecordMetaData {
 	 * @param over
 	 */
 	public void override(final RecordOverride over) {
+		this.overridden = true;
 		final Map<String, FieldOverride> newFields = over.fields;
 		for (final Field field : this.fields) {
 			final FieldOverride newField = newFields.get(field.getName());
@@ -84,6 +89,14 @@ public class RecordMetaData {
 		this.validations = null;
 	}
 
+	/**
+	 * @return true if the fields are overridden, in which case generated code
+	 *         that assumes the designed data types can not be used
+	 */
+	public boolean isOverridden() {
+		return this.overridden;
+	}
+
 	/**
 	 * @return the name
 	 */
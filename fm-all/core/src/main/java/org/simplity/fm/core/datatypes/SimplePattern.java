@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.simplity.fm.core.datatypes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * a matcher for the simple patterns that most text data types use: a sequence
+ * of character classes, each with a quantifier. like "[1-9][0-9]{5}" or
+ * "[a-zA-Z][a-zA-Z0-9_]*". Such a pattern is matched with a single pass over
+ * the value, without the regex engine.
+ *
+ * Only patterns that can be matched greedily, without any back-tracking, are
+ * accepted: every class with a variable count must not share any character
+ * with any class that follows it.
+ *
+ * @author simplity.org
+ *
+ */
+class SimplePattern {
+	private static final int UNLIMITED = Integer.MAX_VALUE;
+	private static final String DIGITS = "09";
+	private static final String WORD_CHARS = "09AZ__az";
+
+	/**
+	 * ranges for each class. pairs of from-to chars.
+	 */
+	private final String[] ranges;
+	private final int[] minCounts;
+	private final int[] maxCounts;
+
+	private SimplePattern(final String[] ranges, final int[] minCounts, final int[] maxCounts) {
+		this.ranges = ranges;
+		this.minCounts = minCounts;
+		this.maxCounts = maxCounts;
+	}
+
+	/**
+	 *
+	 * @param value
+	 *            non-null
+	 * @return true if the whole value matches this pattern.
+	 */
+	boolean matches(final String value) {
+		final int len = value.length();
+		int pos = 0;
+		for (int i = 0; i < this.ranges.length; i++) {
+			final String range = this.ranges[i];
+			final int max = this.maxCounts[i];
+			int count = 0;
+			while (count < max && pos < len && inRange(range, value.charAt(pos))) {
+				pos++;
+				count++;
+			}
+			if (count < this.minCounts[i]) {
+				return false;
+			}
+		}
+		return pos == len;
+	}
+
+	private static boolean inRange(final String range, final char c) {
+		for (int i = 0; i < range.length(); i += 2) {
+			if (c >= range.charAt(i) && c <= range.charAt(i + 1)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean overlaps(final String r1, final String r2) {
+		for (int i = 0; i < r1.length(); i += 2) {
+			for (int j = 0; j < r2.length(); j += 2) {
+				if (r1.charAt(i) <= r2.charAt(j + 1) && r2.charAt(j) <= r1.charAt(i + 1)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 *
+	 * @param regex
+	 *            non-null regular expression
+	 * @return a simple pattern that matches exactly the values that the regex
+	 *         matches, or null if the regex is not one of the simple shapes.
+	 */
+	static SimplePattern of(final String regex) {
+		final List<String> ranges = new ArrayList<>();
+		final List<int[]> counts = new ArrayList<>();
+		final int n = regex.length();
+		for (int i = 0; i < n; i++) {
+			if (Character.isSurrogate(regex.charAt(i))) {
+				return null;
+			}
+		}
+		int pos = 0;
+		while (pos < n) {
+			final StringBuilder range = new StringBuilder();
+			char c = regex.charAt(pos);
+			if (c == '[') {
+				pos = parseClass(regex, pos + 1, range);
+				if (pos == -1) {
+					return null;
+				}
+			} else if (c == '\\') {
+				pos++;
+				if (pos == n || !appendEscaped(regex.charAt(pos), range)) {
+					return null;
+				}
+				pos++;
+			} else if (isLiteral(c)) {
+				range.append(c).append(c);
+				pos++;
+			} else {
+				return null;
+			}
+
+			int min = 1;
+			int max = 1;
+			if (pos < n) {
+				c = regex.charAt(pos);
+				if (c == '*' || c == '+' || c == '?') {
+					min = c == '+' ? 1 : 0;
+					max = c == '?' ? 1 : UNLIMITED;
+					pos++;
+				} else if (c == '{') {
+					final int end = regex.indexOf('}', pos);
+					if (end == -1) {
+						return null;
+					}
+					final int[] mm = parseCounts(regex.substring(pos + 1, end));
+					if (mm == null) {
+						return null;
+					}
+					min = mm[0];
+					max = mm[1];
+					pos = end + 1;
+				}
+				/*
+				 * possessive/reluctant quantifiers are not handled
+				 */
+				if (pos < n && (regex.charAt(pos) == '?' || regex.charAt(pos) == '+') && (min != 1 || max != 1)) {
+					return null;
+				}
+			}
+			ranges.add(range.toString());
+			counts.add(new int[] { min, max });
+		}
+
+		if (ranges.isEmpty()) {
+			return null;
+		}
+
+		final int nbr = ranges.size();
+		final int[] mins = new int[nbr];
+		final int[] maxs = new int[nbr];
+		for (int i = 0; i < nbr; i++) {
+			final int[] mm = counts.get(i);
+			mins[i] = mm[0];
+			maxs[i] = mm[1];
+			if (mm[0] == mm[1]) {
+				continue;
+			}
+			final String range = ranges.get(i);
+			for (int j = i + 1; j < nbr; j++) {
+				if (overlaps(range, ranges.get(j))) {
+					return null;
+				}
+			}
+		}
+		return new SimplePattern(ranges.toArray(new String[0]), mins, maxs);
+	}
+
+	/**
+	 * parse a character class like [a-zA-Z_] with pos just after '['
+	 *
+	 * @return position after the closing ']', or -1 if this is not a simple
+	 *         class
+	 */
+	private static int parseClass(final String regex, final int start, final StringBuilder range) {
+		final int n = regex.length();
+		int pos = start;
+		if (pos < n && regex.charAt(pos) == '^') {
+			return -1;
+		}
+		while (pos < n) {
+			char c = regex.charAt(pos);
+			if (c == ']') {
+				if (pos == start) {
+					return -1;
+				}
+				return pos + 1;
+			}
+			if (c == '[' || c == '&') {
+				return -1;
+			}
+			if (c == '\\') {
+				pos++;
+				if (pos == n) {
+					return -1;
+				}
+				c = regex.charAt(pos);
+				if (Character.isLetterOrDigit(c)) {
+					pos++;
+					if (!appendEscaped(c, range) || (pos < n && regex.charAt(pos) == '-')) {
+						return -1;
+					}
+					continue;
+				}
+			}
+			pos++;
+			char to = c;
+			if (pos + 1 < n && regex.charAt(pos) == '-' && regex.charAt(pos + 1) != ']') {
+				to = regex.charAt(pos + 1);
+				if (to == '\\' || to == '[' || to < c) {
+					return -1;
+				}
+				pos += 2;
+			}
+			range.append(c).append(to);
+		}
+		return -1;
+	}
+
+	private static boolean appendEscaped(final char c, final StringBuilder range) {
+		if (c == 'd') {
+			range.append(DIGITS);
+			return true;
+		}
+		if (c == 'w') {
+			range.append(WORD_CHARS);
+			return true;
+		}
+		if (Character.isLetterOrDigit(c)) {
+			return false;
+		}
+		range.append(c).append(c);
+		return true;
+	}
+
+	private static boolean isLiteral(final char c) {
+		return "\\^$.|?*+()[]{}".indexOf(c) == -1;
+	}
+
+	private static int[] parseCounts(final String text) {
+		try {
+			final int idx = text.indexOf(',');
+			if (idx == -1) {
+				final int n = Integer.parseInt(text);
+				if (n < 0) {
+					return null;
+				}
+				return new int[] { n, n };
+			}
+			final int min = Integer.parseInt(text.substring(0, idx));
+			final String maxText = text.substring(idx + 1);
+			final int max = maxText.isEmpty() ? UNLIMITED : Integer.parseInt(maxText);
+			if (min < 0 || max < min) {
+				return null;
+			}
+			return new int[] { min, max };
+		} catch (final NumberFormatException e) {
+			return null;
+		}
+	}
+}
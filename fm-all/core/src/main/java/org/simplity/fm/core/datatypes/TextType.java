@@ -22,6 +22,10 @@
 package org.simplity.fm.core.datatypes;
 
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * validation parameters for a text value
@@ -30,7 +34,21 @@ import java.util.regex.Pattern;
  *
  */
 public class TextType extends DataType {
-	private final String regex;
+	private static final Logger logger = LoggerFactory.getLogger(TextType.class);
+	/**
+	 * an invalid regex fails every value
+	 */
+	private static final Pattern NO_MATCH = Pattern.compile("(?!)");
+	/**
+	 * compiled once. null if there is no regex, or if the simple pattern
+	 * handles it
+	 */
+	private final Pattern pattern;
+	/**
+	 * single-pass matcher for the common shapes of regex, like digits-only or
+	 * fixed length. null if the regex is not that simple.
+	 */
+	private final SimplePattern simplePattern;
 
 	/**
 	 *
@@ -48,10 +66,25 @@ public class TextType extends DataType {
 		this.maxLength = maxLength;
 		this.messageId = messageId;
 		if (regex == null || regex.isEmpty()) {
-			this.regex = null;
-		} else {
-			this.regex = regex;
+			this.pattern = null;
+			this.simplePattern = null;
+			return;
+		}
+
+		this.simplePattern = SimplePattern.of(regex);
+		if (this.simplePattern != null) {
+			this.pattern = null;
+			return;
 		}
+		Pattern p;
+		try {
+			p = Pattern.compile(regex);
+		} catch (final PatternSyntaxException e) {
+			logger.error("Data type {} has an invalid regex {}. No value will pass its validation. {}", name, regex,
+					e.getMessage());
+			p = NO_MATCH;
+		}
+		this.pattern = p;
 	}
 
 	@Override
@@ -65,7 +98,10 @@ public class TextType extends DataType {
 		if (len < this.minLength || (this.maxLength > 0 && len > this.maxLength)) {
 			return null;
 		}
-		if (this.regex == null || Pattern.matches(this.regex, value)) {
+		if (this.simplePattern != null) {
+			return this.simplePattern.matches(value) ? value : null;
+		}
+		if (this.pattern == null || this.pattern.matcher(value).matches()) {
 			return value;
 		}
 		return null;
@@ -37,11 +37,19 @@ import org.simplity.fm.core.Message;
 import org.simplity.fm.core.UserContext;
 import org.simplity.fm.core.app.App;
 import org.simplity.fm.core.app.IApp;
+import org.simplity.fm.core.limit.ConcurrencyLimiter;
+import org.simplity.fm.core.limit.ConcurrencyLimits;
+import org.simplity.fm.core.metrics.MetricsRegistry;
+import org.simplity.fm.core.metrics.ServiceMetrics;
+import org.simplity.fm.core.metrics.ServiceMetrics.Outcome;
+import org.simplity.fm.core.rdb.RdbDriver;
 import org.simplity.fm.core.serialize.ISerializer;
 import org.simplity.fm.core.serialize.gson.JsonInputObject;
 import org.simplity.fm.core.serialize.gson.JsonSerializer;
 import org.simplity.fm.core.service.IService;
 import org.simplity.fm.core.service.IServiceContext;
+import org.simplity.fm.core.trace.Span;
+import org.simplity.fm.core.trace.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -120,6 +128,17 @@ public class Agent {
 	 *
 	 */
 	public void serve(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+		final Span trace = Tracer.startTrace("request");
+		try {
+			this.serveWorker(request, response, trace);
+		} finally {
+			trace.close();
+		}
+	}
+
+	private void serveWorker(final HttpServletRequest request, final HttpServletResponse response, final Span trace)
+			throws IOException {
+		final long start = System.nanoTime();
 		this.req = request;
 		this.resp = response;
 		/*
@@ -130,10 +149,16 @@ public class Agent {
 			logger.error("requested service {} is not served on this app.", this.serviceName);
 			return;
 		}
+		trace.setDetail(this.serviceName);
 
 		final StringWriter writer = new StringWriter();
 		final ISerializer outputObject = new JsonSerializer(writer);
 		this.ctx = this.app.getContextFactory().newContext(this.session, outputObject);
+		this.ctx.setValue(Conventions.App.TRACE_IN_CTX, trace);
+		final String etag = this.req.getHeader(Conventions.Http.HEADER_IF_NONE_MATCH);
+		if (etag != null) {
+			this.ctx.setValue(Conventions.Http.CTX_REQUEST_ETAG, etag);
+		}
 
 		this.service = this.app.getCompProvider().getService(this.serviceName, this.ctx);
 		if (this.service == null) {
@@ -149,7 +174,14 @@ public class Agent {
 				return;
 			}
 		} else {
-			if (this.app.getAccessController().okToServe(this.service, this.ctx) == false) {
+			final boolean ok;
+			final Span guardSpan = Tracer.startSpan("accessControl");
+			try {
+				ok = this.app.getAccessController().okToServe(this.service, this.ctx);
+			} finally {
+				guardSpan.close();
+			}
+			if (ok == false) {
 				logger.error("User {} does not have the preveleges for service {}. Responding with 404", this.userId,
 						this.service.getId());
 				this.resp.setStatus(Conventions.Http.STATUS_INVALID_SERVICE);
@@ -157,7 +189,12 @@ public class Agent {
 			}
 		}
 
-		this.readInput();
+		final Span inputSpan = Tracer.startSpan("readInput");
+		try {
+			this.readInput();
+		} finally {
+			inputSpan.close();
+		}
 		if (this.inputData == null) {
 			logger.info("Invalid JSON recd from client ");
 			this.resp.setStatus(Conventions.Http.STATUS_INVALID_DATA);
@@ -167,21 +204,82 @@ public class Agent {
 		/*
 		 * we are ready to execute this service.
 		 */
-		this.app.getRequestLogger().log(this.userId, this.service.getId(), this.inputData.toString());
-
+		final ServiceMetrics metrics = MetricsRegistry.getRegistry().getServiceMetrics(this.service.getId());
+		metrics.started();
+		Outcome outcome = Outcome.ok;
+		long nbrBytesOut = 0;
 		try {
-			this.service.serve(this.ctx, new JsonInputObject(this.inputData));
-			if (this.ctx.allOk()) {
-				logger.info("Service returned with All Ok");
-			} else {
-				logger.error("Service returned with error messages");
+			final ConcurrencyLimiter limiter = ConcurrencyLimits.getInstance().getLimiter(this.service);
+			if (limiter != null) {
+				final boolean ok;
+				final Span permitSpan = Tracer.startSpan("acquirePermit", limiter.getName());
+				try {
+					ok = limiter.acquire();
+				} finally {
+					permitSpan.close();
+				}
+				if (ok == false) {
+					logger.error("Service {} is saturated. Responding with {}", this.service.getId(),
+							Conventions.Http.STATUS_SERVICE_BUSY);
+					outcome = Outcome.rejected;
+					this.app.getRequestLogger().logInput(this.userId, this.service.getId(), this.inputData,
+							outcome.name());
+					this.resp.setStatus(Conventions.Http.STATUS_SERVICE_BUSY);
+					this.resp.setHeader(Conventions.Http.HEADER_RETRY_AFTER, Conventions.Http.RETRY_AFTER_SECONDS);
+					this.ctx.addMessage(Message.newError(Message.MSG_SERVICE_BUSY));
+					nbrBytesOut = this.respond(null);
+					return;
+				}
+			}
+
+			/*
+			 * permit, if acquired, is to be released whatever happens from here
+			 */
+			try {
+				final Span logSpan = Tracer.startSpan("logRequest");
+				try {
+					this.app.getRequestLogger().logInput(this.userId, this.service.getId(), this.inputData);
+				} finally {
+					logSpan.close();
+				}
+
+				final Span serviceSpan = Tracer.startSpan("service", this.service.getId());
+				try {
+					RdbDriver.bindSession(this.token, this.ctx.getTenantId());
+					if (this.app.useRequestScopedConnection()) {
+						RdbDriver.beginConnectionScope();
+					}
+					this.service.serve(this.ctx, new JsonInputObject(this.inputData));
+					if (this.ctx.allOk()) {
+						logger.info("Service returned with All Ok");
+					} else {
+						logger.error("Service returned with error messages");
+						outcome = Outcome.invalid;
+					}
+				} catch (final Throwable e) {
+					logger.error("internal Error", e);
+					outcome = Outcome.failed;
+					this.app.getExceptionListener().listen(this.ctx, e);
+					this.ctx.addMessage(Message.newError(Message.MSG_INTERNAL_ERROR));
+				} finally {
+					serviceSpan.close();
+					RdbDriver.endConnectionScope();
+					RdbDriver.unbindSession();
+				}
+			} finally {
+				if (limiter != null) {
+					limiter.release(MetricsRegistry.getDbTime());
+				}
+			}
+			final Span respondSpan = Tracer.startSpan("respond");
+			try {
+				nbrBytesOut = this.respond(writer.toString());
+			} finally {
+				respondSpan.close();
 			}
-		} catch (final Throwable e) {
-			logger.error("internal Error", e);
-			this.app.getExceptionListener().listen(this.ctx, e);
-			this.ctx.addMessage(Message.newError(Message.MSG_INTERNAL_ERROR));
+		} finally {
+			metrics.ended(outcome, System.nanoTime() - start, this.req.getContentLength(), nbrBytesOut);
 		}
-		this.respond(writer.toString());
 	}
 
 	private void readInput() {
@@ -205,7 +303,10 @@ public class Agent {
 		this.readQueryString();
 	}
 
-	private void respond(final String payload) {
+	/**
+	 * @return number of characters written out as response
+	 */
+	private long respond(final String payload) {
 		/*
 		 * are we to set a user session?
 		 */
@@ -224,7 +325,22 @@ public class Agent {
 			}
 			App.getApp().getSessionCache().put(this.token, seshan);
 		}
-		try (Writer writer = this.resp.getWriter()) {
+
+		/*
+		 * has the service tagged its response? (typically a cached response)
+		 */
+		if (this.ctx.allOk() && addToken == false) {
+			final Object etag = this.ctx.getValue(Conventions.Http.CTX_RESPONSE_ETAG);
+			if (etag != null) {
+				this.resp.setHeader(Conventions.Http.HEADER_ETAG, etag.toString());
+				if (etag.equals(this.ctx.getValue(Conventions.Http.CTX_REQUEST_ETAG))) {
+					logger.info("Client has the latest response. Responding with 304");
+					this.resp.setStatus(Conventions.Http.STATUS_NOT_MODIFIED);
+					return 0;
+				}
+			}
+		}
+		try (CountingWriter writer = new CountingWriter(this.resp.getWriter())) {
 			writer.write("{\"");
 			writer.write(Conventions.Http.TAG_ALL_OK);
 			writer.write("\":");
@@ -248,6 +364,7 @@ public class Agent {
 			}
 			writeMessage(writer, this.ctx.getMessages());
 			writer.write("}");
+			return writer.count;
 		} catch (final Exception e) {
 			e.printStackTrace();
 			try {
@@ -255,6 +372,7 @@ public class Agent {
 			} catch (final IOException e1) {
 				//
 			}
+			return 0;
 		}
 	}
 
@@ -336,4 +454,44 @@ public class Agent {
 			return text;
 		}
 	}
+
+	/**
+	 * keeps track of number of characters written out
+	 */
+	private static class CountingWriter extends Writer {
+		private final Writer writer;
+		long count;
+
+		CountingWriter(final Writer writer) {
+			this.writer = writer;
+		}
+
+		@Override
+		public void write(final char[] cbuf, final int off, final int len) throws IOException {
+			this.writer.write(cbuf, off, len);
+			this.count += len;
+		}
+
+		@Override
+		public void write(final String str, final int off, final int len) throws IOException {
+			this.writer.write(str, off, len);
+			this.count += len;
+		}
+
+		@Override
+		public void write(final int c) throws IOException {
+			this.writer.write(c);
+			this.count++;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			this.writer.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.writer.close();
+		}
+	}
 }
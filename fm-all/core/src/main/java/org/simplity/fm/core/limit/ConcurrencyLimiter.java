@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.limit;
+
+import java.util.concurrent.TimeUnit;
+
+import org.simplity.fm.core.serialize.ISerializer;
+
+/**
+ * limits the number of concurrent executions for a service or a group of
+ * services. Requests beyond the limit wait in a short queue for a limited
+ * time, and are rejected when the queue is full or the wait times out.
+ * <br />
+ * In adaptive mode, the limit is adjusted based on the observed db latency
+ * (AIMD): it is increased by one for every "limit" requests that complete
+ * while the limiter is saturated, and is cut by 10% when the db latency of a
+ * request is more than twice the base latency. The configured limit is the
+ * upper bound in this case.
+ *
+ * @author simplity.org
+ *
+ */
+public class ConcurrencyLimiter {
+	private static final double DECREASE_FACTOR = 0.9;
+	private static final long TOLERANCE = 2;
+	/*
+	 * base latency drifts up by 1/DRIFT of the difference for every sample, so
+	 * that it adjusts to a permanent change in the db latency
+	 */
+	private static final long DRIFT = 100;
+
+	private final String name;
+	private final int maxLimit;
+	private final int queueSize;
+	private final long maxWaitNanos;
+	private final boolean adaptive;
+
+	private double limit;
+	private int inFlight;
+	private int waiting;
+	private long nbrRejected;
+	private long baseNanos;
+	private int sinceDecrease;
+
+	/**
+	 *
+	 * @param name
+	 *            service id or group name
+	 * @param maxLimit
+	 *            max number of concurrent executions. must be positive
+	 * @param queueSize
+	 *            max number of requests that may wait when the limit is
+	 *            reached. 0 to reject them right away
+	 * @param maxWaitMillis
+	 *            max time a request waits in the queue
+	 * @param adaptive
+	 *            true to adjust the limit based on db latency
+	 */
+	public ConcurrencyLimiter(final String name, final int maxLimit, final int queueSize, final int maxWaitMillis,
+			final boolean adaptive) {
+		this.name = name;
+		this.maxLimit = maxLimit < 1 ? 1 : maxLimit;
+		this.queueSize = queueSize < 0 ? 0 : queueSize;
+		this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis < 0 ? 0 : maxWaitMillis);
+		this.adaptive = adaptive;
+		this.limit = this.maxLimit;
+	}
+
+	/**
+	 * acquire a permit to execute, waiting in the queue if required. A
+	 * successful acquire MUST be matched with a call to release()
+	 *
+	 * @return true if the permit is acquired. false if the request is to be
+	 *         rejected
+	 */
+	public synchronized boolean acquire() {
+		if (this.inFlight < (int) this.limit) {
+			this.inFlight++;
+			return true;
+		}
+		if (this.waiting >= this.queueSize || this.maxWaitNanos == 0) {
+			this.nbrRejected++;
+			return false;
+		}
+
+		this.waiting++;
+		try {
+			final long deadline = System.nanoTime() + this.maxWaitNanos;
+			while (this.inFlight >= (int) this.limit) {
+				final long nanos = deadline - System.nanoTime();
+				if (nanos <= 0) {
+					this.nbrRejected++;
+					return false;
+				}
+				TimeUnit.NANOSECONDS.timedWait(this, nanos);
+			}
+			this.inFlight++;
+			return true;
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.nbrRejected++;
+			return false;
+		} finally {
+			this.waiting--;
+		}
+	}
+
+	/**
+	 * release the permit acquired earlier
+	 *
+	 * @param dbNanos
+	 *            time spent in the db by this execution. used in adaptive
+	 *            mode
+	 */
+	public synchronized void release(final long dbNanos) {
+		final boolean saturated = this.inFlight >= (int) this.limit;
+		this.inFlight--;
+		if (this.adaptive && dbNanos > 0) {
+			final int oldLimit = (int) this.limit;
+			this.adjust(dbNanos, saturated);
+			if ((int) this.limit > oldLimit) {
+				this.notifyAll();
+				return;
+			}
+		}
+		this.notify();
+	}
+
+	private void adjust(final long dbNanos, final boolean saturated) {
+		if (this.baseNanos == 0 || dbNanos < this.baseNanos) {
+			this.baseNanos = dbNanos;
+		} else {
+			this.baseNanos += (dbNanos - this.baseNanos) / DRIFT;
+		}
+
+		this.sinceDecrease++;
+		if (dbNanos > TOLERANCE * this.baseNanos) {
+			/*
+			 * db is slowing down. Cut the limit, but not more than once for a
+			 * round of requests
+			 */
+			if (this.sinceDecrease >= (int) this.limit) {
+				this.limit = Math.max(1, this.limit * DECREASE_FACTOR);
+				this.sinceDecrease = 0;
+			}
+			return;
+		}
+
+		if (saturated && this.limit < this.maxLimit) {
+			this.limit = Math.min(this.maxLimit, this.limit + 1 / this.limit);
+		}
+	}
+
+	/**
+	 * @return service id or group name
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * @return current limit on concurrent executions
+	 */
+	public synchronized int getLimit() {
+		return (int) this.limit;
+	}
+
+	/**
+	 * @return number of executions in progress
+	 */
+	public synchronized int getInFlight() {
+		return this.inFlight;
+	}
+
+	/**
+	 * @return number of requests waiting in the queue
+	 */
+	public synchronized int getWaiting() {
+		return this.waiting;
+	}
+
+	/**
+	 * @return number of requests rejected so far
+	 */
+	public synchronized long getNbrRejected() {
+		return this.nbrRejected;
+	}
+
+	/**
+	 * write the state of this limiter as members of the current object
+	 *
+	 * @param writer
+	 */
+	public synchronized void serializeMembers(final ISerializer writer) {
+		writer.name("name");
+		writer.value(this.name);
+		writer.name("limit");
+		writer.value((int) this.limit);
+		writer.name("inFlight");
+		writer.value(this.inFlight);
+		writer.name("waiting");
+		writer.value(this.waiting);
+		writer.name("rejected");
+		writer.value(this.nbrRejected);
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.limit;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.simplity.fm.core.serialize.ISerializer;
+import org.simplity.fm.core.service.IService;
+
+/**
+ * concurrency limiters for all the services of this app. Limits are
+ * configured for service ids or group names. A service belongs to the group
+ * returned by its getConcurrencyGroup(), or to a group of its own if that is
+ * null.
+ *
+ * @author simplity.org
+ *
+ */
+public class ConcurrencyLimits {
+	private static final ConcurrencyLimits instance = new ConcurrencyLimits();
+
+	/**
+	 *
+	 * @return non-null instance
+	 */
+	public static ConcurrencyLimits getInstance() {
+		return instance;
+	}
+
+	private final Map<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+	private volatile Map<String, Integer> limits = Collections.emptyMap();
+	private volatile int defaultLimit;
+	private volatile int queueSize;
+	private volatile int maxWaitMillis;
+	private volatile boolean adaptive;
+
+	private ConcurrencyLimits() {
+		// singleton
+	}
+
+	/**
+	 * set the limits. Any existing limiters are discarded.
+	 *
+	 * @param groupLimits
+	 *            limit for a service id or group name. can be null
+	 * @param limitForOthers
+	 *            limit for a service that is not found in groupLimits. 0 for
+	 *            no limit
+	 * @param maxQueueSize
+	 *            max number of requests that may wait for a service (group)
+	 *            when its limit is reached
+	 * @param maxWait
+	 *            max milliseconds a request may wait in the queue
+	 * @param adaptToDbLatency
+	 *            true to adjust the limits based on db latency
+	 */
+	public void configure(final Map<String, Integer> groupLimits, final int limitForOthers, final int maxQueueSize,
+			final int maxWait, final boolean adaptToDbLatency) {
+		this.limits = groupLimits == null ? Collections.emptyMap() : new HashMap<>(groupLimits);
+		this.defaultLimit = limitForOthers;
+		this.queueSize = maxQueueSize;
+		this.maxWaitMillis = maxWait;
+		this.adaptive = adaptToDbLatency;
+		this.limiters.clear();
+	}
+
+	/**
+	 *
+	 * @param service
+	 * @return limiter for this service. null if the service is not limited
+	 */
+	public ConcurrencyLimiter getLimiter(final IService service) {
+		String group = service.getConcurrencyGroup();
+		if (group == null) {
+			group = service.getId();
+		}
+		final ConcurrencyLimiter limiter = this.limiters.get(group);
+		if (limiter != null) {
+			return limiter;
+		}
+
+		final Integer n = this.limits.get(group);
+		final int limit = n == null ? this.defaultLimit : n;
+		if (limit <= 0) {
+			return null;
+		}
+		return this.limiters.computeIfAbsent(group,
+				k -> new ConcurrencyLimiter(k, limit, this.queueSize, this.maxWaitMillis, this.adaptive));
+	}
+
+	/**
+	 * write the state of all limiters in use, sorted by name, as a member of
+	 * the current object
+	 *
+	 * @param writer
+	 */
+	public void serialize(final ISerializer writer) {
+		writer.name("limiters");
+		writer.beginArray();
+		for (final ConcurrencyLimiter limiter : new TreeMap<>(this.limiters).values()) {
+			writer.beginObject();
+			limiter.serializeMembers(writer);
+			writer.endObject();
+		}
+		writer.endArray();
+	}
+}
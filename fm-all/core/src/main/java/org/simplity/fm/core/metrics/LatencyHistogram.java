@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.simplity.fm.core.serialize.ISerializer;
+
+/**
+ * histogram of latencies, in micro-seconds, on the lines of an HDR histogram.
+ * Buckets are linear up to 64, and thereafter each power of two is split into
+ * 32 buckets. That is, any value is reported within about 3% of its actual
+ * value. Values beyond 2^36 micro-seconds (about 19 hours) are recorded as
+ * 2^36. <br />
+ * Recording is lock-free, and hence the numbers reported while recording is
+ * in progress are approximate
+ *
+ * @author simplity.org
+ *
+ */
+public class LatencyHistogram {
+	private static final int LINEAR = 64;
+	private static final int HALF = 32;
+	private static final int HALF_BITS = 5;
+	private static final int MAX_BITS = 36;
+	private static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+	private static final int NBR_BUCKETS = LINEAR + (MAX_BITS - HALF_BITS - 1) * HALF;
+
+	private final AtomicLongArray counts = new AtomicLongArray(NBR_BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * record a latency
+	 *
+	 * @param micros
+	 *            latency in micro-seconds. negative values are treated as 0
+	 */
+	public void record(final long micros) {
+		long v = micros;
+		if (v < 0) {
+			v = 0;
+		} else if (v > MAX_VALUE) {
+			v = MAX_VALUE;
+		}
+		this.counts.incrementAndGet(toIndex(v));
+		this.count.incrementAndGet();
+		this.sum.addAndGet(v);
+		this.max.accumulateAndGet(v, Math::max);
+	}
+
+	/**
+	 *
+	 * @return number of values recorded so far
+	 */
+	public long getCount() {
+		return this.count.get();
+	}
+
+	/**
+	 *
+	 * @return largest value recorded so far
+	 */
+	public long getMax() {
+		return this.max.get();
+	}
+
+	/**
+	 *
+	 * @return average of the values recorded so far. 0 if nothing is recorded
+	 */
+	public long getMean() {
+		final long n = this.count.get();
+		if (n == 0) {
+			return 0;
+		}
+		return this.sum.get() / n;
+	}
+
+	/**
+	 *
+	 * @param percentile
+	 *            between 0 and 100, like 99.9
+	 * @return value at or below which the given percentile of recorded values
+	 *         lie. 0 if nothing is recorded
+	 */
+	public long getPercentile(final double percentile) {
+		final long n = this.count.get();
+		if (n == 0) {
+			return 0;
+		}
+		long target = (long) Math.ceil(percentile * n / 100);
+		if (target < 1) {
+			target = 1;
+		}
+		long total = 0;
+		for (int i = 0; i < NBR_BUCKETS; i++) {
+			total += this.counts.get(i);
+			if (total >= target) {
+				return Math.min(toHighestValue(i), this.max.get());
+			}
+		}
+		return this.max.get();
+	}
+
+	/**
+	 * write the summary of this histogram as members of the current object
+	 *
+	 * @param writer
+	 */
+	public void serializeSummary(final ISerializer writer) {
+		writer.name("count");
+		writer.value(this.getCount());
+		writer.name("meanMicros");
+		writer.value(this.getMean());
+		writer.name("p50Micros");
+		writer.value(this.getPercentile(50));
+		writer.name("p90Micros");
+		writer.value(this.getPercentile(90));
+		writer.name("p99Micros");
+		writer.value(this.getPercentile(99));
+		writer.name("p999Micros");
+		writer.value(this.getPercentile(99.9));
+		writer.name("maxMicros");
+		writer.value(this.getMax());
+	}
+
+	static int toIndex(final long v) {
+		if (v < LINEAR) {
+			return (int) v;
+		}
+		final int msb = 63 - Long.numberOfLeadingZeros(v);
+		final int shift = msb - HALF_BITS;
+		return LINEAR + (shift - 1) * HALF + (int) ((v >> shift) - HALF);
+	}
+
+	static long toHighestValue(final int idx) {
+		if (idx < LINEAR) {
+			return idx;
+		}
+		final int k = idx - LINEAR;
+		final int shift = k / HALF + 1;
+		final long m = k % HALF + HALF;
+		return ((m + 1) << shift) - 1;
+	}
+}
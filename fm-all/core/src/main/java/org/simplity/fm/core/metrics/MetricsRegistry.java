@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.simplity.fm.core.serialize.ISerializer;
+
+/**
+ * registry of metrics for all services served by this app. Agent records the
+ * metrics for every request, and RdbDriver accumulates the time spent in the
+ * db for the request being served by the current thread.
+ *
+ * @author simplity.org
+ *
+ */
+public class MetricsRegistry {
+	private static final MetricsRegistry instance = new MetricsRegistry();
+	/*
+	 * nano-seconds spent in db by the request being served by this thread
+	 */
+	private static final ThreadLocal<long[]> dbTime = ThreadLocal.withInitial(() -> new long[1]);
+
+	/**
+	 *
+	 * @return non-null instance
+	 */
+	public static MetricsRegistry getRegistry() {
+		return instance;
+	}
+
+	/**
+	 * add time spent in the db by the current thread
+	 *
+	 * @param nanos
+	 */
+	public static void addDbTime(final long nanos) {
+		dbTime.get()[0] += nanos;
+	}
+
+	static void resetDbTime() {
+		dbTime.get()[0] = 0;
+	}
+
+	/**
+	 *
+	 * @return nano-seconds spent in the db by the current thread since the
+	 *         current service started
+	 */
+	public static long getDbTime() {
+		return dbTime.get()[0];
+	}
+
+	private final Map<String, ServiceMetrics> services = new ConcurrentHashMap<>();
+	private volatile boolean serviceEnabled;
+
+	private MetricsRegistry() {
+		// singleton
+	}
+
+	/**
+	 *
+	 * @param serviceId
+	 * @return non-null metrics for this service. created if required
+	 */
+	public ServiceMetrics getServiceMetrics(final String serviceId) {
+		return this.services.computeIfAbsent(serviceId, ServiceMetrics::new);
+	}
+
+	/**
+	 * remove all metrics collected so far
+	 */
+	public void reset() {
+		this.services.clear();
+	}
+
+	/**
+	 * is the metrics service to be exposed to clients?
+	 *
+	 * @param enabled
+	 */
+	public void setServiceEnabled(final boolean enabled) {
+		this.serviceEnabled = enabled;
+	}
+
+	/**
+	 *
+	 * @return true if the metrics service is to be exposed to clients
+	 */
+	public boolean isServiceEnabled() {
+		return this.serviceEnabled;
+	}
+
+	/**
+	 * write metrics of all services, sorted by service id, as a member of
+	 * the current object
+	 *
+	 * @param writer
+	 */
+	public void serialize(final ISerializer writer) {
+		writer.name("services");
+		writer.beginArray();
+		for (final ServiceMetrics sm : new TreeMap<>(this.services).values()) {
+			writer.beginObject();
+			sm.serializeMembers(writer);
+			writer.endObject();
+		}
+		writer.endArray();
+	}
+}
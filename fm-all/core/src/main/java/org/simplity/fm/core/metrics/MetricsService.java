@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.metrics;
+
+import org.simplity.fm.core.Conventions;
+import org.simplity.fm.core.app.App;
+import org.simplity.fm.core.limit.ConcurrencyLimits;
+import org.simplity.fm.core.serialize.IInputObject;
+import org.simplity.fm.core.serialize.ISerializer;
+import org.simplity.fm.core.service.IService;
+import org.simplity.fm.core.service.IServiceContext;
+
+/**
+ * dumps the metrics of all services. Available only if it is enabled in the
+ * app configuration, and is subject to access control like any other service
+ *
+ * @author simplity.org
+ *
+ */
+public class MetricsService implements IService {
+	private static final MetricsService instance = new MetricsService();
+
+	/**
+	 *
+	 * @return non-null instance
+	 */
+	public static MetricsService getInstance() {
+		return instance;
+	}
+
+	private MetricsService() {
+		// privatised for a singleton pattern
+	}
+
+	@Override
+	public String getId() {
+		return Conventions.App.SERVICE_METRICS;
+	}
+
+	@Override
+	public void serve(final IServiceContext ctx, final IInputObject payload) throws Exception {
+		final ISerializer writer = ctx.getSerializer();
+		writer.beginObject();
+		MetricsRegistry.getRegistry().serialize(writer);
+		writer.name("dbRetries");
+		writer.beginObject();
+		App.getApp().getDbDriver().getRetryPolicy().serializeMembers(writer);
+		writer.endObject();
+		ConcurrencyLimits.getInstance().serialize(writer);
+		writer.endObject();
+	}
+
+	@Override
+	public boolean serveGuests() {
+		return false;
+	}
+}
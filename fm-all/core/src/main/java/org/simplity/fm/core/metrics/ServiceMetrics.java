@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.simplity.fm.core.serialize.ISerializer;
+
+/**
+ * metrics for a service
+ *
+ * @author simplity.org
+ *
+ */
+public class ServiceMetrics {
+	private final String serviceId;
+	private final LatencyHistogram[] latencies;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final LongAdder bytesIn = new LongAdder();
+	private final LongAdder bytesOut = new LongAdder();
+	private final LongAdder dbMicros = new LongAdder();
+	private final LongAdder totalMicros = new LongAdder();
+
+	ServiceMetrics(final String serviceId) {
+		this.serviceId = serviceId;
+		final Outcome[] outcomes = Outcome.values();
+		this.latencies = new LatencyHistogram[outcomes.length];
+		for (int i = 0; i < outcomes.length; i++) {
+			this.latencies[i] = new LatencyHistogram();
+		}
+	}
+
+	/**
+	 * to be called when the service starts. MUST be matched with a call to
+	 * ended()
+	 */
+	public void started() {
+		this.inFlight.incrementAndGet();
+		MetricsRegistry.resetDbTime();
+	}
+
+	/**
+	 * to be called after the response is sent
+	 *
+	 * @param outcome
+	 *            non-null
+	 * @param elapsedNanos
+	 *            total time taken to serve the request
+	 * @param nbrBytesIn
+	 *            size of the request pay load
+	 * @param nbrBytesOut
+	 *            size of the response pay load
+	 */
+	public void ended(final Outcome outcome, final long elapsedNanos, final long nbrBytesIn, final long nbrBytesOut) {
+		this.inFlight.decrementAndGet();
+		final long micros = elapsedNanos / 1000;
+		this.latencies[outcome.ordinal()].record(micros);
+		this.totalMicros.add(micros);
+		this.dbMicros.add(MetricsRegistry.getDbTime() / 1000);
+		if (nbrBytesIn > 0) {
+			this.bytesIn.add(nbrBytesIn);
+		}
+		if (nbrBytesOut > 0) {
+			this.bytesOut.add(nbrBytesOut);
+		}
+	}
+
+	/**
+	 *
+	 * @return service id
+	 */
+	public String getServiceId() {
+		return this.serviceId;
+	}
+
+	/**
+	 *
+	 * @param outcome
+	 * @return histogram of latencies of requests with this outcome
+	 */
+	public LatencyHistogram getLatencies(final Outcome outcome) {
+		return this.latencies[outcome.ordinal()];
+	}
+
+	/**
+	 *
+	 * @return number of requests being served currently
+	 */
+	public int getInFlight() {
+		return this.inFlight.get();
+	}
+
+	/**
+	 *
+	 * @return total micro-seconds spent in db operations across all requests
+	 */
+	public long getDbMicros() {
+		return this.dbMicros.sum();
+	}
+
+	/**
+	 *
+	 * @return total micro-seconds spent in serving all requests
+	 */
+	public long getTotalMicros() {
+		return this.totalMicros.sum();
+	}
+
+	/**
+	 * write the metrics as members of the current object
+	 *
+	 * @param writer
+	 */
+	public void serializeMembers(final ISerializer writer) {
+		writer.name("id");
+		writer.value(this.serviceId);
+		writer.name("inFlight");
+		writer.value(this.inFlight.get());
+		writer.name("bytesIn");
+		writer.value(this.bytesIn.sum());
+		writer.name("bytesOut");
+		writer.value(this.bytesOut.sum());
+		writer.name("dbMicros");
+		writer.value(this.dbMicros.sum());
+		writer.name("totalMicros");
+		writer.value(this.totalMicros.sum());
+		for (final Outcome outcome : Outcome.values()) {
+			writer.name(outcome.name());
+			writer.beginObject();
+			this.latencies[outcome.ordinal()].serializeSummary(writer);
+			writer.endObject();
+		}
+	}
+
+	/**
+	 * outcome of a request
+	 */
+	public enum Outcome {
+		/**
+		 * service completed with no errors
+		 */
+		ok,
+		/**
+		 * service completed, but with error messages, typically validation
+		 * errors
+		 */
+		invalid,
+		/**
+		 * service threw an exception
+		 */
+		failed,
+		/**
+		 * request was rejected because the service was saturated
+		 */
+		rejected
+	}
+}
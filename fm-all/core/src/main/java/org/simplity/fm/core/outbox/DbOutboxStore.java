@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.outbox;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.simplity.fm.core.datatypes.ValueType;
+import org.simplity.fm.core.rdb.IDbReader;
+import org.simplity.fm.core.rdb.RdbDriver;
+import org.simplity.fm.core.rdb.ReadWriteHandle;
+
+/**
+ * outbox that is stored in a db table. The table is expected to have the
+ * following columns
+ * <ul>
+ * <li>id: integer primary key, generated by the db</li>
+ * <li>channel: text. one of email, bulkEmail and text</li>
+ * <li>recipients: text</li>
+ * <li>subject: text. sender id in case of a text message</li>
+ * <li>content: text</li>
+ * <li>status: text. one of pending, sent and failed</li>
+ * <li>attempts: integer</li>
+ * <li>next_attempt_at: timestamp</li>
+ * <li>last_error: text</li>
+ * </ul>
+ * An index on (status, next_attempt_at) is recommended.
+ * <p>
+ * Due rows are read from the primary db, and are claimed in the same
+ * transaction by pushing their next_attempt_at by a lease period. Hence any
+ * number of dispatchers, across app instances, may drain the same table. A
+ * message whose dispatcher dies before saving the outcome is picked up again
+ * after the lease expires.
+ *
+ * @author simplity.org
+ *
+ */
+public class DbOutboxStore implements IOutboxStore {
+	private static final ValueType[] INSERT_TYPES = { ValueType.Text, ValueType.Text, ValueType.Text,
+			ValueType.Text, ValueType.Timestamp };
+	private static final ValueType[] UPDATE_TYPES = { ValueType.Text, ValueType.Integer, ValueType.Timestamp,
+			ValueType.Text, ValueType.Integer };
+	private static final ValueType[] CLAIM_TYPES = { ValueType.Timestamp, ValueType.Integer, ValueType.Timestamp };
+	private static final int DEFAULT_LEASE_SECONDS = 300;
+
+	private final RdbDriver driver;
+	private final String insertSql;
+	private final String selectSql;
+	private final String updateSql;
+	private final String claimSql;
+	private final int leaseSeconds;
+
+	/**
+	 *
+	 * @param driver
+	 *            driver for the db that has the outbox table
+	 * @param tableName
+	 *            name of the outbox table
+	 */
+	public DbOutboxStore(final RdbDriver driver, final String tableName) {
+		this(driver, tableName, DEFAULT_LEASE_SECONDS);
+	}
+
+	/**
+	 *
+	 * @param driver
+	 *            driver for the db that has the outbox table
+	 * @param tableName
+	 *            name of the outbox table
+	 * @param leaseSeconds
+	 *            number of seconds for which a fetched message is reserved for
+	 *            the dispatcher that fetched it. Should be well above the time
+	 *            taken to deliver a batch
+	 */
+	public DbOutboxStore(final RdbDriver driver, final String tableName, final int leaseSeconds) {
+		this.driver = driver;
+		this.leaseSeconds = leaseSeconds;
+		this.insertSql = "insert into " + tableName
+				+ "(channel, recipients, subject, content, status, attempts, next_attempt_at) values(?,?,?,?,'"
+				+ OutboxMessage.Status.pending.name() + "',0,?)";
+		this.selectSql = "select id, channel, recipients, subject, content, attempts from " + tableName
+				+ " where status='" + OutboxMessage.Status.pending.name() + "' and next_attempt_at<=? order by id";
+		this.updateSql = "update " + tableName
+				+ " set status=?, attempts=?, next_attempt_at=?, last_error=? where id=?";
+		/*
+		 * a concurrent claim blocks on the row lock and then finds the
+		 * next_attempt_at in the future, and hence updates nothing
+		 */
+		this.claimSql = "update " + tableName + " set next_attempt_at=? where id=? and status='"
+				+ OutboxMessage.Status.pending.name() + "' and next_attempt_at<=?";
+	}
+
+	@Override
+	public void enqueue(final ReadWriteHandle handle, final OutboxMessage message) throws SQLException {
+		final Object[][] row = { { message.channel.name(), message.recipients, message.subject, message.content,
+				message.nextAttemptAt } };
+		handle.writeMany(this.insertSql, INSERT_TYPES, row);
+	}
+
+	@Override
+	public List<OutboxMessage> fetchDue(final int maxMessages) throws SQLException {
+		final List<OutboxMessage> list = new ArrayList<>();
+		final Instant instant = Instant.now();
+		final Timestamp now = Timestamp.from(instant);
+		final Timestamp leaseEnd = Timestamp.from(instant.plusSeconds(this.leaseSeconds));
+		final List<OutboxMessage> claimed = new ArrayList<>();
+		/*
+		 * read-write, and not read: a replica may not yet have the outcomes we
+		 * saved on the primary, and would return sent messages as pending
+		 */
+		this.driver.readWrite(handle -> {
+			handle.read(new IDbReader() {
+
+				@Override
+				public String getPreparedStatement() {
+					return DbOutboxStore.this.selectSql;
+				}
+
+				@Override
+				public void setParams(final PreparedStatement ps) throws SQLException {
+					ps.setTimestamp(1, now);
+					ps.setMaxRows(maxMessages);
+				}
+
+				@Override
+				public boolean readARow(final ResultSet rs) throws SQLException {
+					final OutboxMessage msg = new OutboxMessage(OutboxMessage.Channel.valueOf(rs.getString(2)),
+							rs.getString(3), rs.getString(4), rs.getString(5));
+					msg.id = rs.getLong(1);
+					msg.attempts = rs.getInt(6);
+					list.add(msg);
+					return list.size() < maxMessages;
+				}
+			});
+			if (list.isEmpty()) {
+				return true;
+			}
+			final Object[][] rows = new Object[list.size()][];
+			int i = 0;
+			for (final OutboxMessage msg : list) {
+				rows[i] = new Object[] { leaseEnd, msg.id, now };
+				i++;
+			}
+			final int[] counts = handle.writeMany(this.claimSql, CLAIM_TYPES, rows);
+			for (i = 0; i < counts.length; i++) {
+				/*
+				 * SUCCESS_NO_INFO: driver does not know. Safer to send it
+				 * than to leave it behind
+				 */
+				if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+					claimed.add(list.get(i));
+				}
+			}
+			return true;
+		});
+		return claimed;
+	}
+
+	@Override
+	public void saveOutcomes(final List<OutboxMessage> messages) throws SQLException {
+		if (messages.isEmpty()) {
+			return;
+		}
+		final Object[][] rows = new Object[messages.size()][];
+		int i = 0;
+		for (final OutboxMessage msg : messages) {
+			rows[i] = new Object[] { msg.status.name(), (long) msg.attempts, msg.nextAttemptAt, msg.lastError,
+					msg.id };
+			i++;
+		}
+		this.driver.readWrite(handle -> {
+			handle.writeMany(this.updateSql, UPDATE_TYPES, rows);
+			return true;
+		});
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.outbox;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.simplity.fm.core.rdb.ReadWriteHandle;
+
+/**
+ * persistent store of outbox messages
+ *
+ * @author simplity.org
+ *
+ */
+public interface IOutboxStore {
+
+	/**
+	 * add a message to the outbox. To be called within the transaction of
+	 * the service, so that the message is delivered if and only if the
+	 * transaction is committed
+	 *
+	 * @param handle
+	 *            handle of the ongoing transaction
+	 * @param message
+	 * @throws SQLException
+	 */
+	void enqueue(ReadWriteHandle handle, OutboxMessage message) throws SQLException;
+
+	/**
+	 *
+	 * @param maxMessages
+	 *            max number of messages to be returned
+	 * @return pending messages that are due for an attempt, oldest first.
+	 *         empty list if none. The messages are to be claimed for the
+	 *         caller, so that a concurrent fetch does not return them again
+	 *         before their outcomes are saved.
+	 * @throws SQLException
+	 */
+	List<OutboxMessage> fetchDue(int maxMessages) throws SQLException;
+
+	/**
+	 * save the outcome of delivery attempts: status, attempts, next attempt
+	 * and the last error
+	 *
+	 * @param messages
+	 *            messages that were returned by fetchDue()
+	 * @throws SQLException
+	 */
+	void saveOutcomes(List<OutboxMessage> messages) throws SQLException;
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.outbox;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.simplity.fm.core.conf.IEmailer;
+import org.simplity.fm.core.conf.ITexter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * background thread that drains the outbox and delivers messages through the
+ * configured emailer and texter. Messages are fetched in batches, delivery is
+ * paced to a max rate, and failed deliveries are retried with an exponential
+ * back-off till the max number of attempts.
+ *
+ * @author simplity.org
+ *
+ */
+public class OutboxDispatcher implements AutoCloseable {
+	protected static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+	private static final long MAX_RETRY_SECONDS = 3600;
+
+	private final IOutboxStore store;
+	private final IEmailer emailer;
+	private final ITexter texter;
+	private final int batchSize;
+	private final long nanosPerMessage;
+	private final int maxAttempts;
+	private final int retrySeconds;
+	private final long pollNanos;
+
+	private final AtomicLong nbrSent = new AtomicLong();
+	private final AtomicLong nbrRetried = new AtomicLong();
+	private final AtomicLong nbrFailed = new AtomicLong();
+
+	private long nextSendAt = System.nanoTime();
+	private volatile boolean running;
+	private Thread thread;
+
+	/**
+	 *
+	 * @param store
+	 *            outbox
+	 * @param emailer
+	 *            used for delivering emails
+	 * @param texter
+	 *            used for delivering text messages
+	 * @param batchSize
+	 *            max number of messages fetched from the outbox at a time
+	 * @param maxPerSecond
+	 *            max number of messages to be delivered in a second. 0 for no
+	 *            limit
+	 * @param maxAttempts
+	 *            a message is marked as failed after these many unsuccessful
+	 *            attempts
+	 * @param retrySeconds
+	 *            wait before the first retry. doubled for every subsequent
+	 *            retry
+	 * @param pollMillis
+	 *            interval at which the outbox is checked when it is found empty
+	 */
+	public OutboxDispatcher(final IOutboxStore store, final IEmailer emailer, final ITexter texter,
+			final int batchSize, final int maxPerSecond, final int maxAttempts, final int retrySeconds,
+			final int pollMillis) {
+		this.store = store;
+		this.emailer = emailer;
+		this.texter = texter;
+		this.batchSize = batchSize < 1 ? 1 : batchSize;
+		this.nanosPerMessage = maxPerSecond <= 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / maxPerSecond;
+		this.maxAttempts = maxAttempts < 1 ? 1 : maxAttempts;
+		this.retrySeconds = retrySeconds < 1 ? 1 : retrySeconds;
+		this.pollNanos = TimeUnit.MILLISECONDS.toNanos(pollMillis < 1 ? 1 : pollMillis);
+	}
+
+	/**
+	 * start the background thread. no-op if it is already started
+	 */
+	public synchronized void start() {
+		if (this.thread != null) {
+			return;
+		}
+		this.running = true;
+		this.thread = new Thread(this::run, "outbox-dispatcher");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * stop the background thread after the batch on hand is processed
+	 */
+	@Override
+	public synchronized void close() {
+		if (this.thread == null) {
+			return;
+		}
+		this.running = false;
+		LockSupport.unpark(this.thread);
+		try {
+			this.thread.join(TimeUnit.NANOSECONDS.toMillis(this.pollNanos) + 30000);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		this.thread = null;
+	}
+
+	/**
+	 * fetch one batch of due messages, attempt to deliver them and save the
+	 * outcome. Called repeatedly by the background thread, but may be called
+	 * directly when the thread is not started.
+	 *
+	 * @return number of messages attempted. 0 if nothing was due.
+	 * @throws Exception
+	 *             if the outbox could not be accessed
+	 */
+	public int dispatchOnce() throws Exception {
+		final List<OutboxMessage> messages = this.store.fetchDue(this.batchSize);
+		if (messages.isEmpty()) {
+			return 0;
+		}
+		for (final OutboxMessage msg : messages) {
+			this.pace();
+			this.deliver(msg);
+		}
+		this.store.saveOutcomes(messages);
+		return messages.size();
+	}
+
+	/**
+	 * @return number of messages delivered
+	 */
+	public long getNbrSent() {
+		return this.nbrSent.get();
+	}
+
+	/**
+	 * @return number of failed attempts that were scheduled to be retried
+	 */
+	public long getNbrRetried() {
+		return this.nbrRetried.get();
+	}
+
+	/**
+	 * @return number of messages that were given up after max attempts
+	 */
+	public long getNbrFailed() {
+		return this.nbrFailed.get();
+	}
+
+	private void run() {
+		while (this.running) {
+			int n = 0;
+			try {
+				n = this.dispatchOnce();
+			} catch (final Exception e) {
+				logger.error("Error while accessing the outbox: {}", e.getMessage());
+			}
+			if (n < this.batchSize && this.running) {
+				LockSupport.parkNanos(this.pollNanos);
+			}
+		}
+	}
+
+	private void deliver(final OutboxMessage msg) {
+		msg.attempts++;
+		try {
+			switch (msg.channel) {
+			case email:
+				this.emailer.sendEmail(msg.recipients, msg.subject, msg.content);
+				break;
+			case bulkEmail:
+				this.emailer.sendBulkEmails(msg.recipients, msg.subject, msg.content);
+				break;
+			case text:
+				this.texter.sendText(msg.subject, msg.recipients, msg.content);
+				break;
+			default:
+				throw new IllegalStateException("Channel " + msg.channel + " is not handled");
+			}
+			msg.status = OutboxMessage.Status.sent;
+			msg.lastError = null;
+			this.nbrSent.incrementAndGet();
+		} catch (final Exception e) {
+			msg.lastError = e.getMessage();
+			if (msg.attempts >= this.maxAttempts) {
+				logger.error("Giving up on outbox message {} after {} attempts. Error: {}", msg.id, msg.attempts,
+						e.getMessage());
+				msg.status = OutboxMessage.Status.failed;
+				this.nbrFailed.incrementAndGet();
+				return;
+			}
+			long secs = (long) this.retrySeconds << Math.min(msg.attempts - 1, 20);
+			if (secs > MAX_RETRY_SECONDS) {
+				secs = MAX_RETRY_SECONDS;
+			}
+			msg.nextAttemptAt = Instant.now().plusSeconds(secs);
+			this.nbrRetried.incrementAndGet();
+		}
+	}
+
+	private void pace() {
+		if (this.nanosPerMessage == 0) {
+			return;
+		}
+		long now = System.nanoTime();
+		if (now - this.nextSendAt > 0) {
+			this.nextSendAt = now;
+		}
+		while (this.nextSendAt - now > 0) {
+			LockSupport.parkNanos(this.nextSendAt - now);
+			now = System.nanoTime();
+		}
+		this.nextSendAt += this.nanosPerMessage;
+	}
+}
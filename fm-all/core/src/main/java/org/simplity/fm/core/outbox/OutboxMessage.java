@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.outbox;
+
+import java.time.Instant;
+
+/**
+ * a message to be delivered through the outbox
+ *
+ * @author simplity.org
+ *
+ */
+public class OutboxMessage {
+	/**
+	 * assigned by the store when the message is enqueued
+	 */
+	long id;
+	final Channel channel;
+	final String recipients;
+	final String subject;
+	final String content;
+
+	int attempts;
+	Status status = Status.pending;
+	Instant nextAttemptAt = Instant.now();
+	String lastError;
+
+	/**
+	 * use the factory methods email(), bulkEmail() and text() instead
+	 *
+	 * @param channel
+	 * @param recipients
+	 * @param subject
+	 * @param content
+	 */
+	OutboxMessage(final Channel channel, final String recipients, final String subject, final String content) {
+		this.channel = channel;
+		this.recipients = recipients;
+		this.subject = subject;
+		this.content = content;
+	}
+
+	/**
+	 *
+	 * @param toMailIds
+	 *            possibly comma separated list of email ids. A single mail is
+	 *            sent to all of them
+	 * @param subject
+	 * @param content
+	 * @return message to be enqueued
+	 */
+	public static OutboxMessage email(final String toMailIds, final String subject, final String content) {
+		return new OutboxMessage(Channel.email, toMailIds, subject, content);
+	}
+
+	/**
+	 *
+	 * @param toMailIds
+	 *            possibly comma separated list of email ids. mail is sent
+	 *            individually to each of them
+	 * @param subject
+	 * @param content
+	 * @return message to be enqueued
+	 */
+	public static OutboxMessage bulkEmail(final String toMailIds, final String subject, final String content) {
+		return new OutboxMessage(Channel.bulkEmail, toMailIds, subject, content);
+	}
+
+	/**
+	 *
+	 * @param senderId
+	 * @param numbers
+	 *            comma separated mobile numbers
+	 * @param sms
+	 * @return message to be enqueued
+	 */
+	public static OutboxMessage text(final String senderId, final String numbers, final String sms) {
+		return new OutboxMessage(Channel.text, numbers, senderId, sms);
+	}
+
+	/**
+	 * @return id assigned by the store. 0 if it is not yet enqueued
+	 */
+	public long getId() {
+		return this.id;
+	}
+
+	/**
+	 * @return the channel
+	 */
+	public Channel getChannel() {
+		return this.channel;
+	}
+
+	/**
+	 * @return email ids or mobile numbers
+	 */
+	public String getRecipients() {
+		return this.recipients;
+	}
+
+	/**
+	 * @return subject of the mail, or sender-id of the text message
+	 */
+	public String getSubject() {
+		return this.subject;
+	}
+
+	/**
+	 * @return content of the mail/text
+	 */
+	public String getContent() {
+		return this.content;
+	}
+
+	/**
+	 * @return number of delivery attempts made so far
+	 */
+	public int getAttempts() {
+		return this.attempts;
+	}
+
+	/**
+	 * @return current status
+	 */
+	public Status getStatus() {
+		return this.status;
+	}
+
+	/**
+	 * @return instant at or after which the next attempt is to be made
+	 */
+	public Instant getNextAttemptAt() {
+		return this.nextAttemptAt;
+	}
+
+	/**
+	 * @return error message of the last failed attempt. null if none
+	 */
+	public String getLastError() {
+		return this.lastError;
+	}
+
+	/**
+	 * channel through which a message is delivered
+	 */
+	public enum Channel {
+		/**
+		 * one mail to all the recipients
+		 */
+		email,
+		/**
+		 * one mail each to the recipients
+		 */
+		bulkEmail,
+		/**
+		 * sms text
+		 */
+		text
+	}
+
+	/**
+	 * delivery status of a message
+	 */
+	public enum Status {
+		/**
+		 * yet to be delivered
+		 */
+		pending,
+		/**
+		 * delivered
+		 */
+		sent,
+		/**
+		 * gave up after the max number of attempts
+		 */
+		failed
+	}
+}
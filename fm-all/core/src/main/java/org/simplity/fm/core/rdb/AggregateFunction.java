@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.simplity.fm.core.rdb;
+
+/**
+ * aggregate functions that can be requested in an aggregate service
+ *
+ * @author simplity.org
+ *
+ */
+public enum AggregateFunction {
+	/** number of rows, or of non-null values of a field */
+	Count("COUNT"),
+	/** sum of a numeric field */
+	Sum("SUM"),
+	/** average of a numeric field */
+	Average("AVG"),
+	/** minimum value of a field */
+	Min("MIN"),
+	/** maximum value of a field */
+	Max("MAX");
+
+	private final String sqlName;
+
+	private AggregateFunction(final String sqlName) {
+		this.sqlName = sqlName;
+	}
+
+	/**
+	 * @return name of this function in sql
+	 */
+	public String getSqlName() {
+		return this.sqlName;
+	}
+
+	/**
+	 * parse a text into enum. either the name or the sql name, ignoring case
+	 *
+	 * @param text
+	 *            text to be parsed into enum
+	 * @return aggregate function, or null if there is no function for this
+	 *         text
+	 */
+	public static AggregateFunction parse(final String text) {
+		if (text == null) {
+			return null;
+		}
+		for (final AggregateFunction f : AggregateFunction.values()) {
+			if (f.name().equalsIgnoreCase(text) || f.sqlName.equalsIgnoreCase(text)) {
+				return f;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.rdb;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.simplity.fm.core.conf.IDbConnectionFactory;
+
+/**
+ * a connection to the primary db that is shared by all the db operations of a
+ * request. Connection is checked out on first use, and is returned when the
+ * scope ends. An operation that starts while another one is using the
+ * connection (nested calls) gets a connection of its own.
+ *
+ * @author simplity.org
+ *
+ */
+class ConnectionScope {
+	private IDbConnectionFactory owner;
+	private Connection con;
+	private boolean busy;
+
+	/**
+	 *
+	 * @param factory
+	 * @return connection to be used for the operation, and to be given back
+	 *         with giveBack(). null if the scoped connection is not available,
+	 *         and the caller should use a connection of its own.
+	 * @throws SQLException
+	 */
+	Connection lease(final IDbConnectionFactory factory) throws SQLException {
+		if (this.busy) {
+			return null;
+		}
+		if (this.con == null) {
+			this.con = RdbDriver.connect(factory, null);
+			this.owner = factory;
+		} else if (this.owner != factory) {
+			return null;
+		}
+		this.busy = true;
+		return this.con;
+	}
+
+	/**
+	 *
+	 * @param connection
+	 * @return true if this connection is the one leased out by this scope
+	 */
+	boolean isLeased(final Connection connection) {
+		return this.busy && this.con == connection;
+	}
+
+	/**
+	 * get back the leased connection. The connection is reset to auto-commit
+	 * mode, rolling back any work left uncommitted, as a pool would do.
+	 *
+	 * @param ok
+	 *            false if the operation failed. The connection is discarded in
+	 *            this case, as it may not be usable any more.
+	 * @throws SQLException
+	 */
+	void giveBack(final boolean ok) throws SQLException {
+		this.busy = false;
+		if (ok) {
+			try {
+				if (this.con.getAutoCommit() == false) {
+					this.con.rollback();
+					this.con.setAutoCommit(true);
+				}
+				return;
+			} catch (final SQLException e) {
+				RdbDriver.logger.error("Scoped connection could not be reset. It is discarded. {}", e.getMessage());
+			}
+		}
+		this.close();
+	}
+
+	/**
+	 * close the connection, if one was checked out
+	 *
+	 * @throws SQLException
+	 */
+	void close() throws SQLException {
+		final Connection c = this.con;
+		this.con = null;
+		this.owner = null;
+		this.busy = false;
+		if (c != null) {
+			c.close();
+		}
+	}
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.rdb;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.simplity.fm.core.conf.IDbConnectionFactory;
+
+/**
+ * hi-lo key allocator. Blocks of keys are reserved from the db (hi), and keys
+ * are handed out from the reserved block in memory (lo). Each table has a few
+ * stripes, each with its own block, so that concurrent threads do not contend
+ * for the same lock.
+ * <br />
+ * Keys are unique, but not in the order of insertion across threads. Keys of
+ * a reserved block that are not used before the app shuts down are lost,
+ * leaving gaps.
+ *
+ * @author simplity.org
+ *
+ */
+public class HiLoKeyAllocator implements IKeyAllocator {
+	private final IBlockReserver reserver;
+	private final int blockSize;
+	private final int stripeMask;
+	private final Map<String, Block[]> tables = new ConcurrentHashMap<>();
+
+	/**
+	 *
+	 * @param reserver
+	 *            reserves blocks of keys in the db
+	 * @param blockSize
+	 *            number of keys reserved at a time
+	 * @param nbrStripes
+	 *            number of blocks in use at a time for a table. rounded up to
+	 *            a power of 2. 1 if all threads are to share one block.
+	 */
+	public HiLoKeyAllocator(final IBlockReserver reserver, final int blockSize, final int nbrStripes) {
+		this.reserver = reserver;
+		this.blockSize = blockSize < 1 ? 1 : blockSize;
+		int n = 1;
+		while (n < nbrStripes) {
+			n <<= 1;
+		}
+		this.stripeMask = n - 1;
+	}
+
+	@Override
+	public long nextKey(final String tableName) throws SQLException {
+		final Block[] blocks = this.tables.computeIfAbsent(tableName, k -> {
+			final Block[] arr = new Block[this.stripeMask + 1];
+			for (int i = 0; i < arr.length; i++) {
+				arr[i] = new Block();
+			}
+			return arr;
+		});
+		final int idx = (int) (Thread.currentThread().getId() & this.stripeMask);
+		return blocks[idx].next(tableName);
+	}
+
+	private class Block {
+		private long next;
+		private long limit;
+
+		Block() {
+			// keys to be reserved on first use
+		}
+
+		synchronized long next(final String tableName) throws SQLException {
+			if (this.next >= this.limit) {
+				final int n = HiLoKeyAllocator.this.blockSize;
+				this.next = HiLoKeyAllocator.this.reserver.reserve(tableName, n);
+				this.limit = this.next + n;
+			}
+			return this.next++;
+		}
+	}
+
+	/**
+	 * reserves a block of keys in the db
+	 */
+	@FunctionalInterface
+	public interface IBlockReserver {
+		/**
+		 * reserve a block of keys. MUST be committed independent of any
+		 * ongoing transaction, so that no other node/thread gets any of these
+		 * keys
+		 *
+		 * @param tableName
+		 * @param blockSize
+		 * @return first key of the block. keys from this value and up to, but
+		 *         excluding, this value + blockSize are reserved
+		 * @throws SQLException
+		 */
+		long reserve(String tableName, int blockSize) throws SQLException;
+	}
+
+	/**
+	 * reserves blocks using a db sequence for each table. The sequence MUST
+	 * be defined to increment by the block size.
+	 *
+	 * @param factory
+	 *            factory for the connection dedicated to reserving keys. One
+	 *            connection is kept open for the life of the reserver. It is
+	 *            NOT taken from the pool used by the app, as a key is reserved
+	 *            while the caller is holding a connection from that pool
+	 * @param sqlTemplate
+	 *            sql that returns the next value of the sequence for a table,
+	 *            with {} to be replaced with the table name. like
+	 *            "SELECT nextval('{}_seq')"
+	 * @return block reserver
+	 */
+	public static IBlockReserver sequenceReserver(final IDbConnectionFactory factory, final String sqlTemplate) {
+		final DedicatedConnection dc = new DedicatedConnection(factory);
+		return (tableName, blockSize) -> {
+			final String sql = sqlTemplate.replace("{}", tableName);
+			return dc.reserve(con -> {
+				try (PreparedStatement ps = con.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+					if (rs.next() == false) {
+						throw new SQLException("No value returned by " + sql);
+					}
+					return rs.getLong(1);
+				}
+			});
+		};
+	}
+
+	/**
+	 * reserves blocks using a key table that has a row for each table, with
+	 * columns table_name (text) and next_key (integer). Reservation is
+	 * committed in a transaction of its own.
+	 *
+	 * @param factory
+	 *            factory for the connection dedicated to reserving keys. One
+	 *            connection is kept open for the life of the reserver. It is
+	 *            NOT taken from the pool used by the app, as a key is reserved
+	 *            while the caller is holding a connection from that pool
+	 * @param keyTableName
+	 *            name of the key table
+	 * @return block reserver
+	 */
+	public static IBlockReserver keyTableReserver(final IDbConnectionFactory factory, final String keyTableName) {
+		final String update = "UPDATE " + keyTableName + " SET next_key = next_key + ? WHERE table_name = ?";
+		final String select = "SELECT next_key FROM " + keyTableName + " WHERE table_name = ?";
+		final DedicatedConnection dc = new DedicatedConnection(factory);
+		return (tableName, blockSize) -> dc.reserve(con -> {
+			try (PreparedStatement ps = con.prepareStatement(update)) {
+				ps.setLong(1, blockSize);
+				ps.setString(2, tableName);
+				if (ps.executeUpdate() == 0) {
+					throw new SQLException("Key table " + keyTableName + " has no row for table " + tableName);
+				}
+			}
+			try (PreparedStatement ps = con.prepareStatement(select)) {
+				ps.setString(1, tableName);
+				try (ResultSet rs = ps.executeQuery()) {
+					rs.next();
+					return rs.getLong(1) - blockSize;
+				}
+			}
+		});
+	}
+
+	@FunctionalInterface
+	private interface Reservation {
+		long reserve(Connection con) throws SQLException;
+	}
+
+	/**
+	 * a connection that is used only for reserving keys, one reservation at a
+	 * time. Each reservation is committed on its own.
+	 */
+	private static class DedicatedConnection {
+		private final IDbConnectionFactory factory;
+		private Connection con;
+
+		DedicatedConnection(final IDbConnectionFactory factory) {
+			this.factory = factory;
+		}
+
+		synchronized long reserve(final Reservation reservation) throws SQLException {
+			if (this.con == null || this.con.isClosed()) {
+				this.con = this.factory.getConnection();
+				this.con.setAutoCommit(false);
+			}
+			try {
+				final long result = reservation.reserve(this.con);
+				this.con.commit();
+				return result;
+			} catch (final SQLException e) {
+				/*
+				 * connection may be broken. get a fresh one next time
+				 */
+				final Connection c = this.con;
+				this.con = null;
+				try {
+					c.rollback();
+					c.close();
+				} catch (final SQLException ignore) {
+					//
+				}
+				throw e;
+			}
+		}
+	}
+}
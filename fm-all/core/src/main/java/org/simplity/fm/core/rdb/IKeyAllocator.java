@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.rdb;
+
+import java.sql.SQLException;
+
+/**
+ * allocates primary keys for tables with a generated primary key, so that the
+ * key is assigned to a row before it is inserted, rather than being generated
+ * by the db during the insert. This allows such rows to be inserted in
+ * batches.
+ *
+ * @author simplity.org
+ *
+ */
+@FunctionalInterface
+public interface IKeyAllocator {
+
+	/**
+	 *
+	 * @param tableName
+	 *            name of the table in the db
+	 * @return a key that is not used so far for this table
+	 * @throws SQLException
+	 *             if a new block of keys could not be reserved
+	 */
+	long nextKey(String tableName) throws SQLException;
+}
@@ -24,8 +24,15 @@ package org.simplity.fm.core.rdb;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.simplity.fm.core.conf.IDbConnectionFactory;
+import org.simplity.fm.core.metrics.MetricsRegistry;
+import org.simplity.fm.core.trace.Span;
+import org.simplity.fm.core.trace.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,7 +43,23 @@ import org.slf4j.LoggerFactory;
  * provide simple API to do the most common operation
  *
  * This is an immutable class, and hence can be used as a singleton. This is
- * designed to be accessed through App
+ * designed to be accessed through App <br />
+ *
+ * Read-only operations may be routed to read-replicas of the database, if
+ * they are configured. read-write and transact operations always use the
+ * primary database. Since replicas typically lag behind the primary, the
+ * driver can be configured to route the reads of a session to the primary for
+ * a few seconds after that session writes to the db. Session is bound to the
+ * thread with <code>bindSession()</code> <br />
+ * The tenant bound to the thread is used by tenant-aware connection factories,
+ * like RoutingConnectionFactory, to route the request to the right db. <br />
+ * read-write and transact operations that fail due to a deadlock or a
+ * serialization failure are retried as per the retry policy. Hence the
+ * functions passed to these operations may be called more than once, and must
+ * not have side-effects outside of the db. A transact operation is not retried
+ * once it may have committed some work. <br />
+ * A request may share one connection across all its db operations. see
+ * beginConnectionScope()
  *
  * @author simplity.org
  *
@@ -44,7 +67,44 @@ import org.slf4j.LoggerFactory;
 public class RdbDriver {
 	protected static final Logger logger = LoggerFactory.getLogger(RdbDriver.class);
 
+	/*
+	 * session on whose behalf the current thread is accessing the db
+	 */
+	private static final ThreadLocal<Object> currentSession = new ThreadLocal<>();
+	/*
+	 * tenant on whose behalf the current thread is accessing the db
+	 */
+	private static final ThreadLocal<Object> currentTenant = new ThreadLocal<>();
+	/*
+	 * connection shared by the db operations of the request being served by
+	 * this thread. null if connections are not to be shared
+	 */
+	private static final ThreadLocal<ConnectionScope> currentScope = new ThreadLocal<>();
 	private final IDbConnectionFactory factory;
+	/*
+	 * null if no replicas are configured
+	 */
+	private final IDbConnectionFactory[] replicas;
+	/*
+	 * number of connections in use for each replica. used to pick the
+	 * least-loaded replica
+	 */
+	private final AtomicInteger[] outstanding;
+	private final boolean pickLeastOutstanding;
+	private final AtomicInteger nextReplica = new AtomicInteger();
+
+	/*
+	 * read-your-writes. time at which a session last wrote to the db.
+	 */
+	private final long readYourWritesMillis;
+	private final Map<Object, Long> lastWrites = new ConcurrentHashMap<>();
+	/*
+	 * expired entries are purged from lastWrites at most once in every
+	 * readYourWritesMillis, by the first writer after this time
+	 */
+	private final AtomicLong nextPurgeAt = new AtomicLong();
+
+	private final RetryPolicy retryPolicy;
 
 	/**
 	 * to be used by APP, and no one else..
@@ -52,8 +112,148 @@ public class RdbDriver {
 	 * @param factory
 	 */
 	public RdbDriver(final IDbConnectionFactory factory) {
+		this(factory, null, false, 0, RetryPolicy.NO_RETRY);
+	}
+
+	/**
+	 * to be used by APP, and no one else..
+	 *
+	 * @param factory
+	 *            factory for the primary db. All read-write and transact
+	 *            operations use this.
+	 * @param replicas
+	 *            factories for read-replicas. null or empty if read
+	 *            operations are also to be done on the primary.
+	 * @param pickLeastOutstanding
+	 *            true to route a read to the replica with the least number of
+	 *            connections in use. false to use the replicas in a
+	 *            round-robin manner
+	 * @param readYourWritesSeconds
+	 *            number of seconds for which reads of a session are routed to
+	 *            the primary after it writes to the db. 0 to disable this
+	 *            feature.
+	 */
+	public RdbDriver(final IDbConnectionFactory factory, final IDbConnectionFactory[] replicas,
+			final boolean pickLeastOutstanding, final int readYourWritesSeconds) {
+		this(factory, replicas, pickLeastOutstanding, readYourWritesSeconds, RetryPolicy.NO_RETRY);
+	}
+
+	/**
+	 * to be used by APP, and no one else..
+	 *
+	 * @param factory
+	 *            factory for the primary db. All read-write and transact
+	 *            operations use this.
+	 * @param replicas
+	 *            factories for read-replicas. null or empty if read
+	 *            operations are also to be done on the primary.
+	 * @param pickLeastOutstanding
+	 *            true to route a read to the replica with the least number of
+	 *            connections in use. false to use the replicas in a
+	 *            round-robin manner
+	 * @param readYourWritesSeconds
+	 *            number of seconds for which reads of a session are routed to
+	 *            the primary after it writes to the db. 0 to disable this
+	 *            feature.
+	 * @param retryPolicy
+	 *            policy to retry read-write and transact operations that fail
+	 *            due to deadlocks or serialization failures
+	 */
+	public RdbDriver(final IDbConnectionFactory factory, final IDbConnectionFactory[] replicas,
+			final boolean pickLeastOutstanding, final int readYourWritesSeconds, final RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy == null ? RetryPolicy.NO_RETRY : retryPolicy;
 		this.factory = factory;
-		//
+		if (replicas == null || replicas.length == 0) {
+			this.replicas = null;
+			this.outstanding = null;
+		} else {
+			this.replicas = replicas;
+			this.outstanding = new AtomicInteger[replicas.length];
+			for (int i = 0; i < replicas.length; i++) {
+				this.outstanding[i] = new AtomicInteger();
+			}
+		}
+		this.pickLeastOutstanding = pickLeastOutstanding;
+		this.readYourWritesMillis = readYourWritesSeconds * 1000L;
+	}
+
+	/**
+	 * bind a session to the current thread. Reads of this session are routed
+	 * to the primary for a while after the session writes to the db. To be
+	 * called at the beginning of a request, and must be matched with a call to
+	 * unbindSession() at the end of the request.
+	 *
+	 * @param sessionId
+	 *            typically the auth-token. null if the request is not part of a
+	 *            session
+	 * @param tenantId
+	 *            tenant of this request. null if the app is not multi-tenant
+	 */
+	public static void bindSession(final Object sessionId, final Object tenantId) {
+		bind(currentSession, sessionId);
+		bind(currentTenant, tenantId);
+	}
+
+	private static void bind(final ThreadLocal<Object> local, final Object value) {
+		if (value == null) {
+			local.remove();
+		} else {
+			local.set(value);
+		}
+	}
+
+	/**
+	 * remove the session bound to the current thread, if any
+	 */
+	public static void unbindSession() {
+		currentSession.remove();
+		currentTenant.remove();
+	}
+
+	/**
+	 * start sharing one connection to the primary db across all the db
+	 * operations carried out by the current thread, till endConnectionScope()
+	 * is called. Connection is checked out only when it is first required.
+	 * Read-only operations continue to be routed to replicas, if they are
+	 * configured. To be called at the beginning of a service invocation, and
+	 * must be matched with a call to endConnectionScope()
+	 */
+	public static void beginConnectionScope() {
+		currentScope.set(new ConnectionScope());
+	}
+
+	/**
+	 * stop sharing the connection, and return it to the pool if one was
+	 * checked out.
+	 */
+	public static void endConnectionScope() {
+		final ConnectionScope scope = currentScope.get();
+		if (scope == null) {
+			return;
+		}
+		currentScope.remove();
+		try {
+			scope.close();
+		} catch (final SQLException e) {
+			logger.error("Error while closing the scoped connection. {}", e.getMessage());
+		}
+	}
+
+	/**
+	 *
+	 * @return policy used to retry read-write and transact operations. its
+	 *         counters tell how often transactions were retried.
+	 */
+	public RetryPolicy getRetryPolicy() {
+		return this.retryPolicy;
+	}
+
+	/**
+	 *
+	 * @return tenant bound to the current thread. null if no tenant is bound.
+	 */
+	static Object getBoundTenant() {
+		return currentTenant.get();
 	}
 
 	/**
@@ -65,10 +265,7 @@ public class RdbDriver {
 	 *
 	 */
 	public void read(final DbReader reader) throws SQLException {
-		this.checkFactory();
-		try (Connection con = this.factory.getConnection()) {
-			doReadOnly(con, reader);
-		}
+		this.readWorker(null, reader);
 	}
 
 	/**
@@ -82,10 +279,7 @@ public class RdbDriver {
 	 *
 	 */
 	public void read(final String schemaName, final DbReader reader) throws SQLException {
-		this.checkFactory();
-		try (Connection con = this.factory.getConnection(schemaName)) {
-			doReadOnly(con, reader);
-		}
+		this.readWorker(schemaName, reader);
 	}
 
 	/**
@@ -100,10 +294,7 @@ public class RdbDriver {
 	 * @throws SQLException
 	 */
 	public void readWrite(final DbWriter updater) throws SQLException {
-		this.checkFactory();
-		try (Connection con = this.factory.getConnection()) {
-			doReadWrite(con, updater);
-		}
+		this.readWriteWorker(null, updater);
 	}
 
 	/**
@@ -124,10 +315,7 @@ public class RdbDriver {
 	 *
 	 */
 	public void readWrite(final String schemaName, final DbWriter updater) throws SQLException {
-		this.checkFactory();
-		try (Connection con = this.factory.getConnection(schemaName)) {
-			doReadWrite(con, updater);
-		}
+		this.readWriteWorker(schemaName, updater);
 	}
 
 	/**
@@ -145,10 +333,7 @@ public class RdbDriver {
 	 *
 	 */
 	public void transact(final DbTransacter transacter) throws SQLException {
-		this.checkFactory();
-		try (Connection con = this.factory.getConnection()) {
-			doBatch(con, transacter);
-		}
+		this.transactWorker(null, transacter);
 	}
 
 	/**
@@ -168,10 +353,175 @@ public class RdbDriver {
 	 *
 	 */
 	public void transact(final String schemaName, final DbTransacter transacter) throws SQLException {
+		this.transactWorker(schemaName, transacter);
+	}
+
+	private void readWorker(final String schemaName, final DbReader reader) throws SQLException {
+		this.checkFactory();
+		final long start = System.nanoTime();
+		final int idx = this.pickReplica();
+		if (idx == -1) {
+			final Connection con = this.acquire(schemaName);
+			boolean ok = false;
+			try {
+				doReadOnly(con, reader);
+				ok = true;
+			} finally {
+				release(con, ok);
+				MetricsRegistry.addDbTime(System.nanoTime() - start);
+			}
+			return;
+		}
+
+		try (Connection con = connect(this.replicas[idx], schemaName)) {
+			doReadOnly(con, reader);
+		} finally {
+			this.outstanding[idx].decrementAndGet();
+			MetricsRegistry.addDbTime(System.nanoTime() - start);
+		}
+	}
+
+	private void readWriteWorker(final String schemaName, final DbWriter updater) throws SQLException {
 		this.checkFactory();
-		try (Connection con = this.factory.getConnection(schemaName)) {
-			doBatch(con, transacter);
+		final long start = System.nanoTime();
+		try {
+			for (int attempt = 1;; attempt++) {
+				try {
+					final Connection con = this.acquire(schemaName);
+					boolean ok = false;
+					try {
+						doReadWrite(con, updater);
+						ok = true;
+					} finally {
+						release(con, ok);
+					}
+					this.retryPolicy.succeeded(attempt);
+					return;
+				} catch (final SQLException e) {
+					if (this.retryPolicy.retryAfter(e, attempt) == false) {
+						throw e;
+					}
+				}
+			}
+		} finally {
+			this.noteWrite();
+			MetricsRegistry.addDbTime(System.nanoTime() - start);
+		}
+	}
+
+	private void transactWorker(final String schemaName, final DbTransacter transacter) throws SQLException {
+		this.checkFactory();
+		final long start = System.nanoTime();
+		try {
+			for (int attempt = 1;; attempt++) {
+				TransactionHandle handle = null;
+				try {
+					final Connection con = this.acquire(schemaName);
+					boolean ok = false;
+					try {
+						handle = new TransactionHandle(con);
+						doBatch(con, handle, transacter);
+						ok = true;
+					} finally {
+						release(con, ok);
+					}
+					this.retryPolicy.succeeded(attempt);
+					return;
+				} catch (final SQLException e) {
+					/*
+					 * we can not retry once some of the work is committed
+					 */
+					if (handle == null || handle.mayHaveCommitted()
+							|| this.retryPolicy.retryAfter(e, attempt) == false) {
+						throw e;
+					}
+				}
+			}
+		} finally {
+			this.noteWrite();
+			MetricsRegistry.addDbTime(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * pick a replica for a read operation. Caller MUST decrement the
+	 * outstanding count for the returned replica after using it
+	 *
+	 * @return index of the replica to be used, with its outstanding count
+	 *         incremented. -1 if the primary is to be used
+	 */
+	private int pickReplica() {
+		if (this.replicas == null || this.mustReadFromPrimary()) {
+			return -1;
+		}
+
+		final int n = this.replicas.length;
+		int idx;
+		if (this.pickLeastOutstanding) {
+			/*
+			 * start from the next one in round-robin so that ties are spread
+			 * across replicas
+			 */
+			final int start = (this.nextReplica.getAndIncrement() & Integer.MAX_VALUE) % n;
+			idx = start;
+			int least = Integer.MAX_VALUE;
+			for (int i = 0; i < n; i++) {
+				final int j = (start + i) % n;
+				final int nbr = this.outstanding[j].get();
+				if (nbr < least) {
+					least = nbr;
+					idx = j;
+				}
+			}
+		} else {
+			idx = (this.nextReplica.getAndIncrement() & Integer.MAX_VALUE) % n;
 		}
+		this.outstanding[idx].incrementAndGet();
+		return idx;
+	}
+
+	private boolean mustReadFromPrimary() {
+		if (this.readYourWritesMillis == 0) {
+			return false;
+		}
+		final Object session = currentSession.get();
+		if (session == null) {
+			return false;
+		}
+		final Long at = this.lastWrites.get(session);
+		if (at == null) {
+			return false;
+		}
+		if (System.currentTimeMillis() - at < this.readYourWritesMillis) {
+			logger.debug("Session has written to the db recently. Read is routed to the primary");
+			return true;
+		}
+		this.lastWrites.remove(session);
+		return false;
+	}
+
+	private void noteWrite() {
+		if (this.replicas == null || this.readYourWritesMillis == 0) {
+			return;
+		}
+		final Object session = currentSession.get();
+		if (session == null) {
+			return;
+		}
+		final long now = System.currentTimeMillis();
+		this.lastWrites.put(session, now);
+		final long purgeAt = this.nextPurgeAt.get();
+		if (now >= purgeAt && this.nextPurgeAt.compareAndSet(purgeAt, now + this.readYourWritesMillis)) {
+			this.lastWrites.values().removeIf(at -> now - at >= this.readYourWritesMillis);
+		}
+	}
+
+	/**
+	 *
+	 * @return number of sessions that are being tracked for read-your-writes
+	 */
+	int getNbrRecentWriters() {
+		return this.lastWrites.size();
 	}
 
 	private void checkFactory() throws SQLException {
@@ -182,21 +532,94 @@ public class RdbDriver {
 		}
 	}
 
+	/**
+	 * get a connection to the primary db. The connection scoped to the current
+	 * request is used if it is available.
+	 */
+	private Connection acquire(final String schemaName) throws SQLException {
+		if (schemaName == null) {
+			final ConnectionScope scope = currentScope.get();
+			if (scope != null) {
+				final Connection con = scope.lease(this.factory);
+				if (con != null) {
+					return con;
+				}
+			}
+		}
+		return connect(this.factory, schemaName);
+	}
+
+	/**
+	 * release a connection that was acquired
+	 *
+	 * @param ok
+	 *            false if the operation failed
+	 */
+	private static void release(final Connection con, final boolean ok) throws SQLException {
+		final ConnectionScope scope = currentScope.get();
+		try {
+			if (scope != null && scope.isLeased(con)) {
+				scope.giveBack(ok);
+				return;
+			}
+			con.close();
+		} catch (final SQLException e) {
+			if (ok) {
+				throw e;
+			}
+			/*
+			 * do not hide the exception that made the operation fail
+			 */
+			logger.error("Error while closing connection after a failed operation. {}", e.getMessage());
+		}
+	}
+
+	static Connection connect(final IDbConnectionFactory f, final String schemaName) throws SQLException {
+		final Span span = Tracer.startSpan("db.getConnection", schemaName);
+		try {
+			if (schemaName == null) {
+				return f.getConnection();
+			}
+			return f.getConnection(schemaName);
+		} finally {
+			span.close();
+		}
+	}
+
+	/**
+	 * we throw the original exception if it is a SQLException, so that its
+	 * SQLState and chain are available to the caller, including the retry
+	 * policy
+	 */
+	private static SQLException toSqlException(final Exception e) {
+		if (e instanceof SQLException) {
+			return (SQLException) e;
+		}
+		return new SQLException(e.getMessage(), e);
+	}
+
 	private static void doReadOnly(final Connection con, final DbReader reader) throws SQLException {
 		final ReadonlyHandle handle = new ReadonlyHandle(con);
+		final Span span = Tracer.startSpan("db.read");
 		try {
 			con.setReadOnly(true);
 			reader.read(handle);
 		} catch (final Exception e) {
 			e.printStackTrace();
 			logger.error("Exception occurred in the middle of a transaction: {}, {}", e, e.getMessage());
-			throw new SQLException(e.getMessage());
+			throw toSqlException(e);
+		} finally {
+			span.close();
 		}
 	}
 
 	private static void doReadWrite(final Connection con, final DbWriter updater) throws SQLException {
 		final ReadWriteHandle handle = new ReadWriteHandle(con);
+		final Span span = Tracer.startSpan("db.readWrite");
 		try {
+			if (con.isReadOnly()) {
+				con.setReadOnly(false);
+			}
 			con.setAutoCommit(false);
 			if (updater.readWrite(handle)) {
 				con.commit();
@@ -212,24 +635,38 @@ public class RdbDriver {
 			} catch (final Exception ignore) {
 				//
 			}
-			throw new SQLException(e.getMessage());
+			throw toSqlException(e);
+		} finally {
+			span.close();
+			handle.completed();
 		}
 	}
 
-	private static void doBatch(final Connection con, final DbTransacter transacter) throws SQLException {
-		final TransactionHandle handle = new TransactionHandle(con);
+	private static void doBatch(final Connection con, final TransactionHandle handle, final DbTransacter transacter)
+			throws SQLException {
+		final Span span = Tracer.startSpan("db.transact");
 		try {
+			if (con.isReadOnly()) {
+				con.setReadOnly(false);
+			}
+			handle.noteAutoCommit();
 			transacter.transact(handle);
 		} catch (final Exception e) {
 			e.printStackTrace();
 			logger.error("Exception thrown by a batch processor. {}, {}", e, e.getMessage());
-			final SQLException se = new SQLException(e.getMessage());
+			final SQLException se = toSqlException(e);
 			try {
 				con.rollback();
 			} catch (final Exception ignore) {
 				//
 			}
 			throw se;
+		} finally {
+			span.close();
+			/*
+			 * writes in auto-commit mode, if any, are committed by now
+			 */
+			handle.completed();
 		}
 
 	}
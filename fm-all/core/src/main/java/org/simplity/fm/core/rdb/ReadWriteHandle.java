@@ -26,6 +26,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.simplity.fm.core.data.PreparedStatementParam;
@@ -51,6 +52,55 @@ public class ReadWriteHandle extends ReadonlyHandle {
 		super(con);
 	}
 
+	/*
+	 * actions to be run once the current transaction is completed
+	 */
+	private List<Runnable> completionActions;
+
+	/**
+	 * register an action to be run after the current transaction is
+	 * committed or rolled back. Typically used to invalidate cached copies of
+	 * rows that are modified in this transaction, as a concurrent read may
+	 * have cached them before the commit.
+	 *
+	 * @param action
+	 *            non-null action. Should not throw any exception
+	 */
+	public void onCompletion(final Runnable action) {
+		if (this.completionActions == null) {
+			this.completionActions = new ArrayList<>();
+		}
+		this.completionActions.add(action);
+	}
+
+	/**
+	 * called before every write operation. A sub-class may track the writes
+	 *
+	 * @throws SQLException
+	 */
+	void beforeWrite() throws SQLException {
+		// nothing to track by default
+	}
+
+	/**
+	 * run the actions registered for completion, and forget them. To be
+	 * called after every commit/rollback
+	 */
+	void completed() {
+		final List<Runnable> actions = this.completionActions;
+		if (actions == null) {
+			return;
+		}
+		this.completionActions = null;
+		for (final Runnable action : actions) {
+			try {
+				action.run();
+			} catch (final Exception e) {
+				logger.error("Action on completion of a transaction failed: {}", e.getMessage());
+			}
+		}
+	}
+
 	/**
 	 * @param writer
 	 * @return number of affected rows.
@@ -66,6 +116,7 @@ public class ReadWriteHandle extends ReadonlyHandle {
 		}
 		logger.info("SQL:{}", sql);
 
+		this.beforeWrite();
 		try (PreparedStatement ps = this.con.prepareStatement(sql)) {
 			if (writer.setParams(ps) == false) {
 				logger.warn("call back function returned false and hence the write operaiton is abandoned");
@@ -95,6 +146,7 @@ public class ReadWriteHandle extends ReadonlyHandle {
 			return 0;
 		}
 		logger.info("Insert With Key SQL:{}", sql);
+		this.beforeWrite();
 		try (PreparedStatement ps = this.con.prepareStatement(sql, keys)) {
 			int result = 0;
 			if (writer.setParams(ps)) {
@@ -127,6 +179,7 @@ public class ReadWriteHandle extends ReadonlyHandle {
 	public int write(final String sql, final PreparedStatementParam[] params) throws SQLException {
 		logger.info("Generic Write SQL:{}", sql);
 
+		this.beforeWrite();
 		try (PreparedStatement ps = this.con.prepareStatement(sql)) {
 			final int posn = 0;
 			for (final PreparedStatementParam p : params) {
@@ -152,6 +205,7 @@ public class ReadWriteHandle extends ReadonlyHandle {
 	public int write(final String sql, final Record values) throws SQLException {
 		logger.info("Generic Write SQL:{}", sql);
 
+		this.beforeWrite();
 		try (PreparedStatement ps = this.con.prepareStatement(sql)) {
 			values.setPsParams(ps);
 			final int n = ps.executeUpdate();
@@ -180,6 +234,7 @@ public class ReadWriteHandle extends ReadonlyHandle {
 	public int write(final String sql, final Object[] nonNullvalues) throws SQLException {
 		logger.info("Generic Write SQL:{}", sql);
 
+		this.beforeWrite();
 		try (PreparedStatement ps = this.con.prepareStatement(sql)) {
 			int posn = 0;
 			for (final Object val : nonNullvalues) {
@@ -210,6 +265,7 @@ public class ReadWriteHandle extends ReadonlyHandle {
 		}
 		logger.info("Batch SQL:{}", sql);
 
+		this.beforeWrite();
 		try (PreparedStatement ps = this.con.prepareStatement(sql)) {
 			boolean hasMore = true;
 			while (hasMore) {
@@ -254,6 +310,7 @@ public class ReadWriteHandle extends ReadonlyHandle {
 	 */
 	public int writeMany(final String sql, final Object[][] paramValues) throws SQLException {
 		logger.info("Generic Batch SQL:{}", sql);
+		this.beforeWrite();
 		try (PreparedStatement ps = this.con.prepareStatement(sql)) {
 			for (final Object[] row : paramValues) {
 				for (int i = 0; i < row.length; i++) {
@@ -280,6 +337,7 @@ public class ReadWriteHandle extends ReadonlyHandle {
 	 */
 	public int writeMany(final String sql, final Record[] paramValues) throws SQLException {
 		logger.info("Generic Batch SQL:{}", sql);
+		this.beforeWrite();
 		try (PreparedStatement ps = this.con.prepareStatement(sql)) {
 			for (final Record row : paramValues) {
 				row.setPsParams(ps);
@@ -304,6 +362,7 @@ public class ReadWriteHandle extends ReadonlyHandle {
 	 */
 	public int writeMany(final String sql, final List<Record> paramValues) throws SQLException {
 		logger.info("Generic Batch SQL:{}", sql);
+		this.beforeWrite();
 		try (PreparedStatement ps = this.con.prepareStatement(sql)) {
 			for (final Record row : paramValues) {
 				row.setPsParams(ps);
@@ -330,6 +389,7 @@ public class ReadWriteHandle extends ReadonlyHandle {
 	public int[] writeMany(final String sql, final ValueType[] paramTypes, final Object[][] paramValues)
 			throws SQLException {
 		logger.info("Generic Batch SQL:{}", sql);
+		this.beforeWrite();
 		try (PreparedStatement ps = this.con.prepareStatement(sql)) {
 			for (final Object[] row : paramValues) {
 				for (int i = 0; i < paramTypes.length; i++) {
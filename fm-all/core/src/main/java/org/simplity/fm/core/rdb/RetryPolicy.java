@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.rdb;
+
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.simplity.fm.core.serialize.ISerializer;
+
+/**
+ * policy to retry a transaction that is rolled back by the db because of a
+ * deadlock or a serialization failure. Such failures are transient: the same
+ * transaction is very likely to succeed if it is attempted again after a
+ * short wait.
+ * <br />
+ * A failure is considered transient if the exception, or any exception in its
+ * chain, is a SQLTransactionRollbackException or has a SQLState of class 40
+ * (transaction rollback: serialization failure, deadlock etc..) or is an
+ * Oracle deadlock/serialization error. The wait before a retry is chosen at
+ * random up to an exponentially growing ceiling (full jitter) so that the
+ * colliding transactions do not collide again.
+ *
+ * @author simplity.org
+ *
+ */
+public class RetryPolicy {
+	/**
+	 * policy that never retries
+	 */
+	public static final RetryPolicy NO_RETRY = new RetryPolicy(1, 0, 0);
+
+	private static final String SQL_STATE_CLASS_ROLLBACK = "40";
+	private static final int ORA_DEADLOCK = 60;
+	private static final int ORA_CANNOT_SERIALIZE = 8177;
+	/*
+	 * guard against cyclic cause chains
+	 */
+	private static final int MAX_CHAIN = 20;
+
+	private final int maxAttempts;
+	private final long baseMillis;
+	private final long maxMillis;
+
+	private final AtomicLong nbrTransientFailures = new AtomicLong();
+	private final AtomicLong nbrRetries = new AtomicLong();
+	private final AtomicLong nbrRecovered = new AtomicLong();
+	private final AtomicLong nbrGivenUp = new AtomicLong();
+
+	/**
+	 *
+	 * @param maxAttempts
+	 *            max number of attempts, including the first one. 1 means no
+	 *            retries
+	 * @param baseMillis
+	 *            ceiling for the wait before the first retry. The ceiling is
+	 *            doubled for every subsequent retry
+	 * @param maxMillis
+	 *            max wait before any retry
+	 */
+	public RetryPolicy(final int maxAttempts, final long baseMillis, final long maxMillis) {
+		this.maxAttempts = maxAttempts < 1 ? 1 : maxAttempts;
+		this.baseMillis = baseMillis < 0 ? 0 : baseMillis;
+		this.maxMillis = maxMillis < this.baseMillis ? this.baseMillis : maxMillis;
+	}
+
+	/**
+	 *
+	 * @param e
+	 * @return true if this exception is due to a transient failure, like
+	 *         deadlock, and the transaction may succeed if retried.
+	 */
+	public static boolean isTransient(final Throwable e) {
+		Throwable t = e;
+		for (int i = 0; t != null && i < MAX_CHAIN; i++) {
+			if (t instanceof SQLException) {
+				final SQLException se = (SQLException) t;
+				if (isTransient(se)) {
+					return true;
+				}
+				final SQLException next = se.getNextException();
+				if (next != null && next != se && isTransient(next)) {
+					return true;
+				}
+			}
+			if (t.getCause() == t) {
+				break;
+			}
+			t = t.getCause();
+		}
+		return false;
+	}
+
+	private static boolean isTransient(final SQLException se) {
+		if (se instanceof SQLTransactionRollbackException) {
+			return true;
+		}
+		final String state = se.getSQLState();
+		if (state != null && state.startsWith(SQL_STATE_CLASS_ROLLBACK)) {
+			return true;
+		}
+		final int code = se.getErrorCode();
+		return code == ORA_DEADLOCK || code == ORA_CANNOT_SERIALIZE;
+	}
+
+	/**
+	 * called after an attempt failed. Waits before returning true.
+	 *
+	 * @param e
+	 *            exception thrown by the attempt
+	 * @param attemptsMade
+	 *            number of attempts made so far, including the one that
+	 *            failed
+	 * @return true if the caller should attempt again. false if the exception
+	 *         is to be thrown
+	 */
+	boolean retryAfter(final Throwable e, final int attemptsMade) {
+		if (!isTransient(e)) {
+			return false;
+		}
+		this.nbrTransientFailures.incrementAndGet();
+		if (attemptsMade >= this.maxAttempts) {
+			if (this.maxAttempts > 1) {
+				this.nbrGivenUp.incrementAndGet();
+			}
+			return false;
+		}
+		final long wait = this.backoffMillis(attemptsMade);
+		RdbDriver.logger.warn("Transient db failure on attempt {}. Retrying after {} ms. Error: {}", attemptsMade,
+				wait, e.getMessage());
+		if (wait > 0) {
+			try {
+				Thread.sleep(wait);
+			} catch (final InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		this.nbrRetries.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * called when an attempt succeeds
+	 *
+	 * @param attemptsMade
+	 */
+	void succeeded(final int attemptsMade) {
+		if (attemptsMade > 1) {
+			this.nbrRecovered.incrementAndGet();
+		}
+	}
+
+	/**
+	 *
+	 * @param attemptsMade
+	 * @return milliseconds to wait before the next attempt
+	 */
+	long backoffMillis(final int attemptsMade) {
+		if (this.baseMillis == 0) {
+			return 0;
+		}
+		long ceiling = this.baseMillis << Math.min(attemptsMade - 1, 30);
+		if (ceiling > this.maxMillis || ceiling <= 0) {
+			ceiling = this.maxMillis;
+		}
+		return ThreadLocalRandom.current().nextLong(ceiling + 1);
+	}
+
+	/**
+	 * @return max number of attempts, including the first one
+	 */
+	public int getMaxAttempts() {
+		return this.maxAttempts;
+	}
+
+	/**
+	 * @return number of attempts that failed with a transient failure
+	 */
+	public long getNbrTransientFailures() {
+		return this.nbrTransientFailures.get();
+	}
+
+	/**
+	 * @return number of retries made
+	 */
+	public long getNbrRetries() {
+		return this.nbrRetries.get();
+	}
+
+	/**
+	 * @return number of operations that succeeded after one or more retries
+	 */
+	public long getNbrRecovered() {
+		return this.nbrRecovered.get();
+	}
+
+	/**
+	 * @return number of operations that failed even after max attempts
+	 */
+	public long getNbrGivenUp() {
+		return this.nbrGivenUp.get();
+	}
+
+	/**
+	 * write the counters as members of the current object
+	 *
+	 * @param writer
+	 */
+	public void serializeMembers(final ISerializer writer) {
+		writer.name("transientFailures");
+		writer.value(this.nbrTransientFailures.get());
+		writer.name("retries");
+		writer.value(this.nbrRetries.get());
+		writer.name("recovered");
+		writer.value(this.nbrRecovered.get());
+		writer.name("givenUp");
+		writer.value(this.nbrGivenUp.get());
+	}
+}
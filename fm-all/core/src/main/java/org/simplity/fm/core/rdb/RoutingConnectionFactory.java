@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.rdb;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.simplity.fm.core.conf.IDbConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * connection factory that routes requests to different databases/schemas
+ * based on the tenant of the current request, or the schema name asked for.
+ * <br />
+ * A data source (typically a connection pool) is created for a route when it
+ * is used for the first time, and is closed after it remains unused for the
+ * configured idle time. Hence the idle time must be well above the duration
+ * of the longest transaction. <br />
+ * Tenant is the one bound to the current thread with
+ * <code>RdbDriver.bindSession()</code>. Agent does this for every request based
+ * on IServiceContext.getTenantId(). Requests with no tenant, or with a tenant
+ * that is not routed, use the default factory.
+ *
+ * @author simplity.org
+ *
+ */
+public class RoutingConnectionFactory implements IDbConnectionFactory {
+	private static final Logger logger = LoggerFactory.getLogger(RoutingConnectionFactory.class);
+
+	private final IDbConnectionFactory defaultFactory;
+	private final ITenantRouter router;
+	private final IDataSourceCreator creator;
+	private final long idleMillis;
+	private final Map<String, Route> routes = new ConcurrentHashMap<>();
+	private volatile long lastSweptAt = System.currentTimeMillis();
+
+	/**
+	 *
+	 * @param defaultFactory
+	 *            non-null. used when the request is not routed to a specific
+	 *            route
+	 * @param router
+	 *            maps a tenant to a route. null if routing is only by schema
+	 *            name
+	 * @param creator
+	 *            non-null. creates a data source for a route
+	 * @param idleSeconds
+	 *            data source for a route is closed if it is not used for these
+	 *            many seconds. 0 means they are never closed.
+	 */
+	public RoutingConnectionFactory(final IDbConnectionFactory defaultFactory, final ITenantRouter router,
+			final IDataSourceCreator creator, final int idleSeconds) {
+		this.defaultFactory = defaultFactory;
+		this.router = router;
+		this.creator = creator;
+		this.idleMillis = idleSeconds * 1000L;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		final Object tenant = RdbDriver.getBoundTenant();
+		if (tenant != null && this.router != null) {
+			final String route = this.router.getRoute(tenant);
+			if (route != null) {
+				return this.getRoutedConnection(route);
+			}
+		}
+		return this.defaultFactory.getConnection();
+	}
+
+	@Override
+	public Connection getConnection(final String schemaName) throws SQLException {
+		return this.getRoutedConnection(schemaName);
+	}
+
+	/**
+	 *
+	 * @return number of routes that currently have an open data source
+	 */
+	public int getNbrActiveRoutes() {
+		return this.routes.size();
+	}
+
+	private Connection getRoutedConnection(final String routeName) throws SQLException {
+		this.evictIdleRoutes();
+		while (true) {
+			Route route = this.routes.get(routeName);
+			if (route == null) {
+				synchronized (this.routes) {
+					route = this.routes.get(routeName);
+					if (route == null) {
+						logger.info("Creating data source for route {}", routeName);
+						final DataSource ds = this.creator.newDataSource(routeName);
+						if (ds == null) {
+							throw new SQLException("No data source could be created for route/schema " + routeName);
+						}
+						route = new Route(ds);
+						this.routes.put(routeName, route);
+					}
+				}
+			}
+			/*
+			 * a sweep does not close a route while we are getting a
+			 * connection from it. If it was closed before we could enter, it
+			 * is out of the map by the time we get the lock above
+			 */
+			if (route.enter()) {
+				try {
+					return route.ds.getConnection();
+				} finally {
+					route.exit();
+				}
+			}
+		}
+	}
+
+	/*
+	 * we do not run a thread for this. A sweep is done, at most once in
+	 * idleMillis/2, as part of getting a connection.
+	 */
+	private void evictIdleRoutes() {
+		if (this.idleMillis == 0) {
+			return;
+		}
+		final long now = System.currentTimeMillis();
+		if (now - this.lastSweptAt < this.idleMillis / 2) {
+			return;
+		}
+		this.lastSweptAt = now;
+		synchronized (this.routes) {
+			this.routes.entrySet().removeIf(entry -> {
+				if (entry.getValue().closeIfIdle(now, this.idleMillis) == false) {
+					return false;
+				}
+				logger.info("Data source for route {} was idle, and is closed", entry.getKey());
+				return true;
+			});
+		}
+	}
+
+	/**
+	 * close data sources of all routes
+	 */
+	public void closeAll() {
+		synchronized (this.routes) {
+			for (final Route route : this.routes.values()) {
+				route.close();
+			}
+			this.routes.clear();
+		}
+	}
+
+	/**
+	 * maps a tenant to its route
+	 */
+	@FunctionalInterface
+	public interface ITenantRouter {
+		/**
+		 *
+		 * @param tenantId
+		 *            non-null
+		 * @return name of the route (like a schema name) for this tenant. null
+		 *         if the default data base is to be used for this tenant
+		 */
+		String getRoute(Object tenantId);
+	}
+
+	/**
+	 * creates a data source for a route
+	 */
+	@FunctionalInterface
+	public interface IDataSourceCreator {
+		/**
+		 *
+		 * @param routeName
+		 *            route name, as returned by the router, or the schema name
+		 *            asked for
+		 * @return data source, typically a connection pool. If this is
+		 *         AutoCloseable, it is closed when the route is idle.
+		 * @throws SQLException
+		 *             if the route is not valid, or the data source could not
+		 *             be created
+		 */
+		DataSource newDataSource(String routeName) throws SQLException;
+	}
+
+	private static class Route {
+		/*
+		 * value for users once the route is closed
+		 */
+		private static final int CLOSED = -1;
+		final DataSource ds;
+		volatile long lastUsedAt = System.currentTimeMillis();
+		/*
+		 * number of threads getting a connection from this route right now,
+		 * or CLOSED
+		 */
+		private final AtomicInteger users = new AtomicInteger();
+
+		Route(final DataSource ds) {
+			this.ds = ds;
+		}
+
+		/**
+		 * @return true if this route is open and is marked as being used.
+		 *         false if it is closed
+		 */
+		boolean enter() {
+			while (true) {
+				final int n = this.users.get();
+				if (n == CLOSED) {
+					return false;
+				}
+				if (this.users.compareAndSet(n, n + 1)) {
+					this.lastUsedAt = System.currentTimeMillis();
+					return true;
+				}
+			}
+		}
+
+		void exit() {
+			this.lastUsedAt = System.currentTimeMillis();
+			this.users.decrementAndGet();
+		}
+
+		/**
+		 * @return true if the route was idle, and is closed
+		 */
+		boolean closeIfIdle(final long now, final long idleMillis) {
+			if (now - this.lastUsedAt < idleMillis) {
+				return false;
+			}
+			if (this.users.compareAndSet(0, CLOSED) == false) {
+				return false;
+			}
+			this.close();
+			return true;
+		}
+
+		void close() {
+			this.users.set(CLOSED);
+			if (this.ds instanceof AutoCloseable) {
+				try {
+					((AutoCloseable) this.ds).close();
+				} catch (final Exception e) {
+					logger.error("Error while closing data source. {}", e.getMessage());
+				}
+			}
+		}
+	}
+}
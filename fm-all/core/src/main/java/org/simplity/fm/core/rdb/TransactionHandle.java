@@ -40,6 +40,17 @@ public class TransactionHandle extends ReadWriteHandle {
 		super(con);
 	}
 
+	/*
+	 * whether any work may have been committed so far. Such a transaction
+	 * can not be retried
+	 */
+	private boolean mayHaveCommitted;
+
+	/*
+	 * current auto-commit mode of the connection
+	 */
+	private boolean autoCommit;
+
 	/**
 	 * turn on/off auto commit mode. If it is on, commit/roll-backs are not
 	 * valid
@@ -49,6 +60,13 @@ public class TransactionHandle extends ReadWriteHandle {
 	 */
 	public void setAutoCommitMode(final boolean mode) throws SQLException {
 		this.con.setAutoCommit(mode);
+		if (mode && this.autoCommit == false) {
+			/*
+			 * turning auto-commit on commits the pending work, if any
+			 */
+			this.mayHaveCommitted = true;
+		}
+		this.autoCommit = mode;
 	}
 
 	/**
@@ -58,6 +76,8 @@ public class TransactionHandle extends ReadWriteHandle {
 	 */
 	public void commit() throws SQLException {
 		this.con.commit();
+		this.mayHaveCommitted = true;
+		this.completed();
 	}
 
 	/**
@@ -68,6 +88,30 @@ public class TransactionHandle extends ReadWriteHandle {
 	 */
 	public void rollback() throws SQLException {
 		this.con.rollback();
+		this.completed();
 	}
 
+	/**
+	 * to be called before handing this over to the transacter, to note the
+	 * auto-commit mode the connection starts with. Pooled connections are
+	 * typically in auto-commit mode, and the transacter may switch it off
+	 * before it writes anything
+	 */
+	void noteAutoCommit() throws SQLException {
+		this.autoCommit = this.con.getAutoCommit();
+	}
+
+	/**
+	 * a connection in auto-commit mode commits every write.
+	 */
+	@Override
+	void beforeWrite() {
+		if (this.autoCommit) {
+			this.mayHaveCommitted = true;
+		}
+	}
+
+	boolean mayHaveCommitted() {
+		return this.mayHaveCommitted;
+	}
 }
@@ -121,6 +121,17 @@ public interface ISerializer {
 	 */
 	void primitiveObject(Object value);
 
+	/**
+	 * to be used wherever a value can be used. The text is written as it is,
+	 * and hence it must already be in the serialized form of a value. Used for
+	 * responses that are pre-rendered and cached.
+	 *
+	 * @param serializedValue
+	 *            non-null text that is a valid serialized value (like an
+	 *            object or an array)
+	 */
+	void serializedValue(String serializedValue);
+
 	/**
 	 * to be called inside of an object. Short cut to issue a series of name()
 	 * and value() calls
@@ -188,11 +188,19 @@ public class JsonSerializer implements ISerializer {
 
 	@Override
 	public void fields(final Field[] fields, final Object[] values) {
+		if (fields.length == 0) {
+			return;
+		}
+		/*
+		 * writer needs a name before a raw value. Hence the first name is
+		 * written as usual, and the rest of the members, with their
+		 * pre-escaped names, go as the raw value of the first one
+		 */
+		final StringBuilder sbf = new StringBuilder();
+		RowWriter.getWriter(fields).writeMembers(sbf, values);
 		try {
-			for (int i = 0; i < fields.length; i++) {
-				this.writer.name(fields[i].getName());
-				this.primitiveObject(values[i]);
-			}
+			this.writer.name(fields[0].getName());
+			this.writer.jsonValue(sbf.toString());
 		} catch (final IOException e) {
 			throw new ApplicationError("", e);
 		}
@@ -200,7 +208,7 @@ public class JsonSerializer implements ISerializer {
 
 	@Override
 	public void fields(final Record record) {
-		this.fields(record.fetchFields(), record.fetchRawData());
+		record.writeJson(this);
 
 	}
 
@@ -220,18 +228,17 @@ public class JsonSerializer implements ISerializer {
 
 	@Override
 	public void arrayElements(final Field[] fields, final Object[][] rows) {
-		try {
-			for (final Object[] row : rows) {
-				this.writer.beginObject();
-				for (int i = 0; i < fields.length; i++) {
-					this.writer.name(fields[i].getName());
-					this.primitiveObject(row[i]);
-				}
-				this.writer.endObject();
-			}
-		} catch (final IOException e) {
-			throw new ApplicationError("", e);
+		if (rows == null || rows.length == 0) {
+			return;
 		}
+		/*
+		 * rows are rendered with a pre-compiled row writer, and handed over to
+		 * the writer as one raw value. writer takes care of the separator
+		 * before and after this chunk
+		 */
+		final StringBuilder sbf = new StringBuilder();
+		RowWriter.getWriter(fields).writeRows(sbf, rows);
+		this.serializedValue(sbf.toString());
 	}
 
 	@Override
@@ -250,15 +257,7 @@ public class JsonSerializer implements ISerializer {
 
 	@Override
 	public void arrayElements(final DbTable<?> table) {
-		table.forEach(rec -> {
-			try {
-				this.writer.beginObject();
-				this.fields(rec);
-				this.writer.endObject();
-			} catch (final IOException e) {
-				throw new ApplicationError("", e);
-			}
-		});
+		table.serializeElements(this);
 	}
 
 	@Override
@@ -277,18 +276,26 @@ public class JsonSerializer implements ISerializer {
 
 	@Override
 	public void arrayElements(final List<? extends Record> records) {
-		if (records == null) {
+		if (records == null || records.size() == 0) {
 			return;
 		}
+		/*
+		 * each record writes itself, so that the code generated for its
+		 * fields is used, as for a single record
+		 */
+		for (final Record rec : records) {
+			this.beginObject();
+			rec.writeJson(this);
+			this.endObject();
+		}
+	}
+
+	@Override
+	public void serializedValue(final String serializedValue) {
 		try {
-			for (final Record rec : records) {
-				this.writer.beginObject();
-				this.fields(rec);
-				this.writer.endObject();
-			}
+			this.writer.jsonValue(serializedValue);
 		} catch (final IOException e) {
 			throw new ApplicationError("", e);
 		}
 	}
-
 }
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.serialize.gson;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.simplity.fm.core.data.Field;
+import org.simplity.fm.core.datatypes.ValueType;
+
+/**
+ * writes a row of values as a json object, using names that are escaped once,
+ * and a column-writer that is chosen based on the value type of the field. An
+ * instance is compiled once for an array of fields and is re-used for all
+ * the rows thereafter. Instances are immutable, and hence thread-safe.
+ *
+ * @author simplity.org
+ *
+ */
+class RowWriter {
+	/*
+	 * arrays use identity for hashCode() and equals(). Fields are typically
+	 * static arrays in the generated records, but we do not want to hold on to
+	 * ad-hoc arrays for ever
+	 */
+	private static final Map<Field[], RowWriter> writers = Collections.synchronizedMap(new WeakHashMap<>());
+
+	private static final String NULL = "\"\"";
+	private static final String[] REPLACEMENTS = new String[128];
+	static {
+		for (int i = 0; i < 0x20; i++) {
+			REPLACEMENTS[i] = String.format("\\u%04x", i);
+		}
+		REPLACEMENTS['"'] = "\\\"";
+		REPLACEMENTS['\\'] = "\\\\";
+		REPLACEMENTS['\t'] = "\\t";
+		REPLACEMENTS['\b'] = "\\b";
+		REPLACEMENTS['\n'] = "\\n";
+		REPLACEMENTS['\r'] = "\\r";
+		REPLACEMENTS['\f'] = "\\f";
+	}
+
+	/**
+	 * get the row writer for this array of fields.
+	 *
+	 * @param fields
+	 *            non-null
+	 * @return row-writer. compiled once for an array of fields
+	 */
+	static RowWriter getWriter(final Field[] fields) {
+		RowWriter rw = writers.get(fields);
+		if (rw == null) {
+			rw = new RowWriter(fields);
+			writers.put(fields, rw);
+		}
+		return rw;
+	}
+
+	/*
+	 * "name": for each column, with the leading comma for all but the first
+	 */
+	private final String[] prefixes;
+	private final ColumnWriter[] columnWriters;
+
+	private RowWriter(final Field[] fields) {
+		final int n = fields.length;
+		this.prefixes = new String[n];
+		this.columnWriters = new ColumnWriter[n];
+		final StringBuilder sbf = new StringBuilder();
+		for (int i = 0; i < n; i++) {
+			final Field field = fields[i];
+			sbf.setLength(0);
+			if (i > 0) {
+				sbf.append(',');
+			}
+			appendString(sbf, field.getName());
+			sbf.append(':');
+			this.prefixes[i] = sbf.toString();
+			this.columnWriters[i] = getColumnWriter(field.getValueType());
+		}
+	}
+
+	/**
+	 * append a row as a json object to the buffer
+	 *
+	 * @param sbf
+	 * @param row
+	 */
+	void writeRow(final StringBuilder sbf, final Object[] row) {
+		sbf.append('{');
+		if (this.prefixes.length > 0) {
+			sbf.append(this.prefixes[0]);
+			this.writeMembers(sbf, row);
+		}
+		sbf.append('}');
+	}
+
+	/**
+	 * append the value of the first field, followed by the remaining fields as
+	 * "name":value pairs. That is, a row without the braces and without the
+	 * name of its first field. Used to write fields into an object that is
+	 * already open, once its first name is written.
+	 *
+	 * @param sbf
+	 * @param row
+	 *            must have at least one field
+	 */
+	void writeMembers(final StringBuilder sbf, final Object[] row) {
+		for (int i = 0; i < this.prefixes.length; i++) {
+			if (i > 0) {
+				sbf.append(this.prefixes[i]);
+			}
+			final Object value = row[i];
+			if (value == null) {
+				sbf.append(NULL);
+			} else {
+				this.columnWriters[i].write(sbf, value);
+			}
+		}
+	}
+
+	/**
+	 * append rows as comma separated json objects to the buffer
+	 *
+	 * @param sbf
+	 * @param rows
+	 */
+	void writeRows(final StringBuilder sbf, final Object[][] rows) {
+		boolean first = true;
+		for (final Object[] row : rows) {
+			if (first) {
+				first = false;
+			} else {
+				sbf.append(',');
+			}
+			this.writeRow(sbf, row);
+		}
+	}
+
+	/**
+	 * append a value as a json string, escaping characters exactly the way
+	 * JsonWriter does with its default (non-html-safe) settings
+	 *
+	 * @param sbf
+	 * @param value
+	 */
+	static void appendString(final StringBuilder sbf, final String value) {
+		sbf.append('"');
+		int last = 0;
+		final int n = value.length();
+		for (int i = 0; i < n; i++) {
+			final char c = value.charAt(i);
+			String replacement;
+			if (c < 128) {
+				replacement = REPLACEMENTS[c];
+				if (replacement == null) {
+					continue;
+				}
+			} else if (c == '\u2028') {
+				replacement = "\\u2028";
+			} else if (c == '\u2029') {
+				replacement = "\\u2029";
+			} else {
+				continue;
+			}
+			if (last < i) {
+				sbf.append(value, last, i);
+			}
+			sbf.append(replacement);
+			last = i + 1;
+		}
+		if (last < n) {
+			sbf.append(value, last, n);
+		}
+		sbf.append('"');
+	}
+
+	/*
+	 * column writers. value is non-null. Values are expected to be of the
+	 * right type, but we fall back to the generic one if they are not
+	 */
+	@FunctionalInterface
+	private interface ColumnWriter {
+		void write(StringBuilder sbf, Object value);
+	}
+
+	private static ColumnWriter getColumnWriter(final ValueType vt) {
+		if (vt == null) {
+			return RowWriter::writeAny;
+		}
+		switch (vt) {
+		case Text:
+			return RowWriter::writeText;
+		case Integer:
+			return RowWriter::writeInteger;
+		case Decimal:
+			return RowWriter::writeDecimal;
+		case Boolean:
+			return RowWriter::writeBoolean;
+		default:
+			/*
+			 * date and time-stamp are written out as their toString()
+			 */
+			return RowWriter::writeAny;
+		}
+	}
+
+	private static void writeText(final StringBuilder sbf, final Object value) {
+		if (value instanceof String) {
+			appendString(sbf, (String) value);
+			return;
+		}
+		writeAny(sbf, value);
+	}
+
+	private static void writeInteger(final StringBuilder sbf, final Object value) {
+		if (value instanceof Long) {
+			sbf.append(((Long) value).longValue());
+			return;
+		}
+		writeAny(sbf, value);
+	}
+
+	private static void writeDecimal(final StringBuilder sbf, final Object value) {
+		if (value instanceof Double) {
+			final double d = ((Double) value).doubleValue();
+			checkNumber(d);
+			sbf.append(d);
+			return;
+		}
+		writeAny(sbf, value);
+	}
+
+	private static void writeBoolean(final StringBuilder sbf, final Object value) {
+		if (value instanceof Boolean) {
+			sbf.append(((Boolean) value).booleanValue());
+			return;
+		}
+		writeAny(sbf, value);
+	}
+
+	/*
+	 * same logic as JsonSerializer.primitiveObject()
+	 */
+	private static void writeAny(final StringBuilder sbf, final Object value) {
+		if (value instanceof Boolean) {
+			sbf.append(((Boolean) value).booleanValue());
+			return;
+		}
+
+		if (value instanceof Number) {
+			final String text = value.toString();
+			if (text.equals("-Infinity") || text.equals("Infinity") || text.equals("NaN")) {
+				throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+			}
+			sbf.append(text);
+			return;
+		}
+
+		appendString(sbf, value.toString());
+	}
+
+	private static void checkNumber(final double d) {
+		if (Double.isNaN(d) || Double.isInfinite(d)) {
+			throw new IllegalArgumentException("Numeric values must be finite, but was " + d);
+		}
+	}
+}
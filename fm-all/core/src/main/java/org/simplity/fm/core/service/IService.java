@@ -60,4 +60,14 @@ public interface IService {
 	 *         users
 	 */
 	boolean serveGuests();
+
+	/**
+	 * services that share a concurrency limit are put in the same group.
+	 *
+	 * @return name of the group for concurrency limits. null (default) if
+	 *         this service has a limit of its own, with its id as the name
+	 */
+	default String getConcurrencyGroup() {
+		return null;
+	}
 }
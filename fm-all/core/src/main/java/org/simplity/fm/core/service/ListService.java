@@ -22,17 +22,33 @@
 
 package org.simplity.fm.core.service;
 
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.simplity.fm.core.Conventions;
 import org.simplity.fm.core.Message;
 import org.simplity.fm.core.app.App;
+import org.simplity.fm.core.serialize.IInputArray;
 import org.simplity.fm.core.serialize.IInputObject;
 import org.simplity.fm.core.serialize.ISerializer;
+import org.simplity.fm.core.serialize.gson.JsonSerializer;
 import org.simplity.fm.core.validn.IValueList;
+import org.simplity.fm.core.validn.KeyedValueList;
+import org.simplity.fm.core.validn.ValueList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * handles request to get drop-down values for a field, typically from a client
+ * handles request to get drop-down values for a field, typically from a client.
+ * <br />
+ * payload is either {list:"listName", key:"keyValue"} for a single list, or
+ * {lists:[{list:"listName", key:"keyValue"},....]} for several lists in one
+ * go. Response is {list:[{value:v, text:t},...]} for a single list, and
+ * {lists:{listName:[...], "listName|keyValue":[...]}} for several lists. <br />
+ * Design-time lists (simple and keyed) never change. Their responses are
+ * rendered once and cached. Every response is tagged with an entity-tag so
+ * that the client can avoid downloading the same list again.
  *
  * @author simplity.org
  *
@@ -40,6 +56,12 @@ import org.slf4j.LoggerFactory;
 public class ListService implements IService {
 	private static final ListService instance = new ListService();
 	protected static final Logger logger = LoggerFactory.getLogger(ListService.class);
+	private static final char KEY_SEPARATOR = '|';
+	/*
+	 * rendered lists for design-time lists. indexed by listName or
+	 * listName|key
+	 */
+	private static final Map<String, Rendered> renderedLists = new ConcurrentHashMap<>();
 
 	/**
 	 *
@@ -60,55 +82,166 @@ public class ListService implements IService {
 
 	@Override
 	public void serve(final IServiceContext ctx, final IInputObject payload) throws Exception {
-		final String listName = payload.getString("list");
+		final IInputArray lists = payload.getArray(Conventions.Http.TAG_LISTS);
+		if (lists != null) {
+			serveMany(ctx, lists);
+			return;
+		}
+
+		final Rendered list = getRenderedList(ctx, payload);
+		if (list == null) {
+			return;
+		}
+
+		if (isNotModified(ctx, list.etag)) {
+			return;
+		}
+		final ISerializer writer = ctx.getSerializer();
+		writer.beginObject();
+		writer.name(Conventions.Http.TAG_LIST);
+		writer.serializedValue(list.json);
+		writer.endObject();
+	}
+
+	private static void serveMany(final IServiceContext ctx, final IInputArray lists) {
+		final int n = lists.length();
+		final String[] names = new String[n];
+		final Rendered[] rendered = new Rendered[n];
+		final StringBuilder tags = new StringBuilder();
+		int idx = 0;
+		for (final IInputObject obj : lists) {
+			final Rendered list = getRenderedList(ctx, obj);
+			if (list == null) {
+				return;
+			}
+			String name = obj.getString(Conventions.Http.TAG_LIST);
+			final String key = obj.getString(Conventions.Http.TAG_KEY);
+			if (key != null && key.isEmpty() == false) {
+				name += KEY_SEPARATOR + key;
+			}
+			names[idx] = name;
+			rendered[idx] = list;
+			tags.append(list.etag);
+			idx++;
+		}
+
+		if (isNotModified(ctx, Rendered.toEtag(tags.toString()))) {
+			return;
+		}
+
+		final ISerializer writer = ctx.getSerializer();
+		writer.beginObject();
+		writer.name(Conventions.Http.TAG_LISTS);
+		writer.beginObject();
+		for (int i = 0; i < n; i++) {
+			writer.name(names[i]);
+			writer.serializedValue(rendered[i].json);
+		}
+		writer.endObject();
+		writer.endObject();
+	}
+
+	/**
+	 * set the etag for the response, and check whether the client already has
+	 * this response
+	 */
+	private static boolean isNotModified(final IServiceContext ctx, final String etag) {
+		ctx.setValue(Conventions.Http.CTX_RESPONSE_ETAG, etag);
+		if (etag.equals(ctx.getValue(Conventions.Http.CTX_REQUEST_ETAG))) {
+			logger.info("Client has the latest version of the requested list/s");
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return null in case of any error. error message is added to the context
+	 */
+	private static Rendered getRenderedList(final IServiceContext ctx, final IInputObject payload) {
+		final String listName = payload.getString(Conventions.Http.TAG_LIST);
 		if (listName == null || listName.isEmpty()) {
 			ctx.addMessage(Message.newError("list is required for listService"));
-			return;
+			return null;
 		}
 		final IValueList list = App.getApp().getCompProvider().getValueList(listName);
 		if (list == null) {
 			ctx.addMessage(Message.newError("list " + listName + " is not configured"));
-			return;
+			return null;
 		}
 		String key = null;
+		String cacheKey = listName;
 		if (list.isKeyBased()) {
-			key = payload.getString("key");
+			key = payload.getString(Conventions.Http.TAG_KEY);
 			if (key == null || key.isEmpty()) {
-				ctx.addMessage(Message.newError("list " + listName + " requires value for key. But it is missing in the request"));
-				return;
+				ctx.addMessage(Message
+						.newError("list " + listName + " requires value for key. But it is missing in the request"));
+				return null;
 			}
+			cacheKey += KEY_SEPARATOR + key;
 		}
-		Object[][] result = list.getList(key, ctx);
+
+		/*
+		 * design-time lists do not change. render them only once
+		 */
+		final boolean isStatic = list instanceof ValueList || list instanceof KeyedValueList;
+		if (isStatic) {
+			final Rendered rendered = renderedLists.get(cacheKey);
+			if (rendered != null) {
+				return rendered;
+			}
+		}
+
+		final Object[][] result = list.getList(key, ctx);
 		if (result == null) {
 			ctx.addMessage(Message.newError("Error while getting values for list " + listName + " for key " + key));
-			result = new Object[0][];
-		}else  if (result.length == 0) {
-			logger.warn("List {} has no values for key {}. sending an empty response", listName, key);
+			return null;
 		}
-		writeOut(ctx.getSerializer(), result);
-	}
-
-	private static void writeOut(final ISerializer writer, final Object[][] rows) {
-		writer.beginObject();
-		writer.name(Conventions.Http.TAG_LIST);
-		writer.beginArray();
-		for (final Object[] row : rows) {
-			writer.beginObject();
 
-			writer.name("value");
-			writer.primitiveObject(row[0]);
-
-			writer.name("text");
-			writer.value(row[1].toString());
+		if (result.length == 0) {
+			logger.warn("List {} has no values for key {}. sending an empty response", listName, key);
+		}
 
-			writer.endObject();
+		final Rendered rendered = new Rendered(result);
+		if (isStatic) {
+			renderedLists.put(cacheKey, rendered);
 		}
-		writer.endArray();
-		writer.endObject();
+		return rendered;
 	}
 
 	@Override
 	public boolean serveGuests() {
 		return true;
 	}
+
+	/**
+	 * list rendered as a json array, along with its entity-tag
+	 */
+	private static class Rendered {
+		final String json;
+		final String etag;
+
+		Rendered(final Object[][] rows) {
+			final StringWriter sw = new StringWriter();
+			final ISerializer writer = new JsonSerializer(sw);
+			writer.beginArray();
+			for (final Object[] row : rows) {
+				writer.beginObject();
+
+				writer.name("value");
+				writer.primitiveObject(row[0]);
+
+				writer.name("text");
+				writer.value(row[1].toString());
+
+				writer.endObject();
+			}
+			writer.endArray();
+			this.json = sw.toString();
+			this.etag = toEtag(this.json);
+		}
+
+		static String toEtag(final String text) {
+			return "\"" + Integer.toHexString(text.hashCode()) + '-' + Integer.toHexString(text.length()) + '"';
+		}
+	}
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.trace;
+
+/**
+ * receives finished traces
+ *
+ * @author simplity.org
+ *
+ */
+@FunctionalInterface
+public interface ITraceSink {
+	/**
+	 * called on the request thread after the request is served. Hence it
+	 * should return quickly.
+	 *
+	 * @param trace
+	 *            root span of the finished trace
+	 */
+	void accept(Span trace);
+
+	/**
+	 * called on the request thread as and when a span is started. Spans that
+	 * are dropped because the trace is too long are not reported.
+	 *
+	 * @param span
+	 *            that is just started
+	 */
+	default void spanStarted(final Span span) {
+		// most sinks need only the finished trace
+	}
+
+	/**
+	 * called on the request thread as and when a span is closed, before its
+	 * parent is closed.
+	 *
+	 * @param span
+	 *            that is just closed
+	 */
+	default void spanEnded(final Span span) {
+		// most sinks need only the finished trace
+	}
+}
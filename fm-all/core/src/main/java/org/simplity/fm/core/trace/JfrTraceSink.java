@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.trace;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * emits every span as a JFR event, so that the traces can be analyzed along
+ * with other JFR data. The event begins when the span starts and is committed
+ * when the span is closed, so that JFR records the actual start and end of the
+ * span.<br />
+ * Requires a JVM with JFR (11+, or 8u262+). The event type is defined at run
+ * time with jdk.jfr.EventFactory, so that this module does not depend on JFR
+ * at compile time, and this sink can be configured on any JVM. It does nothing,
+ * except logging a warning when it is created, if JFR is not available.
+ *
+ * @author simplity.org
+ *
+ */
+public class JfrTraceSink implements ITraceSink {
+	private static final Logger logger = LoggerFactory.getLogger(JfrTraceSink.class);
+	private static final String JFR = "jdk.jfr.";
+	/**
+	 * name of the JFR event emitted for a span
+	 */
+	public static final String EVENT_NAME = "org.simplity.fm.Span";
+	/*
+	 * index of the fields of the event
+	 */
+	private static final int NAME = 0;
+	private static final int DETAIL = 1;
+	private static final int DEPTH = 2;
+
+	/*
+	 * jdk.jfr.EventFactory for the span events, and methods of jdk.jfr.Event.
+	 * factory is null if JFR is not available
+	 */
+	private final Object factory;
+	private final Method newEvent;
+	private final Method isEnabled;
+	private final Method begin;
+	private final Method end;
+	private final Method shouldCommit;
+	private final Method commit;
+	private final Method set;
+
+	/**
+	 * default constructor
+	 */
+	public JfrTraceSink() {
+		Object f = null;
+		Method[] methods = new Method[7];
+		try {
+			f = createFactory();
+			final Class<?> eventClass = Class.forName(JFR + "Event");
+			methods = new Method[] { f.getClass().getMethod("newEvent"), eventClass.getMethod("isEnabled"),
+					eventClass.getMethod("begin"), eventClass.getMethod("end"), eventClass.getMethod("shouldCommit"),
+					eventClass.getMethod("commit"), eventClass.getMethod("set", int.class, Object.class) };
+		} catch (final Exception | LinkageError e) {
+			logger.warn("JFR is not available in this JVM ({}). JfrTraceSink will not record any spans.",
+					e.getMessage());
+			f = null;
+		}
+		this.factory = f;
+		this.newEvent = methods[0];
+		this.isEnabled = methods[1];
+		this.begin = methods[2];
+		this.end = methods[3];
+		this.shouldCommit = methods[4];
+		this.commit = methods[5];
+		this.set = methods[6];
+	}
+
+	/**
+	 *
+	 * @return true if this JVM supports JFR events
+	 */
+	public static boolean isAvailable() {
+		try {
+			Class.forName(JFR + "EventFactory", false, JfrTraceSink.class.getClassLoader());
+			return true;
+		} catch (final ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	@Override
+	public void spanStarted(final Span span) {
+		if (this.factory == null) {
+			return;
+		}
+		try {
+			final Object event = this.newEvent.invoke(this.factory);
+			if ((Boolean) this.isEnabled.invoke(event) == false) {
+				return;
+			}
+			this.set.invoke(event, NAME, span.getName());
+			this.set.invoke(event, DEPTH, span.getDepth());
+			this.begin.invoke(event);
+			span.sinkState = event;
+		} catch (final ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public void spanEnded(final Span span) {
+		final Object event = span.sinkState;
+		if (this.factory == null || event == null) {
+			return;
+		}
+		span.sinkState = null;
+		try {
+			this.end.invoke(event);
+			if ((Boolean) this.shouldCommit.invoke(event)) {
+				// detail may have been set after the span started
+				this.set.invoke(event, DETAIL, span.getDetail());
+				this.commit.invoke(event);
+			}
+		} catch (final ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public void accept(final Span trace) {
+		// spans are already committed as they are closed
+	}
+
+	/*
+	 * EventFactory.create(annotations, fields) for the span event
+	 */
+	private static Object createFactory() throws ReflectiveOperationException {
+		final List<Object> annotations = new ArrayList<>();
+		annotations.add(newAnnotation("Name", EVENT_NAME));
+		annotations.add(newAnnotation("Label", "Span"));
+		annotations.add(newAnnotation("Category", new String[] { "Simplity" }));
+		annotations.add(newAnnotation("Description", "A timed section of a request"));
+
+		final Class<?> vdClass = Class.forName(JFR + "ValueDescriptor");
+		final Constructor<?> vd = vdClass.getConstructor(Class.class, String.class, List.class);
+		final List<Object> fields = Arrays.asList(
+				vd.newInstance(String.class, "name", Collections.singletonList(newAnnotation("Label", "Name"))),
+				vd.newInstance(String.class, "detail", Collections.singletonList(newAnnotation("Label", "Detail"))),
+				vd.newInstance(int.class, "depth", Collections.singletonList(newAnnotation("Label", "Depth"))));
+
+		return Class.forName(JFR + "EventFactory").getMethod("create", List.class, List.class).invoke(null,
+				annotations, fields);
+	}
+
+	private static Object newAnnotation(final String annotationName, final Object value)
+			throws ReflectiveOperationException {
+		final Class<? extends Annotation> cls = Class.forName(JFR + annotationName).asSubclass(Annotation.class);
+		return Class.forName(JFR + "AnnotationElement").getConstructor(Class.class, Object.class).newInstance(cls,
+				value);
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.trace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * keeps the last n traces in memory. older traces are over-written by newer
+ * ones. Each trace holds at most Tracer.MAX_SPANS_PER_TRACE spans.
+ *
+ * @author simplity.org
+ *
+ */
+public class RingBufferTraceSink implements ITraceSink {
+	private final AtomicReferenceArray<Span> traces;
+	private final AtomicLong nbrReceived = new AtomicLong();
+
+	/**
+	 *
+	 * @param capacity
+	 *            number of traces to be retained
+	 */
+	public RingBufferTraceSink(final int capacity) {
+		this.traces = new AtomicReferenceArray<>(capacity);
+	}
+
+	@Override
+	public void accept(final Span trace) {
+		final long n = this.nbrReceived.getAndIncrement();
+		this.traces.set((int) (n % this.traces.length()), trace);
+	}
+
+	/**
+	 *
+	 * @return traces that are retained, latest first
+	 */
+	public List<Span> getTraces() {
+		final int capacity = this.traces.length();
+		final long n = this.nbrReceived.get();
+		final int nbr = (int) Math.min(n, capacity);
+		final List<Span> list = new ArrayList<>(nbr);
+		for (int i = 1; i <= nbr; i++) {
+			final Span span = this.traces.get((int) ((n - i) % capacity));
+			if (span != null) {
+				list.add(span);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 *
+	 * @return number of traces received so far
+	 */
+	public long getNbrReceived() {
+		return this.nbrReceived.get();
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.trace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * a timed section of a request. Spans form a tree, with the root span
+ * representing the request itself. A span is started with Tracer, and MUST be
+ * closed on the same thread, preferably with a try-with-resources
+ * statement.<br />
+ * A span is not thread-safe, and is not meant to be shared across threads.
+ *
+ * @author simplity.org
+ *
+ */
+public class Span implements AutoCloseable {
+	/**
+	 * returned when tracing is not active. Does nothing.
+	 */
+	static final Span NOOP = new Span("noop", null, null);
+
+	private final String name;
+	private final Span parent;
+	private final Span root;
+	private final long startedAt = System.nanoTime();
+	private final long startedAtMillis = System.currentTimeMillis();
+	private String detail;
+	private long elapsedNanos = -1;
+	private List<Span> children;
+	/*
+	 * kept on the root span: number of spans in this trace, and the number of
+	 * spans that were not recorded because the trace had reached its limit
+	 */
+	private int nbrSpans = 1;
+	private int nbrDropped;
+	/**
+	 * for the exclusive use of the sink, to keep its state between the start
+	 * and the end of this span
+	 */
+	Object sinkState;
+
+	Span(final String name, final String detail, final Span parent) {
+		this.name = name;
+		this.detail = detail;
+		this.parent = parent;
+		this.root = parent == null ? this : parent.root;
+	}
+
+	/**
+	 * account for a child span to be added to this trace
+	 *
+	 * @param maxSpans
+	 * @return true if the trace has room for one more span. false if the
+	 *         span is to be dropped
+	 */
+	boolean reserve(final int maxSpans) {
+		final Span r = this.root;
+		if (r.nbrSpans >= maxSpans) {
+			r.nbrDropped++;
+			return false;
+		}
+		r.nbrSpans++;
+		return true;
+	}
+
+	@Override
+	public void close() {
+		if (this == NOOP || this.elapsedNanos != -1) {
+			return;
+		}
+		this.elapsedNanos = System.nanoTime() - this.startedAt;
+		Tracer.ended(this);
+	}
+
+	/**
+	 * set/reset detail. useful when the detail is known only after starting
+	 * the span
+	 *
+	 * @param detail
+	 */
+	public void setDetail(final String detail) {
+		if (this != NOOP) {
+			this.detail = detail;
+		}
+	}
+
+	void addChild(final Span child) {
+		if (this.children == null) {
+			this.children = new ArrayList<>();
+		}
+		this.children.add(child);
+	}
+
+	/**
+	 *
+	 * @return name of this span
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 *
+	 * @return detail, like the service name or the sql. could be null
+	 */
+	public String getDetail() {
+		return this.detail;
+	}
+
+	/**
+	 *
+	 * @return parent span. null if this is the root span
+	 */
+	public Span getParent() {
+		return this.parent;
+	}
+
+	/**
+	 *
+	 * @return number of levels above this span. 0 for the root span
+	 */
+	public int getDepth() {
+		int depth = 0;
+		for (Span p = this.parent; p != null; p = p.parent) {
+			depth++;
+		}
+		return depth;
+	}
+
+	/**
+	 *
+	 * @return number of spans that were not recorded in this trace because it
+	 *         had reached its limit
+	 */
+	public int getNbrDropped() {
+		return this.root.nbrDropped;
+	}
+
+	/**
+	 *
+	 * @return epoch milli-seconds at which this span started
+	 */
+	public long getStartedAt() {
+		return this.startedAtMillis;
+	}
+
+	/**
+	 *
+	 * @return nano-seconds elapsed from the start to the end of this span. -1
+	 *         if the span is not closed yet
+	 */
+	public long getElapsedNanos() {
+		return this.elapsedNanos;
+	}
+
+	/**
+	 *
+	 * @return non-null list of child spans. could be empty
+	 */
+	public List<Span> getChildren() {
+		if (this.children == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(this.children);
+	}
+
+	/**
+	 * render this span and its children as indented lines. useful for logging
+	 *
+	 * @param sbf
+	 * @param indent
+	 *            number of tabs to indent this span with
+	 */
+	public void appendTo(final StringBuilder sbf, final int indent) {
+		for (int i = 0; i < indent; i++) {
+			sbf.append('\t');
+		}
+		sbf.append(this.name).append(' ').append(this.elapsedNanos / 1000).append("us");
+		if (this.detail != null) {
+			sbf.append(' ').append(this.detail);
+		}
+		sbf.append('\n');
+		if (this.children != null) {
+			for (final Span child : this.children) {
+				child.appendTo(sbf, indent + 1);
+			}
+		}
+		if (this.parent == null && this.nbrDropped > 0) {
+			sbf.append('\t').append(this.nbrDropped).append(" more spans were dropped\n");
+		}
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sbf = new StringBuilder();
+		this.appendTo(sbf, 0);
+		return sbf.toString();
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * starts spans for the current thread. A trace is started by Agent for every
+ * request. Other components just start child spans, which are ignored if no
+ * trace is active on the current thread. Finished traces are sent to the
+ * configured sink.<br />
+ * Tracing is disabled unless a sink is set. A trace records at most
+ * MAX_SPANS_PER_TRACE spans, so that a request that runs a large number of
+ * sqls does not hold on to an equally large trace. Spans beyond that are
+ * only counted.
+ *
+ * @author simplity.org
+ *
+ */
+public class Tracer {
+	private static final Logger logger = LoggerFactory.getLogger(Tracer.class);
+	/**
+	 * maximum number of spans, including the root, that are recorded in a
+	 * trace
+	 */
+	public static final int MAX_SPANS_PER_TRACE = 1000;
+	private static final ThreadLocal<Span> currentSpan = new ThreadLocal<>();
+	private static volatile ITraceSink sink;
+
+	private Tracer() {
+		// static methods only
+	}
+
+	/**
+	 *
+	 * @param traceSink
+	 *            sink to which finished traces are to be sent. null to disable
+	 *            tracing.
+	 */
+	public static void setSink(final ITraceSink traceSink) {
+		sink = traceSink;
+	}
+
+	/**
+	 *
+	 * @return current sink. null if tracing is disabled, which is the default
+	 */
+	public static ITraceSink getSink() {
+		return sink;
+	}
+
+	/**
+	 * start a trace for the current thread. Any trace that is active on this
+	 * thread is abandoned.
+	 *
+	 * @param name
+	 * @return root span that MUST be closed at the end of the request.
+	 */
+	public static Span startTrace(final String name) {
+		final ITraceSink s = sink;
+		if (s == null) {
+			return Span.NOOP;
+		}
+		final Span span = new Span(name, null, null);
+		currentSpan.set(span);
+		started(s, span);
+		return span;
+	}
+
+	/**
+	 * start a child span of the current span.
+	 *
+	 * @param name
+	 * @return span that MUST be closed. A no-op span if no trace is active
+	 */
+	public static Span startSpan(final String name) {
+		return startSpan(name, null);
+	}
+
+	/**
+	 * start a child span of the current span.
+	 *
+	 * @param name
+	 * @param detail
+	 *            like sql, or any other text that helps in analyzing
+	 * @return span that MUST be closed. A no-op span if no trace is active
+	 */
+	public static Span startSpan(final String name, final String detail) {
+		final Span parent = currentSpan.get();
+		if (parent == null || parent.reserve(MAX_SPANS_PER_TRACE) == false) {
+			return Span.NOOP;
+		}
+		final Span span = new Span(name, detail, parent);
+		parent.addChild(span);
+		currentSpan.set(span);
+		started(sink, span);
+		return span;
+	}
+
+	private static void started(final ITraceSink s, final Span span) {
+		if (s == null) {
+			return;
+		}
+		try {
+			s.spanStarted(span);
+		} catch (final Exception e) {
+			logger.error("Trace sink threw an exception : {}", e.getMessage());
+		}
+	}
+
+	static void ended(final Span span) {
+		final ITraceSink s = sink;
+		final Span parent = span.getParent();
+		if (parent != null) {
+			currentSpan.set(parent);
+		} else {
+			currentSpan.remove();
+		}
+		if (s == null) {
+			return;
+		}
+		try {
+			s.spanEnded(span);
+			if (parent == null) {
+				s.accept(span);
+			}
+		} catch (final Exception e) {
+			logger.error("Trace sink threw an exception : {}", e.getMessage());
+		}
+	}
+}
@@ -89,7 +89,8 @@ public interface IValueList {
 	 * @return map with key = keyName|displayText and value = internal value.
 	 *         e.g if keyId=91. keyName=India, internalValue=KA
 	 *         displyaText=Karnataka, then we will have an entry with
-	 *         key="India|Karnataka" and value="KA"
+	 *         key="India|Karnataka" and value="KA". Generated lists return
+	 *         the same unmodifiable map on every call
 	 */
 	Map<String, String> getAll(IServiceContext ctx);
 }
@@ -22,6 +22,7 @@
 
 package org.simplity.fm.core.validn;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -40,6 +41,11 @@ public class KeyedValueList implements IValueList {
 	protected static final Logger logger = LoggerFactory.getLogger(KeyedValueList.class);
 	protected String name;
 	protected Map<Object, ValueList> values = new HashMap<>();
+	/*
+	 * built on first use, as values are set by the sub-class after this
+	 * constructor
+	 */
+	private volatile Map<String, String> all;
 
 	@Override
 	public boolean isValid(final Object fieldValue, final Object keyValue, final IServiceContext ctx) {
@@ -77,6 +83,15 @@ public class KeyedValueList implements IValueList {
 
 	@Override
 	public Map<String, String> getAll(final IServiceContext ctx) {
+		Map<String, String> map = this.all;
+		if (map == null) {
+			map = this.buildAll();
+			this.all = map;
+		}
+		return map;
+	}
+
+	private Map<String, String> buildAll() {
 		final Map<String, String> result = new HashMap<>();
 		for (final Map.Entry<Object, ValueList> entry : this.values.entrySet()) {
 			final String key = entry.getKey().toString() + '|';
@@ -84,6 +99,6 @@ public class KeyedValueList implements IValueList {
 				result.put(key + row[1].toString(), row[0].toString());
 			}
 		}
-		return result;
+		return Collections.unmodifiableMap(result);
 	}
 }
\ No newline at end of file
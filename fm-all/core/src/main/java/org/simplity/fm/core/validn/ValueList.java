@@ -22,6 +22,8 @@
 
 package org.simplity.fm.core.validn;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -49,6 +51,18 @@ public class ValueList implements IValueList {
 	 * second one always is text
 	 */
 	protected Object[][] valueList;
+	/*
+	 * sorted values, if every value in the list is a number. null otherwise
+	 */
+	private final long[] numbers;
+	/*
+	 * text values, in case this is not a numeric list
+	 */
+	private final Set<String> texts;
+	/*
+	 * built once, as it is used once for every cell in an upload
+	 */
+	private final Map<String, String> all;
 
 	/**
 	 *
@@ -61,8 +75,31 @@ public class ValueList implements IValueList {
 		this.name = name;
 		this.valueList = valueList;
 		this.values = new HashSet<>();
+		final Map<String, String> map = new HashMap<>();
+		boolean allNumbers = true;
 		for (final Object[] arr : valueList) {
 			this.values.add(arr[0]);
+			map.put(arr[1].toString(), arr[0].toString());
+			if (arr[0] instanceof Number == false) {
+				allNumbers = false;
+			}
+		}
+		this.all = Collections.unmodifiableMap(map);
+
+		if (allNumbers) {
+			this.texts = null;
+			this.numbers = new long[valueList.length];
+			for (int i = 0; i < this.numbers.length; i++) {
+				this.numbers[i] = ((Number) valueList[i][0]).longValue();
+			}
+			Arrays.sort(this.numbers);
+			return;
+		}
+
+		this.numbers = null;
+		this.texts = new HashSet<>();
+		for (final Object[] arr : valueList) {
+			this.texts.add(arr[0].toString());
 		}
 	}
 
@@ -78,13 +115,39 @@ public class ValueList implements IValueList {
 
 	@Override
 	public boolean isValid(final Object fieldValue, final Object keyValue, final IServiceContext ctx) {
-		final boolean ok = this.values.contains(fieldValue.toString());
+		final boolean ok = this.isMember(fieldValue);
 		if (!ok) {
 			logger.error("{} is not found in list {}", fieldValue, this.name);
 		}
 		return ok;
 	}
 
+	/**
+	 * is this value one of the values in this list? Generated lists override
+	 * this with a check that is specific to their values
+	 *
+	 * @param fieldValue
+	 *            non-null. Typically String or Long
+	 * @return true if it is in the list
+	 */
+	protected boolean isMember(final Object fieldValue) {
+		if (this.numbers == null) {
+			return this.texts.contains(fieldValue.toString());
+		}
+
+		final long n;
+		if (fieldValue instanceof Number) {
+			n = ((Number) fieldValue).longValue();
+		} else {
+			try {
+				n = Long.parseLong(fieldValue.toString().trim());
+			} catch (final NumberFormatException e) {
+				return false;
+			}
+		}
+		return Arrays.binarySearch(this.numbers, n) >= 0;
+	}
+
 	@Override
 	public Object[][] getList(final Object keyValue, final IServiceContext ctx) {
 		return this.valueList;
@@ -92,10 +155,6 @@ public class ValueList implements IValueList {
 
 	@Override
 	public Map<String, String> getAll(final IServiceContext ctx) {
-		final Map<String, String> result = new HashMap<>();
-		for (final Object[] row : this.valueList) {
-			result.put(row[1].toString(), row[0].toString());
-		}
-		return result;
+		return this.all;
 	}
 }
\ No newline at end of file
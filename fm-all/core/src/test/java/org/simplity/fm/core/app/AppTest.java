@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.app;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.simplity.fm.core.trace.ITraceSink;
+import org.simplity.fm.core.trace.RingBufferTraceSink;
+import org.simplity.fm.core.trace.Tracer;
+
+/**
+ * @author simplity.org
+ *
+ */
+public class AppTest {
+	private final ITraceSink originalSink = Tracer.getSink();
+
+	@AfterEach
+	void restore() {
+		Tracer.setSink(this.originalSink);
+	}
+
+	private static App.Config newConfig() {
+		final App.Config config = new App.Config();
+		config.appName = "test";
+		config.appRootPackage = "org.simplity.fm.core.testapp";
+		return config;
+	}
+
+	@Test
+	void outboxRequiresADb() {
+		final App.Config config = newConfig();
+		config.outboxTableName = "outbox";
+		assertThrows(ApplicationError.class, () -> App.configureApp(config));
+	}
+
+	@Test
+	void traceSinkIsReplacedOnReconfiguration() {
+		final App.Config config = newConfig();
+		config.traceSink = new RingBufferTraceSink(2);
+		App.configureApp(config);
+		assertSame(config.traceSink, Tracer.getSink());
+
+		App.configureApp(newConfig());
+		assertNull(Tracer.getSink(), "tracing is to be off when no sink is configured");
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.conf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import org.simplity.fm.core.conf.AsyncRequestLogger.OverflowPolicy;
+
+/**
+ * @author simplity.org
+ *
+ */
+public class AsyncRequestLoggerTest {
+
+	@Test
+	void allEntriesAreWrittenOnClose() throws InterruptedException {
+		final List<String> written = new ArrayList<>();
+		final AsyncRequestLogger reqLogger = new AsyncRequestLogger(entries -> {
+			for (final AsyncRequestLogger.Entry e : entries) {
+				written.add(e.getServiceName() + ':' + e.getInput());
+			}
+		}, 1024, 10, 1, OverflowPolicy.dropNewest);
+
+		final int nbrThreads = 4;
+		final int nbrPerThread = 200;
+		final Thread[] threads = new Thread[nbrThreads];
+		for (int i = 0; i < nbrThreads; i++) {
+			final String service = "s" + i;
+			threads[i] = new Thread(() -> {
+				for (int j = 0; j < nbrPerThread; j++) {
+					reqLogger.logInput("u", service, j);
+				}
+			});
+			threads[i].start();
+		}
+		for (final Thread t : threads) {
+			t.join();
+		}
+		reqLogger.close();
+
+		final long total = nbrThreads * nbrPerThread;
+		assertEquals(total, reqLogger.getNbrAccepted() + reqLogger.getNbrDropped());
+		assertEquals(reqLogger.getNbrAccepted(), reqLogger.getNbrWritten());
+		assertEquals(reqLogger.getNbrWritten(), written.size());
+		assertEquals(0, reqLogger.getBacklog());
+	}
+
+	@Test
+	void entriesAfterCloseAreDropped() {
+		final List<String> written = new ArrayList<>();
+		final AsyncRequestLogger reqLogger = new AsyncRequestLogger(entries -> {
+			for (final AsyncRequestLogger.Entry e : entries) {
+				written.add(e.getServiceName());
+			}
+		}, 16, 10, 1, OverflowPolicy.dropNewest);
+		reqLogger.logInput("u", "before", null);
+		reqLogger.close();
+		reqLogger.logInput("u", "after", null);
+
+		assertEquals(1, reqLogger.getNbrAccepted());
+		assertEquals(1, reqLogger.getNbrDropped());
+		assertEquals("[before]", written.toString());
+		assertEquals(0, reqLogger.getBacklog());
+	}
+
+	@Test
+	void overflowPolicies() throws InterruptedException {
+		assertEquals("[2, 3]", this.fillUp(OverflowPolicy.dropOldest));
+		assertEquals("[0, 1]", this.fillUp(OverflowPolicy.dropNewest));
+	}
+
+	private String fillUp(final OverflowPolicy policy) throws InterruptedException {
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<String> written = new ArrayList<>();
+		final AsyncRequestLogger reqLogger = new AsyncRequestLogger(entries -> {
+			for (final AsyncRequestLogger.Entry e : entries) {
+				if ("block".equals(e.getServiceName())) {
+					blocked.countDown();
+					release.await();
+				} else {
+					written.add(e.getInput());
+				}
+			}
+		}, 2, 1, 1, policy);
+
+		// keep the writer busy so that the buffer fills up
+		reqLogger.logInput("u", "block", null);
+		blocked.await();
+		for (int i = 0; i < 4; i++) {
+			reqLogger.logInput("u", "s", i);
+		}
+		assertEquals(2, reqLogger.getNbrDropped());
+		release.countDown();
+		reqLogger.close();
+		return written.toString();
+	}
+}
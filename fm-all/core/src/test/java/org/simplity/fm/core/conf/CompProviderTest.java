@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.conf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+import org.simplity.fm.core.conf.testapp.gen.DefinedComponents;
+import org.simplity.fm.core.validn.IValueList;
+
+/**
+ * @author simplity.org
+ *
+ */
+public class CompProviderTest {
+	private static final String ROOT = "org.simplity.fm.core.conf.testapp";
+
+	@Test
+	void componentsAreUsedWhenGenerated() {
+		final CompProvider provider = CompProvider.getPrivider(ROOT);
+		assertNotNull(provider);
+
+		final int nbr = DefinedComponents.nbrLists;
+		final IValueList list = provider.getValueList("gender");
+		assertNotNull(list);
+		assertSame(list, provider.getValueList("gender"), "list is to be cached");
+		assertEquals(nbr + 1, DefinedComponents.nbrLists);
+
+		assertNull(provider.getValueList("religion"));
+		assertNull(provider.getRecord("student"));
+		assertNull(provider.getForm("student"));
+	}
+}
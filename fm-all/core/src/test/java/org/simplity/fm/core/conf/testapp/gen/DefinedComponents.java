@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.conf.testapp.gen;
+
+import org.simplity.fm.core.IComponents;
+import org.simplity.fm.core.data.Form;
+import org.simplity.fm.core.data.Record;
+import org.simplity.fm.core.validn.IValueList;
+import org.simplity.fm.core.validn.ValueList;
+
+/**
+ * stands in for the generated components of an app
+ *
+ * @author simplity.org
+ *
+ */
+public class DefinedComponents implements IComponents {
+	/**
+	 * number of lists created
+	 */
+	public static int nbrLists;
+
+	@Override
+	public Form<?> newForm(final String formName) {
+		return null;
+	}
+
+	@Override
+	public Record newRecord(final String recordName) {
+		return null;
+	}
+
+	@Override
+	public IValueList newValueList(final String listName) {
+		switch (listName) {
+		case "gender":
+			nbrLists++;
+			return new ValueList(listName, new Object[][] { { "M", "Male" }, { "F", "Female" } });
+		default:
+			return null;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.simplity.fm.core.data.DbaFixture.INT;
+import static org.simplity.fm.core.data.DbaFixture.TEXT;
+import static org.simplity.fm.core.data.DbaFixture.field;
+import static org.simplity.fm.core.data.DbaFixture.input;
+
+import org.junit.jupiter.api.Test;
+import org.simplity.fm.core.datatypes.DecimalType;
+import org.simplity.fm.core.datatypes.ValueType;
+import org.simplity.fm.core.service.IServiceContext;
+
+/**
+ * @author simplity.org
+ *
+ */
+public class AggregateTest {
+	private static final DecimalType AMOUNT = new DecimalType("amount", null, 0, 1000000, 2);
+	private static final Field[] FIELDS = { field(0, "id", "id", INT, FieldType.PrimaryKey),
+			field(1, "city", "city", TEXT, FieldType.OptionalData),
+			field(2, "amount", "amount", AMOUNT, FieldType.OptionalData),
+			field(3, "qty", "qty", INT, FieldType.OptionalData) };
+
+	private static Dba newDba() {
+		return DbaFixture.newDba("orders", FIELDS);
+	}
+
+	@Test
+	void noGroupsOrAggregatesMeansCount() {
+		final ParsedAggregate agg = newDba().parseAggregate(
+				input("{\"conditions\":{\"city\":{\"comp\":\"=\",\"value\":\"Mysore\"}}}"), mock(IServiceContext.class));
+		assertTrue(agg.isCountOnly());
+		assertEquals("SELECT COUNT(*) FROM orders WHERE city = ?", agg.getSql());
+		assertArrayEquals(new Object[] { "Mysore" }, agg.getParamValues());
+	}
+
+	@Test
+	void groupsAndAggregatesShouldBuildGroupBy() {
+		final String json = "{\"groupBy\":\"city\", \"aggregates\":{\"total\":{\"fn\":\"sum\",\"field\":\"amount\"},"
+				+ "\"avgQty\":{\"fn\":\"avg\",\"field\":\"qty\"},\"nbr\":{\"fn\":\"count\"}}}";
+		final ParsedAggregate agg = newDba().parseAggregate(input(json), mock(IServiceContext.class));
+		assertFalse(agg.isCountOnly());
+		assertEquals("SELECT city, SUM(amount), AVG(qty), COUNT(*) FROM orders GROUP BY city", agg.getSql());
+		assertArrayEquals(new String[] { "city", "total", "avgQty", "nbr" }, agg.getOutputNames());
+		assertArrayEquals(new ValueType[] { ValueType.Text, ValueType.Decimal, ValueType.Decimal, ValueType.Integer },
+				agg.getOutputTypes());
+		assertNull(agg.getParamValues());
+	}
+
+	@Test
+	void invalidAggregatesShouldFail() {
+		final IServiceContext ctx = mock(IServiceContext.class);
+		final Dba dba = newDba();
+		assertNull(dba.parseAggregate(input("{\"groupBy\":\"town\"}"), ctx));
+		assertNull(dba.parseAggregate(input("{\"aggregates\":{\"x\":{\"fn\":\"median\",\"field\":\"qty\"}}}"), ctx));
+		assertNull(dba.parseAggregate(input("{\"aggregates\":{\"x\":{\"fn\":\"sum\",\"field\":\"city\"}}}"), ctx));
+		assertNull(dba.parseAggregate(input("{\"aggregates\":{\"x\":{\"fn\":\"max\"}}}"), ctx));
+	}
+
+	@Test
+	void aggregateIsAllowedWithFilterForOlderArrays() {
+		assertTrue(IoType.Aggregate.isAllowed(new boolean[] { false, false, false, false, true }));
+		assertFalse(IoType.Aggregate.isAllowed(new boolean[] { true, true, true, true, false }));
+		assertFalse(IoType.Aggregate.isAllowed(new boolean[] { true, true, true, true, true, false }));
+	}
+}
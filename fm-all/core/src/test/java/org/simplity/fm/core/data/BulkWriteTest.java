@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.simplity.fm.core.data.DbaFixture.INT;
+import static org.simplity.fm.core.data.DbaFixture.TEXT;
+import static org.simplity.fm.core.data.DbaFixture.ctx;
+import static org.simplity.fm.core.data.DbaFixture.customer;
+import static org.simplity.fm.core.data.DbaFixture.field;
+import static org.simplity.fm.core.data.DbaFixture.input;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.simplity.fm.core.rdb.IDbWriter;
+import org.simplity.fm.core.rdb.ReadWriteHandle;
+
+/**
+ * @author simplity.org
+ *
+ */
+public class BulkWriteTest {
+	private static final Field[] FIELDS = customer(field(3, "tenant", "tenant_id", INT, FieldType.TenantKey),
+			field(4, "modifiedBy", "modified_by", INT, FieldType.ModifiedBy),
+			field(5, "modifiedAt", "modified_at", TEXT, FieldType.ModifiedAt));
+
+	private static Dba newDba() {
+		return DbaFixture.newDba("customer", FIELDS);
+	}
+
+	private static ReadWriteHandle capture(final List<String> sqls, final PreparedStatement ps)
+			throws SQLException {
+		return DbaFixture.capture(sqls, ps, 3);
+	}
+
+	@Test
+	void updateShouldBeOneSqlWithTenantAndAudit() throws SQLException {
+		final List<String> sqls = new ArrayList<>();
+		final PreparedStatement ps = mock(PreparedStatement.class);
+		final int n = newDba().updateWhere(capture(sqls, ps),
+				input("{\"conditions\":{\"city\":{\"comp\":\"=\",\"value\":\"Mysore\"}}, \"values\":{\"city\":\"Mysuru\"}}"),
+				ctx());
+		assertEquals(3, n);
+		assertEquals(
+				"UPDATE customer SET city=?, modified_by=?, modified_at=CURRENT_TIMESTAMP WHERE tenant_id=? and city = ?",
+				sqls.get(0));
+		verify(ps).setString(1, "Mysuru");
+		verify(ps).setLong(2, 42L);
+		verify(ps).setLong(3, 7L);
+		verify(ps).setString(4, "Mysore");
+	}
+
+	@Test
+	void deleteShouldBeOneSqlWithTenant() throws SQLException {
+		final List<String> sqls = new ArrayList<>();
+		final PreparedStatement ps = mock(PreparedStatement.class);
+		final int n = newDba().deleteWhere(capture(sqls, ps),
+				input("{\"conditions\":{\"id\":{\"comp\":\"@\",\"value\":\"1,2\"}}}"), ctx());
+		assertEquals(3, n);
+		assertEquals("DELETE FROM customer WHERE tenant_id=? and id IN (?,?)", sqls.get(0));
+		verify(ps).setLong(1, 7L);
+		verify(ps).setLong(3, 2L);
+	}
+
+	@Test
+	void bulkOperationsNeedConditionsAndUpdatableFields() throws SQLException {
+		final ReadWriteHandle handle = mock(ReadWriteHandle.class);
+		final Dba dba = newDba();
+		assertEquals(-1, dba.deleteWhere(handle, input("{}"), ctx()));
+		assertEquals(-1, dba.updateWhere(handle, input("{\"values\":{\"city\":\"x\"}}"), ctx()));
+		assertEquals(-1, dba.updateWhere(handle,
+				input("{\"conditions\":{\"city\":{\"comp\":\"=\",\"value\":\"a\"}}, \"values\":{\"id\":\"3\"}}"),
+				ctx()));
+		assertEquals(-1, dba.updateWhere(handle,
+				input("{\"conditions\":{\"city\":{\"comp\":\"=\",\"value\":\"a\"}}, \"values\":{\"tenant\":\"3\"}}"),
+				ctx()));
+		verify(handle, never()).write(any(IDbWriter.class));
+	}
+
+	@Test
+	void unknownConditionFieldShouldNotWidenToWholeTenant() throws SQLException {
+		final ReadWriteHandle handle = mock(ReadWriteHandle.class);
+		final Dba dba = newDba();
+		assertEquals(-1, dba.deleteWhere(handle,
+				input("{\"conditions\":{\"cityy\":{\"comp\":\"=\",\"value\":\"Mysore\"}}}"), ctx()));
+		assertEquals(-1, dba.updateWhere(handle, input(
+				"{\"conditions\":{\"cityy\":{\"comp\":\"=\",\"value\":\"Mysore\"}}, \"values\":{\"city\":\"x\"}}"),
+				ctx()));
+		assertEquals(-1, dba.deleteWhere(handle, input(
+				"{\"conditions\":{\"city\":{\"comp\":\"=\",\"value\":\"a\"},\"cityy\":{\"comp\":\"=\",\"value\":\"b\"}}}"),
+				ctx()));
+		verify(handle, never()).write(any(IDbWriter.class));
+	}
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.data;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.simplity.fm.core.datatypes.DataType;
+import org.simplity.fm.core.datatypes.IntegerType;
+import org.simplity.fm.core.datatypes.TextType;
+import org.simplity.fm.core.rdb.IDbWriter;
+import org.simplity.fm.core.rdb.ReadWriteHandle;
+import org.simplity.fm.core.serialize.gson.JsonInputObject;
+import org.simplity.fm.core.service.IServiceContext;
+
+import com.google.gson.JsonParser;
+
+/**
+ * test fixture shared by the tests for Dba. SQLs are built from the fields the
+ * same way the generator emits them for a record, so that a change in the shape
+ * of the generated SQL is made here, and only here.
+ *
+ * @author simplity.org
+ *
+ */
+final class DbaFixture {
+	static final IntegerType INT = new IntegerType("int", null, 0, Long.MAX_VALUE);
+	static final TextType TEXT = new TextType("text", null, 0, 100, null);
+	/**
+	 * tenant id returned by ctx()
+	 */
+	static final long TENANT = 7L;
+	/**
+	 * user id returned by ctx()
+	 */
+	static final long USER = 42L;
+
+	private DbaFixture() {
+		// static members only
+	}
+
+	/**
+	 * @param index
+	 * @param name
+	 * @param column
+	 * @param type
+	 * @param fieldType
+	 * @return db field with no default, message or list
+	 */
+	static DbField field(final int index, final String name, final String column, final DataType type,
+			final FieldType fieldType) {
+		return new DbField(name, index, type, null, null, null, column, fieldType);
+	}
+
+	/**
+	 * @param extra
+	 *            fields to be added after id, name and city. Their indexes
+	 *            must start at 3
+	 * @return fields of the customer table: id, name, city followed by extra
+	 */
+	static Field[] customer(final DbField... extra) {
+		final List<Field> fields = new ArrayList<>();
+		fields.add(field(0, "id", "id", INT, FieldType.PrimaryKey));
+		fields.add(field(1, "name", "name", TEXT, FieldType.RequiredData));
+		fields.add(field(2, "city", "city", TEXT, FieldType.OptionalData));
+		fields.addAll(Arrays.asList(extra));
+		return fields.toArray(new Field[0]);
+	}
+
+	/**
+	 * @param tableName
+	 * @param fields
+	 * @return dba that allows all operations
+	 */
+	static Dba newDba(final String tableName, final Field[] fields) {
+		return newDba(tableName, fields, false, null);
+	}
+
+	/**
+	 * @param tableName
+	 * @param fields
+	 * @param timestampCheck
+	 *            true if the modifiedAt field is to be checked for concurrent
+	 *            updates
+	 * @param updateClause
+	 *            update sql to be used in place of the generated one. null to
+	 *            use the generated one
+	 * @return dba that allows all operations
+	 */
+	static Dba newDba(final String tableName, final Field[] fields, final boolean timestampCheck,
+			final String updateClause) {
+		final boolean[] opers = new boolean[IoType.values().length];
+		Arrays.fill(opers, true);
+
+		final StringBuilder select = new StringBuilder("SELECT ");
+		final List<Integer> selectIdx = new ArrayList<>();
+		final StringBuilder insert = new StringBuilder("INSERT INTO ").append(tableName).append('(');
+		final StringBuilder values = new StringBuilder();
+		final List<Integer> insertIdx = new ArrayList<>();
+		for (final Field f : fields) {
+			final DbField field = (DbField) f;
+			final FieldType ft = field.getFieldType();
+			if (!selectIdx.isEmpty()) {
+				select.append(", ");
+			}
+			select.append(field.getColumnName());
+			selectIdx.add(field.getIndex());
+
+			if (ft.isInserted() == false) {
+				continue;
+			}
+			if (values.length() > 0) {
+				insert.append(", ");
+				values.append(", ");
+			}
+			insert.append(field.getColumnName());
+			if (ft == FieldType.ModifiedAt || ft == FieldType.CreatedAt) {
+				values.append(" CURRENT_TIMESTAMP ");
+			} else {
+				values.append('?');
+				insertIdx.add(field.getIndex());
+			}
+		}
+		select.append(" FROM ").append(tableName);
+		insert.append(") values (").append(values).append(')');
+
+		final List<Integer> whereIdx = new ArrayList<>();
+		final String where = makeWhere(fields, whereIdx);
+		final List<Integer> updateIdx = new ArrayList<>();
+		addUpdatable(fields, updateIdx, null);
+		updateIdx.addAll(whereIdx);
+		if (timestampCheck) {
+			updateIdx.add(findField(fields, FieldType.ModifiedAt).getIndex());
+		}
+		final String update = updateClause == null ? updateSql(tableName, fields, timestampCheck) : updateClause;
+
+		return new Dba(fields, tableName, opers, select.toString(), toArray(selectIdx), insert.toString(),
+				toArray(insertIdx), update, toArray(updateIdx), "DELETE FROM " + tableName, where,
+				toArray(whereIdx));
+	}
+
+	/**
+	 * @param tableName
+	 * @param fields
+	 * @param timestampCheck
+	 *            true if the modifiedAt field is to be checked for concurrent
+	 *            updates
+	 * @return the update sql as emitted by the generator
+	 */
+	static String updateSql(final String tableName, final Field[] fields, final boolean timestampCheck) {
+		final StringBuilder sbf = new StringBuilder("UPDATE ").append(tableName).append(" SET ");
+		addUpdatable(fields, new ArrayList<>(), sbf);
+		sbf.append(makeWhere(fields, new ArrayList<>()));
+		if (timestampCheck) {
+			sbf.append(" AND ").append(findField(fields, FieldType.ModifiedAt).getColumnName()).append("=?");
+		}
+		return sbf.toString();
+	}
+
+	private static void addUpdatable(final Field[] fields, final List<Integer> indexes, final StringBuilder sbf) {
+		boolean firstOne = true;
+		for (final Field f : fields) {
+			final DbField field = (DbField) f;
+			final FieldType ft = field.getFieldType();
+			if (ft.isUpdated() == false) {
+				continue;
+			}
+			if (sbf != null) {
+				if (firstOne) {
+					firstOne = false;
+				} else {
+					sbf.append(", ");
+				}
+				sbf.append(field.getColumnName()).append('=');
+			}
+			if (ft == FieldType.ModifiedAt) {
+				if (sbf != null) {
+					sbf.append(" CURRENT_TIMESTAMP ");
+				}
+			} else {
+				if (sbf != null) {
+					sbf.append(" ? ");
+				}
+				indexes.add(field.getIndex());
+			}
+		}
+	}
+
+	private static String makeWhere(final Field[] fields, final List<Integer> indexes) {
+		final StringBuilder sbf = new StringBuilder(" WHERE ");
+		DbField tenant = null;
+		for (final Field f : fields) {
+			final DbField field = (DbField) f;
+			final FieldType ft = field.getFieldType();
+			if (ft == FieldType.TenantKey) {
+				tenant = field;
+				continue;
+			}
+			if (ft != FieldType.PrimaryKey && ft != FieldType.GeneratedPrimaryKey) {
+				continue;
+			}
+			if (!indexes.isEmpty()) {
+				sbf.append(" AND ");
+			}
+			sbf.append(field.getColumnName()).append("=?");
+			indexes.add(field.getIndex());
+		}
+		if (tenant != null) {
+			sbf.append(" AND ").append(tenant.getColumnName()).append("=?");
+			indexes.add(tenant.getIndex());
+		}
+		return sbf.toString();
+	}
+
+	private static DbField findField(final Field[] fields, final FieldType fieldType) {
+		for (final Field f : fields) {
+			if (((DbField) f).getFieldType() == fieldType) {
+				return (DbField) f;
+			}
+		}
+		throw new IllegalArgumentException("No field of type " + fieldType);
+	}
+
+	private static int[] toArray(final List<Integer> list) {
+		final int[] arr = new int[list.size()];
+		for (int i = 0; i < arr.length; i++) {
+			arr[i] = list.get(i);
+		}
+		return arr;
+	}
+
+	/**
+	 * @param json
+	 * @return input object for the json text
+	 */
+	static JsonInputObject input(final String json) {
+		return new JsonInputObject(new JsonParser().parse(json).getAsJsonObject());
+	}
+
+	/**
+	 * @return service context for TENANT and USER
+	 */
+	static IServiceContext ctx() {
+		final IServiceContext ctx = mock(IServiceContext.class);
+		when(ctx.getTenantId()).thenReturn(TENANT);
+		when(ctx.getUserId()).thenReturn(USER);
+		return ctx;
+	}
+
+	/**
+	 * @param sqls
+	 *            to which the sql of every write is added
+	 * @param ps
+	 *            on which the params of every write are set
+	 * @param nbrRows
+	 *            to be returned as the number of rows affected by every write
+	 * @return handle that captures the writes instead of executing them
+	 * @throws SQLException
+	 */
+	static ReadWriteHandle capture(final List<String> sqls, final PreparedStatement ps, final int nbrRows)
+			throws SQLException {
+		final ReadWriteHandle handle = mock(ReadWriteHandle.class);
+		when(handle.write(any(IDbWriter.class))).then(inv -> {
+			final IDbWriter writer = inv.getArgument(0);
+			sqls.add(writer.getPreparedStatement());
+			writer.setParams(ps);
+			return nbrRows;
+		});
+		return handle;
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.simplity.fm.core.data.DbaFixture.INT;
+import static org.simplity.fm.core.data.DbaFixture.TEXT;
+import static org.simplity.fm.core.data.DbaFixture.field;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.simplity.fm.core.datatypes.ValueType;
+import org.simplity.fm.core.rdb.ReadWriteHandle;
+
+/**
+ * @author simplity.org
+ *
+ */
+public class MergeAllTest {
+	private static final Field[] FIELDS = { field(0, "orderId", "order_id", INT, FieldType.PrimaryKey),
+			field(1, "lineNbr", "line_nbr", INT, FieldType.PrimaryKey),
+			field(2, "item", "item", TEXT, FieldType.RequiredData) };
+
+	private static Dba newDba() {
+		return DbaFixture.newDba("order_line", FIELDS);
+	}
+
+	@Test
+	void onlyChangedRowsAreWritten() throws SQLException {
+		/*
+		 * number of rows written, by the first word of the sql
+		 */
+		final Map<String, Integer> written = new HashMap<>();
+		final ReadWriteHandle handle = mock(ReadWriteHandle.class);
+		when(handle.writeMany(anyString(), any(ValueType[].class), any(Object[][].class))).then(inv -> {
+			final String sql = inv.getArgument(0);
+			final Object[][] rows = inv.getArgument(2);
+			written.put(sql.substring(0, sql.indexOf(' ')), rows.length);
+			final int[] nbrs = new int[rows.length];
+			Arrays.fill(nbrs, 1);
+			return nbrs;
+		});
+
+		final List<Object[]> existing = Arrays.asList(new Object[] { 1L, 1L, "pen" },
+				new Object[] { 1L, 2L, "ink" }, new Object[] { 1L, 3L, "pad" }, new Object[] { 1L, 4L, "nib" });
+		final Object[][] rows = { { 1L, 1L, "pen" }, { 1L, 2L, "gel" }, { 1L, 4L, "nib" }, { 1L, 5L, "cap" },
+				{ 1L, 6L, "box" } };
+
+		assertTrue(newDba().mergeAll(handle, existing, rows));
+		assertEquals(3, written.size(), "one batch each for insert, update and delete");
+		assertEquals(2, written.get("INSERT"));
+		assertEquals(1, written.get("UPDATE"));
+		assertEquals(1, written.get("DELETE"));
+	}
+
+	@Test
+	void nothingToWrite() throws SQLException {
+		final ReadWriteHandle handle = mock(ReadWriteHandle.class);
+		final List<Object[]> existing = Arrays.<Object[]>asList(new Object[] { 1L, 1L, "pen" });
+		assertTrue(newDba().mergeAll(handle, existing, new Object[][] { { 1L, 1L, "pen" } }));
+		verifyNoInteractions(handle);
+	}
+}
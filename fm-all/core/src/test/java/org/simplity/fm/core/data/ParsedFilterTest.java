@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.simplity.fm.core.data.DbaFixture.INT;
+import static org.simplity.fm.core.data.DbaFixture.ctx;
+import static org.simplity.fm.core.data.DbaFixture.customer;
+import static org.simplity.fm.core.data.DbaFixture.field;
+import static org.simplity.fm.core.data.DbaFixture.input;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author simplity.org
+ *
+ */
+public class ParsedFilterTest {
+	private static final Field[] FIELDS = customer(field(3, "tenant", "tenant_id", INT, FieldType.TenantKey));
+
+	private static Dba newDba() {
+		return DbaFixture.newDba("customer", FIELDS);
+	}
+
+	@Test
+	void sameShapeShouldShareTheSql() {
+		final Dba dba = newDba();
+		final ParsedFilter f1 = dba.parseFilter(input(
+				"{\"conditions\":{\"city\":{\"comp\":\"=\",\"value\":\"Mysore\"}}, \"sort\":{\"name\":\"desc\"}}"),
+				ctx());
+		final ParsedFilter f2 = dba.parseFilter(input(
+				"{\"conditions\":{\"city\":{\"comp\":\"=\",\"value\":\"Delhi\"}}, \"sort\":{\"name\":\"desc\"}}"),
+				ctx());
+		assertEquals(" WHERE tenant_id=? and city = ? ORDER BY name DESC ", f1.getWhereClause());
+		assertSame(f1.getWhereClause(), f2.getWhereClause());
+		assertArrayEquals(new Object[] { 7L, "Delhi" }, f2.getWhereParamValues());
+	}
+
+	@Test
+	void inListShouldBePaddedToBucket() {
+		final ParsedFilter f = newDba().parseFilter(
+				input("{\"conditions\":{\"id\":{\"comp\":\"@\",\"value\":\"1,2,3\"}}}"), ctx());
+		assertEquals(" WHERE tenant_id=? and id IN (?,?,?,?)", f.getWhereClause());
+		assertArrayEquals(new Object[] { 7L, 1L, 2L, 3L, 3L }, f.getWhereParamValues());
+	}
+
+	@Test
+	void tenantIsAlwaysFiltered() {
+		final ParsedFilter f = newDba().parseFilter(input("{}"), ctx());
+		assertEquals(" WHERE tenant_id=?", f.getWhereClause());
+		assertArrayEquals(new Object[] { 7L }, f.getWhereParamValues());
+	}
+
+	@Test
+	void bucketsArePowersOfTwo() {
+		assertEquals(1, ParsedFilter.toBucket(1));
+		assertEquals(2, ParsedFilter.toBucket(2));
+		assertEquals(8, ParsedFilter.toBucket(5));
+		assertEquals(512, ParsedFilter.toBucket(512));
+		assertEquals(1500, ParsedFilter.toBucket(1500));
+	}
+
+	@Test
+	void longListsShouldNotBePaddedBeyondOracleLimit() {
+		assertEquals(513, ParsedFilter.toBucket(513));
+		assertEquals(1000, ParsedFilter.toBucket(1000));
+		final StringBuilder sbf = new StringBuilder("1");
+		for (int i = 2; i <= 600; i++) {
+			sbf.append(',').append(i);
+		}
+		final ParsedFilter f = newDba().parseFilter(
+				input("{\"conditions\":{\"id\":{\"comp\":\"@\",\"value\":\"" + sbf + "\"}}}"), ctx());
+		// tenant, and the 600 values without any padding
+		assertEquals(601, f.getWhereParamValues().length);
+	}
+
+	@Test
+	void likeValuesShouldBeEscaped() {
+		assertEquals("abc", ParsedFilter.escapeLike("abc"));
+		assertEquals("50\\% off\\_now", ParsedFilter.escapeLike("50% off_now"));
+		assertEquals("a\\\\b", ParsedFilter.escapeLike("a\\b"));
+		final ParsedFilter f = newDba().parseFilter(
+				input("{\"conditions\":{\"name\":{\"comp\":\"~\",\"value\":\"5%\"}}}"), ctx());
+		assertArrayEquals(new Object[] { 7L, "%5\\%%" }, f.getWhereParamValues());
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.simplity.fm.core.data.DbaFixture.INT;
+import static org.simplity.fm.core.data.DbaFixture.TEXT;
+import static org.simplity.fm.core.data.DbaFixture.customer;
+import static org.simplity.fm.core.data.DbaFixture.field;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.simplity.fm.core.rdb.IDbWriter;
+import org.simplity.fm.core.rdb.ReadWriteHandle;
+
+/**
+ * @author simplity.org
+ *
+ */
+public class PartialUpdateTest {
+	private static final Field[] FIELDS = customer(field(3, "modifiedBy", "modified_by", INT, FieldType.ModifiedBy),
+			field(4, "modifiedAt", "modified_at", TEXT, FieldType.ModifiedAt));
+
+	private static Dba newDba() {
+		return DbaFixture.newDba("customer", FIELDS);
+	}
+
+	private static ReadWriteHandle capture(final List<String> sqls) throws SQLException {
+		return capture(sqls, mock(PreparedStatement.class));
+	}
+
+	private static ReadWriteHandle capture(final List<String> sqls, final PreparedStatement ps)
+			throws SQLException {
+		return DbaFixture.capture(sqls, ps, 1);
+	}
+
+	@Test
+	void recordTracksChangedFields() {
+		final Record rec = new Record(FIELDS, new Object[] { 1L, "a", "x", null, null });
+		rec.assignValue(1, "b");
+		assertFalse(rec.hasChanges(), "changes are not tracked unless asked for");
+
+		rec.trackChanges();
+		rec.assignValue(1, "b");
+		assertFalse(rec.hasChanges(), "assigning the same value is not a change");
+		rec.assignValue(2, "y");
+		assertTrue(rec.isChanged(2));
+		assertFalse(rec.isChanged(1));
+	}
+
+	@Test
+	void onlyChangedColumnsAreUpdated() throws SQLException {
+		final List<String> sqls = new ArrayList<>();
+		final ReadWriteHandle handle = capture(sqls);
+		final Dba dba = newDba();
+		final BitSet changes = new BitSet();
+		changes.set(2);
+		assertTrue(dba.updateChanges(handle, new Object[] { 1L, "a", "y", 7L, null }, changes));
+
+		assertEquals(1, sqls.size());
+		final String sql = sqls.get(0);
+		assertFalse(sql.contains("name="), sql);
+		assertTrue(sql.contains("city= ?"), sql);
+		assertTrue(sql.contains("modified_by= ?"), sql);
+		assertTrue(sql.contains("modified_at= CURRENT_TIMESTAMP"), sql);
+		assertTrue(sql.endsWith(" WHERE id=?"), sql);
+	}
+
+	@Test
+	void nothingChangedMeansNoSql() throws SQLException {
+		final ReadWriteHandle handle = mock(ReadWriteHandle.class);
+		final BitSet changes = new BitSet();
+		changes.set(0);
+		assertTrue(newDba().updateChanges(handle, new Object[] { 1L, "a", "y", 7L, null }, changes),
+				"key is not an updatable column");
+		verify(handle, never()).write(any(IDbWriter.class));
+	}
+
+	@Test
+	void paramsAreChangedColumnsThenAuditThenKey() throws SQLException {
+		final PreparedStatement ps = mock(PreparedStatement.class);
+		final ReadWriteHandle handle = capture(new ArrayList<>(), ps);
+		final BitSet changes = new BitSet();
+		changes.set(2);
+		assertTrue(newDba().updateChanges(handle, new Object[] { 1L, "a", "y", 7L, null }, changes));
+		verify(ps).setString(1, "y");
+		verify(ps).setLong(2, 7L);
+		verify(ps).setLong(3, 1L);
+		verify(ps, never()).setString(2, "a");
+	}
+
+	@Test
+	void timeStampCheckIsKeptInTheTail() throws SQLException {
+		final Dba dba = DbaFixture.newDba("customer", FIELDS, true, null);
+		final List<String> sqls = new ArrayList<>();
+		final PreparedStatement ps = mock(PreparedStatement.class);
+		final BitSet changes = new BitSet();
+		changes.set(1);
+		assertTrue(dba.updateChanges(capture(sqls, ps), new Object[] { 1L, "b", "x", 7L, "t1" }, changes));
+		assertTrue(sqls.get(0).endsWith(" WHERE id=? AND modified_at=?"), sqls.get(0));
+		verify(ps).setString(1, "b");
+		verify(ps).setLong(2, 7L);
+		verify(ps).setLong(3, 1L);
+		verify(ps).setString(4, "t1");
+	}
+
+	@Test
+	void fullUpdateIfWhereClauseIsNotFound() throws SQLException {
+		final String update = DbaFixture.updateSql("customer", FIELDS, false).replace("id=?", "id = ?");
+		final Dba dba = DbaFixture.newDba("customer", FIELDS, false, update);
+		final List<String> sqls = new ArrayList<>();
+		final BitSet changes = new BitSet();
+		changes.set(2);
+		assertTrue(dba.updateChanges(capture(sqls), new Object[] { 1L, "a", "y", 7L, null }, changes));
+		assertEquals(update, sqls.get(0));
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.simplity.fm.core.data.DbaFixture.TEXT;
+import static org.simplity.fm.core.data.DbaFixture.customer;
+import static org.simplity.fm.core.data.DbaFixture.field;
+import static org.simplity.fm.core.data.DbaFixture.input;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.simplity.fm.core.rdb.IDbReader;
+import org.simplity.fm.core.rdb.ReadonlyHandle;
+import org.simplity.fm.core.serialize.gson.JsonInputObject;
+import org.simplity.fm.core.service.IServiceContext;
+
+/**
+ * @author simplity.org
+ *
+ */
+public class ProjectionTest {
+	private static final Field[] FIELDS = customer(field(3, "pin", "pin", TEXT, FieldType.OptionalData));
+
+	private static Dba newDba() {
+		return DbaFixture.newDba("customer", FIELDS);
+	}
+
+	private static BitSet bits(final int... indexes) {
+		final BitSet bs = new BitSet();
+		for (final int i : indexes) {
+			bs.set(i);
+		}
+		return bs;
+	}
+
+	@Test
+	void filterShouldParseFieldList() {
+		final Dba dba = newDba();
+		final IServiceContext ctx = mock(IServiceContext.class);
+		final String json = "{\"fields\":\"pin, name,unknown\"}";
+		final ParsedFilter filter = dba.parseFilter(input(json), ctx);
+		assertEquals(bits(1, 3), filter.getFieldIndexes());
+
+		final ParsedFilter all = dba.parseFilter(new JsonInputObject(), ctx);
+		assertNull(all.getFieldIndexes());
+	}
+
+	@Test
+	void projectionShouldSelectFieldsInRecordOrderAndBeCached() {
+		final Dba dba = newDba();
+		final Dba.Projection p = dba.getProjection(bits(3, 1));
+		assertEquals("SELECT name, pin FROM customer", p.selectClause);
+		assertArrayEquals(new Field[] { FIELDS[1], FIELDS[3] }, p.getFields());
+		assertSame(p, dba.getProjection(bits(1, 3)));
+
+		assertNull(dba.getProjection(null));
+		assertNull(dba.getProjection(bits(0, 1, 2, 3)), "all fields need no projection");
+	}
+
+	@Test
+	void filterShouldReadOnlyProjectedColumns() throws SQLException {
+		final Dba dba = newDba();
+		final List<String> sqls = new ArrayList<>();
+		final ResultSet rs = mock(ResultSet.class);
+		when(rs.getString(1)).thenReturn("Bob");
+		when(rs.getString(2)).thenReturn("560001");
+
+		final ReadonlyHandle handle = mock(ReadonlyHandle.class);
+		when(handle.read(any(IDbReader.class))).then(inv -> {
+			final IDbReader reader = inv.getArgument(0);
+			sqls.add(reader.getPreparedStatement());
+			reader.readARow(rs);
+			return 1;
+		});
+
+		final List<Object[]> rows = dba.filter(" WHERE city=?", new Object[] { "x" }, dba.getProjection(bits(1, 3)),
+				handle);
+		assertEquals("SELECT name, pin FROM customer  WHERE city=?", sqls.get(0));
+		assertEquals(1, rows.size());
+		assertArrayEquals(new Object[] { "Bob", "560001" }, rows.get(0));
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.simplity.fm.core.datatypes.ValueType;
+import org.simplity.fm.core.rdb.ReadWriteHandle;
+
+/**
+ * @author simplity.org
+ *
+ */
+public class RecordCacheTest {
+	private static final int[] KEYS = { 0, 2 };
+	private static final FieldMetaData[] SELECTED = { new FieldMetaData(0, ValueType.Integer),
+			new FieldMetaData(1, ValueType.Text), new FieldMetaData(2, ValueType.Integer) };
+
+	@Test
+	void hitCopiesSelectedValues() {
+		final RecordCache cache = new RecordCache(10, 0);
+		cache.put(KEYS, new Object[] { 1L, "one", 9L, "not selected" }, cache.getVersion());
+
+		final Object[] row = { 1L, null, 9L, "mine" };
+		assertTrue(cache.get(KEYS, row, SELECTED));
+		assertEquals("one", row[1]);
+		assertEquals("mine", row[3], "non-selected fields should not be touched");
+
+		final Object[] otherTenant = { 1L, null, 8L, null };
+		assertFalse(cache.get(KEYS, otherTenant, SELECTED));
+		assertNull(otherTenant[1]);
+
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(0.5, cache.getHitRatio());
+	}
+
+	@Test
+	void cachedRowIsACopy() {
+		final RecordCache cache = new RecordCache(10, 0);
+		final Object[] read = { 1L, "one", 9L };
+		cache.put(KEYS, read, cache.getVersion());
+		read[1] = "changed";
+
+		final Object[] row = { 1L, null, 9L };
+		assertTrue(cache.get(KEYS, row, SELECTED));
+		assertEquals("one", row[1]);
+	}
+
+	@Test
+	void removeAndEvict() {
+		final RecordCache cache = new RecordCache(2, 0);
+		cache.put(KEYS, new Object[] { 1L, "one", 9L }, cache.getVersion());
+		cache.put(KEYS, new Object[] { 2L, "two", 9L }, cache.getVersion());
+		cache.remove(KEYS, new Object[] { 1L, null, 9L });
+		assertEquals(1, cache.size());
+
+		cache.put(KEYS, new Object[] { 3L, "three", 9L }, cache.getVersion());
+		cache.put(KEYS, new Object[] { 4L, "four", 9L }, cache.getVersion());
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertFalse(cache.get(KEYS, new Object[] { 2L, null, 9L }, SELECTED), "least recently used row is evicted");
+	}
+
+	@Test
+	void rowReadBeforeARemovalIsNotCached() {
+		final RecordCache cache = new RecordCache(10, 0);
+		final long version = cache.getVersion();
+		// a writer modifies some row while this row is being read
+		cache.remove(KEYS, new Object[] { 2L, null, 9L });
+		cache.put(KEYS, new Object[] { 1L, "old", 9L }, version);
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void rowIsRemovedAgainAfterTheTransaction() {
+		final RecordCache cache = new RecordCache(10, 0);
+		final ReadWriteHandle handle = mock(ReadWriteHandle.class);
+		cache.remove(handle, KEYS, new Object[] { 1L, "new", 9L });
+
+		// a concurrent read caches the row before the writer commits
+		cache.put(KEYS, new Object[] { 1L, "uncommitted", 9L }, cache.getVersion());
+		assertEquals(1, cache.size());
+
+		final ArgumentCaptor<Runnable> action = ArgumentCaptor.forClass(Runnable.class);
+		verify(handle).onCompletion(action.capture());
+		action.getValue().run();
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void childRowsAreClearedAgainAfterTheTransaction() {
+		final RecordCache cache = new RecordCache(10, 0);
+		cache.put(KEYS, new Object[] { 1L, "child", 9L }, cache.getVersion());
+		final ReadWriteHandle handle = mock(ReadWriteHandle.class);
+		// parent is deleted, along with all its child rows
+		cache.clear(handle);
+		assertEquals(0, cache.size());
+
+		// a concurrent read of the child, between the delete and the commit
+		cache.put(KEYS, new Object[] { 1L, "child", 9L }, cache.getVersion());
+		assertTrue(cache.get(KEYS, new Object[] { 1L, null, 9L }, SELECTED));
+
+		final ArgumentCaptor<Runnable> action = ArgumentCaptor.forClass(Runnable.class);
+		verify(handle).onCompletion(action.capture());
+		action.getValue().run();
+		assertEquals(0, cache.size(), "deleted child row should not survive the commit");
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.simplity.fm.core.datatypes.BooleanType;
+import org.simplity.fm.core.datatypes.DateType;
+import org.simplity.fm.core.datatypes.IntegerType;
+import org.simplity.fm.core.datatypes.TextType;
+import org.simplity.fm.core.serialize.IInputObject;
+import org.simplity.fm.core.serialize.ISerializer;
+import org.simplity.fm.core.serialize.gson.JsonInputObject;
+import org.simplity.fm.core.serialize.gson.JsonSerializer;
+import org.simplity.fm.core.service.IServiceContext;
+
+import com.google.gson.JsonParser;
+
+/**
+ * records with generated json code should behave the same as the ones that
+ * use the generic field-by-field loop
+ *
+ * @author simplity.org
+ *
+ */
+public class RecordJsonTest {
+	static final TextType TEXT = new TextType("text", null, 0, 10, null);
+	static final IntegerType INT = new IntegerType("int", null, 0, 1000);
+	static final BooleanType BOOL = new BooleanType("bool", null);
+	static final DateType DATE = new DateType("date", null, 1000, 1000);
+	static final Field[] FIELDS = { new Field("name", 0, TEXT, null, null, null, true),
+			new Field("age", 1, INT, null, null, null, false), new Field("isActive", 2, BOOL, null, null, null, false),
+			new Field("joinedOn", 3, DATE, null, null, null, false) };
+
+	/**
+	 * the way the generator writes the methods
+	 */
+	static class GeneratedRecord extends Record {
+		GeneratedRecord() {
+			super(FIELDS, null);
+		}
+
+		@Override
+		public void writeJson(final ISerializer writer) {
+			if (this.isOverridden()) {
+				super.writeJson(writer);
+				return;
+			}
+			final Object[] values = this.fieldValues;
+			writer.name("name");
+			if (values[0] == null) {
+				writer.primitiveObject(null);
+			} else {
+				writer.value((String) values[0]);
+			}
+			writer.name("age");
+			if (values[1] == null) {
+				writer.primitiveObject(null);
+			} else {
+				writer.value((Long) values[1]);
+			}
+			writer.name("isActive");
+			if (values[2] == null) {
+				writer.primitiveObject(null);
+			} else {
+				writer.value((Boolean) values[2]);
+			}
+			writer.name("joinedOn");
+			if (values[3] == null) {
+				writer.primitiveObject(null);
+			} else {
+				writer.value((LocalDate) values[3]);
+			}
+		}
+
+		@Override
+		protected boolean readJson(final IInputObject json, final IServiceContext ctx, final String tableName,
+				final int rowNbr) {
+			if (this.isOverridden()) {
+				return super.readJson(json, ctx, tableName, rowNbr);
+			}
+			final Object[] values = this.fieldValues;
+			boolean ok = true;
+			String s;
+			s = json.getString("name");
+			ok = FIELDS[0].parseIntoRow(s, s == null || s.isEmpty() ? null : TEXT.parse(s), values, ctx, tableName,
+					rowNbr) && ok;
+			s = json.getString("age");
+			ok = FIELDS[1].parseIntoRow(s, s == null || s.isEmpty() ? null : INT.parse(s), values, ctx, tableName,
+					rowNbr) && ok;
+			s = json.getString("isActive");
+			ok = FIELDS[2].parseIntoRow(s, s == null || s.isEmpty() ? null : BOOL.parse(s), values, ctx, tableName,
+					rowNbr) && ok;
+			s = json.getString("joinedOn");
+			ok = FIELDS[3].parseIntoRow(s, s == null || s.isEmpty() ? null : DATE.parse(s), values, ctx, tableName,
+					rowNbr) && ok;
+			return ok;
+		}
+	}
+
+	private static IInputObject input(final String json) {
+		return new JsonInputObject(new JsonParser().parse(json).getAsJsonObject());
+	}
+
+	private static String toJson(final Record rec) {
+		final StringWriter sw = new StringWriter();
+		final JsonSerializer ser = new JsonSerializer(sw);
+		ser.beginObject();
+		ser.fields(rec);
+		ser.endObject();
+		return sw.toString();
+	}
+
+	@Test
+	void sameAsGenericCode() {
+		final String json = "{\"name\":\"abc\",\"age\":\"42\",\"isActive\":true,\"joinedOn\":\""
+				+ LocalDate.now().toString() + "\"}";
+		final IServiceContext ctx = mock(IServiceContext.class);
+		final Record generic = new Record(FIELDS, null);
+		final Record generated = new GeneratedRecord();
+		assertTrue(generic.parse(input(json), true, ctx));
+		assertTrue(generated.parse(input(json), true, ctx));
+		assertArrayEquals(generic.fetchRawData(), generated.fetchRawData());
+		assertEquals(toJson(generic), toJson(generated));
+
+		final Record empty = new GeneratedRecord();
+		assertEquals(toJson(new Record(FIELDS, null)), toJson(empty), "nulls are written the same way");
+	}
+
+	@Test
+	void listsAreWrittenByTheRecords() {
+		final Record generic = new Record(FIELDS, new Object[] { "a", 1L, true, null });
+		final Record generated = new GeneratedRecord();
+		generated.assignValue(0, "a");
+		generated.assignValue(1, 1L);
+		generated.assignValue(2, true);
+		final String expected = "{\"list\":[{\"name\":\"a\",\"age\":1,\"isActive\":true,\"joinedOn\":\"\"},"
+				+ "{\"name\":\"a\",\"age\":1,\"isActive\":true,\"joinedOn\":\"\"}]}";
+		for (final Record rec : new Record[] { generic, generated }) {
+			final StringWriter sw = new StringWriter();
+			final JsonSerializer ser = new JsonSerializer(sw);
+			ser.beginObject();
+			ser.array("list", Arrays.asList(rec, rec));
+			ser.endObject();
+			assertEquals(expected, sw.toString());
+		}
+	}
+
+	@Test
+	void errorsAreDetected() {
+		final IServiceContext ctx = mock(IServiceContext.class);
+		assertFalse(new GeneratedRecord().parse(input("{\"age\":\"42\"}"), true, ctx), "name is required");
+		assertFalse(new GeneratedRecord().parse(input("{\"name\":\"a\",\"age\":\"4200\"}"), true, ctx),
+				"age is out of range");
+	}
+
+	@Test
+	void changesAreTracked() {
+		final Record rec = new GeneratedRecord();
+		rec.assignValue(0, "abc");
+		rec.assignValue(1, 42L);
+		rec.trackChanges();
+		assertTrue(rec.parse(input("{\"name\":\"abc\",\"age\":\"43\"}"), false, mock(IServiceContext.class)));
+		assertFalse(rec.isChanged(0));
+		assertTrue(rec.isChanged(1));
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.datatypes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * simple patterns must match exactly the values that the regex engine matches
+ *
+ * @author simplity.org
+ *
+ */
+public class SimplePatternTest {
+	private static final String[] VALUES = { "", "0", "1", "9", "01", "10", "123456", "023456", "1234567", "12345",
+			"1234567890123456", "a", "A", "ab", "Ab", "a1", "_a1", "abc_123", "a-b", "a.b", "12.5", "-12", "ABC-1234",
+			"abc-", " 1", "1 ", "x9999", "é" };
+
+	@ParameterizedTest
+	@ValueSource(strings = { "[1-9][0-9]*", "[0-9]+", "[1-9][0-9]{5}", "\\d{6}", "[1-9][0-9]{15}", "[a-zA-Z]+",
+			"[a-zA-Z_][a-zA-Z0-9_]*", "\\w+", "[A-Z]{3}-[0-9]{4}", "-?[0-9]+", "[0-9]+\\.[a-z]{1,2}", "a?b?",
+			"[a-z]{2,}", "[0-9]{1,3}[a-z]", "x[9]{0,4}", "[-a-c]+", "[a-c-]+" })
+	void shouldMatchAsRegex(final String regex) {
+		final SimplePattern sp = SimplePattern.of(regex);
+		assertNotNull(sp, regex + " should be a simple pattern");
+		final Pattern p = Pattern.compile(regex);
+		for (final String value : VALUES) {
+			assertEquals(p.matcher(value).matches(), sp.matches(value), "regex " + regex + " value " + value);
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "[0-9]*[0-9]", "[a-z]+a", "[^0-9]+", "a|b", "(ab)+", ".*", "^[0-9]+$", "[0-9]+?",
+			"[0-9]*+", "\\s+", "[a-z&&[^b]]", "[ab|AB|Ab|0|[1-9][0-9]*", "[0-9]{2", "[]" })
+	void shouldNotBeSimple(final String regex) {
+		assertNull(SimplePattern.of(regex), regex + " should not be treated as a simple pattern");
+	}
+
+	@Test
+	void textTypeShouldUseEitherMatcher() {
+		final TextType pin = new TextType("pin", "invalidPin", 6, 6, "[1-9][0-9]{5}");
+		assertEquals("560001", pin.parse("560001"));
+		assertNull(pin.parse("056001"));
+
+		final TextType email = new TextType("email", "invalidEmail", 0, 100, "[^@]+@[^@]+");
+		assertEquals("a@b.c", email.parse("a@b.c"));
+		assertNull(email.parse("a.b.c"));
+
+		final TextType invalid = new TextType("bad", "invalidBad", 0, 10, "[ab");
+		assertNull(invalid.parse("a"));
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.http;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collections;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.simplity.fm.core.Conventions;
+import org.simplity.fm.core.app.App;
+import org.simplity.fm.core.conf.IRequestLogger;
+import org.simplity.fm.core.limit.ConcurrencyLimiter;
+import org.simplity.fm.core.limit.ConcurrencyLimits;
+import org.simplity.fm.core.service.ListService;
+
+/**
+ * @author simplity.org
+ *
+ */
+public class AgentTest {
+
+	@AfterAll
+	static void restore() {
+		final App.Config config = new App.Config();
+		config.appName = "test";
+		config.appRootPackage = "org.simplity.fm.core.testapp";
+		App.configureApp(config);
+	}
+
+	@Test
+	void shedRequestsAreLogged() throws Exception {
+		final IRequestLogger reqLogger = mock(IRequestLogger.class);
+		final App.Config config = new App.Config();
+		config.appName = "test";
+		config.appRootPackage = "org.simplity.fm.core.testapp";
+		config.requestLogger = reqLogger;
+		config.concurrencyLimits = Collections.singletonMap(Conventions.App.SERVICE_LIST, 1);
+		App.configureApp(config);
+
+		// the only permit is taken by a request that is being served
+		final ConcurrencyLimiter limiter = ConcurrencyLimits.getInstance().getLimiter(ListService.getInstance());
+		assertTrue(limiter.acquire());
+		try {
+			final HttpServletRequest req = mock(HttpServletRequest.class);
+			when(req.getHeader(Conventions.Http.HEADER_SERVICE)).thenReturn(Conventions.App.SERVICE_LIST);
+			when(req.getContentLength()).thenReturn(0);
+			when(req.getQueryString()).thenReturn("list=colors");
+			final HttpServletResponse resp = mock(HttpServletResponse.class);
+			when(resp.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+			Agent.getAgent().serve(req, resp);
+
+			verify(resp).setStatus(Conventions.Http.STATUS_SERVICE_BUSY);
+			verify(reqLogger).logInput(any(), eq(Conventions.App.SERVICE_LIST), any(), eq("rejected"));
+			verify(reqLogger, never()).logInput(any(), any(), any());
+		} finally {
+			limiter.release(0);
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.limit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author simplity.org
+ *
+ */
+public class ConcurrencyLimiterTest {
+
+	@Test
+	void rejectsWithoutQueue() {
+		final ConcurrencyLimiter limiter = new ConcurrencyLimiter("s", 2, 0, 0, false);
+		assertTrue(limiter.acquire());
+		assertTrue(limiter.acquire());
+		assertFalse(limiter.acquire());
+		assertEquals(1, limiter.getNbrRejected());
+		limiter.release(0);
+		assertTrue(limiter.acquire());
+		assertEquals(2, limiter.getInFlight());
+	}
+
+	@Test
+	void queuedRequestGetsReleasedPermit() throws InterruptedException {
+		final ConcurrencyLimiter limiter = new ConcurrencyLimiter("s", 1, 1, 5000, false);
+		assertTrue(limiter.acquire());
+
+		final CountDownLatch done = new CountDownLatch(1);
+		final AtomicBoolean acquired = new AtomicBoolean();
+		final Thread waiter = new Thread(() -> {
+			acquired.set(limiter.acquire());
+			done.countDown();
+		});
+		waiter.start();
+		while (limiter.getWaiting() == 0) {
+			Thread.sleep(1);
+		}
+		// queue is full
+		assertFalse(limiter.acquire());
+
+		limiter.release(0);
+		done.await();
+		assertTrue(acquired.get());
+		assertEquals(1, limiter.getInFlight());
+	}
+
+	@Test
+	void queuedRequestTimesOut() {
+		final ConcurrencyLimiter limiter = new ConcurrencyLimiter("s", 1, 1, 20, false);
+		assertTrue(limiter.acquire());
+		final long start = System.nanoTime();
+		assertFalse(limiter.acquire());
+		assertTrue(System.nanoTime() - start >= 20_000_000L);
+		assertEquals(0, limiter.getWaiting());
+	}
+
+	@Test
+	void adaptiveLimitFollowsDbLatency() {
+		final ConcurrencyLimiter limiter = new ConcurrencyLimiter("s", 10, 0, 0, true);
+		// establish the base latency
+		for (int i = 0; i < 10; i++) {
+			limiter.acquire();
+			limiter.release(1_000_000);
+		}
+		assertEquals(10, limiter.getLimit());
+
+		// db slows down
+		for (int i = 0; i < 50; i++) {
+			limiter.acquire();
+			limiter.release(10_000_000);
+		}
+		final int reduced = limiter.getLimit();
+		assertTrue(reduced < 10);
+
+		// db recovers, and the service is saturated
+		for (int i = 0; i < 200; i++) {
+			while (limiter.acquire()) {
+				//
+			}
+			limiter.release(1_000_000);
+			while (limiter.getInFlight() > 0) {
+				limiter.release(1_000_000);
+			}
+		}
+		assertTrue(limiter.getLimit() > reduced);
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author simplity.org
+ *
+ */
+public class LatencyHistogramTest {
+
+	@Test
+	void bucketsCoverAllValues() {
+		long lastHigh = -1;
+		for (int i = 0; i < 1024; i++) {
+			final long high = LatencyHistogram.toHighestValue(i);
+			assertEquals(i, LatencyHistogram.toIndex(lastHigh + 1), "lowest value of bucket " + i);
+			assertEquals(i, LatencyHistogram.toIndex(high), "highest value of bucket " + i);
+			lastHigh = high;
+		}
+		assertEquals((1L << 36) - 1, lastHigh);
+	}
+
+	@Test
+	void percentilesAreWithinPrecision() {
+		final LatencyHistogram h = new LatencyHistogram();
+		for (int i = 1; i <= 10000; i++) {
+			h.record(i * 10L);
+		}
+		assertEquals(10000, h.getCount());
+		assertEquals(100000, h.getMax());
+		assertEquals(50005, h.getMean());
+		assertWithin(50000, h.getPercentile(50));
+		assertWithin(99000, h.getPercentile(99));
+		assertEquals(100000, h.getPercentile(100));
+	}
+
+	@Test
+	void emptyAndOutOfRange() {
+		final LatencyHistogram h = new LatencyHistogram();
+		assertEquals(0, h.getPercentile(99));
+		h.record(-5);
+		h.record(Long.MAX_VALUE);
+		assertEquals(0, h.getPercentile(50));
+		assertEquals((1L << 36) - 1, h.getMax());
+	}
+
+	private static void assertWithin(final long expected, final long actual) {
+		assertTrue(Math.abs(actual - expected) <= expected * 0.04, "expected about " + expected + " but got " + actual);
+	}
+}
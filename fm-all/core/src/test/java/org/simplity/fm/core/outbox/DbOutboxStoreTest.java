@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.simplity.fm.core.datatypes.ValueType;
+import org.simplity.fm.core.rdb.DbReader;
+import org.simplity.fm.core.rdb.DbWriter;
+import org.simplity.fm.core.rdb.IDbReader;
+import org.simplity.fm.core.rdb.RdbDriver;
+import org.simplity.fm.core.rdb.ReadWriteHandle;
+
+/**
+ * @author simplity.org
+ *
+ */
+public class DbOutboxStoreTest {
+
+	@Test
+	void fetchShouldReadPrimaryAndReturnOnlyClaimedRows() throws Exception {
+		final RdbDriver driver = mock(RdbDriver.class);
+		final ReadWriteHandle handle = mock(ReadWriteHandle.class);
+		final ResultSet rs = mock(ResultSet.class);
+		when(rs.getString(2)).thenReturn("email");
+		when(rs.getLong(1)).thenReturn(1L, 2L);
+		when(handle.read(any(IDbReader.class))).then(inv -> {
+			final IDbReader reader = inv.getArgument(0);
+			reader.readARow(rs);
+			reader.readARow(rs);
+			return 2;
+		});
+		// row 2 was claimed by another dispatcher in the meantime
+		when(handle.writeMany(anyString(), any(ValueType[].class), any(Object[][].class)))
+				.thenReturn(new int[] { 1, 0 });
+		doAnswer(inv -> {
+			((DbWriter) inv.getArgument(0)).readWrite(handle);
+			return null;
+		}).when(driver).readWrite(any(DbWriter.class));
+
+		final List<OutboxMessage> list = new DbOutboxStore(driver, "outbox").fetchDue(10);
+		assertEquals(1, list.size());
+		assertEquals(1L, list.get(0).id);
+		verify(driver, never()).read(any(DbReader.class));
+		verify(handle).writeMany(eq(
+				"update outbox set next_attempt_at=? where id=? and status='pending' and next_attempt_at<=?"),
+				any(ValueType[].class), any(Object[][].class));
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.simplity.fm.core.conf.IEmailer;
+import org.simplity.fm.core.conf.ITexter;
+import org.simplity.fm.core.outbox.OutboxMessage.Status;
+import org.simplity.fm.core.rdb.ReadWriteHandle;
+
+/**
+ * @author simplity.org
+ *
+ */
+public class OutboxDispatcherTest {
+
+	@Test
+	void deliversAndRetries() throws Exception {
+		final MemoryStore store = new MemoryStore();
+		final Gateway gateway = new Gateway(1);
+		store.add(OutboxMessage.email("a@b.c", "hi", "hello"));
+		store.add(OutboxMessage.text("ME", "9999", "hello"));
+
+		final OutboxDispatcher dispatcher = new OutboxDispatcher(store, gateway, gateway, 10, 0, 3, 60, 10);
+		assertEquals(2, dispatcher.dispatchOnce());
+
+		// first attempt of the mail failed, and is scheduled for later
+		final OutboxMessage mail = store.messages.get(0);
+		assertEquals(Status.pending, mail.getStatus());
+		assertEquals(1, mail.getAttempts());
+		assertEquals("gateway down", mail.getLastError());
+		assertTrue(mail.getNextAttemptAt().isAfter(Instant.now().plusSeconds(50)));
+		assertEquals(Status.sent, store.messages.get(1).getStatus());
+		assertEquals(0, dispatcher.dispatchOnce());
+
+		mail.nextAttemptAt = Instant.now();
+		assertEquals(1, dispatcher.dispatchOnce());
+		assertEquals(Status.sent, mail.getStatus());
+		assertEquals(2, dispatcher.getNbrSent());
+		assertEquals(1, dispatcher.getNbrRetried());
+		assertEquals("[text:9999, email:a@b.c]", gateway.delivered.toString());
+	}
+
+	@Test
+	void givesUpAfterMaxAttempts() throws Exception {
+		final MemoryStore store = new MemoryStore();
+		store.add(OutboxMessage.bulkEmail("a@b.c", "hi", "hello"));
+		final OutboxDispatcher dispatcher = new OutboxDispatcher(store, new Gateway(10), null, 10, 0, 2, 1, 10);
+		for (int i = 0; i < 2; i++) {
+			store.messages.get(0).nextAttemptAt = Instant.now();
+			dispatcher.dispatchOnce();
+		}
+		assertEquals(Status.failed, store.messages.get(0).getStatus());
+		assertEquals(1, dispatcher.getNbrFailed());
+		assertEquals(0, dispatcher.dispatchOnce());
+	}
+
+	@Test
+	void deliveryIsPaced() throws Exception {
+		final MemoryStore store = new MemoryStore();
+		for (int i = 0; i < 5; i++) {
+			store.add(OutboxMessage.email("a@b.c", "hi", "hello"));
+		}
+		final OutboxDispatcher dispatcher = new OutboxDispatcher(store, new Gateway(0), null, 10, 50, 1, 1, 10);
+		final long start = System.nanoTime();
+		assertEquals(5, dispatcher.dispatchOnce());
+		// 5 messages at 50 per second: at least 4 gaps of 20ms
+		assertTrue(System.nanoTime() - start >= 80_000_000L);
+	}
+
+	private static class MemoryStore implements IOutboxStore {
+		final List<OutboxMessage> messages = new ArrayList<>();
+
+		void add(final OutboxMessage msg) {
+			msg.id = this.messages.size() + 1;
+			this.messages.add(msg);
+		}
+
+		@Override
+		public void enqueue(final ReadWriteHandle handle, final OutboxMessage message) {
+			this.add(message);
+		}
+
+		@Override
+		public List<OutboxMessage> fetchDue(final int maxMessages) {
+			final Instant now = Instant.now();
+			final List<OutboxMessage> list = new ArrayList<>();
+			for (final OutboxMessage msg : this.messages) {
+				if (msg.status == Status.pending && !msg.nextAttemptAt.isAfter(now) && list.size() < maxMessages) {
+					list.add(msg);
+				}
+			}
+			return list;
+		}
+
+		@Override
+		public void saveOutcomes(final List<OutboxMessage> list) {
+			// messages are updated in place
+		}
+	}
+
+	/**
+	 * stand-in for an smtp/sms gateway that fails the first few calls
+	 */
+	private static class Gateway implements IEmailer, ITexter {
+		final List<String> delivered = new ArrayList<>();
+		private int failuresLeft;
+
+		Gateway(final int nbrFailures) {
+			this.failuresLeft = nbrFailures;
+		}
+
+		private void send(final String channel, final String to) {
+			if (this.failuresLeft > 0) {
+				this.failuresLeft--;
+				throw new IllegalStateException("gateway down");
+			}
+			this.delivered.add(channel + ':' + to);
+		}
+
+		@Override
+		public void sendText(final String senderId, final String numbers, final String sms) {
+			this.send("text", numbers);
+		}
+
+		@Override
+		public void sendEmail(final String toMailIds, final String subject, final String content) {
+			this.send("email", toMailIds);
+		}
+
+		@Override
+		public void sendBulkEmails(final String toMailIds, final String subject, final String content) {
+			this.send("bulkEmail", toMailIds);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.rdb;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.simplity.fm.core.conf.IDbConnectionFactory;
+
+/**
+ * sharing of a connection across db operations of a request
+ *
+ * @author simplity.org
+ *
+ */
+public class ConnectionScopeTest {
+	private IDbConnectionFactory factory;
+	private final List<Connection> connections = new ArrayList<>();
+	private RdbDriver driver;
+
+	@BeforeEach
+	void setup() throws SQLException {
+		this.factory = mock(IDbConnectionFactory.class);
+		when(this.factory.getConnection()).thenAnswer(invocation -> {
+			final Connection con = mock(Connection.class);
+			this.connections.add(con);
+			return con;
+		});
+		this.driver = new RdbDriver(this.factory);
+	}
+
+	@AfterEach
+	void cleanup() {
+		RdbDriver.endConnectionScope();
+	}
+
+	@Test
+	void operationsShareConnection() throws SQLException {
+		RdbDriver.beginConnectionScope();
+		this.driver.read(handle -> {
+			//
+		});
+		this.driver.readWrite(handle -> true);
+		this.driver.read(handle -> {
+			//
+		});
+		verify(this.factory, times(1)).getConnection();
+		final Connection con = this.connections.get(0);
+		verify(con, never()).close();
+
+		RdbDriver.endConnectionScope();
+		verify(con, times(1)).close();
+	}
+
+	@Test
+	void noSharingWithoutScope() throws SQLException {
+		this.driver.read(handle -> {
+			//
+		});
+		this.driver.readWrite(handle -> true);
+		verify(this.factory, times(2)).getConnection();
+		verify(this.connections.get(0), times(1)).close();
+		verify(this.connections.get(1), times(1)).close();
+	}
+
+	@Test
+	void nestedOperationGetsItsOwnConnection() throws SQLException {
+		RdbDriver.beginConnectionScope();
+		this.driver.readWrite(handle -> {
+			this.driver.read(h -> {
+				//
+			});
+			return true;
+		});
+		verify(this.factory, times(2)).getConnection();
+		// the nested one is closed right away
+		verify(this.connections.get(1), times(1)).close();
+		verify(this.connections.get(0), never()).close();
+	}
+
+	@Test
+	void connectionIsDiscardedOnFailure() throws SQLException {
+		RdbDriver.beginConnectionScope();
+		assertThrows(SQLException.class, () -> this.driver.readWrite(handle -> {
+			throw new SQLException("duplicate key", "23505");
+		}));
+		verify(this.connections.get(0), times(1)).close();
+
+		this.driver.read(handle -> {
+			//
+		});
+		verify(this.factory, times(2)).getConnection();
+	}
+}
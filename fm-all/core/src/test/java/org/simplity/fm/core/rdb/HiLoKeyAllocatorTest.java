@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.rdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.simplity.fm.core.conf.IDbConnectionFactory;
+
+/**
+ * @author simplity.org
+ *
+ */
+public class HiLoKeyAllocatorTest {
+
+	@Test
+	void keysComeFromReservedBlocks() throws SQLException {
+		final AtomicLong nextBlock = new AtomicLong(101);
+		final AtomicInteger nbrReservations = new AtomicInteger();
+		final HiLoKeyAllocator allocator = new HiLoKeyAllocator((table, size) -> {
+			nbrReservations.incrementAndGet();
+			return nextBlock.getAndAdd(size);
+		}, 10, 1);
+
+		for (int i = 0; i < 25; i++) {
+			assertEquals(101 + i, allocator.nextKey("t1"));
+		}
+		assertEquals(3, nbrReservations.get());
+
+		// each table has its own blocks
+		assertEquals(131, allocator.nextKey("t2"));
+	}
+
+	@Test
+	void keysAreUniqueAcrossThreads() throws InterruptedException {
+		final AtomicLong nextBlock = new AtomicLong(1);
+		final HiLoKeyAllocator allocator = new HiLoKeyAllocator((table, size) -> nextBlock.getAndAdd(size), 7, 4);
+		final Set<Long> keys = ConcurrentHashMap.newKeySet();
+		final int nbrThreads = 8;
+		final int nbrPerThread = 500;
+		final Thread[] threads = new Thread[nbrThreads];
+		for (int i = 0; i < nbrThreads; i++) {
+			threads[i] = new Thread(() -> {
+				for (int j = 0; j < nbrPerThread; j++) {
+					try {
+						keys.add(allocator.nextKey("t"));
+					} catch (final SQLException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (final Thread t : threads) {
+			t.join();
+		}
+		assertEquals(nbrThreads * nbrPerThread, keys.size());
+	}
+
+	@Test
+	void keyTableReserverUsesItsOwnConnection() throws SQLException {
+		final IDbConnectionFactory factory = mock(IDbConnectionFactory.class);
+		final Connection con = mock(Connection.class);
+		final PreparedStatement ps = mock(PreparedStatement.class);
+		final ResultSet rs = mock(ResultSet.class);
+		when(factory.getConnection()).thenReturn(con);
+		when(con.prepareStatement(anyString())).thenReturn(ps);
+		when(ps.executeUpdate()).thenReturn(1);
+		when(ps.executeQuery()).thenReturn(rs);
+		when(rs.next()).thenReturn(true);
+		when(rs.getLong(1)).thenReturn(110L, 120L);
+
+		final HiLoKeyAllocator.IBlockReserver reserver = HiLoKeyAllocator.keyTableReserver(factory, "keys");
+		assertEquals(100L, reserver.reserve("t1", 10));
+		assertEquals(110L, reserver.reserve("t1", 10));
+
+		// one connection, kept open, with each reservation committed
+		verify(factory, times(1)).getConnection();
+		verify(con).setAutoCommit(false);
+		verify(con, times(2)).commit();
+		verify(con, never()).close();
+	}
+}
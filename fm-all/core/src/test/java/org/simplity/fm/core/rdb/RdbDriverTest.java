@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.rdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.simplity.fm.core.conf.IDbConnectionFactory;
+
+/**
+ * routing of operations between the primary and the replicas. Factories are
+ * mocked, and we just check which factory was asked for a connection
+ *
+ * @author simplity.org
+ *
+ */
+public class RdbDriverTest {
+	private IDbConnectionFactory primary;
+	private IDbConnectionFactory replica1;
+	private IDbConnectionFactory replica2;
+
+	@BeforeEach
+	void setup() throws SQLException {
+		this.primary = newFactory();
+		this.replica1 = newFactory();
+		this.replica2 = newFactory();
+	}
+
+	@AfterEach
+	void cleanup() {
+		RdbDriver.unbindSession();
+	}
+
+	private static IDbConnectionFactory newFactory() throws SQLException {
+		final IDbConnectionFactory factory = mock(IDbConnectionFactory.class);
+		when(factory.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+		return factory;
+	}
+
+	@Test
+	void readsAreRoundRobin() throws SQLException {
+		final RdbDriver driver = new RdbDriver(this.primary,
+				new IDbConnectionFactory[] { this.replica1, this.replica2 }, false, 0);
+		for (int i = 0; i < 4; i++) {
+			driver.read(handle -> {
+				//
+			});
+		}
+		verify(this.replica1, times(2)).getConnection();
+		verify(this.replica2, times(2)).getConnection();
+		verify(this.primary, never()).getConnection();
+	}
+
+	@Test
+	void writesUsePrimary() throws SQLException {
+		final RdbDriver driver = new RdbDriver(this.primary,
+				new IDbConnectionFactory[] { this.replica1, this.replica2 }, false, 0);
+		driver.readWrite(handle -> true);
+		driver.transact(handle -> {
+			//
+		});
+		verify(this.primary, times(2)).getConnection();
+		verify(this.replica1, never()).getConnection();
+		verify(this.replica2, never()).getConnection();
+	}
+
+	@Test
+	void leastOutstandingAvoidsBusyReplica() throws SQLException {
+		final RdbDriver driver = new RdbDriver(this.primary,
+				new IDbConnectionFactory[] { this.replica1, this.replica2 }, true, 0);
+		/*
+		 * while a connection is in use, the next read should go to the other
+		 * replica, irrespective of where the round-robin would have pointed
+		 */
+		driver.read(outer -> {
+			driver.read(inner -> {
+				//
+			});
+		});
+		verify(this.replica1, times(1)).getConnection();
+		verify(this.replica2, times(1)).getConnection();
+	}
+
+	@Test
+	void readYourWrites() throws SQLException {
+		final RdbDriver driver = new RdbDriver(this.primary, new IDbConnectionFactory[] { this.replica1 }, false, 60);
+		RdbDriver.bindSession("writer", null);
+		driver.readWrite(handle -> true);
+		driver.read(handle -> {
+			//
+		});
+		verify(this.primary, times(2)).getConnection();
+		verify(this.replica1, never()).getConnection();
+
+		RdbDriver.bindSession("someone else", null);
+		driver.read(handle -> {
+			//
+		});
+		verify(this.replica1, times(1)).getConnection();
+	}
+
+	@Test
+	void expiredWritersArePurgedOnTheNextIntervalOnly() throws SQLException, InterruptedException {
+		final RdbDriver driver = new RdbDriver(this.primary, new IDbConnectionFactory[] { this.replica1 }, false, 1);
+		RdbDriver.bindSession("first", null);
+		driver.readWrite(handle -> true);
+		Thread.sleep(1100);
+		RdbDriver.bindSession("second", null);
+		driver.readWrite(handle -> true);
+		assertEquals(1, driver.getNbrRecentWriters(), "first writer has expired and is purged");
+
+		RdbDriver.bindSession("third", null);
+		driver.readWrite(handle -> true);
+		assertEquals(2, driver.getNbrRecentWriters(), "no purge until the interval is over");
+	}
+
+	@Test
+	void noReplicas() throws SQLException {
+		final RdbDriver driver = new RdbDriver(this.primary);
+		driver.read(handle -> {
+			//
+		});
+		verify(this.primary, times(1)).getConnection();
+	}
+
+	@Test
+	void transactIsRetriedIfNothingWasCommitted() throws SQLException {
+		final PreparedStatement ps = mock(PreparedStatement.class);
+		when(ps.executeUpdate()).thenThrow(new SQLException("deadlock", "40001")).thenReturn(1);
+		final RdbDriver driver = new RdbDriver(newAutoCommitFactory(ps), null, false, 0, new RetryPolicy(3, 0, 0));
+		final int[] nbrCalls = { 0 };
+		driver.transact(handle -> {
+			nbrCalls[0]++;
+			handle.setAutoCommitMode(false);
+			handle.write("UPDATE t SET a=?", new Object[] { 1L });
+			handle.commit();
+		});
+		assertEquals(2, nbrCalls[0]);
+	}
+
+	@Test
+	void transactIsNotRetriedAfterAnAutoCommittedWrite() throws SQLException {
+		final PreparedStatement ps = mock(PreparedStatement.class);
+		when(ps.executeUpdate()).thenReturn(1).thenThrow(new SQLException("deadlock", "40001"));
+		final RdbDriver driver = new RdbDriver(newAutoCommitFactory(ps), null, false, 0, new RetryPolicy(3, 0, 0));
+		final int[] nbrCalls = { 0 };
+		assertThrows(SQLException.class, () -> driver.transact(handle -> {
+			nbrCalls[0]++;
+			handle.write("UPDATE t SET a=?", new Object[] { 1L });
+			handle.write("UPDATE t SET b=?", new Object[] { 1L });
+		}));
+		assertEquals(1, nbrCalls[0]);
+	}
+
+	/*
+	 * connections are in auto-commit mode, as they are when taken from a pool
+	 */
+	private static IDbConnectionFactory newAutoCommitFactory(final PreparedStatement ps) throws SQLException {
+		final IDbConnectionFactory factory = mock(IDbConnectionFactory.class);
+		when(factory.getConnection()).thenAnswer(invocation -> {
+			final Connection con = mock(Connection.class);
+			when(con.getAutoCommit()).thenReturn(true);
+			when(con.prepareStatement(anyString())).thenReturn(ps);
+			return con;
+		});
+		return factory;
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.rdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.simplity.fm.core.conf.IDbConnectionFactory;
+
+/**
+ * retry of transactions that fail with transient errors
+ *
+ * @author simplity.org
+ *
+ */
+public class RetryPolicyTest {
+	private static final SQLException DEADLOCK = new SQLException("deadlock detected", "40P01");
+	private IDbConnectionFactory factory;
+
+	@BeforeEach
+	void setup() throws SQLException {
+		this.factory = mock(IDbConnectionFactory.class);
+		when(this.factory.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+	}
+
+	@Test
+	void classification() {
+		assertTrue(RetryPolicy.isTransient(DEADLOCK));
+		assertTrue(RetryPolicy.isTransient(new SQLException("serialization failure", "40001")));
+		assertTrue(RetryPolicy.isTransient(new SQLTransactionRollbackException("rolled back")));
+		assertTrue(RetryPolicy.isTransient(new SQLException("ORA-00060", "61000", 60)));
+		assertTrue(RetryPolicy.isTransient(new RuntimeException(DEADLOCK)));
+		assertFalse(RetryPolicy.isTransient(new SQLException("duplicate key", "23505")));
+		assertFalse(RetryPolicy.isTransient(new RuntimeException("oops")));
+	}
+
+	@Test
+	void backoffIsCapped() {
+		final RetryPolicy policy = new RetryPolicy(10, 10, 50);
+		for (int i = 1; i < 10; i++) {
+			final long wait = policy.backoffMillis(i);
+			assertTrue(wait >= 0 && wait <= 50);
+		}
+		assertTrue(policy.backoffMillis(1) <= 10);
+	}
+
+	@Test
+	void readWriteIsRetried() throws SQLException {
+		final RetryPolicy policy = new RetryPolicy(3, 0, 0);
+		final RdbDriver driver = new RdbDriver(this.factory, null, false, 0, policy);
+		final AtomicInteger calls = new AtomicInteger();
+		driver.readWrite(handle -> {
+			if (calls.incrementAndGet() == 1) {
+				throw DEADLOCK;
+			}
+			return true;
+		});
+		assertEquals(2, calls.get());
+		verify(this.factory, times(2)).getConnection();
+		assertEquals(1, policy.getNbrRetries());
+		assertEquals(1, policy.getNbrRecovered());
+	}
+
+	@Test
+	void givesUpAfterMaxAttempts() throws SQLException {
+		final RetryPolicy policy = new RetryPolicy(2, 0, 0);
+		final RdbDriver driver = new RdbDriver(this.factory, null, false, 0, policy);
+		final SQLException e = assertThrows(SQLException.class, () -> driver.readWrite(handle -> {
+			throw DEADLOCK;
+		}));
+		assertSame(DEADLOCK, e);
+		verify(this.factory, times(2)).getConnection();
+		assertEquals(1, policy.getNbrGivenUp());
+	}
+
+	@Test
+	void otherErrorsAreNotRetriedAndKeepTheirCause() throws SQLException {
+		final RdbDriver driver = new RdbDriver(this.factory, null, false, 0, new RetryPolicy(3, 0, 0));
+		final IllegalStateException cause = new IllegalStateException("bug");
+		final SQLException e = assertThrows(SQLException.class, () -> driver.readWrite(handle -> {
+			throw cause;
+		}));
+		assertSame(cause, e.getCause());
+		verify(this.factory, times(1)).getConnection();
+	}
+
+	@Test
+	void transactIsNotRetriedAfterCommit() throws SQLException {
+		final RetryPolicy policy = new RetryPolicy(3, 0, 0);
+		final RdbDriver driver = new RdbDriver(this.factory, null, false, 0, policy);
+		final AtomicInteger calls = new AtomicInteger();
+		driver.transact(handle -> {
+			if (calls.incrementAndGet() == 1) {
+				throw DEADLOCK;
+			}
+		});
+		assertEquals(2, calls.get());
+
+		assertThrows(SQLException.class, () -> driver.transact(handle -> {
+			handle.commit();
+			throw DEADLOCK;
+		}));
+		verify(this.factory, times(3)).getConnection();
+	}
+}
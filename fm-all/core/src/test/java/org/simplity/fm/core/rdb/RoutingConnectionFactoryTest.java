@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.rdb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.simplity.fm.core.conf.IDbConnectionFactory;
+
+/**
+ * routing of connections to data sources that are created and closed on
+ * demand
+ *
+ * @author simplity.org
+ *
+ */
+public class RoutingConnectionFactoryTest {
+	private IDbConnectionFactory defaultFactory;
+	private Map<String, DataSource> created;
+
+	@BeforeEach
+	void setup() throws SQLException {
+		this.defaultFactory = mock(IDbConnectionFactory.class);
+		when(this.defaultFactory.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+		this.created = new HashMap<>();
+	}
+
+	@AfterEach
+	void cleanup() {
+		RdbDriver.unbindSession();
+	}
+
+	private DataSource newDataSource(final String route) throws SQLException {
+		final DataSource ds = mock(DataSource.class, withSettings().extraInterfaces(AutoCloseable.class));
+		when(ds.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+		this.created.put(route, ds);
+		return ds;
+	}
+
+	@Test
+	void dataSourceIsCreatedOnFirstUseOfARoute() throws SQLException {
+		final RoutingConnectionFactory factory = new RoutingConnectionFactory(this.defaultFactory, null,
+				this::newDataSource, 0);
+		assertEquals(0, factory.getNbrActiveRoutes());
+		factory.getConnection("s1");
+		factory.getConnection("s1");
+		factory.getConnection("s2");
+		assertEquals(2, factory.getNbrActiveRoutes());
+		verify(this.created.get("s1"), times(2)).getConnection();
+		verify(this.created.get("s2"), times(1)).getConnection();
+	}
+
+	@Test
+	void tenantIsRoutedByTheRouter() throws SQLException {
+		final RoutingConnectionFactory factory = new RoutingConnectionFactory(this.defaultFactory,
+				tenant -> tenant.equals(1L) ? "t1" : null, this::newDataSource, 0);
+		RdbDriver.bindSession(null, 1L);
+		factory.getConnection();
+		verify(this.created.get("t1"), times(1)).getConnection();
+
+		RdbDriver.bindSession(null, 2L);
+		factory.getConnection();
+		RdbDriver.unbindSession();
+		factory.getConnection();
+		verify(this.defaultFactory, times(2)).getConnection();
+		assertEquals(1, factory.getNbrActiveRoutes());
+	}
+
+	@Test
+	void idleRouteIsClosed() throws Exception {
+		final RoutingConnectionFactory factory = new RoutingConnectionFactory(this.defaultFactory, null,
+				this::newDataSource, 1);
+		factory.getConnection("s1");
+		final DataSource first = this.created.get("s1");
+		Thread.sleep(1100);
+
+		factory.getConnection("s1");
+		verify((AutoCloseable) first).close();
+		final DataSource second = this.created.get("s1");
+		verify(second, times(1)).getConnection();
+		assertEquals(1, factory.getNbrActiveRoutes());
+	}
+
+	@Test
+	void routeInUseIsNotClosed() throws Exception {
+		final RoutingConnectionFactory[] factory = new RoutingConnectionFactory[1];
+		factory[0] = new RoutingConnectionFactory(this.defaultFactory, null, route -> {
+			final DataSource ds = this.newDataSource(route);
+			if (route.equals("slow")) {
+				/*
+				 * pool keeps us waiting beyond the idle time, and a sweep
+				 * happens meanwhile
+				 */
+				when(ds.getConnection()).thenAnswer(invocation -> {
+					Thread.sleep(1100);
+					factory[0].getConnection("other");
+					return mock(Connection.class);
+				});
+			}
+			return ds;
+		}, 1);
+		factory[0].getConnection("slow");
+		verify((AutoCloseable) this.created.get("slow"), never()).close();
+		assertEquals(2, factory[0].getNbrActiveRoutes());
+	}
+}
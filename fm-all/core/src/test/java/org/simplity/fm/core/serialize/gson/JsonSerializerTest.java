@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.serialize.gson;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+import org.simplity.fm.core.data.Field;
+import org.simplity.fm.core.datatypes.BooleanType;
+import org.simplity.fm.core.datatypes.DateType;
+import org.simplity.fm.core.datatypes.DecimalType;
+import org.simplity.fm.core.datatypes.IntegerType;
+import org.simplity.fm.core.datatypes.TextType;
+import org.simplity.fm.core.datatypes.TimestampType;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * rows and fields written with the pre-compiled row writer should be
+ * identical to the ones written field-by-field with JsonWriter
+ *
+ * @author simplity.org
+ *
+ */
+public class JsonSerializerTest {
+	private static final Field[] FIELDS = { new Field("name", 0, new TextType("text", null, 0, 1000, null), null, null, null, false),
+			new Field("count", 1, new IntegerType("int", null, -1000, 1000), null, null, null, false),
+			new Field("amount", 2, new DecimalType("dec", null, -1000, 1000, 2), null, null, null, false),
+			new Field("isActive", 3, new BooleanType("bool", null), null, null, null, false),
+			new Field("date", 4, new DateType("date", null, 1000, 1000), null, null, null, false),
+			new Field("time\"stamp", 5, new TimestampType("ts", null), null, null, null, false) };
+
+	private static final Object[][] ROWS = {
+			{ "plain", 12L, 1.25, true, LocalDate.of(2020, 2, 29), Instant.ofEpochSecond(1600000000L) },
+			{ "quote\" back\\ tab\t nl\n ctl\u0001 sep\u2028 html<>&='", -3L, -0.5, false, null, null },
+			{ null, null, null, null, null, null },
+			/*
+			 * values of unexpected types should fall back to the generic path
+			 */
+			{ 42L, "7", 3L, "true", "2020-01-01", 1L } };
+
+	@Test
+	void rowsAreSameAsJsonWriter() throws IOException {
+		final StringWriter sw = new StringWriter();
+		final JsonSerializer ser = new JsonSerializer(sw);
+		ser.beginObject();
+		ser.array("list", FIELDS, ROWS);
+		ser.name("after");
+		ser.value(1L);
+		ser.endObject();
+
+		assertEquals(expected(), sw.toString());
+	}
+
+	@Test
+	void fieldsAreSameAsJsonWriter() throws IOException {
+		for (final Object[] row : ROWS) {
+			final StringWriter sw = new StringWriter();
+			final JsonSerializer ser = new JsonSerializer(sw);
+			ser.beginObject();
+			ser.name("before");
+			ser.value(1L);
+			ser.fields(FIELDS, row);
+			ser.name("after");
+			ser.value(1L);
+			ser.endObject();
+
+			final StringWriter expected = new StringWriter();
+			final JsonWriter writer = new JsonWriter(expected);
+			writer.beginObject();
+			writer.name("before");
+			writer.value(1L);
+			writeFields(writer, row);
+			writer.name("after");
+			writer.value(1L);
+			writer.endObject();
+			writer.close();
+			assertEquals(expected.toString(), sw.toString());
+		}
+	}
+
+	@Test
+	void emptyRows() {
+		final StringWriter sw = new StringWriter();
+		final JsonSerializer ser = new JsonSerializer(sw);
+		ser.beginArray();
+		ser.arrayElements(FIELDS, new Object[0][]);
+		ser.endArray();
+		assertEquals("[]", sw.toString());
+	}
+
+	private static String expected() throws IOException {
+		final StringWriter sw = new StringWriter();
+		final JsonWriter writer = new JsonWriter(sw);
+		writer.beginObject();
+		writer.name("list");
+		writer.beginArray();
+		for (final Object[] row : ROWS) {
+			writer.beginObject();
+			writeFields(writer, row);
+			writer.endObject();
+		}
+		writer.endArray();
+		writer.name("after");
+		writer.value(1L);
+		writer.endObject();
+		writer.close();
+		return sw.toString();
+	}
+
+	private static void writeFields(final JsonWriter writer, final Object[] row) throws IOException {
+		for (int i = 0; i < FIELDS.length; i++) {
+			writer.name(FIELDS[i].getName());
+			final Object value = row[i];
+			if (value == null) {
+				writer.value("");
+			} else if (value instanceof Boolean) {
+				writer.value(((Boolean) value).booleanValue());
+			} else if (value instanceof Number) {
+				writer.value((Number) value);
+			} else {
+				writer.value(value.toString());
+			}
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.simplity.fm.core.Conventions;
+import org.simplity.fm.core.app.App;
+import org.simplity.fm.core.http.Agent;
+import org.simplity.fm.core.serialize.gson.JsonInputObject;
+import org.simplity.fm.core.serialize.gson.JsonSerializer;
+import org.simplity.fm.core.testapp.gen.DefinedComponents;
+
+import com.google.gson.JsonParser;
+
+/**
+ * lists are served from the app configured with the components in testapp
+ *
+ * @author simplity.org
+ *
+ */
+public class ListServiceTest {
+
+	@BeforeAll
+	static void configure() {
+		final App.Config config = new App.Config();
+		config.appName = "test";
+		config.appRootPackage = "org.simplity.fm.core.testapp";
+		App.configureApp(config);
+	}
+
+	/**
+	 * serve the payload, and return the response
+	 */
+	private static String serve(final String json, final String requestEtag, final String[] responseEtag)
+			throws Exception {
+		final StringWriter sw = new StringWriter();
+		final IServiceContext ctx = new DefaultContext(null, new JsonSerializer(sw));
+		if (requestEtag != null) {
+			ctx.setValue(Conventions.Http.CTX_REQUEST_ETAG, requestEtag);
+		}
+		ListService.getInstance().serve(ctx,
+				new JsonInputObject(new JsonParser().parse(json).getAsJsonObject()));
+		assertTrue(ctx.allOk());
+		if (responseEtag != null) {
+			responseEtag[0] = (String) ctx.getValue(Conventions.Http.CTX_RESPONSE_ETAG);
+		}
+		return sw.toString();
+	}
+
+	@Test
+	void designTimeListIsRenderedOnce() throws Exception {
+		final String first = serve("{\"list\":\"colors\"}", null, null);
+		assertTrue(first.contains("\"Red\""));
+		final int before = DefinedComponents.nbrGets.get();
+		assertEquals(first, serve("{\"list\":\"colors\"}", null, null));
+		assertEquals(first, serve("{\"list\":\"colors\"}", null, null));
+		assertEquals(0, DefinedComponents.nbrGets.get() - before);
+	}
+
+	@Test
+	void matchingEtagSkipsTheResponse() throws Exception {
+		final String[] etag = new String[1];
+		assertNotEquals("", serve("{\"list\":\"colors\"}", null, etag));
+		assertNotNull(etag[0]);
+		assertEquals("", serve("{\"list\":\"colors\"}", etag[0], null));
+		assertNotEquals("", serve("{\"list\":\"colors\"}", "\"stale\"", null));
+	}
+
+	@Test
+	void keyedListIsCachedPerKey() throws Exception {
+		final String[] redTag = new String[1];
+		final String[] blueTag = new String[1];
+		final String red = serve("{\"list\":\"shades\",\"key\":\"r\"}", null, redTag);
+		final String blue = serve("{\"list\":\"shades\",\"key\":\"b\"}", null, blueTag);
+		assertTrue(red.contains("Maroon"));
+		assertTrue(blue.contains("Navy"));
+		assertNotEquals(redTag[0], blueTag[0]);
+
+		final int before = DefinedComponents.nbrGets.get();
+		assertEquals(red, serve("{\"list\":\"shades\",\"key\":\"r\"}", null, null));
+		assertEquals(0, DefinedComponents.nbrGets.get() - before);
+	}
+
+	@Test
+	void severalListsInOneGo() throws Exception {
+		final String[] tag = new String[1];
+		final String json = "{\"lists\":[{\"list\":\"colors\"},{\"list\":\"shades\",\"key\":\"b\"}]}";
+		final String text = serve(json, null, tag);
+		assertTrue(text.contains("\"colors\":[") && text.contains("\"shades|b\":["), text);
+		assertEquals("", serve(json, tag[0], null));
+
+		// etag of the combination is not that of any one of the lists
+		final String[] colorsTag = new String[1];
+		serve("{\"list\":\"colors\"}", null, colorsTag);
+		assertNotEquals(colorsTag[0], tag[0]);
+	}
+
+	@Test
+	void agentRespondsWithNotModified() throws Exception {
+		final HttpServletResponse first = respond(null);
+		final ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+		verify(first).setHeader(eq(Conventions.Http.HEADER_ETAG), etag.capture());
+
+		final HttpServletResponse second = respond(etag.getValue());
+		verify(second).setStatus(Conventions.Http.STATUS_NOT_MODIFIED);
+		verify(second, never()).getWriter();
+	}
+
+	private static HttpServletResponse respond(final String etag) throws Exception {
+		final HttpServletRequest req = mock(HttpServletRequest.class);
+		when(req.getHeader(Conventions.Http.HEADER_SERVICE)).thenReturn(Conventions.App.SERVICE_LIST);
+		when(req.getHeader(Conventions.Http.HEADER_IF_NONE_MATCH)).thenReturn(etag);
+		when(req.getContentLength()).thenReturn(0);
+		when(req.getQueryString()).thenReturn("list=colors");
+		final HttpServletResponse resp = mock(HttpServletResponse.class);
+		when(resp.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+		Agent.getAgent().serve(req, resp);
+		return resp;
+	}
+}
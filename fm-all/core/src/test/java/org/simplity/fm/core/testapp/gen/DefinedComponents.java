@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.testapp.gen;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.simplity.fm.core.IComponents;
+import org.simplity.fm.core.data.Form;
+import org.simplity.fm.core.data.Record;
+import org.simplity.fm.core.service.IServiceContext;
+import org.simplity.fm.core.validn.IValueList;
+import org.simplity.fm.core.validn.KeyedValueList;
+import org.simplity.fm.core.validn.ValueList;
+
+/**
+ * stands in for the generated class, so that an app can be configured for
+ * tests. Has a simple list named colors and a keyed list named shades
+ *
+ * @author simplity.org
+ *
+ */
+public class DefinedComponents implements IComponents {
+	/**
+	 * number of times the values of any list were asked for
+	 */
+	public static final AtomicInteger nbrGets = new AtomicInteger();
+
+	@Override
+	public Form<?> newForm(final String formName) {
+		return null;
+	}
+
+	@Override
+	public Record newRecord(final String recordName) {
+		return null;
+	}
+
+	@Override
+	public IValueList newValueList(final String listName) {
+		if (listName.equals("colors")) {
+			return new Colors();
+		}
+		if (listName.equals("shades")) {
+			return new Shades();
+		}
+		return null;
+	}
+
+	private static class Colors extends ValueList {
+		Colors() {
+			super("colors", new Object[][] { { "r", "Red" }, { "b", "Blue" } });
+		}
+
+		@Override
+		public Object[][] getList(final Object keyValue, final IServiceContext ctx) {
+			nbrGets.incrementAndGet();
+			return super.getList(keyValue, ctx);
+		}
+	}
+
+	private static class Shades extends KeyedValueList {
+		Shades() {
+			this.name = "shades";
+			this.values.put("r", new ValueList("r", new Object[][] { { "m", "Maroon" }, { "c", "Crimson" } }));
+			this.values.put("b", new ValueList("b", new Object[][] { { "n", "Navy" } }));
+		}
+
+		@Override
+		public Object[][] getList(final Object keyValue, final IServiceContext ctx) {
+			nbrGets.incrementAndGet();
+			return super.getList(keyValue, ctx);
+		}
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.trace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author simplity.org
+ *
+ */
+public class TracerTest {
+	private final ITraceSink originalSink = Tracer.getSink();
+
+	@AfterEach
+	void restore() {
+		Tracer.setSink(this.originalSink);
+	}
+
+	@Test
+	void spansFormATree() {
+		final RingBufferTraceSink sink = new RingBufferTraceSink(2);
+		Tracer.setSink(sink);
+		try (Span trace = Tracer.startTrace("request")) {
+			try (Span service = Tracer.startSpan("service", "s1")) {
+				try (Span sql = Tracer.startSpan("sql", "select 1")) {
+					//
+				}
+				try (Span sql = Tracer.startSpan("sql", "select 2")) {
+					//
+				}
+			}
+		}
+
+		final List<Span> traces = sink.getTraces();
+		assertEquals(1, traces.size());
+		final Span trace = traces.get(0);
+		assertEquals(1, trace.getChildren().size());
+		final Span service = trace.getChildren().get(0);
+		assertEquals("s1", service.getDetail());
+		assertEquals(2, service.getChildren().size());
+		assertEquals("select 2", service.getChildren().get(1).getDetail());
+		assertTrue(trace.getElapsedNanos() >= service.getElapsedNanos());
+	}
+
+	@Test
+	void noTraceMeansNoSpans() {
+		final RingBufferTraceSink sink = new RingBufferTraceSink(2);
+		Tracer.setSink(sink);
+		try (Span span = Tracer.startSpan("orphan")) {
+			assertSame(Span.NOOP, span);
+		}
+		assertEquals(0, sink.getNbrReceived());
+	}
+
+	@Test
+	void ringBufferKeepsLatest() {
+		final RingBufferTraceSink sink = new RingBufferTraceSink(2);
+		Tracer.setSink(sink);
+		for (int i = 0; i < 3; i++) {
+			try (Span trace = Tracer.startTrace("request")) {
+				trace.setDetail("r" + i);
+			}
+		}
+		final List<Span> traces = sink.getTraces();
+		assertEquals(2, traces.size());
+		assertEquals("r2", traces.get(0).getDetail());
+		assertEquals("r1", traces.get(1).getDetail());
+	}
+
+	@Test
+	void tracingIsOffUnlessASinkIsSet() {
+		Tracer.setSink(null);
+		assertSame(Span.NOOP, Tracer.startTrace("request"));
+	}
+
+	@Test
+	void spansBeyondTheLimitAreOnlyCounted() {
+		final RingBufferTraceSink sink = new RingBufferTraceSink(2);
+		Tracer.setSink(sink);
+		try (Span trace = Tracer.startTrace("request")) {
+			for (int i = 0; i < Tracer.MAX_SPANS_PER_TRACE + 10; i++) {
+				try (Span sql = Tracer.startSpan("sql")) {
+					//
+				}
+			}
+		}
+		final Span trace = sink.getTraces().get(0);
+		assertEquals(Tracer.MAX_SPANS_PER_TRACE - 1, trace.getChildren().size());
+		assertEquals(11, trace.getNbrDropped());
+		assertTrue(trace.toString().endsWith("11 more spans were dropped\n"));
+	}
+
+	@Test
+	void sinkIsToldOfEverySpanAsItStartsAndEnds() {
+		final List<String> events = new ArrayList<>();
+		Tracer.setSink(new ITraceSink() {
+			@Override
+			public void accept(final Span trace) {
+				events.add("accept " + trace.getName());
+			}
+
+			@Override
+			public void spanStarted(final Span span) {
+				events.add("start " + span.getName());
+			}
+
+			@Override
+			public void spanEnded(final Span span) {
+				events.add("end " + span.getName());
+			}
+		});
+		try (Span trace = Tracer.startTrace("request")) {
+			try (Span sql = Tracer.startSpan("sql")) {
+				//
+			}
+		}
+		assertEquals("[start request, start sql, end sql, end request, accept request]", events.toString());
+	}
+
+	/*
+	 * JFR is used through reflection, as it is by JfrTraceSink, so that this
+	 * module compiles without JFR
+	 */
+	@Test
+	void jfrEventsShouldCoverTheSpan() throws Exception {
+		assumeTrue(JfrTraceSink.isAvailable());
+		Tracer.setSink(new JfrTraceSink());
+		final Path file = Files.createTempFile("trace", ".jfr");
+		final Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+		final AutoCloseable recording = (AutoCloseable) recordingClass.newInstance();
+		try {
+			recordingClass.getMethod("enable", String.class).invoke(recording, JfrTraceSink.EVENT_NAME);
+			recordingClass.getMethod("start").invoke(recording);
+			try (Span trace = Tracer.startTrace("request")) {
+				try (Span sql = Tracer.startSpan("sql", "select 1")) {
+					Thread.sleep(20);
+				}
+			}
+			recordingClass.getMethod("stop").invoke(recording);
+			recordingClass.getMethod("dump", Path.class).invoke(recording, file);
+
+			final List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+					.getMethod("readAllEvents", Path.class).invoke(null, file);
+			assertEquals(2, events.size());
+			final Class<?> eventClass = Class.forName("jdk.jfr.consumer.RecordedObject");
+			final Method getString = eventClass.getMethod("getString", String.class);
+			Object sql = null;
+			for (final Object event : events) {
+				if ("sql".equals(getString.invoke(event, "name"))) {
+					sql = event;
+				}
+			}
+			assertEquals("select 1", getString.invoke(sql, "detail"));
+			assertEquals(1, eventClass.getMethod("getInt", String.class).invoke(sql, "depth"));
+			final Duration duration = (Duration) Class.forName("jdk.jfr.consumer.RecordedEvent")
+					.getMethod("getDuration").invoke(sql);
+			assertTrue(duration.toMillis() >= 20, "duration should be from the start to the end of the span");
+		} finally {
+			recording.close();
+			Files.delete(file);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.core.validn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author simplity.org
+ *
+ */
+public class ValueListTest {
+	private static final Object[][] TEXTS = { { "M", "Male" }, { "F", "Female" } };
+	private static final Object[][] NUMBERS = { { 91L, "India" }, { 1L, "USA" }, { 44L, "UK" } };
+
+	@Test
+	void textListShouldValidateOnText() {
+		final ValueList vl = new ValueList("gender", TEXTS);
+		assertTrue(vl.isValid("M", null, null));
+		assertFalse(vl.isValid("m", null, null));
+		assertFalse(vl.isValid("Male", null, null));
+	}
+
+	@Test
+	void numericListShouldValidateNumbersAndTheirText() {
+		final ValueList vl = new ValueList("country", NUMBERS);
+		assertTrue(vl.isValid(91L, null, null));
+		assertTrue(vl.isValid(44, null, null));
+		assertTrue(vl.isValid("1", null, null));
+		assertFalse(vl.isValid(2L, null, null));
+		assertFalse(vl.isValid("India", null, null));
+	}
+
+	@Test
+	void getAllShouldBeBuiltOnceAndBeReadOnly() {
+		final ValueList vl = new ValueList("country", NUMBERS);
+		final Map<String, String> all = vl.getAll(null);
+		assertEquals("91", all.get("India"));
+		assertEquals(3, all.size());
+		assertSame(all, vl.getAll(null));
+		assertThrows(UnsupportedOperationException.class, () -> all.put("a", "b"));
+	}
+
+	@Test
+	void keyedListShouldValidateWithinKey() {
+		final KeyedValueList kl = new KeyedValueList();
+		kl.name = "state";
+		kl.values = new HashMap<>();
+		kl.values.put(91L, new ValueList(91L, new Object[][] { { "KA", "Karnataka" } }));
+		kl.values.put(1L, new ValueList(1L, new Object[][] { { "CA", "California" } }));
+
+		assertTrue(kl.isValid("KA", 91L, null));
+		assertFalse(kl.isValid("CA", 91L, null));
+		assertFalse(kl.isValid("KA", 44L, null));
+
+		final Map<String, String> all = kl.getAll(null);
+		assertEquals("CA", all.get("1|California"));
+		assertSame(all, kl.getAll(null));
+	}
+}
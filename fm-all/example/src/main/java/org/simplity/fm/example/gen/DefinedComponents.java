@@ -0,0 +1,118 @@
+package org.simplity.fm.example.gen;
+
+import org.simplity.fm.core.IComponents;
+import org.simplity.fm.core.data.Form;
+import org.simplity.fm.core.data.Record;
+import org.simplity.fm.core.validn.IValueList;
+
+/**
+ * creates instances of forms, records and lists that are generated for this app
+ */
+public class DefinedComponents implements IComponents {
+
+	@Override
+	public Form<?> newForm(final String formName) {
+		switch (formName) {
+		case "marksEntry":
+			return new org.simplity.fm.example.gen.form.MarksEntryForm();
+		case "studentCieDetail":
+			return new org.simplity.fm.example.gen.form.StudentCieDetailForm();
+		case "studentDetail":
+			return new org.simplity.fm.example.gen.form.StudentDetailForm();
+		case "user":
+			return new org.simplity.fm.example.gen.form.UserForm();
+		default:
+			return null;
+		}
+	}
+
+	@Override
+	public Record newRecord(final String recordName) {
+		switch (recordName) {
+		case "studentAssessmentDetail":
+			return new org.simplity.fm.example.gen.rec.StudentAssessmentDetailRecord();
+		case "studentCieDetail":
+			return new org.simplity.fm.example.gen.rec.StudentCieDetailRecord();
+		case "studentDetail":
+			return new org.simplity.fm.example.gen.rec.StudentDetailRecord();
+		case "subjectSectionDetail":
+			return new org.simplity.fm.example.gen.rec.SubjectSectionDetailRecord();
+		case "user":
+			return new org.simplity.fm.example.gen.rec.UserRecord();
+		default:
+			return null;
+		}
+	}
+
+	@Override
+	public IValueList newValueList(final String listName) {
+		switch (listName) {
+		case "accountStatus":
+			return new org.simplity.fm.example.gen.list.AccountStatus();
+		case "admissionQuota":
+			return new org.simplity.fm.example.gen.list.AdmissionQuota();
+		case "allSubjectList":
+			return new org.simplity.fm.example.gen.list.AllSubjectList();
+		case "assessmentItemList":
+			return new org.simplity.fm.example.gen.list.AssessmentItemList();
+		case "assessmentSchemeList":
+			return new org.simplity.fm.example.gen.list.AssessmentSchemeList();
+		case "bloodGroup":
+			return new org.simplity.fm.example.gen.list.BloodGroup();
+		case "degreeList":
+			return new org.simplity.fm.example.gen.list.DegreeList();
+		case "departmentList":
+			return new org.simplity.fm.example.gen.list.DepartmentList();
+		case "designationList":
+			return new org.simplity.fm.example.gen.list.DesignationList();
+		case "documentType":
+			return new org.simplity.fm.example.gen.list.DocumentType();
+		case "domicileState":
+			return new org.simplity.fm.example.gen.list.DomicileState();
+		case "evaluatorList":
+			return new org.simplity.fm.example.gen.list.EvaluatorList();
+		case "gender":
+			return new org.simplity.fm.example.gen.list.Gender();
+		case "instituteList":
+			return new org.simplity.fm.example.gen.list.InstituteList();
+		case "instituteType":
+			return new org.simplity.fm.example.gen.list.InstituteType();
+		case "levelList":
+			return new org.simplity.fm.example.gen.list.LevelList();
+		case "levelSectionList":
+			return new org.simplity.fm.example.gen.list.LevelSectionList();
+		case "offeredSubjectList":
+			return new org.simplity.fm.example.gen.list.OfferedSubjectList();
+		case "programLevelList":
+			return new org.simplity.fm.example.gen.list.ProgramLevelList();
+		case "programList":
+			return new org.simplity.fm.example.gen.list.ProgramList();
+		case "relationType":
+			return new org.simplity.fm.example.gen.list.RelationType();
+		case "religion":
+			return new org.simplity.fm.example.gen.list.Religion();
+		case "roleList":
+			return new org.simplity.fm.example.gen.list.RoleList();
+		case "seasonList":
+			return new org.simplity.fm.example.gen.list.SeasonList();
+		case "sectionList":
+			return new org.simplity.fm.example.gen.list.SectionList();
+		case "state":
+			return new org.simplity.fm.example.gen.list.State();
+		case "subjectSectionList":
+			return new org.simplity.fm.example.gen.list.SubjectSectionList();
+		case "subjectTypeList":
+			return new org.simplity.fm.example.gen.list.SubjectTypeList();
+		case "taughtSubjectList":
+			return new org.simplity.fm.example.gen.list.TaughtSubjectList();
+		case "userType":
+			return new org.simplity.fm.example.gen.list.UserType();
+		case "valuationRoundList":
+			return new org.simplity.fm.example.gen.list.ValuationRoundList();
+		case "valuationType":
+			return new org.simplity.fm.example.gen.list.ValuationType();
+		default:
+			return null;
+		}
+	}
+}
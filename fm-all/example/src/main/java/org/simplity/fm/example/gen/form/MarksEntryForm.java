@@ -9,7 +9,7 @@ import org.simplity.fm.example.gen.rec.SubjectSectionDetailRecord;
 public class MarksEntryForm extends Form<SubjectSectionDetailRecord> {
 	protected static final String NAME = "marksEntry";
 	protected static final SubjectSectionDetailRecord RECORD = (SubjectSectionDetailRecord) App.getApp().getCompProvider().getRecord("subjectSectionDetail");
-	protected static final  boolean[] OPS = {true, false, true, false, false};
+	protected static final  boolean[] OPS = {true, false, true, false, false, false};
 	private static final LinkMetaData L0 = new LinkMetaData("students", "marksForAssessment", 1, 0, null,null ,null, true);
 	private static final Form<?> F0 = App.getApp().getCompProvider().getForm("marksForAssessment");
 	private static final LinkedForm<?>[] LINKS = {new LinkedForm(L0, F0)};
@@ -9,7 +9,7 @@ import org.simplity.fm.example.gen.rec.StudentCieDetailRecord;
 public class StudentCieDetailForm extends Form<StudentCieDetailRecord> {
 	protected static final String NAME = "studentCieDetail";
 	protected static final StudentCieDetailRecord RECORD = (StudentCieDetailRecord) App.getApp().getCompProvider().getRecord("studentCieDetail");
-	protected static final  boolean[] OPS = {true, true, true, false, true};
+	protected static final  boolean[] OPS = {true, true, true, false, true, true};
 	private static final LinkedForm<?>[] LINKS = null;
 /** constructor */
 public StudentCieDetailForm() {
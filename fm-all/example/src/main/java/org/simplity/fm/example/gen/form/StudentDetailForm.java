@@ -9,7 +9,7 @@ import org.simplity.fm.example.gen.rec.StudentDetailRecord;
 public class StudentDetailForm extends Form<StudentDetailRecord> {
 	protected static final String NAME = "studentDetail";
 	protected static final StudentDetailRecord RECORD = (StudentDetailRecord) App.getApp().getCompProvider().getRecord("studentDetail");
-	protected static final  boolean[] OPS = {true, true, true, false, true};
+	protected static final  boolean[] OPS = {true, true, true, false, true, true};
 	private static final LinkedForm<?>[] LINKS = null;
 /** constructor */
 public StudentDetailForm() {
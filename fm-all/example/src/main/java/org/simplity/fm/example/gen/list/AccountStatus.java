@@ -24,4 +24,19 @@ public class AccountStatus extends ValueList {
 	public AccountStatus() {
 		super(NAME, VALUES);
 	}
+
+	@Override
+	protected boolean isMember(final Object fieldValue) {
+		if (this.valueList != VALUES) {
+			return super.isMember(fieldValue);
+		}
+		switch (fieldValue.toString()) {
+		case "Active":
+		case "Suspended":
+		case "Closed":
+			return true;
+		default:
+			return false;
+		}
+	}
 }
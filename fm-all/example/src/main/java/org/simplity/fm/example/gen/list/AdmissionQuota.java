@@ -28,4 +28,23 @@ public class AdmissionQuota extends ValueList {
 	public AdmissionQuota() {
 		super(NAME, VALUES);
 	}
+
+	@Override
+	protected boolean isMember(final Object fieldValue) {
+		if (this.valueList != VALUES) {
+			return super.isMember(fieldValue);
+		}
+		switch (fieldValue.toString()) {
+		case "CET":
+		case "COMEDK":
+		case "CETSNQ":
+		case "MANG":
+		case "NRI":
+		case "GOI":
+		case "Other":
+			return true;
+		default:
+			return false;
+		}
+	}
 }
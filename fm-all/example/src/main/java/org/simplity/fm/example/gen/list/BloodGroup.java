@@ -29,4 +29,24 @@ public class BloodGroup extends ValueList {
 	public BloodGroup() {
 		super(NAME, VALUES);
 	}
+
+	@Override
+	protected boolean isMember(final Object fieldValue) {
+		if (this.valueList != VALUES) {
+			return super.isMember(fieldValue);
+		}
+		switch (fieldValue.toString()) {
+		case "O -ve":
+		case "O +ve":
+		case "A -ve":
+		case "A +ve":
+		case "B -ve":
+		case "B +ve":
+		case "AB -ve":
+		case "AB +ve":
+			return true;
+		default:
+			return false;
+		}
+	}
 }
@@ -25,4 +25,20 @@ public class DocumentType extends ValueList {
 	public DocumentType() {
 		super(NAME, VALUES);
 	}
+
+	@Override
+	protected boolean isMember(final Object fieldValue) {
+		if (this.valueList != VALUES) {
+			return super.isMember(fieldValue);
+		}
+		switch (fieldValue.toString()) {
+		case "Marks Card":
+		case "Certificate":
+		case "Photo":
+		case "Govt Id":
+			return true;
+		default:
+			return false;
+		}
+	}
 }
@@ -24,4 +24,19 @@ public class DomicileState extends ValueList {
 	public DomicileState() {
 		super(NAME, VALUES);
 	}
+
+	@Override
+	protected boolean isMember(final Object fieldValue) {
+		if (this.valueList != VALUES) {
+			return super.isMember(fieldValue);
+		}
+		switch (fieldValue.toString()) {
+		case "Karnataka":
+		case "Non-Karnataka":
+		case "Foreign":
+			return true;
+		default:
+			return false;
+		}
+	}
 }
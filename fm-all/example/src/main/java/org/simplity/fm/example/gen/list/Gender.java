@@ -25,4 +25,20 @@ public class Gender extends ValueList {
 	public Gender() {
 		super(NAME, VALUES);
 	}
+
+	@Override
+	protected boolean isMember(final Object fieldValue) {
+		if (this.valueList != VALUES) {
+			return super.isMember(fieldValue);
+		}
+		switch (fieldValue.toString()) {
+		case "Male":
+		case "Female":
+		case "Others":
+		case "Not Applicable":
+			return true;
+		default:
+			return false;
+		}
+	}
 }
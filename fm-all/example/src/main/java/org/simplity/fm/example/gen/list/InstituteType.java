@@ -26,4 +26,21 @@ public class InstituteType extends ValueList {
 	public InstituteType() {
 		super(NAME, VALUES);
 	}
+
+	@Override
+	protected boolean isMember(final Object fieldValue) {
+		if (this.valueList != VALUES) {
+			return super.isMember(fieldValue);
+		}
+		switch (fieldValue.toString()) {
+		case "DSERTPS":
+		case "DSERTPHS":
+		case "CBSE ":
+		case "ENG_A_VTU":
+		case "ENG_VTU":
+			return true;
+		default:
+			return false;
+		}
+	}
 }
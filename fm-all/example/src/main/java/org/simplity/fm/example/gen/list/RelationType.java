@@ -24,4 +24,19 @@ public class RelationType extends ValueList {
 	public RelationType() {
 		super(NAME, VALUES);
 	}
+
+	@Override
+	protected boolean isMember(final Object fieldValue) {
+		if (this.valueList != VALUES) {
+			return super.isMember(fieldValue);
+		}
+		switch (fieldValue.toString()) {
+		case "Mother":
+		case "Father":
+		case "Legal Guardian":
+			return true;
+		default:
+			return false;
+		}
+	}
 }
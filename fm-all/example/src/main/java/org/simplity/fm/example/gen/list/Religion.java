@@ -27,4 +27,22 @@ public class Religion extends ValueList {
 	public Religion() {
 		super(NAME, VALUES);
 	}
+
+	@Override
+	protected boolean isMember(final Object fieldValue) {
+		if (this.valueList != VALUES) {
+			return super.isMember(fieldValue);
+		}
+		switch (fieldValue.toString()) {
+		case "Hindu":
+		case "Muslim":
+		case "Christian":
+		case "Sikh":
+		case "Jain":
+		case "Others":
+			return true;
+		default:
+			return false;
+		}
+	}
 }
@@ -26,4 +26,21 @@ public class UserType extends ValueList {
 	public UserType() {
 		super(NAME, VALUES);
 	}
+
+	@Override
+	protected boolean isMember(final Object fieldValue) {
+		if (this.valueList != VALUES) {
+			return super.isMember(fieldValue);
+		}
+		switch (fieldValue.toString()) {
+		case "student":
+		case "staff":
+		case "admin":
+		case "guardian":
+		case "trustee":
+			return true;
+		default:
+			return false;
+		}
+	}
 }
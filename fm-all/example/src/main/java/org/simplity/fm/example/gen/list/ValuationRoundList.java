@@ -24,4 +24,19 @@ public class ValuationRoundList extends ValueList {
 	public ValuationRoundList() {
 		super(NAME, VALUES);
 	}
+
+	@Override
+	protected boolean isMember(final Object fieldValue) {
+		if (this.valueList != VALUES) {
+			return super.isMember(fieldValue);
+		}
+		switch (fieldValue.toString()) {
+		case "1":
+		case "2":
+		case "3":
+			return true;
+		default:
+			return false;
+		}
+	}
 }
@@ -32,7 +32,7 @@ public class StudentAssessmentDetailRecord extends DbRecord {
 			new DbField("marksScored", 9, DefinedDataTypes.integer, "0", null, null, "marks_scored", FieldType.OptionalData), 
 			new DbField("marks", 10, DefinedDataTypes.text, null, null, null, null, FieldType.OptionalData)
 	};
-	private static final boolean[] OPERS = {true,false,false,false,true};
+	private static final boolean[] OPERS = {true,false,false,false,true,true};
 	private static final IValidation[] VALIDS = {
 	};
 
@@ -13,6 +13,7 @@ import org.simplity.fm.core.validn.IValidation;
 import org.simplity.fm.core.service.IServiceContext;
 import java.util.List;
 import org.simplity.fm.core.validn.DependentListValidation;
+import org.simplity.fm.core.serialize.ISerializer;
 import org.simplity.fm.example.gen.DefinedDataTypes;
 
 /**
@@ -43,7 +44,7 @@ public class StudentCieDetailRecord extends DbRecord {
 			new DbField("practicalMarks", 20, DefinedDataTypes.text, "1", null, null, null, FieldType.OptionalData), 
 			new DbField("totalCie", 21, DefinedDataTypes.text, "1", null, null, null, FieldType.OptionalData)
 	};
-	private static final boolean[] OPERS = {true,true,true,true,true};
+	private static final boolean[] OPERS = {true,true,true,true,true,true};
 	private static final IValidation[] VALIDS = {
 	};
 
@@ -77,6 +78,202 @@ public class StudentCieDetailRecord extends DbRecord {
 		return (List<StudentCieDetailRecord>) super.parseTable(inputObject, memberName, forInsert, ctx);
 	}
 
+	@Override
+	public void writeJson(final ISerializer writer) {
+		if (this.isOverridden()) {
+			super.writeJson(writer);
+			return;
+		}
+		final Object[] values = this.fieldValues;
+		writer.name("studentId");
+		if (values[0] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((Long) values[0]);
+		}
+		writer.name("subjectSectionId");
+		if (values[1] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((Long) values[1]);
+		}
+		writer.name("departmentName");
+		if (values[2] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[2]);
+		}
+		writer.name("usn");
+		if (values[3] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[3]);
+		}
+		writer.name("name");
+		if (values[4] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[4]);
+		}
+		writer.name("eligibility");
+		if (values[5] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[5]);
+		}
+		writer.name("test1");
+		if (values[6] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[6]);
+		}
+		writer.name("test2");
+		if (values[7] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[7]);
+		}
+		writer.name("test3");
+		if (values[8] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[8]);
+		}
+		writer.name("quiz1");
+		if (values[9] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[9]);
+		}
+		writer.name("quiz2");
+		if (values[10] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[10]);
+		}
+		writer.name("theoryCie");
+		if (values[11] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[11]);
+		}
+		writer.name("theoryClassesHeld");
+		if (values[12] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[12]);
+		}
+		writer.name("theoryClassesAttended");
+		if (values[13] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[13]);
+		}
+		writer.name("theoryClassesPercentage");
+		if (values[14] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[14]);
+		}
+		writer.name("practicalCie");
+		if (values[15] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[15]);
+		}
+		writer.name("practicalClassesHeld");
+		if (values[16] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[16]);
+		}
+		writer.name("practicalClassesAttended");
+		if (values[17] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[17]);
+		}
+		writer.name("practicalClassesPercentage");
+		if (values[18] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[18]);
+		}
+		writer.name("selfStudy");
+		if (values[19] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[19]);
+		}
+		writer.name("practicalMarks");
+		if (values[20] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[20]);
+		}
+		writer.name("totalCie");
+		if (values[21] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[21]);
+		}
+	}
+
+	@Override
+	protected boolean readJson(final IInputObject json, final IServiceContext ctx, final String tableName, final int rowNbr) {
+		if (this.isOverridden()) {
+			return super.readJson(json, ctx, tableName, rowNbr);
+		}
+		final Object[] values = this.fieldValues;
+		boolean ok = true;
+		String s;
+		s = json.getString("studentId");
+		ok = FIELDS[0].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.flexibleId.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("subjectSectionId");
+		ok = FIELDS[1].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.id.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("departmentName");
+		ok = FIELDS[2].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("usn");
+		ok = FIELDS[3].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("name");
+		ok = FIELDS[4].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.name.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("eligibility");
+		ok = FIELDS[5].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.name.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("test1");
+		ok = FIELDS[6].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("test2");
+		ok = FIELDS[7].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("test3");
+		ok = FIELDS[8].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("quiz1");
+		ok = FIELDS[9].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("quiz2");
+		ok = FIELDS[10].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("theoryCie");
+		ok = FIELDS[11].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("theoryClassesHeld");
+		ok = FIELDS[12].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("theoryClassesAttended");
+		ok = FIELDS[13].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("theoryClassesPercentage");
+		ok = FIELDS[14].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("practicalCie");
+		ok = FIELDS[15].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("practicalClassesHeld");
+		ok = FIELDS[16].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("practicalClassesAttended");
+		ok = FIELDS[17].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("practicalClassesPercentage");
+		ok = FIELDS[18].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("selfStudy");
+		ok = FIELDS[19].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("practicalMarks");
+		ok = FIELDS[20].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("totalCie");
+		ok = FIELDS[21].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		return ok;
+	}
+
 	/**
 	 * set value for studentId
 	 * @param value to be assigned to studentId
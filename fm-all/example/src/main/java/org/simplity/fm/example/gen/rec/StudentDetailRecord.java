@@ -28,7 +28,7 @@ public class StudentDetailRecord extends DbRecord {
 			new DbField("name", 5, DefinedDataTypes.name, null, null, null, "name", FieldType.OptionalData), 
 			new DbField("phoneNumber", 6, DefinedDataTypes.phone, null, null, null, "phone_number", FieldType.OptionalData)
 	};
-	private static final boolean[] OPERS = {true,true,true,true,true};
+	private static final boolean[] OPERS = {true,true,true,true,true,true};
 	private static final IValidation[] VALIDS = {
 	};
 
@@ -35,7 +35,7 @@ public class SubjectSectionDetailRecord extends DbRecord {
 			new DbField("cieFrozen", 12, DefinedDataTypes.bool, "false", null, null, "cie_frozen", FieldType.OptionalData), 
 			new DbField("isOffered", 13, DefinedDataTypes.bool, "false", null, null, "is_offered", FieldType.OptionalData)
 	};
-	private static final boolean[] OPERS = {true,false,true,false,true};
+	private static final boolean[] OPERS = {true,false,true,false,true,true};
 	private static final IValidation[] VALIDS = {
 	};
 
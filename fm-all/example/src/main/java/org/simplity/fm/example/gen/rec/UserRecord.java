@@ -13,6 +13,7 @@ import org.simplity.fm.core.validn.IValidation;
 import org.simplity.fm.core.service.IServiceContext;
 import java.util.List;
 import org.simplity.fm.core.validn.DependentListValidation;
+import org.simplity.fm.core.serialize.ISerializer;
 import org.simplity.fm.example.gen.DefinedDataTypes;
 
 /**
@@ -41,7 +42,7 @@ public class UserRecord extends DbRecord {
 			new DbField("updatedAt", 18, DefinedDataTypes.timestamp, null, null, null, "updated_at", FieldType.OptionalData), 
 			new DbField("updatedBy", 19, DefinedDataTypes.id, null, null, null, "updated_by", FieldType.OptionalData)
 	};
-	private static final boolean[] OPERS = {true,true,true,true,true};
+	private static final boolean[] OPERS = {true,true,true,true,true,true};
 	private static final IValidation[] VALIDS = {
 	};
 
@@ -75,6 +76,186 @@ public class UserRecord extends DbRecord {
 		return (List<UserRecord>) super.parseTable(inputObject, memberName, forInsert, ctx);
 	}
 
+	@Override
+	public void writeJson(final ISerializer writer) {
+		if (this.isOverridden()) {
+			super.writeJson(writer);
+			return;
+		}
+		final Object[] values = this.fieldValues;
+		writer.name("userId");
+		if (values[0] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((Long) values[0]);
+		}
+		writer.name("instituteId");
+		if (values[1] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((Long) values[1]);
+		}
+		writer.name("trustId");
+		if (values[2] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((Long) values[2]);
+		}
+		writer.name("userType");
+		if (values[3] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[3]);
+		}
+		writer.name("loginId");
+		if (values[4] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[4]);
+		}
+		writer.name("password");
+		if (values[5] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[5]);
+		}
+		writer.name("loginEnabled");
+		if (values[6] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((Boolean) values[6]);
+		}
+		writer.name("previousLoginAt");
+		if (values[7] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((Instant) values[7]);
+		}
+		writer.name("currentLoginAt");
+		if (values[8] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((Instant) values[8]);
+		}
+		writer.name("resetPasswordCount");
+		if (values[9] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((Long) values[9]);
+		}
+		writer.name("resetPasswordSentAt");
+		if (values[10] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((Instant) values[10]);
+		}
+		writer.name("currentLoginIp");
+		if (values[11] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[11]);
+		}
+		writer.name("previousLoginIp");
+		if (values[12] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[12]);
+		}
+		writer.name("loginCount");
+		if (values[13] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((Long) values[13]);
+		}
+		writer.name("confirmationToken");
+		if (values[14] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[14]);
+		}
+		writer.name("loginToken");
+		if (values[15] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((String) values[15]);
+		}
+		writer.name("createdAt");
+		if (values[16] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((Instant) values[16]);
+		}
+		writer.name("createdBy");
+		if (values[17] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((Long) values[17]);
+		}
+		writer.name("updatedAt");
+		if (values[18] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((Instant) values[18]);
+		}
+		writer.name("updatedBy");
+		if (values[19] == null) {
+			writer.primitiveObject(null);
+		} else {
+			writer.value((Long) values[19]);
+		}
+	}
+
+	@Override
+	protected boolean readJson(final IInputObject json, final IServiceContext ctx, final String tableName, final int rowNbr) {
+		if (this.isOverridden()) {
+			return super.readJson(json, ctx, tableName, rowNbr);
+		}
+		final Object[] values = this.fieldValues;
+		boolean ok = true;
+		String s;
+		s = json.getString("userId");
+		ok = FIELDS[0].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.flexibleId.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("instituteId");
+		ok = FIELDS[1].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.tenantKey.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("trustId");
+		ok = FIELDS[2].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.id.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("userType");
+		ok = FIELDS[3].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.userType.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("loginId");
+		ok = FIELDS[4].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.loginId.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("password");
+		ok = FIELDS[5].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("loginEnabled");
+		ok = FIELDS[6].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.bool.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("previousLoginAt");
+		ok = FIELDS[7].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.timestamp.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("currentLoginAt");
+		ok = FIELDS[8].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.timestamp.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("resetPasswordCount");
+		ok = FIELDS[9].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.integer.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("resetPasswordSentAt");
+		ok = FIELDS[10].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.timestamp.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("currentLoginIp");
+		ok = FIELDS[11].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.ip.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("previousLoginIp");
+		ok = FIELDS[12].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.ip.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("loginCount");
+		ok = FIELDS[13].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.integer.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("confirmationToken");
+		ok = FIELDS[14].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("loginToken");
+		ok = FIELDS[15].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.text.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("createdAt");
+		ok = FIELDS[16].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.timestamp.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("createdBy");
+		ok = FIELDS[17].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.id.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("updatedAt");
+		ok = FIELDS[18].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.timestamp.parse(s), values, ctx, tableName, rowNbr) && ok;
+		s = json.getString("updatedBy");
+		ok = FIELDS[19].parseIntoRow(s, s == null || s.isEmpty() ? null : DefinedDataTypes.id.parse(s), values, ctx, tableName, rowNbr) && ok;
+		return ok;
+	}
+
 	/**
 	 * set value for userId
 	 * @param value to be assigned to userId
@@ -26,6 +26,8 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import org.simplity.fm.core.Conventions;
 import org.simplity.fm.core.datatypes.ValueType;
@@ -438,6 +440,14 @@ class DataTypes {
 
 		@Override
 		protected void emitIstanceParams(final StringBuilder sbf) {
+			if (this.regex != null && !this.regex.isEmpty()) {
+				try {
+					Pattern.compile(this.regex);
+				} catch (final PatternSyntaxException e) {
+					logger.error("Data type {} has an invalid regex {}. It will fail every value. {}", this.name,
+							this.regex, e.getMessage());
+				}
+			}
 			sbf.append(C).append(this.minLength);
 			sbf.append(C).append(this.maxLength);
 			sbf.append(C).append(Util.escape(this.regex));
@@ -184,6 +184,12 @@ public class Form {
 				}
 			}
 		}
+		/*
+		 * aggregate is allowed whenever filter is allowed
+		 */
+		if (ops[IoType.Filter.ordinal()]) {
+			ops[IoType.Aggregate.ordinal()] = true;
+		}
 		sbf.append(" boolean[] OPS = {");
 		boolean firstOne = true;
 		for (final boolean b : ops) {
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.gen;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * book-keeping for incremental generation. We save the content-hash of every
+ * input file, along with the outputs generated from it, in a properties file.
+ * In the next run, an input whose hash has not changed need not be processed
+ * again, unless something it depends on has changed. Outputs of inputs that
+ * are no longer there are deleted. Inputs may be checked and generated
+ * concurrently, but save() is to be called after all of them are done.
+ *
+ * @author simplity.org
+ *
+ */
+class GenManifest {
+	protected static final Logger logger = LoggerFactory.getLogger(GenManifest.class);
+	/**
+	 * name of the manifest file that is saved in the generated-source folder
+	 */
+	static final String FILE_NAME = "generator.manifest";
+	private static final String HASH = ".hash";
+	private static final String OUTPUTS = ".outputs";
+	private static final char SEP = ',';
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final File file;
+	private final Properties oldEntries = new Properties();
+	private final Properties newEntries = new Properties();
+	/*
+	 * inputs that are processed in this run, whether or not they had changed
+	 */
+	private final Set<String> changedInputs = ConcurrentHashMap.newKeySet();
+
+	/**
+	 *
+	 * @param file
+	 *            manifest file
+	 * @param loadPrevious
+	 *            true if the manifest from the previous run is to be used.
+	 *            false if all inputs are to be treated as changed
+	 */
+	GenManifest(final File file, final boolean loadPrevious) {
+		this.file = file;
+		if (loadPrevious && file.exists()) {
+			try (InputStream in = new FileInputStream(file)) {
+				this.oldEntries.load(in);
+				logger.info("Manifest {} loaded with {} entries", file.getPath(), this.oldEntries.size());
+			} catch (final Exception e) {
+				logger.error("Manifest {} could not be loaded. All inputs are processed. Error: {}", file.getPath(),
+						e.getMessage());
+				this.oldEntries.clear();
+			}
+		}
+	}
+
+	/**
+	 * has this input changed since the last run? The new hash is noted, and
+	 * the input is considered to be changed if it is not yet recorded, or if its
+	 * content has changed.
+	 *
+	 * @param key
+	 *            unique name of the input, like rec/customer
+	 * @param input
+	 *            input file
+	 * @return true if the input is new or its content has changed.
+	 */
+	boolean isChanged(final String key, final File input) {
+		final String hash = hash(input);
+		this.newEntries.setProperty(key + HASH, hash);
+		if (hash.equals(this.oldEntries.getProperty(key + HASH))) {
+			return false;
+		}
+		this.changedInputs.add(key);
+		return true;
+	}
+
+	/**
+	 * @param key
+	 * @return true if this input was found to be changed in this run
+	 */
+	boolean wasChanged(final String key) {
+		return this.changedInputs.contains(key);
+	}
+
+	/**
+	 * record the outputs generated from this input in this run
+	 *
+	 * @param key
+	 * @param outputs
+	 *            path of output files
+	 */
+	void generated(final String key, final String... outputs) {
+		final StringBuilder sbf = new StringBuilder();
+		for (final String s : outputs) {
+			if (sbf.length() > 0) {
+				sbf.append(SEP);
+			}
+			sbf.append(s);
+		}
+		this.newEntries.setProperty(key + OUTPUTS, sbf.toString());
+	}
+
+	/**
+	 * outputs of this input are not generated in this run, as they are still
+	 * valid. carry them forward.
+	 *
+	 * @param key
+	 */
+	void retained(final String key) {
+		final String outputs = this.oldEntries.getProperty(key + OUTPUTS);
+		if (outputs != null) {
+			this.newEntries.setProperty(key + OUTPUTS, outputs);
+		}
+	}
+
+	/**
+	 * delete outputs that were generated in the earlier run, but are not
+	 * generated or retained in this run, and save the manifest for the next run
+	 */
+	void save() {
+		/*
+		 * an input that failed to generate should be tried again next time
+		 */
+		for (final String key : this.changedInputs) {
+			if (this.newEntries.getProperty(key + OUTPUTS) == null) {
+				this.newEntries.remove(key + HASH);
+			}
+		}
+
+		final Set<String> current = new HashSet<>();
+		for (final Map.Entry<Object, Object> entry : this.newEntries.entrySet()) {
+			if (entry.getKey().toString().endsWith(OUTPUTS)) {
+				addAll(current, entry.getValue().toString());
+			}
+		}
+		for (final Map.Entry<Object, Object> entry : this.oldEntries.entrySet()) {
+			if (!entry.getKey().toString().endsWith(OUTPUTS)) {
+				continue;
+			}
+			final Set<String> old = new HashSet<>();
+			addAll(old, entry.getValue().toString());
+			for (final String fileName : old) {
+				if (current.contains(fileName)) {
+					continue;
+				}
+				final File f = new File(fileName);
+				if (f.exists()) {
+					if (f.delete()) {
+						logger.info("{} deleted as its input is no longer there", fileName);
+					} else {
+						logger.error("Unable to delete obsolete file {}", fileName);
+					}
+				}
+			}
+		}
+
+		try (OutputStream out = new FileOutputStream(this.file)) {
+			this.newEntries.store(out, "generated by " + Generator.class.getName() + ". Do not edit.");
+		} catch (final Exception e) {
+			logger.error("Unable to save manifest {}. Next run will process all inputs. Error: {}",
+					this.file.getPath(), e.getMessage());
+		}
+	}
+
+	private static void addAll(final Set<String> set, final String text) {
+		if (text.isEmpty()) {
+			return;
+		}
+		for (final String s : text.split(String.valueOf(SEP))) {
+			set.add(s);
+		}
+	}
+
+	/**
+	 * @param f
+	 * @return SHA-256 hash of the contents of this file, or an empty string
+	 *         if it could not be read
+	 */
+	static String hash(final File f) {
+		try {
+			final byte[] bytes = MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(f.toPath()));
+			final char[] chars = new char[bytes.length * 2];
+			for (int i = 0; i < bytes.length; i++) {
+				chars[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+				chars[2 * i + 1] = HEX[bytes[i] & 0xF];
+			}
+			return new String(chars);
+		} catch (final Exception e) {
+			logger.error("Unable to compute hash for {}. Error: {}", f.getPath(), e.getMessage());
+			return "";
+		}
+	}
+}
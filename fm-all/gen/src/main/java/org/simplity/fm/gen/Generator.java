@@ -24,10 +24,20 @@ package org.simplity.fm.gen;
 
 import java.io.File;
 import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.simplity.fm.core.Conventions;
 import org.simplity.fm.gen.DataTypes.DataType;
@@ -49,6 +59,8 @@ public class Generator {
 	private static final String EXT_SQL = ".sql.json";
 	private static final String EXT_TEMPLATE = ".template.json";
 	private static final String EXT_PAGE = ".page.json";
+	private static final String ARG_INCREMENTAL = "incremental";
+	private static final String ARG_PARALLEL = "parallel";
 
 	/**
 	 *
@@ -60,12 +72,29 @@ public class Generator {
 			generateClientComponents(args[0], args[1]);
 			return;
 		}
-		if (args.length == 7) {
+		if (args.length == 8) {
 			generate(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7]);
 			return;
 		}
+		if (args.length > 8) {
+			boolean incremental = false;
+			boolean parallel = false;
+			for (int i = 8; i < args.length; i++) {
+				if (ARG_INCREMENTAL.equals(args[i])) {
+					incremental = true;
+				} else if (ARG_PARALLEL.equals(args[i])) {
+					parallel = true;
+				} else {
+					System.err.println("Invalid option " + args[i]);
+					return;
+				}
+			}
+			generate(args[0], args[1], args[2], args[3], args[4], args[5], args[6], args[7], incremental, parallel);
+			return;
+		}
 		System.err.println("Usage : java Generator.class resourceRootFolder tsFormFolder\n or \n"
-				+ "Usage : java Generator.class resourceRootFolder generatedSourceRootFolder generatedPackageName tsImportPrefix tsOutputFolder");
+				+ "Usage : java Generator.class resourceRootFolder generatedSourceRootFolder generatedPackageName tsOutputFolder tsImportPrefix templateRoot pageRoot routeRoot ["
+				+ ARG_INCREMENTAL + "] [" + ARG_PARALLEL + "]");
 	}
 
 	/**
@@ -309,6 +338,56 @@ public class Generator {
 	public static void generate(final String inputRootFolder, final String javaRootFolder, final String javaRootPackage,
 			final String tsRootFolder, final String tsImportPrefix, String templateRoot, String pageRoot,
 			String routeRoot) {
+		generate(inputRootFolder, javaRootFolder, javaRootPackage, tsRootFolder, tsImportPrefix, templateRoot,
+				pageRoot, routeRoot, false);
+	}
+
+	/**
+	 *
+	 * @param inputRootFolder folder where application.xlsx file, and spec folder
+	 *                        are located. e.g.
+	 * @param javaRootFolder  java source folder where the sources are to be
+	 *                        generated
+	 * @param javaRootPackage root
+	 * @param tsImportPrefix  relative path of form folder from the folder where
+	 *                        named forms are generated.for example ".." in case the
+	 *                        two folders are in the same parent folder
+	 * @param tsRootFolder    folder where generated ts files are to be saved
+	 * @param templateRoot
+	 * @param incremental     if true, output folders are not cleaned, and only
+	 *                        the outputs whose inputs have changed since the last
+	 *                        run are generated. Inputs are tracked in a manifest
+	 *                        saved in the generated source folder.
+	 */
+	public static void generate(final String inputRootFolder, final String javaRootFolder, final String javaRootPackage,
+			final String tsRootFolder, final String tsImportPrefix, String templateRoot, String pageRoot,
+			String routeRoot, final boolean incremental) {
+		generate(inputRootFolder, javaRootFolder, javaRootPackage, tsRootFolder, tsImportPrefix, templateRoot,
+				pageRoot, routeRoot, incremental, false);
+	}
+
+	/**
+	 *
+	 * @param inputRootFolder folder where application.xlsx file, and spec folder
+	 *                        are located. e.g.
+	 * @param javaRootFolder  java source folder where the sources are to be
+	 *                        generated
+	 * @param javaRootPackage root
+	 * @param tsImportPrefix  relative path of form folder from the folder where
+	 *                        named forms are generated.for example ".." in case the
+	 *                        two folders are in the same parent folder
+	 * @param tsRootFolder    folder where generated ts files are to be saved
+	 * @param templateRoot
+	 * @param incremental     if true, only the outputs whose inputs have changed
+	 *                        since the last run are generated.
+	 * @param parallel        if true, files are generated concurrently using all
+	 *                        the cores. Records are generated before forms, as
+	 *                        forms refer to them. Output is the same as that of a
+	 *                        sequential run.
+	 */
+	public static void generate(final String inputRootFolder, final String javaRootFolder, final String javaRootPackage,
+			final String tsRootFolder, final String tsImportPrefix, String templateRoot, String pageRoot,
+			String routeRoot, final boolean incremental, final boolean parallel) {
 
 		String resourceRootFolder = inputRootFolder;
 		if (!inputRootFolder.endsWith(FOLDER)) {
@@ -324,20 +403,20 @@ public class Generator {
 		/*
 		 * create output folders if required
 		 */
-		if (createOutputFolders(generatedSourceRootFolder,
-				new String[] { "rec/", "form/", "list/", "sql/" }) == false) {
+		if (createOutputFolders(generatedSourceRootFolder, new String[] { "rec/", "form/", "list/", "sql/" },
+				!incremental) == false) {
 			return;
 		}
 
 		/*
 		 * ts folder
 		 */
-		if (!ensureFolder(new File(tsRootFolder))) {
+		if (!ensureFolder(new File(tsRootFolder), !incremental)) {
 			logger.error("Unable to clean/create ts root folder {}", tsRootFolder);
 			return;
 		}
 
-		if (!ensureFolder(new File(templateRoot))) {
+		if (!ensureFolder(new File(templateRoot), !incremental)) {
 			logger.error("Unable to clean/create template root folder {}", templateRoot);
 			return;
 		}
@@ -358,110 +437,284 @@ public class Generator {
 			return;
 		}
 
+		final GenManifest manifest = new GenManifest(new File(generatedSourceRootFolder + GenManifest.FILE_NAME),
+				incremental);
+		/*
+		 * data types and lists are used by every other component
+		 */
+		final boolean appChanged = manifest.isChanged("app", f);
+
 		/*
 		 * generate project level components like data types
 		 */
 		app.emitJava(generatedSourceRootFolder, javaRootPackage, Conventions.App.GENERATED_DATA_TYPES_CLASS_NAME);
+		manifest.generated("app");
+
+		final String specRoot = resourceRootFolder;
+		final String javaRoot = generatedSourceRootFolder;
+		final Map<String, Record> recs = new ConcurrentHashMap<>();
+		final Set<String> formNames = new ConcurrentSkipListSet<>();
+		final Set<String> failures = new ConcurrentSkipListSet<>();
+		final ForkJoinPool pool = parallel ? new ForkJoinPool() : null;
+		try {
+			/*
+			 * records are required by forms. Hence all records are processed
+			 * before any form
+			 */
+			final Map<String, Callable<Boolean>> tasks = new TreeMap<>();
+			for (final File file : listSpecs(specRoot + "rec/", EXT_REC)) {
+				tasks.put(file.getName(), () -> {
+					final Record record = emitRecord(file, javaRoot, tsRootFolder, app.dataTypes, app,
+							javaRootPackage, tsImportPrefix, manifest, appChanged);
+					if (record == null) {
+						return false;
+					}
+					recs.put(record.name, record);
+					return true;
+				});
+			}
+			runAll(pool, tasks, failures);
 
-		logger.debug("Going to process records under folder {}", resourceRootFolder);
-		final Map<String, Record> recs = new HashMap<>();
-		f = new File(resourceRootFolder + "rec/");
-		if (f.exists() == false) {
-			logger.error("Records folder {} not found. No records are processed", f.getPath());
-		} else {
+			tasks.clear();
+			for (final File file : listSpecs(specRoot + "form/", EXT_FRM)) {
+				tasks.put(file.getName(), () -> {
+					if (!emitForm(file, javaRoot, tsRootFolder, app.dataTypes, app, javaRootPackage,
+							tsImportPrefix, recs, manifest, appChanged)) {
+						return false;
+					}
+					final String fn = file.getName();
+					formNames.add(fn.substring(0, fn.length() - EXT_FRM.length()));
+					return true;
+				});
+			}
 
-			for (final File file : f.listFiles()) {
-				final String fn = file.getName();
-				if (fn.endsWith(EXT_REC) == false) {
-					logger.debug("Skipping non-record file {}", fn);
-					continue;
-				}
+			for (final File file : listSpecs(specRoot + "template/", EXT_TEMPLATE)) {
+				tasks.put(file.getName(), () -> {
+					final String fn = file.getName();
+					final String key = "template/" + fn;
+					if (!toGenerate(manifest, key, file, appChanged)) {
+						return true;
+					}
+					final String[] outputs = emitTemplate(file, templateRoot, tsRootFolder);
+					if (outputs == null) {
+						return false;
+					}
+					manifest.generated(key, outputs);
+					return true;
+				});
+			}
 
-				logger.info("file: {}", fn);
-				final Record record = emitRecord(file, generatedSourceRootFolder, tsRootFolder, app.dataTypes, app,
-						javaRootPackage, tsImportPrefix);
-				if (record != null) {
-					recs.put(record.name, record);
+			if (new File(pageRoot).exists() == false) {
+				logger.error("Page root folder {} not found. No Pages are processed", pageRoot);
+			} else {
+				for (final File file : listSpecs(specRoot + "page/", EXT_PAGE)) {
+					tasks.put(file.getName(), () -> emitPage(file, pageRoot, specRoot));
 				}
 			}
+
+			for (final File file : listSpecs(specRoot + "sql/", EXT_SQL)) {
+				tasks.put(file.getName(), () -> {
+					final String key = "sql/" + file.getName();
+					if (!toGenerate(manifest, key, file, appChanged)) {
+						return true;
+					}
+					return emitSql(file, javaRoot, app.dataTypes, javaRootPackage, manifest, key);
+				});
+			}
+			runAll(pool, tasks, failures);
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
 		}
 
-		logger.debug("Going to process forms under folder {}", resourceRootFolder);
-		f = new File(resourceRootFolder + "form/");
-		if (f.exists() == false) {
-			logger.error("Forms folder {} not found. No forms are processed", f.getPath());
+		/*
+		 * these are generated from all the inputs in a folder
+		 */
+		emitAllForms(specRoot, tsRootFolder);
+		emitRoutes(routeRoot, specRoot, pageRoot);
+		emitMenu(routeRoot, specRoot, pageRoot);
+		emitComponents(javaRoot, javaRootPackage, app, new TreeSet<>(recs.keySet()), formNames);
+		manifest.save();
+
+		if (failures.isEmpty()) {
+			logger.info("All components generated successfully");
 		} else {
+			logger.error("{} input files had errors and are not generated. Refer to the log above for details:",
+					failures.size());
+			for (final String s : failures) {
+				logger.error("\t{}", s);
+			}
+		}
+	}
 
-			for (final File file : f.listFiles()) {
-				final String fn = file.getName();
-				if (fn.endsWith(EXT_FRM) == false) {
-					logger.debug("Skipping non-form file {} ", fn);
-					continue;
-				}
-				logger.info("file: {}", fn);
-				emitForm(file, generatedSourceRootFolder, tsRootFolder, app.dataTypes, app, javaRootPackage,
-						tsImportPrefix, recs);
+	/**
+	 * emit the class that creates instances of generated components by name,
+	 * so that they are located at run time without reflection
+	 */
+	private static void emitComponents(final String javaRoot, final String packageName, final Application app,
+			final Set<String> recordNames, final Set<String> formNames) {
+		final String cls = Conventions.App.GENERATED_COMPONENTS_CLASS_NAME;
+		final StringBuilder sbf = new StringBuilder();
+		sbf.append("package ").append(packageName).append(";\n");
+		Util.emitImport(sbf, org.simplity.fm.core.IComponents.class);
+		Util.emitImport(sbf, org.simplity.fm.core.data.Form.class);
+		Util.emitImport(sbf, org.simplity.fm.core.data.Record.class);
+		Util.emitImport(sbf, org.simplity.fm.core.validn.IValueList.class);
+
+		sbf.append("\n\n/**\n * creates instances of forms, records and lists that are generated for this app");
+		sbf.append("\n */");
+		sbf.append("\npublic class ").append(cls).append(" implements IComponents {");
+
+		final Map<String, String> classes = new TreeMap<>();
+		for (final String name : formNames) {
+			classes.put(name, qualifiedName(packageName + ".form", name) + "Form");
+		}
+		emitSwitch(sbf, "Form<?> newForm(final String formName", "formName", classes);
+
+		classes.clear();
+		for (final String name : recordNames) {
+			classes.put(name, qualifiedName(packageName + ".rec", name) + "Record");
+		}
+		emitSwitch(sbf, "Record newRecord(final String recordName", "recordName", classes);
+
+		classes.clear();
+		final String listPackage = packageName + ".list.";
+		if (app.valueLists != null) {
+			for (final String name : app.valueLists.keySet()) {
+				classes.put(name, listPackage + Util.toClassName(name));
 			}
 		}
+		if (app.keyedLists != null) {
+			for (final String name : app.keyedLists.keySet()) {
+				classes.put(name, listPackage + Util.toClassName(name));
+			}
+		}
+		if (app.runtimeLists != null) {
+			for (final String name : app.runtimeLists.keySet()) {
+				classes.put(name, listPackage + Util.toClassName(name));
+			}
+		}
+		emitSwitch(sbf, "IValueList newValueList(final String listName", "listName", classes);
 
-		emitAllForms(resourceRootFolder, tsRootFolder);
-		logger.debug("Going to process Templates under folder {}", resourceRootFolder);
-		f = new File(resourceRootFolder + "template/");
-		if (f.exists() == false) {
-			logger.error("Templates folder {} not found. No Templates are processed", f.getPath());
-		} else {
+		sbf.append("\n}\n");
+		Util.writeOut(javaRoot + cls + ".java", sbf);
+	}
 
-			for (final File file : f.listFiles()) {
-				final String fn = file.getName();
-				if (fn.endsWith(EXT_TEMPLATE) == false) {
-					logger.debug("Skipping non-template file {} ", fn);
-					continue;
-				}
-				logger.info("file: {}", fn);
-				emitTemplate(file, templateRoot, tsRootFolder);
+	private static String qualifiedName(final String packageName, final String name) {
+		final String qual = Util.getClassQualifier(name);
+		if (qual == null) {
+			return packageName + '.' + Util.toClassName(name);
+		}
+		return packageName + '.' + qual + '.' + Util.toClassName(name);
+	}
+
+	private static void emitSwitch(final StringBuilder sbf, final String signature, final String param,
+			final Map<String, String> classes) {
+		sbf.append("\n\n\t@Override\n\tpublic ").append(signature).append(") {");
+		if (classes.isEmpty()) {
+			sbf.append("\n\t\treturn null;\n\t}");
+			return;
+		}
+		sbf.append("\n\t\tswitch (").append(param).append(") {");
+		for (final Map.Entry<String, String> entry : classes.entrySet()) {
+			sbf.append("\n\t\tcase ").append(Util.escape(entry.getKey())).append(':');
+			sbf.append("\n\t\t\treturn new ").append(entry.getValue()).append("();");
+		}
+		sbf.append("\n\t\tdefault:\n\t\t\treturn null;\n\t\t}\n\t}");
+	}
+
+	/**
+	 * run all the tasks, either in the current thread or on the pool, and
+	 * return after all of them are completed
+	 *
+	 * @param pool
+	 *            null if the tasks are to be run in the current thread
+	 * @param tasks
+	 *            tasks indexed by the name of the input file
+	 * @param failures
+	 *            to which the names of input files of tasks that failed are
+	 *            added
+	 */
+	private static void runAll(final ForkJoinPool pool, final Map<String, Callable<Boolean>> tasks,
+			final Set<String> failures) {
+		if (pool == null) {
+			for (final Map.Entry<String, Callable<Boolean>> entry : tasks.entrySet()) {
+				runTask(entry.getKey(), entry.getValue(), failures);
 			}
+			return;
 		}
 
-		logger.debug("Going to process Pages under folder {}", pageRoot);
-		f = new File(resourceRootFolder + "page/");
-		if (f.exists() == false) {
-			logger.error("page folder {} not found. No Pages are processed", f.getPath());
-		} else {
+		final List<ForkJoinTask<?>> futures = new ArrayList<>(tasks.size());
+		for (final Map.Entry<String, Callable<Boolean>> entry : tasks.entrySet()) {
+			futures.add(pool.submit(() -> runTask(entry.getKey(), entry.getValue(), failures)));
+		}
+		for (final ForkJoinTask<?> future : futures) {
+			future.join();
+		}
+	}
 
-			for (final File file : f.listFiles()) {
-				final String fn = file.getName();
-				if (fn.endsWith(EXT_PAGE) == false) {
-					logger.debug("Skipping non-page file {} ", fn);
-					continue;
-				}
-				logger.info("file: {}", fn);
-				emitPage(file, pageRoot, resourceRootFolder);
+	private static void runTask(final String name, final Callable<Boolean> task, final Set<String> failures) {
+		logger.info("file: {}", name);
+		try {
+			if (!task.call()) {
+				failures.add(name);
 			}
+		} catch (final Exception e) {
+			logger.error("Error while generating {}: {}", name, e.getMessage());
+			e.printStackTrace();
+			failures.add(name + " : " + e.getMessage());
 		}
+	}
 
-		emitRoutes(routeRoot, resourceRootFolder, pageRoot);
-		emitMenu(routeRoot, resourceRootFolder, pageRoot);
-		logger.debug("Going to process sqls under folder {}sql/", resourceRootFolder);
-		f = new File(resourceRootFolder + "sql/");
-		if (f.exists() == false) {
-			logger.error("Sql folder {} not found. No sqls processed", f.getPath());
-		} else {
+	/**
+	 * @return spec files with the extension in this folder, sorted by name.
+	 *         empty if the folder does not exist
+	 */
+	private static File[] listSpecs(final String folderName, final String ext) {
+		logger.debug("Going to process files under folder {}", folderName);
+		final File folder = new File(folderName);
+		if (folder.exists() == false) {
+			logger.error("Folder {} not found. No {} files are processed", folder.getPath(), ext);
+			return new File[0];
+		}
 
-			for (final File file : f.listFiles()) {
-				final String fn = file.getName();
-				if (fn.endsWith(EXT_SQL) == false) {
-					logger.debug("Skipping non-sql file {} ", fn);
-					continue;
-				}
-				logger.info("file: {}", fn);
-				emitSql(file, generatedSourceRootFolder, app.dataTypes, javaRootPackage);
+		final File[] files = folder.listFiles((dir, fn) -> {
+			if (fn.endsWith(ext)) {
+				return true;
 			}
+			logger.debug("Skipping file {} as it is not a {} file", fn, ext);
+			return false;
+		});
+		Arrays.sort(files);
+		return files;
+	}
+
+	/**
+	 * check with the manifest whether the outputs of this input are to be
+	 * generated. If not, the existing outputs are retained.
+	 *
+	 * @param manifest
+	 * @param key
+	 * @param file
+	 * @param dependencyChanged
+	 *            true if any of the components this input depends on has
+	 *            changed
+	 * @return true if the input is to be generated.
+	 */
+	static boolean toGenerate(final GenManifest manifest, final String key, final File file,
+			final boolean dependencyChanged) {
+		if (manifest.isChanged(key, file) || dependencyChanged) {
+			return true;
 		}
+		logger.info("{} has not changed. Existing outputs are retained", key);
+		manifest.retained(key);
+		return false;
 	}
 
-	private static void emitForm(final File file, final String generatedSourceRootFolder, final String tsOutputFolder,
+	private static boolean emitForm(final File file, final String generatedSourceRootFolder, final String tsOutputFolder,
 			final DataTypes dataTypes, final Application app, final String rootPackageName, final String tsImportPrefix,
-			final Map<String, Record> records) {
+			final Map<String, Record> records, final GenManifest manifest, final boolean appChanged) {
 		String fn = file.getName();
 		fn = fn.substring(0, fn.length() - EXT_FRM.length());
 		logger.debug("Going to generate Form " + fn);
@@ -471,32 +724,38 @@ public class Generator {
 		} catch (final Exception e) {
 			e.printStackTrace();
 			logger.error("Form {} not generated. Error : {}, {}", fn, e, e.getMessage());
-			return;
+			return false;
 		}
 
 		if (!fn.equals(form.name)) {
 			logger.error("File {} contains form named {}. It is mandatory to use form name same as the filename", fn,
 					form.name);
-			return;
+			return false;
 		}
 		Record record = null;
 		record = records.get(form.recordName);
 		if (record == null) {
 			logger.error("Form {} uses record {}, but that record is not defined", form.name, form.recordName);
-			return;
+			return false;
+		}
+		final String key = "form/" + fn;
+		if (!toGenerate(manifest, key, file, appChanged || manifest.wasChanged("rec/" + form.recordName))) {
+			return true;
 		}
 		form.initialize(record);
 		final StringBuilder sbf = new StringBuilder();
 
 		final String cls = Util.toClassName(fn);
 		form.emitJavaForm(sbf, rootPackageName);
-		final String outPrefix = generatedSourceRootFolder + "form/" + cls;
-		Util.writeOut(outPrefix + "Form.java", sbf);
+		final String javaName = generatedSourceRootFolder + "form/" + cls + "Form.java";
+		Util.writeOut(javaName, sbf);
 
 		sbf.setLength(0);
 		form.emitTs(sbf, dataTypes.dataTypes, app.valueLists, app.keyedLists, tsImportPrefix);
-		Util.writeOut(tsOutputFolder + fn + "Form.ts", sbf);
-
+		final String tsName = tsOutputFolder + fn + "Form.ts";
+		Util.writeOut(tsName, sbf);
+		manifest.generated(key, javaName, tsName);
+		return true;
 	}
 
 	/**
@@ -507,10 +766,13 @@ public class Generator {
 	 * @param app
 	 * @param rootPackageName
 	 * @param tsImportPrefix
+	 * @param manifest
+	 * @param appChanged
+	 * @return record, if it is valid, whether or not it is generated.
 	 */
 	private static Record emitRecord(final File file, final String generatedSourceRootFolder,
 			final String tsOutputFolder, final DataTypes dataTypes, final Application app, final String packageName,
-			final String tsImportPrefix) {
+			final String tsImportPrefix, final GenManifest manifest, final boolean appChanged) {
 		String fn = file.getName();
 		fn = fn.substring(0, fn.length() - EXT_REC.length());
 		logger.debug("Going to generate record " + fn);
@@ -529,6 +791,13 @@ public class Generator {
 		}
 
 		record.init(dataTypes.dataTypes);
+		/*
+		 * record is required for the forms, even if it need not be generated
+		 */
+		final String key = "rec/" + fn;
+		if (!toGenerate(manifest, key, file, appChanged)) {
+			return record;
+		}
 
 		final String outNamePrefix = generatedSourceRootFolder + "rec/" + Util.toClassName(fn);
 		/*
@@ -536,8 +805,8 @@ public class Generator {
 		 */
 		final StringBuilder sbf = new StringBuilder();
 		record.emitJavaClass(sbf, packageName, dataTypes);
-		String outName = outNamePrefix + "Record.java";
-		Util.writeOut(outName, sbf);
+		final String recName = outNamePrefix + "Record.java";
+		Util.writeOut(recName, sbf);
 
 		/*
 		 * dbTable.java
@@ -545,14 +814,17 @@ public class Generator {
 		sbf.setLength(0);
 		record.emitJavaTableClass(sbf, packageName);
 		if (sbf.length() > 0) {
-			outName = outNamePrefix + "Table.java";
-			Util.writeOut(outName, sbf);
+			final String tableName = outNamePrefix + "Table.java";
+			Util.writeOut(tableName, sbf);
+			manifest.generated(key, recName, tableName);
+		} else {
+			manifest.generated(key, recName);
 		}
 		return record;
 	}
 
-	private static void emitSql(final File file, final String generatedSourceRootFolder, final DataTypes dataTypes,
-			final String packageName) {
+	private static boolean emitSql(final File file, final String generatedSourceRootFolder, final DataTypes dataTypes,
+			final String packageName, final GenManifest manifest, final String key) {
 		String fn = file.getName();
 		fn = fn.substring(0, fn.length() - EXT_SQL.length());
 		logger.debug("Going to generate Sql " + fn);
@@ -562,7 +834,7 @@ public class Generator {
 		} catch (final Exception e) {
 			e.printStackTrace();
 			logger.error("Sql {} not generated. Error : {}, {}", fn, e, e.getMessage());
-			return;
+			return false;
 		}
 		sql.init(dataTypes.dataTypes);
 		final String cls = Util.toClassName(fn) + "Sql";
@@ -570,13 +842,14 @@ public class Generator {
 		sql.emitJava(sbf, packageName, cls, Conventions.App.GENERATED_DATA_TYPES_CLASS_NAME, dataTypes.dataTypes);
 		final String outName = generatedSourceRootFolder + "sql/" + Util.toClassName(fn) + "Sql.java";
 		Util.writeOut(outName, sbf);
-
+		manifest.generated(key, outName);
+		return true;
 	}
 
-	private static boolean createOutputFolders(final String root, final String[] folders) {
+	private static boolean createOutputFolders(final String root, final String[] folders, final boolean clean) {
 		boolean allOk = true;
 		for (final String folder : folders) {
-			if (!ensureFolder(new File(root + folder))) {
+			if (!ensureFolder(new File(root + folder), clean)) {
 				allOk = false;
 			}
 		}
@@ -584,9 +857,22 @@ public class Generator {
 	}
 
 	private static boolean ensureFolder(final File f) {
+		return ensureFolder(f, true);
+	}
+
+	/**
+	 * @param f
+	 * @param clean
+	 *            if true, all files in the folder are deleted
+	 * @return true if all ok.
+	 */
+	private static boolean ensureFolder(final File f, final boolean clean) {
 		final String folder = f.getAbsolutePath();
 		if (f.exists()) {
 			if (f.isDirectory()) {
+				if (!clean) {
+					return true;
+				}
 				logger.debug("All files in folder {} are deleted", folder);
 				for (final File ff : f.listFiles()) {
 					if (!ff.delete()) {
@@ -641,7 +927,11 @@ public class Generator {
 
 	}
 
-	private static void emitTemplate(final File file, final String templateRoot, final String tsRootFolder) {
+	/**
+	 * @return paths of the generated files, or null if the template could not
+	 *         be generated
+	 */
+	private static String[] emitTemplate(final File file, final String templateRoot, final String tsRootFolder) {
 		String fn = file.getName();
 		fn = fn.substring(0, fn.length() - EXT_TEMPLATE.length());
 		ensureFolder(new File(templateRoot + fn));
@@ -651,15 +941,15 @@ public class Generator {
 		} catch (final Exception e) {
 			e.printStackTrace();
 			logger.error("Template {} not generated. Error : {}, {}", fn, e, e.getMessage());
-			return;
+			return null;
 		}
 
 		final StringBuilder sbf = new StringBuilder();
 		sbf.setLength(0);
-		template.emitTemplateTs(sbf, template, templateRoot, fn, tsRootFolder);
+		final String tsName = template.emitTemplateTs(sbf, template, templateRoot, fn, tsRootFolder);
 		sbf.setLength(0);
-		template.emitTemplateHtml(sbf, template, templateRoot, fn);
-
+		final String htmlName = template.emitTemplateHtml(sbf, template, templateRoot, fn);
+		return new String[] { tsName, htmlName };
 	}
 
 	private static void emitAllForms(String resourceRootFolder, String tsRootFolder) {
@@ -710,7 +1000,7 @@ public class Generator {
 		Util.writeOut(tsRootFolder + "/allForms.ts", sbf);
 	}
 
-	private static void emitPage(File file, String pageRoot, String resourceRootFolder) {
+	private static boolean emitPage(File file, String pageRoot, String resourceRootFolder) {
 		String fn = file.getName();
 		fn = fn.substring(0, fn.length() - EXT_PAGE.length());
 		final Page page;
@@ -719,7 +1009,7 @@ public class Generator {
 		} catch (final Exception e) {
 			e.printStackTrace();
 			logger.error("Template {} not generated. Error : {}, {}", fn, e, e.getMessage());
-			return;
+			return false;
 		}
 
 		StringBuilder sbf = new StringBuilder();
@@ -732,7 +1022,7 @@ public class Generator {
 			sbf = page.emitPageTs(sbf, page, resourceRootFolder);
 		}
 		Util.writeOut(pageRoot + fn + "-component.ts", sbf);
-
+		return true;
 	}
 
 	private static void emitRoutes(String routeRoot, String resourceRootFolder, String PageRoot) {
@@ -105,11 +105,7 @@ class KeyedList implements Util.ISelfLoader {
 		vals.append("\n\t\t\t{");
 		for (final Pair p : ps) {
 			vals.append("\n\t\t\t\t{");
-			if (p.value instanceof String) {
-				vals.append(Util.escape(p.value.toString()));
-			} else {
-				vals.append(p.value).append('L');
-			}
+			ValueList.emitJavaValue(vals, p.value);
 			vals.append(C).append(Util.escape(p.label)).append("}");
 			vals.append(C);
 		}
@@ -45,6 +45,10 @@ class LinkedForm {
 	String label;
 	boolean isEditable;
 	boolean isTabular;
+	/*
+	 * save only the child rows that are added/modified/removed
+	 */
+	boolean saveChangesOnly;
 	int index;
 
 	void emitJavaCode(final StringBuilder sbf, final Map<String, Field> fields, final int idx) {
@@ -88,6 +92,9 @@ class LinkedForm {
 			sbf.append(",null ,null");
 		}
 		sbf.append(C).append(this.isTabular);
+		if (this.saveChangesOnly) {
+			sbf.append(C).append(true);
+		}
 		sbf.append(");");
 
 		/*
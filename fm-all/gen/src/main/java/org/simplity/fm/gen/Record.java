@@ -35,7 +35,9 @@ import org.simplity.fm.core.Conventions;
 import org.simplity.fm.core.data.DbTable;
 import org.simplity.fm.core.data.FieldType;
 import org.simplity.fm.core.data.IoType;
+import org.simplity.fm.core.datatypes.ValueType;
 import org.simplity.fm.core.serialize.IInputObject;
+import org.simplity.fm.core.serialize.ISerializer;
 import org.simplity.fm.core.service.IServiceContext;
 import org.simplity.fm.core.validn.DependentListValidation;
 import org.simplity.fm.core.validn.ExclusiveValidation;
@@ -61,6 +63,7 @@ class Record {
 
 	private static final String C = ", ";
 	private static final String P = "\n\tprivate static final ";
+	private static final String[] BOXED_TYPES = getBoxedTypes();
 
 	/*
 	 * fields that are read directly from json
@@ -70,6 +73,19 @@ class Record {
 	boolean useTimestampCheck;
 	String customValidation;
 	String[] operations;
+	/*
+	 * rows are cached by primary key if this is positive
+	 */
+	int cacheMaxEntries;
+	/*
+	 * cached rows expire after these many seconds. 0 means no expiry
+	 */
+	int cacheTtlSeconds;
+	/*
+	 * emit code specific to this record to read/write json, instead of using
+	 * the generic field-by-field loop
+	 */
+	boolean generateJsonCode;
 	/*
 	 * reason we have it as an array rather than a MAP is that the sequence,
 	 * though not recommended, could be hard-coded by some coders
@@ -277,6 +293,9 @@ class Record {
 			Util.emitImport(sbf, org.simplity.fm.core.data.DbField.class);
 			Util.emitImport(sbf, org.simplity.fm.core.data.DbRecord.class);
 			Util.emitImport(sbf, FieldType.class);
+			if (this.isCached()) {
+				Util.emitImport(sbf, org.simplity.fm.core.data.RecordCache.class);
+			}
 		} else {
 			Util.emitImport(sbf, org.simplity.fm.core.data.Record.class);
 		}
@@ -297,6 +316,9 @@ class Record {
 			Util.emitImport(sbf, InclusiveValidation.class);
 		}
 		Util.emitImport(sbf, DependentListValidation.class);
+		if (this.generateJsonCode) {
+			Util.emitImport(sbf, ISerializer.class);
+		}
 		/*
 		 * data types are directly referred to the static declarations
 		 */
@@ -342,6 +364,10 @@ class Record {
 		sbf.append("\n\t\treturn (List<").append(cls)
 				.append(">) super.parseTable(inputObject, memberName, forInsert, ctx);\n\t}");
 
+		if (this.generateJsonCode && this.fields != null) {
+			this.emitJsonMethods(sbf, typesName, dataTypes);
+		}
+
 		/*
 		 * getters and setters
 		 */
@@ -349,6 +375,48 @@ class Record {
 		sbf.append("\n}\n");
 	}
 
+	/*
+	 * straight-line code to write/read fields, with typed values and data
+	 * types that are known at compile time
+	 */
+	private void emitJsonMethods(final StringBuilder sbf, final String typesName, final DataTypes dataTypes) {
+		sbf.append("\n\n\t@Override\n\tpublic void writeJson(final ISerializer writer) {");
+		sbf.append("\n\t\tif (this.isOverridden()) {");
+		sbf.append("\n\t\t\tsuper.writeJson(writer);\n\t\t\treturn;\n\t\t}");
+		sbf.append("\n\t\tfinal Object[] values = this.fieldValues;");
+		for (final Field field : this.fields) {
+			final DataType dt = dataTypes.dataTypes.get(field.dataType);
+			final int idx = field.index;
+			sbf.append("\n\t\twriter.name(").append(Util.escape(field.name)).append(");");
+			if (dt == null) {
+				sbf.append("\n\t\twriter.primitiveObject(values[").append(idx).append("]);");
+				continue;
+			}
+			sbf.append("\n\t\tif (values[").append(idx).append("] == null) {");
+			sbf.append("\n\t\t\twriter.primitiveObject(null);");
+			sbf.append("\n\t\t} else {");
+			sbf.append("\n\t\t\twriter.value((").append(BOXED_TYPES[dt.valueType.ordinal()]).append(") values[")
+					.append(idx).append("]);");
+			sbf.append("\n\t\t}");
+		}
+		sbf.append("\n\t}");
+
+		sbf.append("\n\n\t@Override\n\tprotected boolean readJson(final IInputObject json, ");
+		sbf.append("final IServiceContext ctx, final String tableName, final int rowNbr) {");
+		sbf.append("\n\t\tif (this.isOverridden()) {");
+		sbf.append("\n\t\t\treturn super.readJson(json, ctx, tableName, rowNbr);\n\t\t}");
+		sbf.append("\n\t\tfinal Object[] values = this.fieldValues;");
+		sbf.append("\n\t\tboolean ok = true;");
+		sbf.append("\n\t\tString s;");
+		for (final Field field : this.fields) {
+			final int idx = field.index;
+			sbf.append("\n\t\ts = json.getString(").append(Util.escape(field.name)).append(");");
+			sbf.append("\n\t\tok = FIELDS[").append(idx).append("].parseIntoRow(s, s == null || s.isEmpty() ? null : ");
+			sbf.append(typesName).append('.').append(field.dataType).append(".parse(s), values, ctx, tableName, rowNbr) && ok;");
+		}
+		sbf.append("\n\t\treturn ok;\n\t}");
+	}
+
 	static private void emitNonDbSpecific(final StringBuilder sbf, final String cls) {
 		/*
 		 * constructor
@@ -393,6 +461,10 @@ class Record {
 		} else {
 			sbf.append("INSERT, INSERT_IDX, UPDATE, UPDATE_IDX, DELETE, WHERE, WHERE_IDX");
 		}
+		if (this.isCached()) {
+			sbf.append(", new RecordCache(").append(this.cacheMaxEntries).append(C).append(this.cacheTtlSeconds)
+					.append(')');
+		}
 		sbf.append(");");
 		/*
 		 * constructor
@@ -404,6 +476,22 @@ class Record {
 		sbf.append("\n\tpublic ").append(cls).append("(Object[] values) {\n\t\tsuper(DBA, META, values);\n\t}");
 	}
 
+	private static String[] getBoxedTypes() {
+		final ValueType[] types = ValueType.values();
+		final String[] result = new String[types.length];
+		result[ValueType.Boolean.ordinal()] = "Boolean";
+		result[ValueType.Date.ordinal()] = "LocalDate";
+		result[ValueType.Decimal.ordinal()] = "Double";
+		result[ValueType.Integer.ordinal()] = "Long";
+		result[ValueType.Text.ordinal()] = "String";
+		result[ValueType.Timestamp.ordinal()] = "Instant";
+		return result;
+	}
+
+	private boolean isCached() {
+		return this.keyFields != null && this.cacheMaxEntries > 0;
+	}
+
 	private void emitJavaFields(final StringBuilder sbf, final String dataTypesName, final boolean isDb) {
 		sbf.append("\n\tprivate static final Field[] FIELDS = ");
 		if (this.fields == null) {
@@ -438,6 +526,10 @@ class Record {
 				set.add(s);
 			}
 		}
+		//aggregate is allowed whenever filter is allowed
+		if(set != null && set.contains(IoType.Filter.name())) {
+			set.add(IoType.Aggregate.name());
+		}
 		for(IoType op : IoType.values()) {
 			if(set != null && set.contains(op.name())) {
 				sbf.append("true,");
@@ -48,7 +48,7 @@ public class Template {
 	 * @param keyedLists
 	 * @param tsImportPrefix
 	 */
-	void emitTemplateTs(StringBuilder sbf, Template template, final String templateRoot, final String fn,
+	String emitTemplateTs(StringBuilder sbf, Template template, final String templateRoot, final String fn,
 			final String tsRootFolder) {
 		if (template.templateType.equalsIgnoreCase("form")) {
 			sbf = getFormTs(template, sbf, tsRootFolder);
@@ -56,18 +56,21 @@ public class Template {
 		if (template.templateType.equalsIgnoreCase("table")) {
 			sbf = getTableTs(template, sbf, tsRootFolder);
 		}
-		Util.writeOut(templateRoot + "/" + fn + "/" + "component.ts", sbf);
-
+		final String outName = templateRoot + "/" + fn + "/" + "component.ts";
+		Util.writeOut(outName, sbf);
+		return outName;
 	}
 
-	void emitTemplateHtml(StringBuilder sbf, Template template, final String templateRoot, final String fn) {
+	String emitTemplateHtml(StringBuilder sbf, Template template, final String templateRoot, final String fn) {
 		if (template.templateType.equalsIgnoreCase("form")) {
 			sbf = getFormHtml(template, sbf);
 		}
 		if (template.templateType.equalsIgnoreCase("table")) {
 			sbf = getTableHtml(template, sbf);
 		}
-		Util.writeOut(templateRoot + "/" + fn + "/" + "component.html", sbf);
+		final String outName = templateRoot + "/" + fn + "/" + "component.html";
+		Util.writeOut(outName, sbf);
+		return outName;
 	}
 
 	/**
@@ -27,6 +27,9 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Map;
 
 import org.simplity.fm.core.datatypes.BooleanType;
@@ -203,8 +206,14 @@ class Util {
 	}
 
 	static void writeOut(final String fileName, final StringBuilder sbf) {
-		try (Writer writer = new FileWriter(new File(fileName))) {
-			writer.write(sbf.toString());
+		final File file = new File(fileName);
+		final String text = sbf.toString();
+		if (isSame(file, text)) {
+			logger.debug("File {} is not re-written as its content has not changed.", fileName);
+			return;
+		}
+		try (Writer writer = new FileWriter(file)) {
+			writer.write(text);
 			logger.debug("File {} generated.", fileName);
 		} catch (final Exception e) {
 			logger.error("Error while writing file {} \n {}", fileName, e.getMessage());
@@ -212,6 +221,25 @@ class Util {
 
 	}
 
+	/*
+	 * a file is not re-written if its content is the same, so that its time
+	 * stamp does not trigger down-stream builds
+	 */
+	private static boolean isSame(final File file, final String text) {
+		if (file.exists() == false) {
+			return false;
+		}
+		final byte[] bytes = text.getBytes(Charset.defaultCharset());
+		if (file.length() != bytes.length) {
+			return false;
+		}
+		try {
+			return Arrays.equals(bytes, Files.readAllBytes(file.toPath()));
+		} catch (final IOException e) {
+			return false;
+		}
+	}
+
 	/**
 	 *
 	 * @param obj
@@ -22,6 +22,9 @@
 
 package org.simplity.fm.gen;
 
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 import com.google.gson.stream.JsonReader;
 
 /**
@@ -51,11 +54,7 @@ class ValueList implements Util.ISelfLoader {
 		sbf.append("\n\t private static final Object[][] VALUES = { ");
 		for (final Pair p : this.pairs) {
 			sbf.append("\n\t\t{");
-			if (p.value instanceof String) {
-				sbf.append(Util.escape(p.value.toString()));
-			} else {
-				sbf.append(p.value).append('L');
-			}
+			emitJavaValue(sbf, p.value);
 			sbf.append(C).append(Util.escape(p.label)).append("}");
 			sbf.append(C);
 		}
@@ -73,9 +72,50 @@ class ValueList implements Util.ISelfLoader {
 		sbf.append("\n\t\tsuper(NAME, VALUES);");
 		sbf.append("\n\t}");
 
+		this.emitIsMember(sbf);
 		sbf.append("\n}\n");
 	}
 
+	/**
+	 * a text list checks membership with a switch on the value, instead of a
+	 * set look-up. Numeric lists use the primitive look-up of the base class
+	 */
+	private void emitIsMember(final StringBuilder sbf) {
+		final Set<String> texts = new LinkedHashSet<>();
+		for (final Pair p : this.pairs) {
+			if (p.value instanceof String == false || ((String) p.value).isEmpty()) {
+				return;
+			}
+			texts.add((String) p.value);
+		}
+
+		sbf.append("\n\n\t@Override");
+		sbf.append("\n\tprotected boolean isMember(final Object fieldValue) {");
+		sbf.append("\n\t\tif (this.valueList != VALUES) {");
+		sbf.append("\n\t\t\treturn super.isMember(fieldValue);");
+		sbf.append("\n\t\t}");
+		sbf.append("\n\t\tswitch (fieldValue.toString()) {");
+		for (final String text : texts) {
+			sbf.append("\n\t\tcase ").append(Util.escape(text)).append(':');
+		}
+		sbf.append("\n\t\t\treturn true;");
+		sbf.append("\n\t\tdefault:");
+		sbf.append("\n\t\t\treturn false;");
+		sbf.append("\n\t\t}");
+		sbf.append("\n\t}");
+	}
+
+	/**
+	 * numbers are loaded as double by gson, but are long in a value list
+	 */
+	static void emitJavaValue(final StringBuilder sbf, final Object value) {
+		if (value instanceof Number) {
+			sbf.append(((Number) value).longValue()).append('L');
+		} else {
+			sbf.append(Util.escape(value.toString()));
+		}
+	}
+
 	protected void emitTs(final StringBuilder sbf, final String indent) {
 		for (int i = 0; i < this.pairs.length; i++) {
 			if (i != 0) {
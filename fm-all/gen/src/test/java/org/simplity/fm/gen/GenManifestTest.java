@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2020 simplity.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package org.simplity.fm.gen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * incremental generation: what is regenerated, what is retained, and what is
+ * deleted across runs
+ *
+ * @author simplity.org
+ *
+ */
+public class GenManifestTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File manifestFile;
+	private File rec;
+	private File form;
+	private File app;
+
+	@Before
+	public void setup() throws IOException {
+		this.manifestFile = new File(this.folder.getRoot(), GenManifest.FILE_NAME);
+		this.app = this.write("application.json", "{}");
+		this.rec = this.write("customer.rec.json", "{\"name\":\"customer\"}");
+		this.form = this.write("customer.frm.json", "{\"name\":\"customer\"}");
+	}
+
+	private File write(final String name, final String text) throws IOException {
+		final File f = new File(this.folder.getRoot(), name);
+		Files.write(f.toPath(), text.getBytes(StandardCharsets.UTF_8));
+		return f;
+	}
+
+	/**
+	 * one run of the generator: output for rec and form, with their
+	 * dependencies as the generator has them
+	 */
+	private String[] run(final boolean incremental, final String recOutput, final String formOutput)
+			throws IOException {
+		final GenManifest manifest = new GenManifest(this.manifestFile, incremental);
+		final boolean appChanged = manifest.isChanged("app", this.app);
+		manifest.generated("app");
+		final String[] generated = new String[2];
+		if (Generator.toGenerate(manifest, "rec/customer", this.rec, appChanged)) {
+			this.write(recOutput, "rec");
+			manifest.generated("rec/customer", new File(this.folder.getRoot(), recOutput).getPath());
+			generated[0] = recOutput;
+		}
+		if (Generator.toGenerate(manifest, "form/customer", this.form,
+				appChanged || manifest.wasChanged("rec/customer"))) {
+			if (formOutput != null) {
+				this.write(formOutput, "form");
+				manifest.generated("form/customer", new File(this.folder.getRoot(), formOutput).getPath());
+				generated[1] = formOutput;
+			}
+		}
+		manifest.save();
+		return generated;
+	}
+
+	private boolean exists(final String name) {
+		return new File(this.folder.getRoot(), name).exists();
+	}
+
+	@Test
+	public void unchangedInputsAreRetained() throws IOException {
+		String[] generated = this.run(true, "Customer.java", "CustomerForm.java");
+		assertEquals("Customer.java", generated[0]);
+		assertEquals("CustomerForm.java", generated[1]);
+		assertTrue(this.manifestFile.exists());
+
+		generated = this.run(true, "Customer.java", "CustomerForm.java");
+		assertEquals(null, generated[0]);
+		assertEquals(null, generated[1]);
+		assertTrue("retained outputs are not deleted", this.exists("Customer.java"));
+		assertTrue(this.exists("CustomerForm.java"));
+
+		// and they are carried forward to the next run as well
+		generated = this.run(true, "Customer.java", "CustomerForm.java");
+		assertEquals(null, generated[0]);
+		assertTrue(this.exists("Customer.java"));
+	}
+
+	@Test
+	public void fullRunIgnoresThePreviousManifest() throws IOException {
+		this.run(true, "Customer.java", "CustomerForm.java");
+		final String[] generated = this.run(false, "Customer.java", "CustomerForm.java");
+		assertEquals("Customer.java", generated[0]);
+		assertEquals("CustomerForm.java", generated[1]);
+	}
+
+	@Test
+	public void changeInAppRegeneratesAll() throws IOException {
+		this.run(true, "Customer.java", "CustomerForm.java");
+		this.write("application.json", "{\"name\":\"changed\"}");
+		final String[] generated = this.run(true, "Customer.java", "CustomerForm.java");
+		assertEquals("Customer.java", generated[0]);
+		assertEquals("CustomerForm.java", generated[1]);
+	}
+
+	@Test
+	public void changeInRecordRegeneratesItsForm() throws IOException {
+		this.run(true, "Customer.java", "CustomerForm.java");
+		this.write("customer.rec.json", "{\"name\":\"customer\", \"changed\":true}");
+		final String[] generated = this.run(true, "Customer.java", "CustomerForm.java");
+		assertEquals("Customer.java", generated[0]);
+		assertEquals("CustomerForm.java", generated[1]);
+
+		// a change in the form alone does not regenerate the record
+		this.write("customer.frm.json", "{\"name\":\"customer\", \"changed\":true}");
+		final String[] again = this.run(true, "Customer.java", "CustomerForm.java");
+		assertEquals(null, again[0]);
+		assertEquals("CustomerForm.java", again[1]);
+	}
+
+	@Test
+	public void failedInputIsRetriedInTheNextRun() throws IOException {
+		this.run(true, "Customer.java", "CustomerForm.java");
+		this.write("customer.frm.json", "{\"name\":\"customer\", \"changed\":true}");
+		// form fails to generate: no outputs recorded
+		String[] generated = this.run(true, "Customer.java", null);
+		assertEquals(null, generated[1]);
+
+		generated = this.run(true, "Customer.java", "CustomerForm.java");
+		assertEquals("form is tried again though its content has not changed since the last run",
+				"CustomerForm.java", generated[1]);
+	}
+
+	@Test
+	public void obsoleteOutputsAreDeleted() throws IOException {
+		this.run(true, "Customer.java", "CustomerForm.java");
+		this.write("customer.rec.json", "{\"name\":\"customer\", \"changed\":true}");
+		this.run(true, "Client.java", "CustomerForm.java");
+		assertTrue(this.exists("Client.java"));
+		assertFalse("output that is no longer generated is deleted", this.exists("Customer.java"));
+		assertTrue(this.exists("CustomerForm.java"));
+
+		// input is removed altogether
+		final GenManifest manifest = new GenManifest(this.manifestFile, true);
+		manifest.isChanged("app", this.app);
+		manifest.generated("app");
+		manifest.save();
+		assertFalse(this.exists("Client.java"));
+		assertFalse(this.exists("CustomerForm.java"));
+	}
+}